@@ -0,0 +1,41 @@
+package com.frc8.team8vision.android;
+
+import android.os.Process;
+import android.util.Log;
+
+import com.frc8.team8vision.util.Constants;
+import com.frc8.team8vision.vision.ThreadTuning;
+
+/**
+ * Tunes the pipeline's threads with Android's scheduling priorities, which reach further
+ * than Java's: the camera thread runs like the display does, processing just below it and
+ * the transports in the background so a socket write never delays a frame; warm-ups and
+ * shadow processors get whatever is left. Android has no public way to place a thread on
+ * particular cores, so that is left to the kernel.
+ */
+public class AndroidThreadTuner implements ThreadTuning.Tuner {
+
+	@Override
+	public void tune(ThreadTuning.Role role) {
+		final int priority;
+		switch (role) {
+			case CAMERA:
+				priority = Process.THREAD_PRIORITY_URGENT_DISPLAY;
+				break;
+			case PROCESSING:
+				priority = Process.THREAD_PRIORITY_DISPLAY;
+				break;
+			case BACKGROUND:
+				priority = Process.THREAD_PRIORITY_LOWEST;
+				break;
+			default:
+				priority = Process.THREAD_PRIORITY_BACKGROUND;
+				break;
+		}
+		try {
+			Process.setThreadPriority(priority);
+		} catch (SecurityException | IllegalArgumentException e) {
+			Log.w(Constants.kTAG, "Cannot set the priority of " + Thread.currentThread().getName() + ": " + e);
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package com.frc8.team8vision.android;
+
+import android.hardware.Camera;
+
+import com.frc8.team8vision.vision.sources.AbstractFrameSource;
+import com.frc8.team8vision.vision.sources.Frame;
+import com.frc8.team8vision.vision.telemetry.StripedCounter;
+import com.frc8.team8vision.vision.telemetry.Telemetry;
+
+/**
+ * Delivers NV21 preview frames from a camera that is already configured and opened.
+ *
+ * Each frame of the pool owns one preview callback buffer, and a buffer is only given
+ * back to the camera once its frame is free again. The camera thread never copies pixels
+ * or waits on the consumer: it just publishes the frame that owns the filled buffer.
+ * Only the newest frame waits for the consumer; when a newer one arrives before it is
+ * taken, the older one is dropped and its buffer goes straight back to the camera. With
+ * three or more buffers the camera always has one to fill, so every frame the camera
+ * captures is either delivered or counted as dropped.
+ */
+public class CameraFrameSource extends AbstractFrameSource implements Camera.PreviewCallback {
+
+	private final Camera mCamera;
+	private final int mWidth, mHeight;
+	private final Frame[] mFrames;
+	private final FrameRecorder mRecorder;
+	private static final StripedCounter kDropped = Telemetry.counter(Telemetry.kDropped + "camera");
+
+	// Guarded by this
+	private Frame mReady = null;
+	private boolean mRunning = false;
+	private long mSequence = 0;
+
+	/**
+	 * @param camera Camera with its NV21 preview size already set
+	 * @param width Width of the landscape preview frame
+	 * @param height Height of the landscape preview frame
+	 * @param bufferCount Number of callback buffers, at least three
+	 * @param recorder Recorder to hand every preview frame to, or null
+	 */
+	public CameraFrameSource(Camera camera, int width, int height, int bufferCount, FrameRecorder recorder) {
+		super(false);
+		mCamera = camera;
+		mWidth = width;
+		mHeight = height;
+		mRecorder = recorder;
+		mFrames = new Frame[Math.max(3, bufferCount)];
+		for (int i = 0; i < mFrames.length; i++) {
+			mFrames[i] = new Frame(width, height, Frame.FORMAT_NV21, true);
+		}
+	}
+
+	@Override
+	public boolean start() {
+		synchronized (this) {
+			mRunning = true;
+		}
+		for (Frame frame : mFrames) mCamera.addCallbackBuffer(frame.buffer());
+		mCamera.setPreviewCallbackWithBuffer(this);
+		return true;
+	}
+
+	@Override
+	public void onPreviewFrame(byte[] data, Camera camera) {
+		final long timestamp = System.nanoTime();
+		if (mRecorder != null) mRecorder.record(data, timestamp);
+
+		final Frame frame = frameFor(data);
+		if (frame == null) return;
+
+		final Frame stale;
+		synchronized (this) {
+			frame.stamp(mSequence++, timestamp);
+			stale = mReady;
+			mReady = frame;
+			notify();
+		}
+		if (stale != null) {
+			onDropped(1);
+			kDropped.increment();
+			mCamera.addCallbackBuffer(stale.buffer());
+		}
+	}
+
+	@Override
+	public synchronized Frame next() throws InterruptedException {
+		while (mRunning && mReady == null) wait();
+		if (!mRunning) return null;
+
+		final Frame frame = mReady;
+		mReady = null;
+		onDelivered();
+		return frame;
+	}
+
+	@Override
+	public void release(Frame frame) {
+		mCamera.addCallbackBuffer(frame.buffer());
+	}
+
+	@Override
+	public synchronized void stop() {
+		mRunning = false;
+		notifyAll();
+	}
+
+	/**
+	 * Frees the frames. The camera must be released first so it no longer writes to them.
+	 */
+	@Override
+	public void close() {
+		stop();
+		for (Frame frame : mFrames) frame.release();
+	}
+
+	private Frame frameFor(byte[] data) {
+		for (Frame frame : mFrames) {
+			if (frame.buffer() == data) return frame;
+		}
+		return null;
+	}
+
+	@Override
+	public int getWidth() {
+		return mWidth;
+	}
+	@Override
+	public int getHeight() {
+		return mHeight;
+	}
+}
@@ -0,0 +1,239 @@
+package com.frc8.team8vision.android;
+
+import android.util.Log;
+
+import com.frc8.team8vision.util.Constants;
+import com.frc8.team8vision.util.VisionPreferences;
+import com.frc8.team8vision.util.VisionSettings;
+import com.frc8.team8vision.vision.ThreadTuning;
+import com.frc8.team8vision.vision.sources.RingFileFormat;
+import com.frc8.team8vision.vision.telemetry.StripedCounter;
+import com.frc8.team8vision.vision.telemetry.Telemetry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.frc8.team8vision.vision.sources.RingFileFormat.*;
+
+/**
+ * Records raw NV21 preview frames into a preallocated, memory-mapped ring file so
+ * match footage can be replayed later.
+ *
+ * The camera thread only copies each frame into a free staging buffer; writing to the
+ * mapped file happens on the recorder's own thread. If every staging buffer is still
+ * waiting on the disk the frame is dropped rather than blocking the camera.
+ *
+ * The file layout is described in {@link RingFileFormat}; recordings can be played back
+ * with {@link com.frc8.team8vision.vision.sources.RingFileFrameSource}.
+ */
+public class FrameRecorder implements Runnable {
+
+	private static final String TAG = Constants.kTAG+"FrameRecorder";
+
+	/**
+	 * A copy of one preview frame and the settings that were active when it arrived.
+	 */
+	private static class PendingFrame {
+		final byte[] data;
+		final int[] sliders = new int[6];
+		int length, flags, processor;
+		long sequence, timestamp;
+		float xShift, zShift;
+
+		PendingFrame(int frameBytes) {
+			data = new byte[frameBytes];
+		}
+	}
+
+	private final File mFile;
+	private final int mWidth, mHeight, mFrameBytes, mSlotCount, mSlotBytes;
+
+	private final ArrayBlockingQueue<PendingFrame> mFree, mFilled;
+	private final AtomicLong mDropped = new AtomicLong(), mRecorded = new AtomicLong();
+	private static final StripedCounter kDropped = Telemetry.counter(Telemetry.kDropped + "recorder");
+
+	private RandomAccessFile mRandomAccessFile;
+	private MappedByteBuffer mMap;
+	private Thread mThread;
+	private volatile boolean mRunning = false;
+	private long mNextSequence = 0;
+
+	/**
+	 * @param file Ring file to create or overwrite
+	 * @param width Width of the landscape preview frame
+	 * @param height Height of the landscape preview frame
+	 * @param frameBytes Size of one NV21 preview buffer
+	 * @param slotCount Number of frames kept in the ring
+	 * @param stagingCount Number of frames that may wait for the disk before frames are dropped
+	 */
+	public FrameRecorder(File file, int width, int height, int frameBytes, int slotCount, int stagingCount) {
+		mFile = file;
+		mWidth = width;
+		mHeight = height;
+		mFrameBytes = frameBytes;
+		mSlotCount = slotCount;
+		mSlotBytes = FRAME_HEADER_BYTES + frameBytes;
+
+		mFree = new ArrayBlockingQueue<>(stagingCount);
+		mFilled = new ArrayBlockingQueue<>(stagingCount);
+		for (int i = 0; i < stagingCount; i++) mFree.offer(new PendingFrame(frameBytes));
+	}
+
+	/**
+	 * Maps the ring file and starts the writer thread.
+	 *
+	 * @return Whether or not the file could be mapped
+	 */
+	public boolean start() {
+		try {
+			final long size = FILE_HEADER_BYTES + (long)mSlotCount * mSlotBytes;
+			mRandomAccessFile = new RandomAccessFile(mFile, "rw");
+			mRandomAccessFile.setLength(size);
+			mMap = mRandomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+			mMap.order(ByteOrder.LITTLE_ENDIAN);
+		} catch (IOException e) {
+			Log.e(TAG, "Could not map recording file " + mFile + ": " + e.toString());
+			closeFile();
+			return false;
+		}
+
+		mMap.putInt(HDR_MAGIC, MAGIC);
+		mMap.putInt(HDR_VERSION, VERSION);
+		mMap.putInt(HDR_WIDTH, mWidth);
+		mMap.putInt(HDR_HEIGHT, mHeight);
+		mMap.putInt(HDR_FRAME_BYTES, mFrameBytes);
+		mMap.putInt(HDR_SLOT_COUNT, mSlotCount);
+		mMap.putLong(HDR_LAST_SEQUENCE, -1);
+		mMap.putLong(HDR_FRAMES_WRITTEN, 0);
+
+		Log.i(TAG, "Recording " + mWidth + "x" + mHeight + " frames to " + mFile);
+		mRunning = true;
+		mThread = new Thread(this, "FrameRecorder");
+		mThread.start();
+		return true;
+	}
+
+	/**
+	 * Hands a preview frame to the recorder. Called on the camera thread; never blocks.
+	 *
+	 * @param frame NV21 preview buffer, which may be reused as soon as this returns
+	 * @param timestamp Capture time in nanoseconds
+	 * @return Whether the frame was queued, false if it was dropped
+	 */
+	public boolean record(byte[] frame, long timestamp) {
+		if (!mRunning) return false;
+
+		final long sequence = mNextSequence++;
+		final PendingFrame pending = mFree.poll();
+		if (pending == null) {
+			mDropped.incrementAndGet();
+			kDropped.increment();
+			return false;
+		}
+
+		pending.length = Math.min(frame.length, mFrameBytes);
+		System.arraycopy(frame, 0, pending.data, 0, pending.length);
+		pending.sequence = sequence;
+		pending.timestamp = timestamp;
+
+		final VisionSettings settings = VisionPreferences.getSettings();
+		pending.flags = (settings.isTrackingLeft() ? FLAG_TRACKING_LEFT : 0)
+				| (settings.isDynamicTracking() ? FLAG_DYNAMIC_TRACKING : 0)
+				| (settings.isTuningMode() ? FLAG_TUNING_MODE : 0)
+				| (settings.isFlashlightOn() ? FLAG_FLASHLIGHT_ON : 0);
+		pending.processor = settings.getProcessorType().ordinal();
+		pending.xShift = settings.getX_shift();
+		pending.zShift = settings.getZ_shift();
+		for (int i = 0; i < pending.sliders.length; i++) pending.sliders[i] = settings.getSliderValue(i);
+
+		mFilled.offer(pending);
+		return true;
+	}
+
+	@Override
+	public void run() {
+		ThreadTuning.tune(ThreadTuning.Role.TRANSPORT);
+		while (mRunning) {
+			try {
+				write(mFilled.take());
+			} catch (InterruptedException e) {
+				// Woken up by stop()
+			}
+		}
+
+		// Flush whatever the camera handed over before stopping
+		PendingFrame pending;
+		while ((pending = mFilled.poll()) != null) write(pending);
+	}
+
+	/**
+	 * Copies a staged frame into its ring slot and returns the staging buffer.
+	 */
+	private void write(PendingFrame pending) {
+		final int slot = FILE_HEADER_BYTES + (int)(pending.sequence % mSlotCount) * mSlotBytes;
+
+		// Invalidate the slot while it is being rewritten
+		mMap.putLong(slot + FRM_SEQUENCE, -1);
+		mMap.putLong(slot + FRM_TIMESTAMP_NS, pending.timestamp);
+		mMap.putInt(slot + FRM_LENGTH, pending.length);
+		mMap.put(slot + FRM_FLAGS, (byte)pending.flags);
+		mMap.put(slot + FRM_PROCESSOR, (byte)pending.processor);
+		mMap.putFloat(slot + FRM_X_SHIFT, pending.xShift);
+		mMap.putFloat(slot + FRM_Z_SHIFT, pending.zShift);
+		for (int i = 0; i < pending.sliders.length; i++) mMap.putInt(slot + FRM_SLIDERS + 4*i, pending.sliders[i]);
+
+		mMap.position(slot + FRAME_HEADER_BYTES);
+		mMap.put(pending.data, 0, pending.length);
+		mMap.putLong(slot + FRM_SEQUENCE, pending.sequence);
+
+		mMap.putLong(HDR_LAST_SEQUENCE, pending.sequence);
+		mMap.putLong(HDR_FRAMES_WRITTEN, mRecorded.incrementAndGet());
+
+		mFree.offer(pending);
+	}
+
+	/**
+	 * Stops the writer thread, flushes the ring file and logs how many frames were dropped.
+	 */
+	public void stop() {
+		if (!mRunning) return;
+
+		mRunning = false;
+		mThread.interrupt();
+		try {
+			mThread.join();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		mThread = null;
+
+		mMap.force();
+		closeFile();
+		Log.i(TAG, "Recorded " + mRecorded.get() + " frames, dropped " + mDropped.get());
+	}
+
+	private void closeFile() {
+		if (mRandomAccessFile != null) {
+			try {
+				mRandomAccessFile.close();
+			} catch (IOException e) {
+				Log.e(TAG, "Error closing recording file: " + e.toString());
+			}
+			mRandomAccessFile = null;
+		}
+	}
+
+	public long getDroppedFrames() {
+		return mDropped.get();
+	}
+
+	public long getRecordedFrames() {
+		return mRecorded.get();
+	}
+}
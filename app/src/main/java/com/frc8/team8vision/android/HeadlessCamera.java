@@ -0,0 +1,141 @@
+package com.frc8.team8vision.android;
+
+import android.graphics.ImageFormat;
+import android.graphics.SurfaceTexture;
+import android.hardware.Camera;
+import android.util.Log;
+
+import com.frc8.team8vision.util.Constants;
+import com.frc8.team8vision.vision.FrameOrientation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A camera that is not shown on screen, whose NV21 preview frames are only delivered to a
+ * {@link CameraFrameSource} for a pipeline to process.
+ *
+ * The preview goes to a texture nobody draws, as the camera needs somewhere to put it.
+ * Many devices cannot stream from more than one camera at a time, so a camera that fails
+ * to open or start is logged and left out.
+ */
+public class HeadlessCamera {
+
+	private static final String TAG = Constants.kTAG+"HeadlessCamera";
+	private static final int MAGIC_TEXTURE_ID = 11;
+
+	private final int mId;
+	private final FrameOrientation mOrientation;
+	private final Camera mCamera;
+	private final SurfaceTexture mSurfaceTexture;
+	private final CameraFrameSource mSource;
+
+	private HeadlessCamera(int id, FrameOrientation orientation, Camera camera, SurfaceTexture texture,
+						   CameraFrameSource source) {
+		mId = id;
+		mOrientation = orientation;
+		mCamera = camera;
+		mSurfaceTexture = texture;
+		mSource = source;
+	}
+
+	/**
+	 * @return Indices of the back cameras other than the given one
+	 */
+	public static List<Integer> otherBackCameras(int cameraId) {
+		final List<Integer> ids = new ArrayList<>();
+		final Camera.CameraInfo info = new Camera.CameraInfo();
+		for (int i = 0; i < Camera.getNumberOfCameras(); i++) {
+			Camera.getCameraInfo(i, info);
+			if (i != cameraId && info.facing == Camera.CameraInfo.CAMERA_FACING_BACK) ids.add(i);
+		}
+		return ids;
+	}
+
+	/**
+	 * Opens the camera and starts its preview. Its source is started by whoever processes it.
+	 *
+	 * @param maxWidth Largest width of the landscape preview frame
+	 * @param maxHeight Largest height of the landscape preview frame
+	 * @param bufferCount Number of callback buffers of the source
+	 * @return The camera, or null if it could not be opened
+	 */
+	public static HeadlessCamera open(int cameraId, int maxWidth, int maxHeight, int bufferCount) {
+		final Camera camera;
+		try {
+			camera = Camera.open(cameraId);
+		} catch (RuntimeException e) {
+			Log.e(TAG, "Camera #" + cameraId + " failed to open: " + e.getMessage());
+			return null;
+		}
+
+		SurfaceTexture texture = null;
+		try {
+			final Camera.Parameters params = camera.getParameters();
+			final Camera.Size size = previewSize(params.getSupportedPreviewSizes(), maxWidth, maxHeight);
+			params.setPreviewFormat(ImageFormat.NV21);
+			params.setPreviewSize(size.width, size.height);
+			params.setRecordingHint(true);
+			final List<String> focusModes = params.getSupportedFocusModes();
+			if (focusModes != null && focusModes.contains(Camera.Parameters.FOCUS_MODE_CONTINUOUS_VIDEO)) {
+				params.setFocusMode(Camera.Parameters.FOCUS_MODE_CONTINUOUS_VIDEO);
+			}
+			camera.setParameters(params);
+
+			final Camera.Size actual = camera.getParameters().getPreviewSize();
+			final CameraFrameSource source = new CameraFrameSource(camera, actual.width, actual.height, bufferCount, null);
+			texture = new SurfaceTexture(MAGIC_TEXTURE_ID);
+			camera.setPreviewTexture(texture);
+			camera.startPreview();
+			Log.i(TAG, "Camera #" + cameraId + " delivering " + actual.width + "x" + actual.height + " frames");
+			final Camera.CameraInfo info = new Camera.CameraInfo();
+			Camera.getCameraInfo(cameraId, info);
+			return new HeadlessCamera(cameraId, FrameOrientation.fromDegrees(info.orientation), camera, texture, source);
+		} catch (IOException | RuntimeException e) {
+			Log.e(TAG, "Camera #" + cameraId + " failed to start: " + e.getMessage());
+			camera.release();
+			if (texture != null) texture.release();
+			return null;
+		}
+	}
+
+	/**
+	 * @return The largest preview size that fits, or the smallest one if none does
+	 */
+	private static Camera.Size previewSize(List<Camera.Size> sizes, int maxWidth, int maxHeight) {
+		Camera.Size best = null, smallest = null;
+		for (Camera.Size size : sizes) {
+			if (smallest == null || size.width * size.height < smallest.width * smallest.height) smallest = size;
+			if (size.width <= maxWidth && size.height <= maxHeight
+					&& (best == null || size.width * size.height > best.width * best.height)) best = size;
+		}
+		return best != null ? best : smallest;
+	}
+
+	public int getId() {
+		return mId;
+	}
+
+	/**
+	 * @return How this camera's frames are turned upright, which differs between the lenses
+	 *         of a phone
+	 */
+	public FrameOrientation getOrientation() {
+		return mOrientation;
+	}
+
+	public CameraFrameSource getSource() {
+		return mSource;
+	}
+
+	/**
+	 * Stops the preview and releases the camera, after which its source may be closed.
+	 */
+	public void release() {
+		mCamera.stopPreview();
+		mCamera.setPreviewCallbackWithBuffer(null);
+		mCamera.release();
+		mSurfaceTexture.release();
+	}
+}
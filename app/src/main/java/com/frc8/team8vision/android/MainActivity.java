@@ -10,30 +10,54 @@ import android.util.Log;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.Toast;
 
 import com.frc8.team8vision.util.Constants;
+import com.frc8.team8vision.BuildConfig;
+import com.frc8.team8vision.networking.TelemetryServer;
 import com.frc8.team8vision.R;
+import com.frc8.team8vision.util.DeviceProfile;
+import com.frc8.team8vision.util.OnCalibratedCallback;
 import com.frc8.team8vision.util.VisionPreferences;
+import com.frc8.team8vision.util.VisionSettings;
+import com.frc8.team8vision.vision.CalibrationStore;
+import com.frc8.team8vision.vision.CameraParameters;
 import com.frc8.team8vision.vision.DataTransferModeSelector;
+import com.frc8.team8vision.vision.FrameContext;
+import com.frc8.team8vision.vision.FrameGovernor;
+import com.frc8.team8vision.vision.HSVCalibrator;
+import com.frc8.team8vision.vision.MatScope;
+import com.frc8.team8vision.vision.Overlay;
 import com.frc8.team8vision.vision.VisionInfoData;
 import com.frc8.team8vision.vision.VisionProcessorBase;
 import com.frc8.team8vision.vision.ProcessorSelector;
 import com.frc8.team8vision.vision.ProcessorSelector.ProcessorType;
+import com.frc8.team8vision.vision.ShadowRunner;
+import com.frc8.team8vision.vision.StripeExecutor;
+import com.frc8.team8vision.vision.ThreadTuning;
+import com.frc8.team8vision.vision.TrackingState;
 import com.frc8.team8vision.vision.VisionDataUnit;
+import com.frc8.team8vision.vision.VisionPipeline;
+import com.frc8.team8vision.vision.telemetry.LatencyHistogram;
+import com.frc8.team8vision.vision.telemetry.Telemetry;
 
 import org.opencv.android.BaseLoaderCallback;
 import org.opencv.android.CameraBridgeViewBase;
 import org.opencv.android.LoaderCallbackInterface;
 import org.opencv.android.OpenCVLoader;
 import org.opencv.core.Core;
-import org.opencv.core.CvType;
 import org.opencv.core.Mat;
-import org.opencv.core.MatOfDouble;
 import org.opencv.core.Point;
+import org.opencv.core.Rect;
 import org.opencv.core.Scalar;
 import org.opencv.imgproc.Imgproc;
 
-import java.util.Locale;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The app's startup activity, as suggested by its name. Handles all
@@ -47,17 +71,52 @@ public class MainActivity extends AppCompatActivity implements CameraBridgeViewB
 
 	private static long cycleTime = 1000;
 
+	private static final Scalar kTextColor = new Scalar(0, 255, 0);
+
 	private ProcessorSelector visionProcessor;
+	private ShadowRunner mShadow;
+	private final TrackingState mTracking = new TrackingState(false);
+	private final VisionDataUnit<?>[] mOutput = VisionProcessorBase.newOutput();
+	private final Overlay mOverlay = new Overlay();
+	// Mats allocated for the frame on screen, released when the next frame arrives
+	private final MatScope mFrameScope = new MatScope();
 	private DataTransferModeSelector.VisionDataTransferModeSelector visionDataTransferModeSelector;
 	private DataTransferModeSelector.VideoDataTransferModeSelector videoTransferModeSelector;
 
 	private static SketchyCameraView mCameraView;
-	private boolean isSettingsPaused = false;
+	private boolean isSettingsPaused = false, isPaused = false;
+
+	private final DeviceProfile mDevice = DeviceProfile.forDevice(Build.MODEL, Build.VERSION.SDK_INT);
+	private CalibrationStore mCalibrations;
+
+	// Other back cameras and the pipelines processing them, while the camera on screen runs
+	private final List<HeadlessCamera> mOtherCameras = new ArrayList<>();
+	private final List<VisionPipeline> mOtherPipelines = new ArrayList<>();
+
+	private HSVCalibrator mCalibrator;
+	private boolean isCalibrationArmed = false;
 
 	private long lastCycleTimestamp = 0;
 
+	// Written by the UI thread when the camera starts, read by the camera thread every frame
+	private volatile CameraParameters mCameraParameters =
+			new CameraParameters(0, 0, null, null, mDevice.getOrientation());
+	private FrameContext mFrameContext = new FrameContext(mCameraParameters, VisionSettings.DEFAULT);
+
 	private int mWidth = 0, mHeight = 0;
-	private int mResolutionFactor = 3;      // Divides screen images by given factor
+	private volatile int mResolutionFactor = 3;      // Divides screen images by given factor
+
+	// Trades resolution and preview for frame rate when processing falls behind. The draw stage
+	// runs from one frame handed to the view to the next frame arriving, so it covers drawing the
+	// preview and waiting on the camera, and the stages add up to the interval between frames
+	private static final int STAGE_TRACK = 0, STAGE_DISPLAY = 1, STAGE_DRAW = 2;
+	private final FrameGovernor mGovernor = new FrameGovernor(Constants.kFrameBudgetMs * 1000000L,
+			Constants.kGovernorWindowFrames, Constants.kGovernorRecoverFraction, Constants.kGovernorRecoverWindows,
+			"track", "display", "draw");
+	private long mFrameHandedOn = 0;    // Camera thread only; 0 until the first frame after a start
+	private final LatencyHistogram mTrackLatency = Telemetry.latency("track"),
+			mDisplayLatency = Telemetry.latency("display");
+	private TelemetryServer mTelemetryServer;
 
 	private boolean opencvLoaded = false;
 
@@ -71,9 +130,6 @@ public class MainActivity extends AppCompatActivity implements CameraBridgeViewB
 
 			onAllLoaded();
 
-			Mat intrinsicMatrix = null;
-			MatOfDouble distCoeffs = null;
-
 			switch (status) {
 				case LoaderCallbackInterface.SUCCESS: {
 
@@ -81,44 +137,22 @@ public class MainActivity extends AppCompatActivity implements CameraBridgeViewB
 
 					VisionPreferences.updateSettings();
 					visionProcessor.setProcessor(VisionPreferences.getProcessorType());
+					visionProcessor.setShadow(VisionPreferences.getShadowProcessorType());
 
 					Log.i(TAG, "OpenCV load success");
 
 					// Start camera feed
-					mCameraView.enableView();
+					// The calibration is scaled to the frame size once the camera starts
+					Log.i(TAG, "Using the " + mDevice + " profile, sensor turned " + mDevice.getOrientation());
 
-					/*
-					 * Load intrinsic matrix and distortion coefficients of camera;
-					 * used for pose estimation
-					 */
-					intrinsicMatrix = new Mat(3, 3, CvType.CV_64F);
-					distCoeffs = new MatOfDouble();
-
-					if (isGalaxy()) {
-						// Galaxy S4 is being used
-						for (int i = 0; i < 3; i++) {
-							for (int j = 0; j < 3; j++) {
-								intrinsicMatrix.put(i, j, Constants.kGalaxyIntrinsicMatrix[i][j]);
-							}
-						}
-						distCoeffs.fromArray(Constants.kGalaxyDistortionCoefficients);
-					} else {
-						// Nexus 5x is being used
-						for (int i = 0; i < 3; i++) {
-							for (int j = 0; j < 3; j++) {
-								intrinsicMatrix.put(i, j, Constants.kNexusIntrinsicMatrix[i][j]);
-							}
-						}
-						distCoeffs.fromArray(Constants.kNexusDistortionCoefficients);
-					}
+					mCameraView.setRecordingFile(getRecordingFile());
+					mCameraView.setPreviewDecimation(getPreviewDecimation(getPreviewMode()));
+					mCameraView.enableView();
 				} break;
 				default: {
 					super.onManagerConnected(status);
 				} break;
 			}
-
-			CameraInfo.setIntrinsics(intrinsicMatrix);
-			CameraInfo.setDistortion(distCoeffs);
 		}
 	};
 
@@ -127,6 +161,9 @@ public class MainActivity extends AppCompatActivity implements CameraBridgeViewB
 
 		super.onCreate(savedInstanceState);
 
+		// Before any of the pipeline's threads start
+		ThreadTuning.setTuner(new AndroidThreadTuner());
+
 		// Load the OpenCV library
 		OpenCVLoader.initAsync(OpenCVLoader.OPENCV_VERSION_3_2_0, this, mLoaderCallback);
 	}
@@ -138,8 +175,21 @@ public class MainActivity extends AppCompatActivity implements CameraBridgeViewB
 		mCameraView.setCvCameraViewListener(this);
 		mCameraView.setMaxFrameSize(1920 / mResolutionFactor, 1080 / mResolutionFactor);
 
+		// Debug builds report Mats from scopes that are never released
+		if (BuildConfig.DEBUG) MatScope.setLeakCheck(Constants.kMatLeakCheckFrames);
+
+		// Measured calibrations take the place of the built-in one of the same size
+		mCalibrations = new CalibrationStore(getCalibrationDirectory());
+		mCalibrations.add(mDevice.getCalibration());
+		try {
+			Log.i(TAG, "Loaded " + mCalibrations.load() + " calibrations from " + getCalibrationDirectory());
+		} catch (IOException e) {
+			Log.e(TAG, "Using the built-in calibration: " + e.getMessage());
+		}
+
 		visionProcessor = new ProcessorSelector();
 		visionProcessor.setProcessor(ProcessorType.CENTROID);
+		mShadow = new ShadowRunner(visionProcessor);
 
 		visionDataTransferModeSelector = new DataTransferModeSelector.VisionDataTransferModeSelector(this, false);
 		visionDataTransferModeSelector.setTransfererMode(DataTransferModeSelector.DataTransferMode.CAT_JSON);
@@ -147,7 +197,34 @@ public class MainActivity extends AppCompatActivity implements CameraBridgeViewB
 		videoTransferModeSelector = new DataTransferModeSelector.VideoDataTransferModeSelector(this, false);
 		videoTransferModeSelector.setTransfererMode(DataTransferModeSelector.DataTransferMode.SOCKET);
 
+		mTelemetryServer = new TelemetryServer(Constants.kTelemetryPort, Constants.kTelemetryReadTimeoutMS);
+		mTelemetryServer.start(this, 0);
+
 		VisionPreferences.initialize(this);
+
+		mCalibrator = new HSVCalibrator(Constants.kCalibrationFrames, Constants.kCalibrationMargins,
+			new OnCalibratedCallback() {
+				@Override
+				public void calibrated(int[] bounds, double score) {
+					onCalibrated(bounds, score);
+				}
+			});
+		mCameraView.setOnTouchListener(new View.OnTouchListener() {
+			@Override
+			public boolean onTouch(View v, MotionEvent event) {
+				if (!isCalibrationArmed || event.getAction() != MotionEvent.ACTION_UP) return isCalibrationArmed;
+
+				// Sample a small square around the tap, in the sensor frame the calibrator is offered
+				final Point center = mCameraView.toFrameCoordinates(event.getX(), event.getY());
+				final int r = Constants.kCalibrationRegionRadius;
+				final CameraParameters camera = mCameraParameters;
+				mCalibrator.start(camera.getOrientation().toSensor(new Rect((int)center.x - r, (int)center.y - r, 2*r, 2*r),
+						camera.getSensorWidth(), camera.getSensorHeight()));
+				isCalibrationArmed = false;
+				Toast.makeText(MainActivity.this, R.string.calibration_started, Toast.LENGTH_SHORT).show();
+				return true;
+			}
+		});
 	}
 
 	@Override
@@ -155,8 +232,10 @@ public class MainActivity extends AppCompatActivity implements CameraBridgeViewB
 
 		visionDataTransferModeSelector.getTransferer().pause();
 		videoTransferModeSelector.getTransferer().pause();
+		VisionPreferences.flush();
 
 		super.onPause();
+		isPaused = true;
 
 		if (mCameraView != null)
 			mCameraView.disableView();
@@ -167,13 +246,17 @@ public class MainActivity extends AppCompatActivity implements CameraBridgeViewB
 
 		super.onResume();
 		isSettingsPaused = false;
+		isPaused = false;
 
 		if (opencvLoaded) {
 
-			mCameraView.enableView();
-
 			VisionPreferences.updateSettings();
 			visionProcessor.setProcessor(VisionPreferences.getProcessorType());
+			visionProcessor.setShadow(VisionPreferences.getShadowProcessorType());
+
+			mCameraView.setRecordingFile(getRecordingFile());
+			mCameraView.setPreviewDecimation(getPreviewDecimation(getPreviewMode()));
+			mCameraView.enableView();
 
 			visionDataTransferModeSelector.getTransferer().resume();
 			videoTransferModeSelector.getTransferer().resume();
@@ -187,6 +270,10 @@ public class MainActivity extends AppCompatActivity implements CameraBridgeViewB
 
 		visionDataTransferModeSelector.stopAll();
 		videoTransferModeSelector.stopAll();
+		mTelemetryServer.stop();
+		mCalibrator.stop();
+		mShadow.shutdown();
+		visionProcessor.shutdown();
 
 		if (mCameraView != null) {
 			mCameraView.disableView();
@@ -199,13 +286,27 @@ public class MainActivity extends AppCompatActivity implements CameraBridgeViewB
 		mWidth = width;
 		mHeight = height;
 
-		CameraInfo.setDims(height, width);
-
+		/*
+		 * Load intrinsic matrix and distortion coefficients of camera for the frames it
+		 * delivers, turned upright; used for pose estimation. The view is given the upright
+		 * size, while the sensor delivers its frames landscape.
+		 */
+		mCameraParameters = mCalibrations.getCamera(mDevice.getName(), height, width, mDevice.getOrientation());
+		if (mCameraParameters.IntrinsicMatrix() != null) {
+			Log.i(TAG, "Camera calibrated for " + height + "x" + width + " frames");
+		} else {
+			Log.w(TAG, "No calibration for " + height + "x" + width + " frames, distances will not be reported");
+		}
+		// Processors picked from now on are warmed up on frames like this camera's
+		visionProcessor.setWarmupContext(new FrameContext(mCameraParameters, VisionPreferences.getSettings()));
 
 		// Reduce exposure and turn on flashlight - to be used with reflective tape
 		mCameraView.setParameters();
 		mCameraView.toggleFlashLight(VisionPreferences.isFlashlightOn());
 
+		// Other cameras deliver landscape frames like the sensor of this one
+		startOtherCameras(height, width);
+
 		if (!this.isFocusLocked() || !isSettingsPaused) {
 			visionDataTransferModeSelector.getTransferer().resume();
 			videoTransferModeSelector.getTransferer().resume();
@@ -213,7 +314,83 @@ public class MainActivity extends AppCompatActivity implements CameraBridgeViewB
 	}
 
 	@Override
-	public void onCameraViewStopped() {}
+	public void onCameraViewStopped() {
+		stopOtherCameras();
+		mFrameScope.close();
+		// The camera thread has been joined; the gap until the next start is not a frame interval
+		mFrameHandedOn = 0;
+	}
+
+	/**
+	 * Processes every other back camera the device can open at once and has calibrated,
+	 * each by a pipeline of its own named after it, with the settings in use. Their
+	 * distances are sent next to those of the camera on screen.
+	 *
+	 * @param width Largest width of their landscape frames
+	 * @param height Largest height of their landscape frames
+	 */
+	private void startOtherCameras(int width, int height) {
+		if (!Constants.kProcessOtherCameras) return;
+		final VisionSettings settings = VisionPreferences.getSettings();
+		for (int id : HeadlessCamera.otherBackCameras(mCameraView.getCameraId())) {
+			final HeadlessCamera camera = HeadlessCamera.open(id, width, height,
+					Constants.kCameraBufferCount + Constants.kOtherCameraWorkers);
+			if (camera == null) continue;
+
+			// Another lens has intrinsics of its own; those of the one on screen give wrong distances
+			final int sensorWidth = camera.getSource().getWidth(), sensorHeight = camera.getSource().getHeight();
+			final String device = mDevice.getName() + " #" + id;
+			if (mCalibrations.find(device, sensorWidth, sensorHeight) == null) {
+				Log.w(TAG, "Camera #" + id + " has no calibration for " + sensorWidth + "x" + sensorHeight
+						+ " frames, not processing it");
+				camera.release();
+				camera.getSource().close();
+				continue;
+			}
+			final VisionPipeline pipeline = new VisionPipeline("camera" + id, camera.getSource(),
+					mCalibrations.getCamera(device, sensorWidth, sensorHeight, camera.getOrientation()),
+					settings, Constants.kOtherCameraWorkers);
+			pipeline.start();
+			mOtherCameras.add(camera);
+			mOtherPipelines.add(pipeline);
+		}
+	}
+
+	private void stopOtherCameras() {
+		for (int i = 0; i < mOtherPipelines.size(); i++) {
+			final VisionPipeline pipeline = mOtherPipelines.get(i);
+			pipeline.stop();
+			boolean stopped = joinOtherPipeline(pipeline);
+			if (!stopped) {
+				pipeline.interrupt();
+				stopped = joinOtherPipeline(pipeline);
+			}
+			if (!stopped) {
+				// The camera and its frames are left to the reader rather than released under it
+				Log.e(TAG, pipeline.getName() + " did not stop within " + 2 * Constants.kOtherCameraStopMs
+						+ " ms, leaving its camera open");
+				continue;
+			}
+			// The camera stops writing to the frames before they are freed
+			mOtherCameras.get(i).release();
+			pipeline.close();
+			Log.i(TAG, pipeline.getName() + " published " + pipeline.getPublishedFrames() + " frames");
+		}
+		mOtherCameras.clear();
+		mOtherPipelines.clear();
+	}
+
+	/**
+	 * @return Whether the pipeline's reader exited in time
+	 */
+	private static boolean joinOtherPipeline(VisionPipeline pipeline) {
+		try {
+			return pipeline.join(Constants.kOtherCameraStopMs);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
 
 	/**
 	 * Automatically called before each image frame is displayed. This is where
@@ -221,17 +398,47 @@ public class MainActivity extends AppCompatActivity implements CameraBridgeViewB
 	 */
 	@Override
 	public Mat onCameraFrame(CameraBridgeViewBase.CvCameraViewFrame inputFrame) {
-		Mat imageRGB = inputFrame.rgba();
-		if (!isGalaxy()) Core.flip(imageRGB, imageRGB, -1); // Necessary because Nexus camera feed is inverted
-		imageRGB = track(imageRGB);
-		Mat imageToPass = imageRGB.clone();
-		if(imageRGB.channels() == 4){
-			Imgproc.cvtColor(imageRGB, imageToPass, Imgproc.COLOR_BGRA2RGBA);
+		// The view has drawn the last frame by now, so everything allocated for it can go
+		mFrameScope.close();
+
+		// Read the settings once so the whole frame sees the same values, coarsened by the governor
+		final VisionSettings settings = mGovernor.getMode().apply(VisionPreferences.getSettings());
+		final long start = System.nanoTime();
+		if (mFrameHandedOn != 0) mGovernor.record(STAGE_DRAW, start - mFrameHandedOn);
+
+		// Annotations are only recorded, and drawn, for someone who will see them
+		final boolean drawn = mCameraView.willDrawFrame();
+		final boolean streamed = videoTransferModeSelector.getTransferer().isActive();
+		final boolean annotatedStream = streamed && settings.getStreamMode() == VisionSettings.StreamMode.ANNOTATED;
+		mOverlay.reset(annotatedStream || drawn);
+		Telemetry.onFrame();
+
+		// Processed as the sensor delivers it; only a frame shown or streamed is turned upright
+		final Mat sensor = inputFrame.rgba();
+		final Mat shown = track(sensor, settings, mOverlay);
+		final long tracked = System.nanoTime();
+		Mat imageRGB = shown;
+		if (drawn || streamed) {
+			imageRGB = mFrameScope.mat();
+			mFrameContext.getCamera().getOrientation().apply(shown, imageRGB);
+
+			if (streamed && !annotatedStream) setStreamFrame(imageRGB);
+			mOverlay.rasterize(imageRGB);
+			if (annotatedStream) setStreamFrame(imageRGB);
 		}
 
-		VisionInfoData.setFrame(imageToPass);
+		final long displayed = System.nanoTime();
+		mTrackLatency.record(tracked - start);
+		mDisplayLatency.record(displayed - tracked);
+		mGovernor.record(STAGE_TRACK, tracked - start);
+		mGovernor.record(STAGE_DISPLAY, displayed - tracked);
+		if (mGovernor.endFrame()) applyGovernorMode();
+
+		final String leaks = MatScope.endFrame();
+		if (leaks != null) Log.w(TAG, "Scoped Mats still live:\n" + leaks);
 
-		// The returned image will be displayed on screen
+		// The returned image will be displayed on screen, if this frame is drawn at all
+		mFrameHandedOn = System.nanoTime();
 		return imageRGB;
 	}
 
@@ -245,56 +452,89 @@ public class MainActivity extends AppCompatActivity implements CameraBridgeViewB
 	 * fall in these possible values. The result is a black and white image where
 	 * pixels in the range are white and others are black.
 	 *
-	 * @param input - the image captured by the camera
-	 * @return input - the modified image to show results of processing
+	 * @param input - the image captured by the camera, as the sensor delivers it
+	 * @param settings - the settings for this frame
+	 * @param overlay - records the results of processing to draw over the image
+	 * @return the image to show, as the sensor delivers it: input, or the mask in tuning mode
 	 */
-	public Mat track(Mat input) {
+	public Mat track(Mat input, VisionSettings settings, Overlay overlay) {
 		// Calculates time between method calls; this shows the amount of lag
 		if (lastCycleTimestamp != 0) cycleTime = System.currentTimeMillis() - lastCycleTimestamp;
 		lastCycleTimestamp = System.currentTimeMillis();
 
-		Mat mask = new Mat();
-		Mat imageHSV = new Mat();
+		final FrameContext context = mFrameContext = mFrameContext.update(mCameraParameters, settings);
+
+		final VisionDataUnit<?>[] out_data = mOutput;
+		final Mat processed;
+		final long processStart;
+		if (settings.isTuningMode() || mCalibrator.isSampling()) {
+			Mat mask = mFrameScope.mat();
+			Mat imageHSV = mFrameScope.mat();
 
-		int[] sliderValues = VisionPreferences.getSliderValues();
+			// Create mask from hsv threshold
+			Scalar lower_bound = new Scalar(settings.getSliderValue(0), settings.getSliderValue(1), settings.getSliderValue(2)),
+					upper_bound = new Scalar(settings.getSliderValue(3), settings.getSliderValue(4), settings.getSliderValue(5));
+			StripeExecutor.getShared().threshold(input, lower_bound, upper_bound, imageHSV, mask);
 
-		// Create mask from hsv threshold
-		Scalar lower_bound = new Scalar(sliderValues[0], sliderValues[1], sliderValues[2]),
-				upper_bound = new Scalar(sliderValues[3], sliderValues[4], sliderValues[5]);
-		Imgproc.cvtColor(input, imageHSV, Imgproc.COLOR_RGB2HSV);
-		Core.inRange(imageHSV, lower_bound, upper_bound, mask);
+			if (mCalibrator.isSampling()) mCalibrator.offer(imageHSV);
+
+			// Tuning mode displays the result of the threshold
+			if (settings.isTuningMode()) {
+				Core.normalize(mask, mask, 0, 255, Core.NORM_MINMAX, input.type(), mFrameScope.mat());
+				Core.convertScaleAbs(mask, mask);
+				return mask;
+			}
 
-		// Tuning mode displays the result of the threshold
-		if (VisionPreferences.isTuningMode()) {
-			Core.normalize(mask, mask, 0, 255, Core.NORM_MINMAX, input.type(), new Mat());
-			Core.convertScaleAbs(mask, mask);
-			return mask;
+			processed = mask;
+			processStart = System.nanoTime();
+			visionProcessor.getProcessor().processMask(mask, overlay, context, mTracking, out_data);
+		} else {
+			// The processor thresholds the frame itself, at the detection scale from the settings
+			processed = input;
+			processStart = System.nanoTime();
+			visionProcessor.getProcessor().process(input, overlay, context, mTracking, out_data);
 		}
+		// Compared off this thread, if a shadow processor is picked and not still busy
+		mShadow.offer(processed, processed != input, context, out_data, System.nanoTime() - processStart);
 
-		VisionDataUnit[] out_data = visionProcessor.getProcessor().process(input, mask);
 		if((Integer)out_data[VisionProcessorBase.IDX_OUT_FUNCTION_EXECUTION_CODE].get()
 			!= VisionProcessorBase.EXECUTION_CODE_OKAY){
 			Log.e(TAG, "track Error:\n\t" +
 					out_data[VisionProcessorBase.IDX_OUT_EXECUTION_MESSAGE].get());
 		}
 
-		VisionDataUnit<Double> xDist = out_data[VisionProcessorBase.IDX_OUT_XDIST];
-		VisionDataUnit<Double> zDist = out_data[VisionProcessorBase.IDX_OUT_ZDIST];
+		// Remember which target dynamic tracking settled on
+		final boolean trackingLeft = (Boolean)out_data[VisionProcessorBase.IDX_OUT_TRACKING_LEFT].get();
+		if (settings.isDynamicTracking() && trackingLeft != settings.isTrackingLeft()) {
+			VisionPreferences.setTrackingLeft(trackingLeft);
+		}
+
+		VisionDataUnit<Double> xDist = VisionProcessorBase.xDist(out_data);
+		VisionDataUnit<Double> zDist = VisionProcessorBase.zDist(out_data);
 
-		VisionInfoData.setXDist(xDist);
-		VisionInfoData.setZDist(zDist);
+		VisionInfoData.setDistances(xDist, zDist);
 
-		String printval = "<" +
-				(xDist != null ? String.format(Locale.getDefault(), "%.2f", xDist.get()) : "NaN") + ", " +
-				(zDist != null ? String.format(Locale.getDefault(), "%.2f", zDist.get()) : "NaN") + ">";
-		Imgproc.putText(input, printval, new Point(0, mHeight - 30),
-				Core.FONT_HERSHEY_SIMPLEX, 2.5 / mResolutionFactor, new Scalar(0, 255, 0), 3);
-		Imgproc.putText(input, Double.toString(1000/cycleTime),
-				new Point(mWidth - 200 / mResolutionFactor, mHeight - 30),
-				Core.FONT_HERSHEY_SIMPLEX, 2.5 / mResolutionFactor, new Scalar(0, 255, 0), 3);
+		// Formatted only if the overlay is drawn
+		overlay.text("<%.2f, %.2f>", xDist.get(), zDist.get(), 0, mHeight - 30,
+				2.5 / mResolutionFactor, kTextColor, 3);
+		overlay.text("%.1f", 1000.0 / cycleTime, 0, mWidth - 200 / mResolutionFactor, mHeight - 30,
+				2.5 / mResolutionFactor, kTextColor, 3);
         return input;
     }
 
+	/**
+	 * Hands a copy of the upright frame to the video stream.
+	 */
+	private void setStreamFrame(Mat upright) {
+		if (upright.channels() == 4) {
+			Mat imageToPass = mFrameScope.mat();
+			Imgproc.cvtColor(upright, imageToPass, Imgproc.COLOR_BGRA2RGBA);
+			VisionInfoData.setFrame(imageToPass);
+		} else {
+			VisionInfoData.setFrame(upright);
+		}
+	}
+
 	@Override
 	public boolean onCreateOptionsMenu(Menu menu) {
 		MenuInflater inflater = getMenuInflater();
@@ -309,11 +549,100 @@ public class MainActivity extends AppCompatActivity implements CameraBridgeViewB
 	}
 
 	/**
-	 * A Samsung Galaxy S4 was used for vision testing when the Nexus was unavailable.
-	 * Its properties are different from the Nexus, so sometimes the app must determine
-	 * which phone is running it.
+	 * The next tap on the preview selects the tape region to calibrate the HSV threshold from.
+	 */
+	public void armCalibration(MenuItem item) {
+		isCalibrationArmed = true;
+		Toast.makeText(this, R.string.calibration_armed, Toast.LENGTH_SHORT).show();
+	}
+
+	/**
+	 * Writes calibrated bounds into the active profile, where the settings sliders will pick them up.
+	 */
+	private void onCalibrated(int[] bounds, final double score) {
+		final String profile = VisionPreferences.getProfile();
+		SharedPreferences.Editor editor = VisionPreferences.editor();
+		for (int i = 0; i < bounds.length; i++) {
+			editor.putInt(profile+"_"+Constants.kSliderNames[i], bounds[i]);
+		}
+		editor.apply();
+		VisionPreferences.updateSettings();
+
+		Log.i(TAG, "Calibrated HSV threshold for " + profile + " with score " + score);
+		runOnUiThread(new Runnable() {
+			@Override
+			public void run() {
+				Toast.makeText(MainActivity.this, getString(R.string.calibration_done, score), Toast.LENGTH_LONG).show();
+			}
+		});
+	}
+
+	/**
+	 * Raw frames are recorded to app-specific external storage so they can be pulled with adb.
+	 *
+	 * @return The ring file to record to, or null if recording is turned off
+	 */
+	private File getRecordingFile() {
+		if (!VisionPreferences.isRecording()) return null;
+		File dir = getExternalFilesDir(null);
+		return new File(dir != null ? dir : getFilesDir(), Constants.kRecordingFileName);
+	}
+	/**
+	 * Follows a change of the governor's mode: the preview is decimated from the next frame, while a new
+	 * resolution restarts the camera from the UI thread, which recalibrates it in
+	 * {@link #onCameraViewStarted(int, int)}.
+	 */
+	private void applyGovernorMode() {
+		final FrameGovernor.Mode mode = mGovernor.getMode();
+		Log.i(TAG, "Governor " + mGovernor.getReason());
+
+		mCameraView.setPreviewDecimation(getPreviewDecimation(getPreviewMode()));
+
+		final int factor = mode.getResolutionFactor();
+		if (factor == mResolutionFactor) return;
+		mResolutionFactor = factor;
+		runOnUiThread(new Runnable() {
+			@Override
+			public void run() {
+				// A paused camera picks the new size up when it is enabled again
+				if (isPaused) {
+					mCameraView.setMaxFrameSize(1920 / mResolutionFactor, 1080 / mResolutionFactor);
+					return;
+				}
+				mCameraView.disableView();
+				mCameraView.setMaxFrameSize(1920 / mResolutionFactor, 1080 / mResolutionFactor);
+				mCameraView.enableView();
+			}
+		});
+	}
+
+	/**
+	 * @return The preview mode from the settings, coarsened by the governor
+	 */
+	private VisionSettings.PreviewMode getPreviewMode() {
+		return mGovernor.getMode().apply(VisionPreferences.getSettings()).getPreviewMode();
+	}
+
+	/**
+	 * @return Where calibrations from the chessboard tool are pushed to
 	 */
-	private boolean isGalaxy() { return Build.VERSION.SDK_INT == Build.VERSION_CODES.LOLLIPOP; }
+	private File getCalibrationDirectory() {
+		File dir = getExternalFilesDir(Constants.kCalibrationDirectoryName);
+		return dir != null ? dir : new File(getFilesDir(), Constants.kCalibrationDirectoryName);
+	}
+	/**
+	 * @return How often the camera view should draw processed frames in the given preview mode
+	 */
+	private int getPreviewDecimation(VisionSettings.PreviewMode previewMode) {
+		switch (previewMode) {
+			case HEADLESS:
+				return CameraBridgeViewBase.PREVIEW_HEADLESS;
+			case DECIMATED:
+				return Constants.kPreviewDecimation;
+			default:
+				return CameraBridgeViewBase.PREVIEW_EVERY_FRAME;
+		}
+	}
 	public boolean isFocusLocked(){
 		SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(getBaseContext());
 		int lockValue = preferences.getInt("Focus Lock Value", 0);
@@ -7,6 +7,7 @@ import android.content.Intent;
 import com.frc8.team8vision.networking.JSONVisionDataThread;
 import com.frc8.team8vision.util.VisionPreferences;
 
+import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 
 import java.nio.ByteBuffer;
@@ -36,18 +37,17 @@ public class RequestReceiver extends BroadcastReceiver {
     }
 
     private byte[] toByteArray(Mat image) {
-        byte[] retval = new byte[image.rows() * image.cols() * image.channels() * 8];
-        int index = 0;
-        for (int i = 0; i < image.rows(); i++) {
-            for (int j = 0; j < image.cols(); j++) {
-                double[] pixel = image.get(i, j);
-                for (int k = 0; k < image.channels(); k++) {
-                    byte[] bytes = new byte[8];
-                    ByteBuffer.wrap(bytes).putDouble(pixel[k]);
-                    for (byte b : bytes) retval[index++] = b;
-                }
-            }
+        // Every channel of every pixel as a big-endian double, read in one bulk copy
+        final int count = (int) image.total() * image.channels();
+        final double[] values = new double[count];
+        if (count > 0) {
+            final Mat converted = new Mat();
+            image.convertTo(converted, CvType.CV_64F);
+            converted.get(0, 0, values);
+            converted.release();
         }
+        final byte[] retval = new byte[count * 8];
+        ByteBuffer.wrap(retval).asDoubleBuffer().put(values);
         return retval;
     }
 
@@ -15,6 +15,8 @@ import com.frc8.team8vision.menu.HSVSeekBar;
 import com.frc8.team8vision.R;
 import com.frc8.team8vision.util.OnSelectionChangedCallback;
 import com.frc8.team8vision.util.VisionPreferences;
+import com.frc8.team8vision.util.VisionSettings;
+import com.frc8.team8vision.util.VisionUtil;
 import com.frc8.team8vision.vision.ProcessorSelector;
 import com.frc8.team8vision.vision.DataTransferModeSelector;
 
@@ -34,13 +36,19 @@ public class SettingsActivity extends AppCompatActivity {
         RIGHT_TARGET, LEFT_TARGET, DYNAMIC_TARGET, TUNING
     }
 
+    // HSV threshold slider views, in the same order as Constants.kSliderNames
+    private static final int[]
+            kSliderIds = {R.id.hLow, R.id.sLow, R.id.vLow, R.id.hHigh, R.id.sHigh, R.id.vHigh},
+            kSliderReadoutIds = {R.id.hLowInfo, R.id.sLowInfo, R.id.vLowInfo, R.id.hHighInfo, R.id.sHighInfo, R.id.vHighInfo};
+
     private HSVSeekBar[] seekBars = new HSVSeekBar[6];
 	private StoredDoubleEntry xShiftEntry = null, zShiftEntry = null;
     private SelectionDropdown
-		targetMode = null, processorMode = null, profileMode = null, visionDataTransferMode = null, videoDataTransferMode;
+		targetMode = null, processorMode = null, shadowProcessorMode = null, profileMode = null, visionDataTransferMode = null, videoDataTransferMode,
+		previewMode = null, streamMode = null, detectionScale = null, contourMethod = null;
     private String profile;
 
-    private boolean trackingLeft, dynamicTrack, tuningMode, flashlightOn = false;
+    private boolean trackingLeft, dynamicTrack, tuningMode, flashlightOn = false, recording = false;
 
     private SharedPreferences preferences;
 
@@ -110,6 +118,19 @@ public class SettingsActivity extends AppCompatActivity {
 			}
 		});
 
+		// A processor to compare with the one in use, or none
+		final ArrayList<String> shadowTypes = new ArrayList<>(Arrays.asList("None"));
+		shadowTypes.addAll(Arrays.asList(VisionUtil.enumToString(ProcessorSelector.ProcessorType.class)));
+		shadowProcessorMode = new SelectionDropdown(R.id.shadowProcessorSelection, Constants.kShadowProcessorModeSettingsName,
+			shadowTypes, this, false, new OnSelectionChangedCallback() {
+			@Override
+			public void selectionChanged(String label) {
+				SharedPreferences.Editor editor = preferences.edit();
+				editor.putString(profile+"_" + Constants.kShadowProcessorTypeSettingsName, label.toUpperCase());
+				editor.apply();
+			}
+		});
+
 		visionDataTransferMode = new SelectionDropdown(
 				R.id.visionDataTransferModeSelection,
 				Constants.kVisionDataTransferModeSettingsName,
@@ -134,6 +155,46 @@ public class SettingsActivity extends AppCompatActivity {
 				}
 		});
 
+		previewMode = new SelectionDropdown(R.id.previewModeSelection, Constants.kPreviewModeSettingsName,
+			VisionSettings.PreviewMode.class, this, false, new OnSelectionChangedCallback() {
+			@Override
+			public void selectionChanged(String label) {
+				SharedPreferences.Editor editor = preferences.edit();
+				editor.putString(profile+"_" + Constants.kPreviewModeSettingsName, label.toUpperCase());
+				editor.apply();
+			}
+		});
+
+		streamMode = new SelectionDropdown(R.id.streamModeSelection, Constants.kStreamModeSettingsName,
+			VisionSettings.StreamMode.class, this, false, new OnSelectionChangedCallback() {
+			@Override
+			public void selectionChanged(String label) {
+				SharedPreferences.Editor editor = preferences.edit();
+				editor.putString(profile+"_" + Constants.kStreamModeSettingsName, label.toUpperCase());
+				editor.apply();
+			}
+		});
+
+		detectionScale = new SelectionDropdown(R.id.detectionScaleSelection, Constants.kDetectionScaleSettingsName,
+			VisionSettings.DetectionScale.class, this, false, new OnSelectionChangedCallback() {
+			@Override
+			public void selectionChanged(String label) {
+				SharedPreferences.Editor editor = preferences.edit();
+				editor.putString(profile+"_" + Constants.kDetectionScaleSettingsName, label.toUpperCase());
+				editor.apply();
+			}
+		});
+
+		contourMethod = new SelectionDropdown(R.id.contourMethodSelection, Constants.kContourMethodSettingsName,
+			VisionSettings.ContourMethod.class, this, false, new OnSelectionChangedCallback() {
+			@Override
+			public void selectionChanged(String label) {
+				SharedPreferences.Editor editor = preferences.edit();
+				editor.putString(profile+"_" + Constants.kContourMethodSettingsName, label.toUpperCase());
+				editor.apply();
+			}
+		});
+
 		Button deleteProfile = ((Button)findViewById(R.id.deleteProfile));
 
 		deleteProfile.setOnClickListener(new View.OnClickListener() {
@@ -149,7 +210,7 @@ public class SettingsActivity extends AppCompatActivity {
 
 		for (int i = 0; i < 6; i++) {
 			seekBars[i] = new HSVSeekBar(
-				Constants.kSliderIds[i], Constants.kSliderReadoutIds[i],
+				kSliderIds[i], kSliderReadoutIds[i],
 				Constants.kSliderNames[i], this
 			);
 		}
@@ -164,16 +225,23 @@ public class SettingsActivity extends AppCompatActivity {
 		dynamicTrack = preferences.getBoolean(profile+"_" + Constants.kDynamicTrackingSettingsName, true);
         flashlightOn = preferences.getBoolean(profile+"_" + Constants.kFlashlightOnSettingsName, false);
 		tuningMode = preferences.getBoolean(profile+"_" + Constants.kTuningModeSettingsName, false);
+		recording = preferences.getBoolean(profile+"_" + Constants.kRecordingSettingsName, false);
 
         ((Switch)findViewById(R.id.flashlight)).setChecked(flashlightOn);
+        ((Switch)findViewById(R.id.recording)).setChecked(recording);
 
 		xShiftEntry.initProfiles(profile, 0.0f);
 		zShiftEntry.initProfiles(profile, 0.0f);
 
 		targetMode.initProfiles(profile);
 		processorMode.initProfiles(profile);
+		shadowProcessorMode.initProfiles(profile);
 		visionDataTransferMode.initProfiles(profile);
 		videoDataTransferMode.initProfiles(profile);
+		previewMode.initProfiles(profile);
+		streamMode.initProfiles(profile);
+		detectionScale.initProfiles(profile);
+		contourMethod.initProfiles(profile);
 
         for (int i = 0; i < 6; i++) {
 			seekBars[i].initProfiles(profile, Constants.kSliderDefaultValues[i]);
@@ -188,4 +256,12 @@ public class SettingsActivity extends AppCompatActivity {
         editor.putBoolean(profile+"_" + Constants.kFlashlightOnSettingsName, flashlightOn);
         editor.apply();
     }
+
+    public void onRecordingSwitchClicked(View view) {
+
+        SharedPreferences.Editor editor = preferences.edit();
+        recording = !recording;
+        editor.putBoolean(profile+"_" + Constants.kRecordingSettingsName, recording);
+        editor.apply();
+    }
 }
\ No newline at end of file
@@ -10,14 +10,16 @@ import android.util.AttributeSet;
 import android.util.Log;
 
 import com.frc8.team8vision.util.Constants;
+import com.frc8.team8vision.vision.ThreadTuning;
+import com.frc8.team8vision.vision.sources.Frame;
 
 import org.opencv.android.CameraBridgeViewBase;
-import org.opencv.core.Core;
-import org.opencv.core.CvType;
 import org.opencv.core.Mat;
+import org.opencv.core.Point;
 import org.opencv.core.Size;
 import org.opencv.imgproc.Imgproc;
 
+import java.io.File;
 import java.util.List;
 
 /**
@@ -25,22 +27,22 @@ import java.util.List;
  * and flashlight manipulation. Much of this overlaps with JavaCameraView; it will
  * eventually be made a subclass.
  */
-public class SketchyCameraView extends CameraBridgeViewBase implements Camera.PreviewCallback {
+public class SketchyCameraView extends CameraBridgeViewBase {
 
     private static final int MAGIC_TEXTURE_ID = 10;
     private static final String TAG = Constants.kTAG+"SketchyCameraView";
 
-    private byte mBuffer[];
-    private Mat[] mFrameChain;
-    private int mChainIdx = 0;
+    private CameraFrameSource mSource;
     private Thread mThread;
-    private boolean mStopThread;
 
     protected Camera mCamera;
-    protected JavaCameraFrame[] mCameraFrame;
+    protected JavaCameraFrame mCameraFrame;
     private SurfaceTexture mSurfaceTexture;
     private int mCameraId;
 
+    private File mRecordingFile = null;
+    private FrameRecorder mRecorder = null;
+
     public static class JavaCameraSizeAccessor implements ListItemAccessor {
 
         public int getWidth(Object obj) {
@@ -72,8 +74,10 @@ public class SketchyCameraView extends CameraBridgeViewBase implements Camera.Pr
             int numberOfCameras = android.hardware.Camera.getNumberOfCameras();
             android.hardware.Camera.CameraInfo cameraInfo = new android.hardware.Camera.CameraInfo();
             for (int i = 0; i < numberOfCameras; i++) {
+                // A camera picked by index is opened whichever way it faces
+                if (mCameraIndex >= 0 && mCameraIndex != CAMERA_ID_BACK && i != mCameraIndex) continue;
                 android.hardware.Camera.getCameraInfo(i, cameraInfo);
-                if (cameraInfo.facing == android.hardware.Camera.CameraInfo.CAMERA_FACING_BACK) {
+                if (cameraInfo.facing == android.hardware.Camera.CameraInfo.CAMERA_FACING_BACK || i == mCameraIndex) {
                     try {
                         mCamera = Camera.open(i);
                         mCameraId = i;
@@ -130,20 +134,19 @@ public class SketchyCameraView extends CameraBridgeViewBase implements Camera.Pr
 
                     int size = mFrameWidth * mFrameHeight;
                     size  = size * ImageFormat.getBitsPerPixel(params.getPreviewFormat()) / 8;
-                    mBuffer = new byte[size];
 
-                    mCamera.addCallbackBuffer(mBuffer);
-                    mCamera.setPreviewCallbackWithBuffer(this);
+                    if (mRecordingFile != null) {
+                        mRecorder = new FrameRecorder(mRecordingFile, realWidth, realHeight, size,
+                                Constants.kRecordingRingFrames, Constants.kRecordingStagingFrames);
+                        if (!mRecorder.start()) mRecorder = null;
+                    }
 
-                    mFrameChain = new Mat[2];
-                    mFrameChain[0] = new Mat(realHeight + (realHeight/2), realWidth, CvType.CV_8UC1); //the frame chane is still in landscape
-                    mFrameChain[1] = new Mat(realHeight + (realHeight/2), realWidth, CvType.CV_8UC1);
+                    mSource = new CameraFrameSource(mCamera, realWidth, realHeight, Constants.kCameraBufferCount, mRecorder); //the frames are still in landscape
+                    mSource.start();
 
                     AllocateCache();
 
-                    mCameraFrame = new JavaCameraFrame[2];
-                    mCameraFrame[0] = new JavaCameraFrame(mFrameChain[0], mFrameWidth, mFrameHeight); //the camera frame is in portrait
-                    mCameraFrame[1] = new JavaCameraFrame(mFrameChain[1], mFrameWidth, mFrameHeight);
+                    mCameraFrame = new JavaCameraFrame(mFrameWidth, mFrameHeight); //the portrait size; frames are delivered in landscape and drawn upright
 
                     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
                         mSurfaceTexture = new SurfaceTexture(MAGIC_TEXTURE_ID);
@@ -175,13 +178,18 @@ public class SketchyCameraView extends CameraBridgeViewBase implements Camera.Pr
                 mCamera.release();
             }
             mCamera = null;
-            if (mFrameChain != null) {
-                mFrameChain[0].release();
-                mFrameChain[1].release();
+            if (mRecorder != null) {
+                mRecorder.stop();
+                mRecorder = null;
+            }
+            if (mSource != null) {
+                mSource.close();
+                Log.i(TAG, "Camera delivered " + mSource.getDeliveredFrames() + " frames, dropped " + mSource.getDroppedFrames());
+                mSource = null;
             }
             if (mCameraFrame != null) {
-                mCameraFrame[0].release();
-                mCameraFrame[1].release();
+                mCameraFrame.release();
+                mCameraFrame = null;
             }
         }
     }
@@ -201,8 +209,7 @@ public class SketchyCameraView extends CameraBridgeViewBase implements Camera.Pr
 
     /* now we can start update thread */
         Log.d(TAG, "Starting processing thread");
-        mStopThread = false;
-        mThread = new Thread(new CameraWorker());
+        mThread = new Thread(new CameraWorker(), "CameraWorker");
         mThread.start();
 
         return true;
@@ -214,11 +221,9 @@ public class SketchyCameraView extends CameraBridgeViewBase implements Camera.Pr
      */
         Log.d(TAG, "Disconnecting from camera");
         try {
-            mStopThread = true;
-            Log.d(TAG, "Notify thread");
-            synchronized (this) {
-                this.notify();
-            }
+            Log.d(TAG, "Stop frame source");
+            if (mSource != null)
+                mSource.stop();
             Log.d(TAG, "Wating for thread");
             if (mThread != null)
                 mThread.join();
@@ -232,54 +237,75 @@ public class SketchyCameraView extends CameraBridgeViewBase implements Camera.Pr
         releaseCamera();
     }
 
-    public void onPreviewFrame(byte[] frame, Camera arg1) {
-        synchronized (this) {
-            mFrameChain[1 - mChainIdx].put(0, 0, frame);
-            this.notify();
-        }
-        if (mCamera != null)
-            mCamera.addCallbackBuffer(mBuffer);
-    }
-
     private class JavaCameraFrame implements CvCameraViewFrame {
         private Mat mYuvFrameData;
         private Mat mRgba;
         private int mWidth;
         private int mHeight;
-        private Mat mRotated;
+        private Mat mGray;
 
+        /**
+         * The frames are returned as the sensor delivers them, in landscape. Turning them
+         * upright is left to whoever shows them, see {@link com.frc8.team8vision.vision.FrameOrientation}.
+         */
         public Mat gray() {
-            if (mRotated != null) mRotated.release();
-            mRotated = mYuvFrameData.submat(0, mWidth, 0, mHeight); //submat with reversed width and height because its done on the landscape frame
-            mRotated = mRotated.t();
-            Core.flip(mRotated, mRotated, 1);
-            return mRotated;
+            if (mGray != null) mGray.release();
+            mGray = mYuvFrameData.submat(0, mWidth, 0, mHeight); //submat with reversed width and height because its done on the landscape frame
+            return mGray;
         }
 
         public Mat rgba() {
             Imgproc.cvtColor(mYuvFrameData, mRgba, Imgproc.COLOR_YUV2BGR_NV12, 4);
-            if (mRotated != null) mRotated.release();
-            mRotated = mRgba.t();
-            Core.flip(mRotated, mRotated, 1);
-            return mRotated;
+            return mRgba;
         }
 
-        public JavaCameraFrame(Mat Yuv420sp, int width, int height) {
+        public JavaCameraFrame(int width, int height) {
             super();
             mWidth = width;
             mHeight = height;
-            mYuvFrameData = Yuv420sp;
             mRgba = new Mat();
         }
 
+        /**
+         * Points this frame at the NV21 data of the next frame from the source.
+         */
+        public void setYuvFrameData(Mat Yuv420sp) {
+            mYuvFrameData = Yuv420sp;
+        }
+
         public void release() {
             mRgba.release();
-            if (mRotated != null) mRotated.release();
+            if (mGray != null) mGray.release();
         }
 
 
     };
 
+    /**
+     * @return Index of the camera on screen, valid once it is connected
+     */
+    public int getCameraId() {
+        return mCameraId;
+    }
+
+    /**
+     * Sets the file raw preview frames are recorded to, or null to stop recording.
+     * Takes effect the next time the camera is connected.
+     */
+    public void setRecordingFile(File file) {
+        mRecordingFile = file;
+    }
+
+    /**
+     * Maps a point on this view to the frame drawn on it, undoing the scaling and
+     * centering done when the frame is drawn.
+     */
+    public Point toFrameCoordinates(float x, float y) {
+        final float scale = (mScale != 0) ? mScale : 1;
+        return new Point((x - (getWidth() - scale*mFrameWidth) / 2) / scale,
+                (y - (getHeight() - scale*mFrameHeight) / 2) / scale);
+    }
+
     public void setParameters() {
         Camera.Parameters param = mCamera.getParameters();
         param.setExposureCompensation(param.getMinExposureCompensation());
@@ -299,21 +325,18 @@ public class SketchyCameraView extends CameraBridgeViewBase implements Camera.Pr
     private class CameraWorker implements Runnable {
 
         public void run() {
-            do {
-                synchronized (SketchyCameraView.this) {
-                    try {
-                        SketchyCameraView.this.wait();
-                    } catch (InterruptedException e) {
-                        Log.e(TAG, "CameraWorker interrupted", e);
-                    }
-                }
-
-                if (!mStopThread) {
-                    if (!mFrameChain[mChainIdx].empty())
-                        deliverAndDrawFrame(mCameraFrame[mChainIdx]);
-                    mChainIdx = 1 - mChainIdx;
+            // Frames are processed on this thread too
+            ThreadTuning.tune(ThreadTuning.Role.CAMERA);
+            try {
+                Frame frame;
+                while ((frame = mSource.next()) != null) {
+                    mCameraFrame.setYuvFrameData(frame.mat());
+                    deliverAndDrawFrame(mCameraFrame);
+                    mSource.release(frame);
                 }
-            } while (!mStopThread);
+            } catch (InterruptedException e) {
+                Log.e(TAG, "CameraWorker interrupted", e);
+            }
             Log.d(TAG, "Finish processing thread");
         }
     }
@@ -38,9 +38,12 @@ public abstract class AbstractJSONWriter extends AbstractVisionThread {
         try {
 
             OutputStreamWriter osw = new OutputStreamWriter(m_activity.openFileOutput("data.json", Context.MODE_PRIVATE));
-            osw.write(json.toString());
+            final String text = json.toString();
+            osw.write(text);
             osw.flush();
             osw.close();
+            m_bytesSent.add(text.length());
+            m_messagesSent.increment();
 
         } catch (IOException e) {
 
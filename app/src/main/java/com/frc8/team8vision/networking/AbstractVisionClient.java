@@ -3,6 +3,9 @@ package com.frc8.team8vision.networking;
 import android.app.Activity;
 import android.util.Log;
 
+import com.frc8.team8vision.vision.telemetry.StripedCounter;
+import com.frc8.team8vision.vision.telemetry.Telemetry;
+
 import java.io.IOException;
 import java.net.Socket;
 import java.net.UnknownHostException;
@@ -22,12 +25,21 @@ public abstract class AbstractVisionClient extends AbstractVisionThread {
     protected int m_port = 0;
     protected String m_hostName = "";
     protected Socket m_client = new Socket();
-    protected SocketState m_socketState = SocketState.PRE_INIT;
+    protected volatile SocketState m_socketState = SocketState.PRE_INIT;
+    protected boolean m_hasConnected = false;
+    protected final StripedCounter m_reconnects;
 
     protected AbstractVisionClient(final String k_threadName) {
         super(k_threadName);
+        m_reconnects = Telemetry.counter(Telemetry.kTransport + k_threadName + ".reconnects");
     }
 
+    /**
+     * @return Whether the thread is running with a connected socket
+     */
+    @Override
+    public boolean isActive() { return super.isActive() && m_socketState == SocketState.OPEN; }
+
     @Override
     @Deprecated
     public void start(Activity activity, final long k_updateRate) {
@@ -62,6 +74,8 @@ public abstract class AbstractVisionClient extends AbstractVisionThread {
         }
 
         m_socketState = SocketState.ATTEMPTING_CONNECTION;
+
+        afterInit();
     }
 
     protected abstract void afterInit();
@@ -115,6 +129,8 @@ public abstract class AbstractVisionClient extends AbstractVisionThread {
             Log.i(k_tag, "Trying to reconnect to: " + m_hostName + " using port: " + Integer.toString(m_port));
             m_client = new Socket(m_hostName, m_port);
             Log.i(k_tag, "Connected to: " + m_hostName + " using port: " + Integer.toString(m_port));
+            if (m_hasConnected) m_reconnects.increment();
+            m_hasConnected = true;
             return SocketState.OPEN;
 
         } catch (UnknownHostException ue) {
@@ -1,12 +1,19 @@
 package com.frc8.team8vision.networking;
 
 import com.frc8.team8vision.util.Constants;
+import com.frc8.team8vision.vision.VisionInfoData;
+import com.frc8.team8vision.vision.VisionScheduler;
+import com.frc8.team8vision.vision.telemetry.StripedCounter;
+import com.frc8.team8vision.vision.telemetry.Telemetry;
 
 import android.app.Activity;
 import android.util.Log;
 
 /**
- * Base class for vision threads
+ * Base class for vision threads. Each one is a task of the shared {@link VisionScheduler}
+ * rather than a thread of its own: it updates when woken, e.g. by {@link #m_wake} once new
+ * data is published, and every update rate if it has one. While paused or stopped it is
+ * not run at all.
  *
  * @author Quintin Dwight
  */
@@ -17,44 +24,86 @@ public abstract class AbstractVisionThread implements Runnable {
     }
 
     protected Activity m_activity;
-    protected double m_secondsAlive = 0.0d;
+    protected volatile double m_secondsAlive = 0.0d;
     protected long m_updateRate;
     protected final String k_tag;
-    protected boolean m_isRunning = false;
-    protected ThreadState m_threadState = ThreadState.PRE_INIT;
+    protected volatile boolean m_isRunning = false;
+    protected volatile ThreadState m_threadState = ThreadState.PRE_INIT;
+    // What the thread sent, reported by the telemetry endpoint
+    protected final StripedCounter m_bytesSent, m_messagesSent;
+    // Wakes the thread to update right away, e.g. as a listener of VisionInfoData
+    protected final Runnable m_wake = new Runnable() {
+        @Override
+        public void run() {
+            wake();
+        }
+    };
+
+    private final String m_name;
+    private volatile VisionScheduler.Task m_task;
+    private long m_startTime;
 
     public double getTimeAlive() { return m_secondsAlive; }
     public boolean isRunning() { return m_isRunning; }
 
+    /**
+     * @return Whether the thread is sending right now, so data prepared for it reaches someone
+     */
+    public boolean isActive() { return m_isRunning && m_threadState == ThreadState.RUNNING; }
+
     protected AbstractVisionThread(final String k_threadName) {
+        m_name = k_threadName;
         k_tag = Constants.kTAG + k_threadName;
+        m_bytesSent = Telemetry.counter(Telemetry.kTransport + k_threadName + ".bytes");
+        m_messagesSent = Telemetry.counter(Telemetry.kTransport + k_threadName + ".messages");
     }
 
+    /**
+     * Sets the state, and runs the thread only while it is running.
+     */
     protected void setThreadState(ThreadState state) {
         m_threadState = state;
+
+        final VisionScheduler.Task task = m_task;
+        if (task == null) return;
+        switch (state) {
+            case RUNNING:
+                task.resume();
+                break;
+            case STOPPED:
+                task.stop();
+                break;
+            default:
+                task.pause();
+                break;
+        }
     }
 
     /**
      * Starts the thread with a specific update rate.
+     *
+     * @param k_updateRate Milliseconds between updates when nothing wakes the thread, or 0 to
+     *                     update only when woken
      */
     public void start(Activity activity, final long k_updateRate) {
 
         m_activity = activity;
 
-        m_threadState = ThreadState.PRE_INIT;
-
-        m_updateRate = k_updateRate;
-
         if (m_isRunning) {
             Log.e(k_tag, "Thread is already running! Aborting...");
             return;
         }
 
-        init();
+        m_threadState = ThreadState.PRE_INIT;
+
+        m_updateRate = k_updateRate;
 
         Log.i(k_tag, "Starting thread...");
+        m_startTime = System.nanoTime();
+        m_task = VisionScheduler.getShared().newTask(m_name, k_updateRate, this);
         m_isRunning = true;
-        new Thread(this).start();
+
+        init();
     }
 
     /**
@@ -65,22 +114,16 @@ public abstract class AbstractVisionThread implements Runnable {
     @Override
     public void run() {
 
-        while (m_isRunning) {
+        if (!m_isRunning) return;
 
-            if (m_threadState == ThreadState.PRE_INIT) {
-                Log.e(k_tag, "Thread has not been initialized in running state! Aborting...");
-                return;
-            }
+        if (m_threadState == ThreadState.PRE_INIT) {
+            Log.e(k_tag, "Thread has not been initialized in running state! Aborting...");
+            return;
+        }
 
-            update();
+        m_secondsAlive = (System.nanoTime() - m_startTime) / 1e9;
 
-            try {
-                Thread.sleep(m_updateRate);
-                m_secondsAlive += m_updateRate / 1000.0;
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-        }
+        update();
     }
 
     /**
@@ -88,6 +131,15 @@ public abstract class AbstractVisionThread implements Runnable {
      */
     protected abstract void update();
 
+    /**
+     * Updates the thread as soon as possible if it is running.
+     */
+    public void wake() {
+
+        final VisionScheduler.Task task = m_task;
+        if (task != null) task.wake();
+    }
+
     /**
      * Pauses the thread
      */
@@ -129,6 +181,8 @@ public abstract class AbstractVisionThread implements Runnable {
 
         m_isRunning = false;
         setThreadState(ThreadState.STOPPED);
+        VisionInfoData.removeDataListener(m_wake);
+        VisionInfoData.removeFrameListener(m_wake);
 
         onStop();
     }
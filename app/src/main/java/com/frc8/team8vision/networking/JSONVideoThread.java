@@ -20,7 +20,10 @@ public class JSONVideoThread extends AbstractJSONWriter {
     }
 
     @Override
-    protected void init() {}
+    protected void init() {
+
+        VisionInfoData.addFrameListener(m_wake);
+    }
 
     @Override
     protected void onPause() {}
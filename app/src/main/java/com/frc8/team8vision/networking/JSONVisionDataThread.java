@@ -18,7 +18,10 @@ public class JSONVisionDataThread extends AbstractJSONWriter {
     }
 
     @Override
-    protected void init() {}
+    protected void init() {
+
+        VisionInfoData.addDataListener(m_wake);
+    }
 
     @Override
     protected void onPause() {
@@ -0,0 +1,147 @@
+package com.frc8.team8vision.networking;
+
+import android.os.Debug;
+import android.util.Log;
+
+import com.frc8.team8vision.vision.telemetry.Telemetry;
+
+import org.json.JSONException;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+/**
+ * Serves the app's {@link Telemetry} over HTTP so it can be checked from a laptop in the
+ * pits without adb: GET /telemetry answers JSON, GET /telemetry.bin the compact binary
+ * form described in {@link Telemetry#writeBinary(DataOutputStream)}. Each connection gets
+ * one snapshot and is closed. A single update waits for connections until the server is
+ * stopped, which closes the socket it waits on.
+ */
+public class TelemetryServer extends AbstractVisionThread {
+
+    private static final String k_jsonPath = "/telemetry", k_binaryPath = "/telemetry.bin";
+
+    private final int m_port;
+    private final int m_readTimeoutMS;
+    private ServerSocket m_server;
+
+    /**
+     * @param k_port Port to listen on
+     * @param k_readTimeoutMS How long a client has to send its request
+     */
+    public TelemetryServer(final int k_port, final int k_readTimeoutMS) {
+
+        super("TelemetryServer");
+
+        m_port = k_port;
+        m_readTimeoutMS = k_readTimeoutMS;
+    }
+
+    @Override
+    protected void init() {
+
+        try {
+
+            m_server = new ServerSocket(m_port);
+            Log.i(k_tag, "Serving telemetry on port: " + Integer.toString(m_port));
+
+        } catch (IOException e) {
+
+            Log.e(k_tag, "Cannot listen on port: " + Integer.toString(m_port) + "!");
+            e.printStackTrace();
+        }
+
+        setThreadState(ThreadState.RUNNING);
+    }
+
+    @Override
+    protected void update() {
+
+        // Telemetry is served while the vision threads are paused too
+        while (m_threadState != ThreadState.STOPPED && m_server != null && !m_server.isClosed()) {
+
+            try (Socket client = m_server.accept()) {
+
+                client.setSoTimeout(m_readTimeoutMS);
+                serve(client);
+
+            } catch (SocketTimeoutException e) {
+
+                Log.w(k_tag, "Telemetry client sent no request");
+
+            } catch (IOException e) {
+
+                if (m_threadState != ThreadState.STOPPED) Log.w(k_tag, "Error serving telemetry: " + e.toString());
+            }
+        }
+    }
+
+    /**
+     * Answers one HTTP request for a telemetry snapshot.
+     */
+    private void serve(Socket client) throws IOException {
+
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream(), "US-ASCII"));
+        final String request = reader.readLine();
+        if (request == null) return;
+
+        // Skip the headers
+        String header;
+        while ((header = reader.readLine()) != null && !header.isEmpty());
+
+        final String[] parts = request.split(" ");
+        final String path = parts.length > 1 ? parts[1] : "";
+
+        Telemetry.gauge(Telemetry.kMemory + "nativeHeapBytes").set(Debug.getNativeHeapAllocatedSize());
+
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        String status = "200 OK", type;
+        if (path.equals(k_binaryPath)) {
+            type = "application/octet-stream";
+            Telemetry.writeBinary(new DataOutputStream(body));
+        } else if (path.equals(k_jsonPath) || path.equals("/")) {
+            type = "application/json";
+            try {
+                body.write(Telemetry.toJson().toString(2).getBytes("UTF-8"));
+            } catch (JSONException e) {
+                throw new IOException(e.toString());
+            }
+        } else {
+            status = "404 Not Found";
+            type = "text/plain";
+            body.write(("Try " + k_jsonPath + " or " + k_binaryPath + "\n").getBytes("US-ASCII"));
+        }
+
+        final OutputStream out = client.getOutputStream();
+        out.write(("HTTP/1.0 " + status + "\r\nContent-Type: " + type + "\r\nContent-Length: " + body.size()
+                + "\r\nConnection: close\r\n\r\n").getBytes("US-ASCII"));
+        body.writeTo(out);
+        out.flush();
+
+        m_bytesSent.add(body.size());
+        m_messagesSent.increment();
+    }
+
+    @Override
+    protected void onPause() {}
+
+    @Override
+    protected void onResume() {}
+
+    @Override
+    protected void onStop() {
+
+        try {
+            if (m_server != null) m_server.close();
+        } catch (IOException e) {
+            Log.e(k_tag, "Error closing telemetry server: " + e.toString());
+        }
+    }
+}
@@ -23,7 +23,11 @@ public class VideoSocketClient extends AbstractVisionClient {
 		super("VideoSocketClient");
 	}
 
-	@Override protected void afterInit() {}
+	@Override
+	protected void afterInit() {
+
+		VisionInfoData.addFrameListener(m_wake);
+	}
 
 	/**
 	 * Writes image matrix data to the socket.
@@ -47,6 +51,8 @@ public class VideoSocketClient extends AbstractVisionClient {
 
 					dos.writeInt(imageData.length);
 					dos.write(imageData, 0, imageData.length);
+					m_bytesSent.add(4 + imageData.length);
+					m_messagesSent.increment();
 
 				} catch (IOException e) {
 
@@ -18,7 +18,11 @@ public class VisionDataSocketClient extends AbstractVisionClient {
         super("VisionDataSocketClient");
     }
 
-    @Override protected void afterInit() {}
+    @Override
+    protected void afterInit() {
+
+        VisionInfoData.addDataListener(m_wake);
+    }
 
     @Override
     protected void afterUpdate() {
@@ -55,6 +59,8 @@ public class VisionDataSocketClient extends AbstractVisionClient {
                 String json = jsonObject.toString();
 
                 writer.write(json);
+                m_bytesSent.add(json.length());
+                m_messagesSent.increment();
             }
 
         } catch (IOException e) {
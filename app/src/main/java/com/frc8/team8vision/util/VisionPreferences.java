@@ -4,71 +4,171 @@ import android.app.Activity;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.preference.PreferenceManager;
-import android.util.Log;
 
 import com.frc8.team8vision.vision.ProcessorSelector;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory store for the settings of the active profile.
+ *
+ * The current settings are held as one immutable {@link VisionSettings} snapshot, so the
+ * vision pipeline can read everything it needs for a frame with a single volatile read
+ * while the UI thread reloads settings. Changes made from the pipeline (tracking side,
+ * flashlight) update the snapshot immediately and are written back to SharedPreferences
+ * on a background thread, coalesced to at most one write every
+ * {@link Constants#kSettingsPersistDelayMS}.
+ */
 public class VisionPreferences {
 
 	private static SharedPreferences preferences = null;
 	private static Context context = null;
 
-	private static String profile = "Default";
-	private static boolean trackingLeft = false;
-	private static boolean dynamicTracking = false;
-	private static boolean tuningMode = false;
-	private static boolean flashlightOn = false;
-	private static float x_shift = 0.0f;
-	private static float z_shift = 0.0f;
+	private static final AtomicReference<VisionSettings> settings = new AtomicReference<>(VisionSettings.DEFAULT);
 
-	private static int[] sliderValues = new int[6];
-	private static ProcessorSelector.ProcessorType processorType = ProcessorSelector.ProcessorType.CENTROID;
+	private static final AtomicBoolean persistScheduled = new AtomicBoolean(false);
+	private static final ScheduledExecutorService persistExecutor = Executors.newSingleThreadScheduledExecutor(
+			new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "VisionPreferences");
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}
+			});
+	private static final Runnable persistTask = new Runnable() {
+		@Override
+		public void run() {
+			persistScheduled.set(false);
+			persist();
+		}
+	};
 
 	public static void initialize(Activity activity){
 		preferences = PreferenceManager.getDefaultSharedPreferences(activity);
 		context = activity.getBaseContext();
 	}
 
+	/**
+	 * Reloads the snapshot from SharedPreferences. Pending writes from the pipeline are
+	 * flushed first so they are not overwritten by stale stored values.
+	 */
 	public static void updateSettings(){
 
-		profile = preferences.getString(Constants.kProfileNameSettingsName, profile);
-		trackingLeft = preferences.getBoolean(profile+"_"+Constants.kTrackingLeftSettingsName, trackingLeft);
-		dynamicTracking = preferences.getBoolean(profile+"_"+Constants.kDynamicTrackingSettingsName, dynamicTracking);
-		tuningMode = preferences.getBoolean(profile+"_"+ Constants.kTuningModeSettingsName, tuningMode);
-		flashlightOn = preferences.getBoolean(profile+"_"+Constants.kFlashlightOnSettingsName, flashlightOn);
-		x_shift = preferences.getFloat(profile+"_"+Constants.kXShiftSettingsName, x_shift);
-		z_shift = preferences.getFloat(profile+"_"+Constants.kZShiftSettingsName, z_shift);
+		flush();
+
+		final VisionSettings current = settings.get();
+
+		String profile = preferences.getString(Constants.kProfileNameSettingsName, current.getProfile());
 
 		String processorName = preferences.getString(profile+"_"+Constants.kProcessorTypeSettingsName, "CENTROID");
-		processorType = ProcessorSelector.ProcessorType.valueOf(processorName);
+		String previewModeName = preferences.getString(profile+"_"+Constants.kPreviewModeSettingsName, "FULL");
+		String streamModeName = preferences.getString(profile+"_"+Constants.kStreamModeSettingsName, "ANNOTATED");
+		String detectionScaleName = preferences.getString(profile+"_"+Constants.kDetectionScaleSettingsName, "FULL");
+		String contourMethodName = preferences.getString(profile+"_"+Constants.kContourMethodSettingsName, "FIND_CONTOURS");
 
+		int[] sliderValues = new int[Constants.kSliderNames.length];
 		for(int i=0; i<sliderValues.length; i++){
 			sliderValues[i] = preferences.getInt(profile+"_"+Constants.kSliderNames[i], Constants.kSliderDefaultValues[i]);
 		}
+
+		settings.set(new VisionSettings(
+				profile,
+				preferences.getBoolean(profile+"_"+Constants.kTrackingLeftSettingsName, current.isTrackingLeft()),
+				preferences.getBoolean(profile+"_"+Constants.kDynamicTrackingSettingsName, current.isDynamicTracking()),
+				preferences.getBoolean(profile+"_"+Constants.kTuningModeSettingsName, current.isTuningMode()),
+				preferences.getBoolean(profile+"_"+Constants.kFlashlightOnSettingsName, current.isFlashlightOn()),
+				preferences.getBoolean(profile+"_"+Constants.kRecordingSettingsName, current.isRecording()),
+				preferences.getFloat(profile+"_"+Constants.kXShiftSettingsName, current.getX_shift()),
+				preferences.getFloat(profile+"_"+Constants.kZShiftSettingsName, current.getZ_shift()),
+				sliderValues,
+				ProcessorSelector.ProcessorType.valueOf(processorName),
+				VisionSettings.PreviewMode.valueOf(previewModeName),
+				VisionSettings.StreamMode.valueOf(streamModeName),
+				VisionSettings.DetectionScale.valueOf(detectionScaleName),
+				VisionSettings.ContourMethod.valueOf(contourMethodName)
+		));
 	}
 
 	public static Context context(){return context;}
 	public static SharedPreferences preferences(){return preferences;}
 	public static SharedPreferences.Editor editor(){return preferences.edit();}
 
-	public static String getProfile(){return profile;}
-	public static boolean isTrackingLeft() {return trackingLeft;}
-	public static boolean isDynamicTracking() {return dynamicTracking;}
-	public static boolean isTuningMode() {return tuningMode;}
-	public static boolean isFlashlightOn() {return flashlightOn;}
-	public static float getX_shift() {return x_shift;}
-	public static float getZ_shift() {return z_shift;}
-	public static ProcessorSelector.ProcessorType getProcessorType() {return processorType;}
-	public static int[] getSliderValues(){return sliderValues;}
+	/**
+	 * @return Snapshot of the current settings; read once per frame by the vision pipeline
+	 */
+	public static VisionSettings getSettings(){return settings.get();}
+
+	public static String getProfile(){return settings.get().getProfile();}
+	public static boolean isTrackingLeft() {return settings.get().isTrackingLeft();}
+	public static boolean isDynamicTracking() {return settings.get().isDynamicTracking();}
+	public static boolean isTuningMode() {return settings.get().isTuningMode();}
+	public static boolean isFlashlightOn() {return settings.get().isFlashlightOn();}
+	public static boolean isRecording() {return settings.get().isRecording();}
+	public static float getX_shift() {return settings.get().getX_shift();}
+	public static float getZ_shift() {return settings.get().getZ_shift();}
+	public static ProcessorSelector.ProcessorType getProcessorType() {return settings.get().getProcessorType();}
+	public static VisionSettings.PreviewMode getPreviewMode() {return settings.get().getPreviewMode();}
+
+	/**
+	 * Read from the stored preferences, as only the UI thread needs it; not part of the snapshot.
+	 *
+	 * @return Processor to run in the shadow of the one in use, or null for none
+	 */
+	public static ProcessorSelector.ProcessorType getShadowProcessorType() {
+		String name = preferences.getString(getProfile()+"_"+Constants.kShadowProcessorTypeSettingsName, "NONE");
+		return name.equals("NONE") ? null : ProcessorSelector.ProcessorType.valueOf(name);
+	}
 
 	public static void setTrackingLeft(boolean isTrackingLeft){
-		trackingLeft = isTrackingLeft;
-		editor().putBoolean(profile+"_"+ Constants.kTrackingLeftSettingsName, trackingLeft);
-		editor().apply();
+		VisionSettings current;
+		do {
+			current = settings.get();
+		} while (!settings.compareAndSet(current, current.withTrackingLeft(isTrackingLeft)));
+		schedulePersist();
 	}
 	public static void setFlashlight(boolean isFlashlightOn){
-		flashlightOn = isFlashlightOn;
-		editor().putBoolean(profile+"_"+Constants.kFlashlightOnSettingsName, isFlashlightOn);
-		editor().apply();
+		VisionSettings current;
+		do {
+			current = settings.get();
+		} while (!settings.compareAndSet(current, current.withFlashlight(isFlashlightOn)));
+		schedulePersist();
+	}
+
+	/**
+	 * Schedules a write of the snapshot unless one is already pending, so any number of
+	 * changes within the persist delay result in a single write.
+	 */
+	private static void schedulePersist(){
+		if (persistScheduled.compareAndSet(false, true)) {
+			persistExecutor.schedule(persistTask, Constants.kSettingsPersistDelayMS, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Writes pending changes right away instead of waiting for the scheduled write.
+	 */
+	public static void flush(){
+		if (persistScheduled.get()) persist();
+	}
+
+	/**
+	 * Writes the values the pipeline is allowed to change back to SharedPreferences.
+	 */
+	private static synchronized void persist(){
+		if (preferences == null) return;
+
+		final VisionSettings current = settings.get();
+		final String profile = current.getProfile();
+		SharedPreferences.Editor editor = preferences.edit();
+		editor.putBoolean(profile+"_"+Constants.kTrackingLeftSettingsName, current.isTrackingLeft());
+		editor.putBoolean(profile+"_"+Constants.kFlashlightOnSettingsName, current.isFlashlightOn());
+		editor.apply();
 	}
 }
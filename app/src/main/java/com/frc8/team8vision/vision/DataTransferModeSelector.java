@@ -12,7 +12,9 @@ import com.frc8.team8vision.util.Constants;
 import java.util.HashMap;
 
 /**
- * Selector for data transfer modes of both vision data and video.
+ * Selector for data transfer modes of both vision data and video. Every transferer is a task
+ * of the shared {@link com.frc8.team8vision.vision.VisionScheduler}; the ones not selected
+ * are paused and not run at all.
  *
  * @author Quintin Dwight
  */
@@ -73,11 +75,11 @@ public class DataTransferModeSelector {
         protected void initMap(Activity activity, final boolean isTesting) {
 
             JSONVideoThread json = new JSONVideoThread();
-            json.start(activity, Constants.kDataUpdateRateMS);
+            json.start(activity, 0);
             json.pause();
 
             VideoSocketClient socket = new VideoSocketClient();
-            socket.start(activity, Constants.kVisionUpdateRateMS, Constants.kRIOHostName, Constants.kVideoPort, isTesting);
+            socket.start(activity, Constants.kTransportCheckMS, Constants.kRIOHostName, Constants.kVideoPort, isTesting);
             socket.pause();
 
             transferers.put(DataTransferMode.CAT_JSON, json  );
@@ -96,11 +98,11 @@ public class DataTransferModeSelector {
         protected void initMap(Activity activity, final boolean isTesting) {
 
             JSONVisionDataThread json = new JSONVisionDataThread();
-            json.start(activity, Constants.kDataUpdateRateMS);
+            json.start(activity, 0);
             json.pause();
 
             VisionDataSocketClient socket = new VisionDataSocketClient();
-            socket.start(activity, Constants.kDataUpdateRateMS, Constants.kRIOHostName, Constants.kVisionDataPort, isTesting);
+            socket.start(activity, Constants.kTransportCheckMS, Constants.kRIOHostName, Constants.kVisionDataPort, isTesting);
             socket.pause();
 
             transferers.put(DataTransferMode.CAT_JSON, json  );
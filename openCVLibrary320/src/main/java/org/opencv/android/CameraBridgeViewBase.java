@@ -51,11 +51,21 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
     protected boolean mEnabled;
     protected FpsMeter mFpsMeter = null;
 
+    // Preview decimation - not part of the original library!
+    private volatile int mPreviewDecimation = PREVIEW_EVERY_FRAME;
+    // Applied between frames on the camera thread
+    private int mFrameDecimation = PREVIEW_EVERY_FRAME;
+    private int mPreviewFrameCount = 0;
+    private PreviewRenderer mRenderer = null;
+    private final Rect mSrcRect = new Rect(), mDstRect = new Rect();
+
     public static final int CAMERA_ID_ANY   = -1;
     public static final int CAMERA_ID_BACK  = 99;
     public static final int CAMERA_ID_FRONT = 98;
     public static final int RGBA = 1;
     public static final int GRAY = 2;
+    public static final int PREVIEW_HEADLESS = 0;
+    public static final int PREVIEW_EVERY_FRAME = 1;
 
     public CameraBridgeViewBase(Context context, int cameraId) {
         super(context);
@@ -285,6 +295,30 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
         mMaxHeight = maxHeight;
     }
 
+    /**
+     * Sets how often processed frames are drawn on screen - not part of the original library!
+     * May be called from any thread; it takes effect from the next frame delivered.
+     * @param decimation - PREVIEW_HEADLESS to never draw, PREVIEW_EVERY_FRAME to draw every frame
+     *                     on the camera thread, or N to draw every Nth frame on a separate render thread
+     */
+    public void setPreviewDecimation(int decimation) {
+        mPreviewDecimation = Math.max(PREVIEW_HEADLESS, decimation);
+    }
+
+    public int getPreviewDecimation() {
+        return mPreviewDecimation;
+    }
+
+    /**
+     * Whether the frame being delivered will be drawn - not part of the original library!
+     * Only meaningful from onCameraFrame, on the camera thread.
+     */
+    public boolean willDrawFrame() {
+        final int decimation = mFrameDecimation;
+        if (decimation == PREVIEW_HEADLESS) return false;
+        return decimation == PREVIEW_EVERY_FRAME || mPreviewFrameCount % decimation == 0;
+    }
+
     public void SetCaptureFormat(int format)
     {
         mPreviewFormat = format;
@@ -375,6 +409,10 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
 
     private void onExitStartedState() {
         disconnectCamera();
+        if (mRenderer != null) {
+            mRenderer.stop();
+            mRenderer = null;
+        }
         if (mCacheBitmap != null) {
             mCacheBitmap.recycle();
         }
@@ -389,12 +427,26 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
     protected void deliverAndDrawFrame(CvCameraViewFrame frame) {
         Mat modified;
 
+        // Not part of the original library!
+        applyPreviewDecimation();
+
         if (mListener != null) {
             modified = mListener.onCameraFrame(frame);
         } else {
             modified = frame.rgba();
         }
 
+        // Skip or hand off drawing depending on the preview decimation - not part of the original library!
+        final int decimation = mFrameDecimation;
+        if (decimation == PREVIEW_HEADLESS) return;
+        if (decimation > PREVIEW_EVERY_FRAME) {
+            if (modified != null && mPreviewFrameCount++ % decimation == 0) {
+                if (mRenderer == null) mRenderer = new PreviewRenderer();
+                mRenderer.offer(modified);
+            }
+            return;
+        }
+
         boolean bmpValid = true;
         if (modified != null) {
             try {
@@ -408,28 +460,119 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
         }
 
         if (bmpValid && mCacheBitmap != null) {
-            Canvas canvas = getHolder().lockCanvas();
-            if (canvas != null) {
-                canvas.drawColor(0, android.graphics.PorterDuff.Mode.CLEAR);
-                if (BuildConfig.DEBUG)
-                    Log.d(TAG, "mStretch value: " + mScale);
-
-                if (mScale != 0) {
-                    canvas.drawBitmap(mCacheBitmap, new Rect(0,0,mCacheBitmap.getWidth(), mCacheBitmap.getHeight()),
-                            new Rect((int)((canvas.getWidth() - mScale*mCacheBitmap.getWidth()) / 2),
-                                    (int)((canvas.getHeight() - mScale*mCacheBitmap.getHeight()) / 2),
-                                    (int)((canvas.getWidth() - mScale*mCacheBitmap.getWidth()) / 2 + mScale*mCacheBitmap.getWidth()),
-                                    (int)((canvas.getHeight() - mScale*mCacheBitmap.getHeight()) / 2 + mScale*mCacheBitmap.getHeight())), null);
-
-                } else
-
-                if (mFpsMeter != null) {
-                    mFpsMeter.measure();
-                    mFpsMeter.draw(canvas, 20, 30);
+            drawCacheBitmap();
+        }
+    }
+
+    /**
+     * Applies the preview decimation last set, before the frame is delivered, so the listener
+     * and the drawing see the same one - not part of the original library!
+     */
+    private void applyPreviewDecimation() {
+        final int decimation = mPreviewDecimation;
+        if (decimation == mFrameDecimation) return;
+        // The render thread is done with the cached bitmap before the camera thread draws into it
+        if (mRenderer != null && decimation <= PREVIEW_EVERY_FRAME) {
+            mRenderer.stop();
+            mRenderer = null;
+        }
+        mFrameDecimation = decimation;
+        mPreviewFrameCount = 0;
+    }
+
+    /**
+     * Draws the cached bitmap on the surface, scaled and centered.
+     */
+    private void drawCacheBitmap() {
+        Canvas canvas = getHolder().lockCanvas();
+        if (canvas != null) {
+            canvas.drawColor(0, android.graphics.PorterDuff.Mode.CLEAR);
+            if (BuildConfig.DEBUG)
+                Log.d(TAG, "mStretch value: " + mScale);
+
+            if (mScale != 0) {
+                mSrcRect.set(0,0,mCacheBitmap.getWidth(), mCacheBitmap.getHeight());
+                mDstRect.set((int)((canvas.getWidth() - mScale*mCacheBitmap.getWidth()) / 2),
+                        (int)((canvas.getHeight() - mScale*mCacheBitmap.getHeight()) / 2),
+                        (int)((canvas.getWidth() - mScale*mCacheBitmap.getWidth()) / 2 + mScale*mCacheBitmap.getWidth()),
+                        (int)((canvas.getHeight() - mScale*mCacheBitmap.getHeight()) / 2 + mScale*mCacheBitmap.getHeight()));
+                canvas.drawBitmap(mCacheBitmap, mSrcRect, mDstRect, null);
+
+            } else
+
+            if (mFpsMeter != null) {
+                mFpsMeter.measure();
+                mFpsMeter.draw(canvas, 20, 30);
+            }
+            getHolder().unlockCanvasAndPost(canvas);
+        }
+    }
+
+    /**
+     * Draws decimated preview frames off the camera thread - not part of the original library!
+     * The camera thread copies a frame into a reused Mat only when the previous one has been
+     * drawn, so it never waits on the display.
+     */
+    private class PreviewRenderer implements Runnable {
+        private final Mat mPending = new Mat();
+        private final Thread mThread;
+        private boolean mHasFrame = false;
+        private boolean mStop = false;
+
+        PreviewRenderer() {
+            mThread = new Thread(this, "PreviewRenderer");
+            mThread.start();
+        }
+
+        /**
+         * Called on the camera thread; skips the frame if the previous one is still being drawn.
+         */
+        public synchronized void offer(Mat frame) {
+            if (mHasFrame) return;
+            frame.copyTo(mPending);
+            mHasFrame = true;
+            notify();
+        }
+
+        public void run() {
+            while (true) {
+                synchronized (this) {
+                    while (!mHasFrame && !mStop) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            Log.e(TAG, "PreviewRenderer interrupted", e);
+                        }
+                    }
+                    if (mStop) break;
+                }
+
+                // mPending is not written while mHasFrame is set
+                try {
+                    Utils.matToBitmap(mPending, mCacheBitmap);
+                    drawCacheBitmap();
+                } catch (Exception e) {
+                    Log.e(TAG, "Utils.matToBitmap() throws an exception: " + e.getMessage());
+                }
+
+                synchronized (this) {
+                    mHasFrame = false;
                 }
-                getHolder().unlockCanvasAndPost(canvas);
             }
         }
+
+        public void stop() {
+            synchronized (this) {
+                mStop = true;
+                notify();
+            }
+            try {
+                mThread.join();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            mPending.release();
+        }
     }
 
     // Rotates the canvas 90 degrees to portrait orientation - not part of the original library!
@@ -0,0 +1,160 @@
+package com.frc8.team8vision.util;
+
+import org.opencv.core.Point3;
+
+/**
+ * Stores various constants to be used by the rest of the app.
+ *
+ * @author Calvin Yan
+ */
+public class Constants {
+
+    // Universal logging tag
+    public static final String kTAG = "FRC8.";
+
+    // roboRIO networking constants
+    public static final String kRIOHostName = "localhost";
+    public static final int
+            kVisionDataPort = 8008,
+            kVideoPort = 8009;
+
+    // Local telemetry endpoint for the pit crew, in the range FRC leaves open to teams
+    public static final int
+            kTelemetryPort = 5800,
+            kTelemetryReadTimeoutMS = 1000;
+    // Transports send when new results or frames are published; socket clients also check
+    // their connection, and reconnect, this often
+    public static final long
+            kTransportCheckMS = 100,
+            kChangeStateWaitMS = 200,
+            kVisionIdleTimeS = 5,
+            kSettingsPersistDelayMS = 300;
+
+    // HSV threshold slider constants
+    public static final int[] kSliderDefaultValues = {0, 0, 0, 180, 255, 255};
+    public static final String[] kSliderNames = {
+            "Minimum Hue", "Minimum Saturation", "Minimum Value",
+            "Maximum Hue", "Maximum Saturation", "Maximum Value"
+    };
+
+    // HSV calibration constants
+    public static final int
+            kCalibrationFrames = 10,
+            kCalibrationRegionRadius = 8;
+    public static final int[] kCalibrationMargins = {4, 20, 20};
+
+    // Setting option names
+    public static final String
+            kProfileSelectionSettingsName = "ProfileSelection",
+            kProfileNameSettingsName = "ProfileName",
+            kTrackingLeftSettingsName = "TrackingLeft",
+            kDynamicTrackingSettingsName = "DynamicTracking",
+            kFlashlightOnSettingsName = "FlashlightOn",
+            kTuningModeSettingsName = "TuningMode",
+            kXShiftSettingsName = "XShift",
+            kZShiftSettingsName = "ZShift",
+            kTargetModeSettingsName = "TargetMode",
+            kProcessorModeSettingsName = "ProcessorMode",
+            kProcessorTypeSettingsName = "ProcessorType",
+            kShadowProcessorModeSettingsName = "ShadowProcessorMode",
+            kShadowProcessorTypeSettingsName = "ShadowProcessorType",
+            kVisionDataTransferModeSettingsName = "VisionDataTransferMode",
+            kVideoDataTransferModeSettingsName = "VideoDataTransferMode",
+            kRecordingSettingsName = "Recording",
+            kPreviewModeSettingsName = "PreviewMode",
+            kStreamModeSettingsName = "StreamMode",
+            kDetectionScaleSettingsName = "DetectionScale",
+            kContourMethodSettingsName = "ContourMethod";
+
+    // Number of preview callback buffers the camera rotates through
+    public static final int kCameraBufferCount = 3;
+
+    // Other back cameras are processed headless next to the one on screen, each by this many
+    // workers, if they have calibrations of their own; and how long each may take to stop
+    public static final boolean kProcessOtherCameras = false;
+    public static final int kOtherCameraWorkers = 1;
+    public static final long kOtherCameraStopMs = 1000;
+
+    // Tape pairing is split across threads once there are this many candidate contours
+    public static final int
+            kPairingParallelCandidates = 24,
+            kPairingPairsPerTask = 128;
+
+    // Rows per stripe when per-pixel stages are split across cores
+    public static final int kStripeRows = 64;
+
+    // Frames between reports of scoped Mats that were never released, in debug builds
+    public static final int kMatLeakCheckFrames = 300;
+
+    // Draw every Nth processed frame in the decimated preview mode
+    public static final int kPreviewDecimation = 4;
+
+    // Frame governor: the longest interval between frames, frames averaged per decision, and how
+    // far under the budget, for how many windows in a row, before stepping back up. The interval
+    // never drops below the camera's 33 ms at 30 fps, so recovering must allow for that
+    public static final int kFrameBudgetMs = 50;
+    public static final int
+            kGovernorWindowFrames = 30,
+            kGovernorRecoverWindows = 3;
+    public static final double kGovernorRecoverFraction = 0.75;
+
+    // A processor picked while another is in use is warmed up on this many synthetic frames
+    // before it is swapped in, thresholded with bounds the rendered tape passes
+    public static final int kWarmupFrames = 30;
+    public static final int[] kWarmupThreshold = {40, 100, 100, 80, 255, 255};
+
+    // Raw frame recorder constants
+    public static final String kRecordingFileName = "frames.ring";
+
+    // Directory of calibrations made by the chessboard tool, under the app's external files
+    public static final String kCalibrationDirectoryName = "calibrations";
+    public static final int
+            kRecordingRingFrames = 240,
+            kRecordingStagingFrames = 4;
+
+    // Converts the translation from solvePnP, in inches, to the units reported by the pose processors
+    public static final double kPoseScale = 0.0393701 * 12 / 1.95;
+
+    // Physical specs of peg (all measurements are in inches)
+    public static final double kVisionTargetWidth = 10.25, kTapeWidth = 2, kVisionTargetHeight = 5.0, kPegLength = 10.5;
+
+    // Source points
+    public static final Point3[]
+    kLeftSourcePoints = {
+        new Point3(-kVisionTargetWidth/2           ,  kVisionTargetHeight/2, 0),
+        new Point3(-kVisionTargetWidth/2+kTapeWidth,  kVisionTargetHeight/2, 0),
+        new Point3(-kVisionTargetWidth/2           , -kVisionTargetHeight/2, 0),
+        new Point3(-kVisionTargetWidth/2+kTapeWidth, -kVisionTargetHeight/2, 0)
+    },
+    kRightSourcePoints = {
+        new Point3(kVisionTargetWidth/2-kTapeWidth,  kVisionTargetHeight/2, 0),
+        new Point3(kVisionTargetWidth/2           ,  kVisionTargetHeight/2, 0),
+        new Point3(kVisionTargetWidth/2-kTapeWidth, -kVisionTargetHeight/2, 0),
+        new Point3(kVisionTargetWidth/2           , -kVisionTargetHeight/2, 0)
+    };
+
+    // Built-in camera calibration constants, for the upright frames of the sensor's 1920/3 by 1080/3
+    // the app always ran at; calibrations measured with the chessboard tool take their place
+    public static final int
+            kCalibratedFrameWidth = 1920 / 3,
+            kCalibratedFrameHeight = 1080 / 3;
+
+    // Galaxy S4
+    public static final int kGalaxyPixelsPerInch = 441;
+    public static final double kGalaxyFocalLengthX = 6513.75410, kGalaxyFocalLengthY = 6448.76817, kGalaxyFocalLengthZ = 527;
+    public static final double[][] kGalaxyIntrinsicMatrix = {{kGalaxyFocalLengthX, 0,                   0},
+                                                             {0,                   kGalaxyFocalLengthY, 0},
+                                                             {0,                   0,                   1}};
+    public static final double[] kGalaxyDistortionCoefficients = {.462497044, -1.63724827, -.00256097258, .00220231323};
+
+    // Nexus 5x
+    //public static final int kNexusPixelsPerInch = 424;
+	public static final int kNexusPixelsPerInch = 180;
+    //public static final int kNexusPixelsPerInch = 10770;
+    public static final double kNexusFocalLengthX = 2004.00956, kNexusFocalLengthY = 2000.42830;
+    public static final double[][] kNexusIntrinsicMatrix = {{kNexusFocalLengthX, 0,                  0},
+                                                            {0,                  kNexusFocalLengthY, 0},
+                                                            {0,                  0,                  1}};
+    public static final double[] kNexusDistortionCoefficients = {.118331802, -.566093895, .000616728302, -.000492778707};
+
+}
@@ -0,0 +1,81 @@
+package com.frc8.team8vision.util;
+
+import com.frc8.team8vision.vision.CameraCalibration;
+import com.frc8.team8vision.vision.FrameOrientation;
+
+/**
+ * What differs between the phones the app runs on: how the camera's sensor is mounted
+ * and its built-in calibration.
+ */
+public final class DeviceProfile {
+
+    // The Nexus sensor is mounted upside down relative to the Galaxy's
+    public static final DeviceProfile
+        NEXUS_5X = new DeviceProfile("Nexus 5X", FrameOrientation.CLOCKWISE_270,
+                Constants.kNexusIntrinsicMatrix, Constants.kNexusDistortionCoefficients),
+        GALAXY_S4 = new DeviceProfile("Galaxy S4", FrameOrientation.CLOCKWISE_90,
+                Constants.kGalaxyIntrinsicMatrix, Constants.kGalaxyDistortionCoefficients);
+
+    private static final String[] kGalaxyModels = {
+        "GT-I9500", "GT-I9505", "SGH-I337", "SAMSUNG-SGH-I337", "SCH-I545", "SPH-L720", "SGH-M919"
+    };
+
+    private final String mName;
+    private final FrameOrientation mOrientation;
+    private final CameraCalibration mCalibration;
+
+    /**
+     * @param intrinsics Intrinsic matrix of upright frames of the calibrated size
+     */
+    private DeviceProfile(String name, FrameOrientation orientation, double[][] intrinsics, double[] distortion) {
+        mName = name;
+        mOrientation = orientation;
+
+        final double[] flat = new double[9];
+        for (int i = 0; i < 3; i++) System.arraycopy(intrinsics[i], 0, flat, 3*i, 3);
+        final boolean sideways = orientation.isSideways();
+        final CameraCalibration upright = new CameraCalibration(name,
+                sideways ? Constants.kCalibratedFrameHeight : Constants.kCalibratedFrameWidth,
+                sideways ? Constants.kCalibratedFrameWidth : Constants.kCalibratedFrameHeight,
+                flat, distortion, Double.NaN);
+        mCalibration = upright.turned(orientation.inverse());
+    }
+
+    /**
+     * @param model Build.MODEL of the phone
+     * @param sdk Build.VERSION.SDK_INT of the phone
+     */
+    public static DeviceProfile forDevice(String model, int sdk) {
+        if (model != null) {
+            for (String galaxy : kGalaxyModels) {
+                if (galaxy.equalsIgnoreCase(model)) return GALAXY_S4;
+            }
+            if (model.equalsIgnoreCase(NEXUS_5X.mName)) return NEXUS_5X;
+        }
+        // Unknown models: the Galaxy was the only phone on Lollipop
+        return sdk == 21 ? GALAXY_S4 : NEXUS_5X;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * @return How the sensor's frames are turned upright
+     */
+    public FrameOrientation getOrientation() {
+        return mOrientation;
+    }
+
+    /**
+     * @return The calibration the app shipped with, of the sensor's frames
+     */
+    public CameraCalibration getCalibration() {
+        return mCalibration;
+    }
+
+    @Override
+    public String toString() {
+        return mName;
+    }
+}
@@ -0,0 +1,9 @@
+package com.frc8.team8vision.util;
+
+public interface OnCalibratedCallback {
+	/**
+	 * @param bounds Proposed HSV threshold, in the order of {@link Constants#kSliderNames}
+	 * @param score Quality of the threshold on the sampled frames, higher is better
+	 */
+	public void calibrated(int[] bounds, double score);
+}
@@ -0,0 +1,136 @@
+package com.frc8.team8vision.util;
+
+import com.frc8.team8vision.vision.ProcessorSelector;
+
+import java.util.Arrays;
+
+/**
+ * Immutable snapshot of the settings of the active profile. The vision pipeline reads
+ * one of these per frame instead of global state, so a frame always sees a consistent
+ * set of values no matter when the settings are changed.
+ */
+public final class VisionSettings {
+
+	/**
+	 * How processed frames are shown on screen. Nobody watches the screen while the phone
+	 * is on the robot, so drawing can be reduced or skipped to leave more time for vision.
+	 */
+	public enum PreviewMode {
+		FULL, DECIMATED, HEADLESS
+	}
+
+	/**
+	 * Whether the streamed video carries what the processor found drawn over it, or the
+	 * frames as the camera took them. Raw frames spare drawing when only the preview shows it.
+	 */
+	public enum StreamMode {
+		ANNOTATED, RAW
+	}
+
+	/**
+	 * Resolution the tape is searched for at; see {@link com.frc8.team8vision.vision.PyramidDetector}.
+	 */
+	public enum DetectionScale {
+		FULL(1), HALF(2), QUARTER(4);
+
+		private final int factor;
+
+		DetectionScale(int factor) {
+			this.factor = factor;
+		}
+
+		/**
+		 * @return How many times smaller the searched image is than the frame
+		 */
+		public int getFactor() {return factor;}
+	}
+
+	/**
+	 * How the blobs of the mask are found: OpenCV's contour tracing, or one pass of
+	 * connected component labelling; see {@link com.frc8.team8vision.vision.ComponentLabeler}.
+	 */
+	public enum ContourMethod {
+		FIND_CONTOURS, COMPONENTS
+	}
+
+	public static final VisionSettings DEFAULT = new VisionSettings("Default", false, false, false, false, false,
+			0.0f, 0.0f, Constants.kSliderDefaultValues, ProcessorSelector.ProcessorType.CENTROID, PreviewMode.FULL,
+			StreamMode.ANNOTATED, DetectionScale.FULL, ContourMethod.FIND_CONTOURS);
+
+	private final String profile;
+	private final boolean trackingLeft, dynamicTracking, tuningMode, flashlightOn, recording;
+	private final float x_shift, z_shift;
+	private final int[] sliderValues;
+	private final ProcessorSelector.ProcessorType processorType;
+	private final PreviewMode previewMode;
+	private final StreamMode streamMode;
+	private final DetectionScale detectionScale;
+	private final ContourMethod contourMethod;
+
+	public VisionSettings(String profile, boolean trackingLeft, boolean dynamicTracking, boolean tuningMode,
+						  boolean flashlightOn, boolean recording, float x_shift, float z_shift, int[] sliderValues,
+						  ProcessorSelector.ProcessorType processorType, PreviewMode previewMode, StreamMode streamMode,
+						  DetectionScale detectionScale, ContourMethod contourMethod) {
+		this.profile = profile;
+		this.trackingLeft = trackingLeft;
+		this.dynamicTracking = dynamicTracking;
+		this.tuningMode = tuningMode;
+		this.flashlightOn = flashlightOn;
+		this.recording = recording;
+		this.x_shift = x_shift;
+		this.z_shift = z_shift;
+		this.sliderValues = sliderValues.clone();
+		this.processorType = processorType;
+		this.previewMode = previewMode;
+		this.streamMode = streamMode;
+		this.detectionScale = detectionScale;
+		this.contourMethod = contourMethod;
+	}
+
+	public String getProfile() {return profile;}
+	public boolean isTrackingLeft() {return trackingLeft;}
+	public boolean isDynamicTracking() {return dynamicTracking;}
+	public boolean isTuningMode() {return tuningMode;}
+	public boolean isFlashlightOn() {return flashlightOn;}
+	public boolean isRecording() {return recording;}
+	public float getX_shift() {return x_shift;}
+	public float getZ_shift() {return z_shift;}
+	public ProcessorSelector.ProcessorType getProcessorType() {return processorType;}
+	public PreviewMode getPreviewMode() {return previewMode;}
+	public StreamMode getStreamMode() {return streamMode;}
+	public DetectionScale getDetectionScale() {return detectionScale;}
+	public ContourMethod getContourMethod() {return contourMethod;}
+
+	/**
+	 * @param idx Index into {@link Constants#kSliderNames}
+	 * @return Value of the HSV threshold slider
+	 */
+	public int getSliderValue(int idx) {return sliderValues[idx];}
+	public int getSliderCount() {return sliderValues.length;}
+
+	public VisionSettings withTrackingLeft(boolean isTrackingLeft) {
+		if (isTrackingLeft == trackingLeft) return this;
+		return new VisionSettings(profile, isTrackingLeft, dynamicTracking, tuningMode, flashlightOn, recording,
+				x_shift, z_shift, sliderValues, processorType, previewMode, streamMode, detectionScale, contourMethod);
+	}
+	public VisionSettings withFlashlight(boolean isFlashlightOn) {
+		if (isFlashlightOn == flashlightOn) return this;
+		return new VisionSettings(profile, trackingLeft, dynamicTracking, tuningMode, isFlashlightOn, recording,
+				x_shift, z_shift, sliderValues, processorType, previewMode, streamMode, detectionScale, contourMethod);
+	}
+	public VisionSettings withPreviewMode(PreviewMode mode) {
+		if (mode == previewMode) return this;
+		return new VisionSettings(profile, trackingLeft, dynamicTracking, tuningMode, flashlightOn, recording,
+				x_shift, z_shift, sliderValues, processorType, mode, streamMode, detectionScale, contourMethod);
+	}
+	public VisionSettings withDetectionScale(DetectionScale scale) {
+		if (scale == detectionScale) return this;
+		return new VisionSettings(profile, trackingLeft, dynamicTracking, tuningMode, flashlightOn, recording,
+				x_shift, z_shift, sliderValues, processorType, previewMode, streamMode, scale, contourMethod);
+	}
+	public VisionSettings withSliderValues(int[] values) {
+		if (Arrays.equals(values, sliderValues)) return this;
+		return new VisionSettings(profile, trackingLeft, dynamicTracking, tuningMode, flashlightOn, recording,
+				x_shift, z_shift, values, processorType, previewMode, streamMode, detectionScale, contourMethod);
+	}
+}
@@ -0,0 +1,244 @@
+package com.frc8.team8vision.util;
+
+import com.frc8.team8vision.vision.CameraParameters;
+import com.frc8.team8vision.vision.ContourSet;
+import com.frc8.team8vision.vision.MatScope;
+import com.frc8.team8vision.vision.Overlay;
+
+import org.opencv.calib3d.Calib3d;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.MatOfPoint3f;
+import org.opencv.core.Point;
+import org.opencv.core.Point3;
+import org.opencv.core.Scalar;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Contains utility functions for vision
+ */
+public abstract class VisionUtil {
+
+	private static final Scalar kPegColor = new Scalar(255, 255, 255), kPegEndColor = new Scalar(0, 255, 0);
+
+	// Scratch for getCorners, one per thread processing frames
+	private static final ThreadLocal<ContourSet> kCornerSets = new ThreadLocal<ContourSet>() {
+		@Override
+		protected ContourSet initialValue() {
+			return new ContourSet();
+		}
+	};
+	private static final ThreadLocal<int[]> kCornerIndices = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[4];
+		}
+	};
+	// Scratch for getPosePnP: the undistorted corners, and no distortion for solving with them
+	private static final ThreadLocal<float[]> kIdealCorners = new ThreadLocal<float[]>() {
+		@Override
+		protected float[] initialValue() {
+			return new float[8];
+		}
+	};
+	private static final ThreadLocal<MatOfDouble> kNoDistortion = new ThreadLocal<MatOfDouble>() {
+		@Override
+		protected MatOfDouble initialValue() {
+			return new MatOfDouble();
+		}
+	};
+
+
+//	/**
+//	 * Remove all contours that are below a certain area threshold. Used to remove salt noise.
+//	 */
+//	public static MatOfPoint bestContour(ArrayList<MatOfPoint> contours, Mat input) {
+//		boolean trackingLeft = VisionPreferences.isTrackingLeft();
+//
+//		// Sort contours in decreasing order of area
+//		Collections.sort(contours, new Comparator<MatOfPoint>() {
+//			public int compare(MatOfPoint one, MatOfPoint two) {
+//				return Double.compare(Imgproc.contourArea(two), Imgproc.contourArea(one));
+//			}
+//		});
+//		double threshold = 0.4 * Imgproc.contourArea(contours.get(0));
+//
+//		List<MatOfPoint> found = new ArrayList<>();
+//		for (MatOfPoint contour: contours) {
+//			if (Imgproc.contourArea(contour) < threshold) found.add(contour);
+//		}
+//		contours.removeAll(found);
+//		Imgproc.drawContours(input, found, -1, new Scalar(0, 0, 255));
+//
+//		// Were both strips of tape detected?
+//		if (contours.size() >= 2) {
+//			Imgproc.drawContours(input, contours, 0, new Scalar(255, 0, 0));
+//			Imgproc.drawContours(input, contours, 1, new Scalar(0, 255, 0));
+//			// Calculate bounding rectangles of contours to compare x position
+//			Rect oneRect = Imgproc.boundingRect(contours.get(0)), twoRect = Imgproc.boundingRect(contours.get(1));
+//			double oneArea = oneRect.area(), twoArea = twoRect.area();
+//
+//			if(VisionPreferences.isDynamicTracking()){
+//				if (oneArea<=twoArea){
+//					trackingLeft = oneRect.x >= twoRect.x;
+//					contours.remove(0);
+//				} else {
+//					trackingLeft = oneRect.x < twoRect.x;
+//				}
+//			} else {
+//				if(trackingLeft == oneRect.x > twoRect.x){
+//					contours.remove(0);
+//				}
+//			}
+//		}
+//
+//		VisionPreferences.setTrackingLeft(trackingLeft);
+//
+//		// If no target found
+//		if (contours.size() == 0){
+//			return null;
+//		}
+//
+//		// The first contour should be the optimal one
+//		return contours.get(0);
+//	}
+
+	/**
+	 * Determines the transformation of a camera relative to the vision target.
+	 * The transformation is broken down into rotations and translations along the x, y, and z axes.
+	 * Note that the rotation values are accurate while the translations are not - I'm still trying
+	 * to figure out how to use the middle of the target as the reference point, instead of the top
+	 * left corner.
+	 *
+	 * Only the corners are undistorted, and the pose is solved with an ideal pinhole camera,
+	 * rather than the distortion model being evaluated in every iteration of the solver.
+	 *
+	 * @param sourcePoints Corners of the tapes measured
+	 * @param corners Corners of the tapes measured in the image
+	 * @param overlay Records where the peg is; the peg is only projected while it is recording
+	 * @param camera Calibration of the camera that captured the image
+	 * @return Three dimensional vector representing how close we are to target from the nexus,
+	 *         NaN in every axis if the camera has no calibration
+	 */
+	public static Point3 getPosePnP(MatOfPoint3f sourcePoints, Point[] corners, Overlay overlay, CameraParameters camera) {
+
+		// Without intrinsics there is no pose to solve for, only distances that look real
+		if (camera.getCornerUndistorter() == null) return new Point3(Double.NaN, Double.NaN, Double.NaN);
+
+		final double depth = Constants.kPegLength, conv = Constants.kPoseScale;
+
+		try (MatScope scope = new MatScope()) {
+			MatOfPoint2f dstPoints = scope.add(new MatOfPoint2f());
+			float[] ideal = kIdealCorners.get();
+			if (ideal.length != 2*corners.length) {
+				ideal = new float[2*corners.length];
+				kIdealCorners.set(ideal);
+			}
+			camera.getCornerUndistorter().undistort(corners, ideal);
+			dstPoints.alloc(corners.length);
+			dstPoints.put(0, 0, ideal);
+
+			// In order to calculate the pose, we create a model of the vision targets using 3D coordinates
+			MatOfDouble rvecs = scope.add(new MatOfDouble()), tvecs = scope.add(new MatOfDouble());
+			Calib3d.solvePnP(
+				sourcePoints,
+				dstPoints,
+				camera.IntrinsicMatrix(),
+				kNoDistortion.get(),
+				rvecs,
+				tvecs
+			);
+			if (overlay.isRecording()) {
+				MatOfPoint3f newPoints = scope.add(new MatOfPoint3f(
+					new Point3(0, 0, depth),
+					new Point3(0, 0, 0    )
+				));
+
+				// Drawn on the image as captured, so projected with its distortion
+				MatOfPoint2f result = scope.add(new MatOfPoint2f());
+				Calib3d.projectPoints(
+					newPoints,
+					rvecs,
+					tvecs,
+					camera.IntrinsicMatrix(),
+					camera.DistortionCoefficients(),
+					result
+				);
+				Point[] arr = result.toArray();
+
+				// Estimates the position of the base and tip of the peg
+				overlay.line(arr[0].x, arr[0].y, arr[1].x, arr[1].y, kPegColor, 5);
+
+				for (Point p : arr) {
+					overlay.circle(p.x, p.y, 7, kPegEndColor, 1);
+				}
+			}
+
+			return new Point3(
+				(tvecs.get(0, 0)[0]) * conv,
+				(tvecs.get(1, 0)[0]) * conv,
+				(tvecs.get(2, 0)[0]) * conv
+			);
+		}
+	}
+
+	/**
+	 * Identify four corners of the contour.
+	 */
+	public static Point[] getCorners(final MatOfPoint contour, final int shift) {
+		// Read the points in bulk rather than as a Point each
+		final ContourSet set = kCornerSets.get();
+		set.clear();
+		set.add(contour);
+		return getCorners(set, 0, shift);
+	}
+
+	/**
+	 * Identify four corners of a contour in a set, without creating an object for each of its points.
+	 *
+	 * @return Top left, top right, bottom left and bottom right corners, shifted left by shift
+	 */
+	public static Point[] getCorners(final ContourSet contours, final int contour, final int shift) {
+		final int[] indices = kCornerIndices.get();
+		contours.getCorners(contour, indices);
+		final Point[] corners = new Point[4];
+		for (int i = 0; i < 4; i++) {
+			corners[i] = new Point(contours.getX(contour, indices[i]) - shift, contours.getY(contour, indices[i]));
+		}
+		return corners;
+	}
+
+	public static String[] enumToString(Class<? extends Enum<?>> e){
+		return Arrays.toString(e.getEnumConstants()).replaceAll("^.|.$", "").split(", ");
+	}
+
+	public static int getSetIndex(Set<? extends Object> set, Object value){
+		if (set != null) {
+			int idx = 0;
+			for (Object o : set) {
+				if (o.equals(value)) return idx;
+				idx++;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Adds two arrays of the same type together
+	 * @param a The first array
+	 * @param b The second array
+	 * @param <T> The type of both arrays
+	 * @return The concatenated array
+	 */
+	public static <T> T[] concat(T[] a, T[] b) {
+		@SuppressWarnings("unchecked")
+		T[] result = (T[])Array.newInstance(a.getClass().getComponentType(), a.length + b.length);
+		System.arraycopy(a, 0, result, 0, a.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
+}
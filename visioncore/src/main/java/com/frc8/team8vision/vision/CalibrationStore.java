@@ -0,0 +1,168 @@
+package com.frc8.team8vision.vision;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Camera calibrations by device and frame size, read from and saved to a directory of
+ * JSON files, one per calibration.
+ *
+ * A camera at any size is described by the calibration measured closest to it, scaled to
+ * the size: one measured at that exact size, otherwise the largest one of the same aspect
+ * ratio. A size of an aspect ratio never calibrated has no calibration. The
+ * {@link CameraParameters} made for each size and orientation are kept, so switching
+ * between processing resolutions only looks them up once.
+ */
+public final class CalibrationStore {
+
+	private static final String kExtension = ".json";
+	private static final double kAspectTolerance = 0.01;
+
+	private final File mDirectory;
+	// Calibrations by device, latest last; copied on write
+	private final ConcurrentHashMap<String, List<CameraCalibration>> mCalibrations = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, CameraParameters> mCameras = new ConcurrentHashMap<>();
+
+	/**
+	 * @param directory Where calibrations are read from and saved to, or null to keep them in memory only
+	 */
+	public CalibrationStore(File directory) {
+		mDirectory = directory;
+	}
+
+	/**
+	 * Adds a calibration, replacing one of the same device and size.
+	 */
+	public synchronized void add(CameraCalibration calibration) {
+		final List<CameraCalibration> existing = mCalibrations.get(calibration.getDevice());
+		final List<CameraCalibration> calibrations = new ArrayList<>();
+		if (existing != null) {
+			for (CameraCalibration other : existing) {
+				if (other.getWidth() != calibration.getWidth() || other.getHeight() != calibration.getHeight()) {
+					calibrations.add(other);
+				}
+			}
+		}
+		calibrations.add(calibration);
+		mCalibrations.put(calibration.getDevice(), calibrations);
+
+		final String prefix = calibration.getDevice() + "@";
+		for (String key : mCameras.keySet()) {
+			if (key.startsWith(prefix)) mCameras.remove(key);
+		}
+	}
+
+	/**
+	 * Adds every calibration saved in the directory.
+	 *
+	 * @return Number of calibrations read
+	 */
+	public int load() throws IOException {
+		if (mDirectory == null) return 0;
+		final File[] files = mDirectory.listFiles();
+		if (files == null) return 0;
+
+		int loaded = 0;
+		for (File file : files) {
+			if (!file.getName().endsWith(kExtension)) continue;
+			try (Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8")) {
+				final StringBuilder text = new StringBuilder();
+				final char[] buffer = new char[1024];
+				int read;
+				while ((read = reader.read(buffer)) > 0) text.append(buffer, 0, read);
+				add(CameraCalibration.fromJson(new JSONObject(text.toString())));
+				loaded++;
+			} catch (JSONException e) {
+				throw new IOException("Cannot read calibration " + file + ": " + e.getMessage());
+			}
+		}
+		return loaded;
+	}
+
+	/**
+	 * Adds a calibration and saves it to the directory.
+	 *
+	 * @return The file written
+	 */
+	public File save(CameraCalibration calibration) throws IOException {
+		if (mDirectory == null) throw new IOException("The calibration store has no directory");
+		if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) throw new IOException("Cannot create " + mDirectory);
+
+		final File file = new File(mDirectory, fileName(calibration));
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+			writer.write(calibration.toJson().toString(2));
+		} catch (JSONException e) {
+			throw new IOException(e.getMessage());
+		}
+		add(calibration);
+		return file;
+	}
+
+	/**
+	 * Frames of another aspect ratio are a crop of the sensor rather than a stretch of it,
+	 * so calibrations of another aspect ratio are never scaled to the size asked for.
+	 *
+	 * @return The calibration of the device for frames of the given size, or null if the
+	 *         device has none for frames of that aspect ratio
+	 */
+	public CameraCalibration find(String device, int width, int height) {
+		final List<CameraCalibration> calibrations = mCalibrations.get(device);
+		if (calibrations == null) return null;
+
+		final double aspect = (double)width / height;
+		CameraCalibration best = null;
+		for (CameraCalibration calibration : calibrations) {
+			if (calibration.getWidth() == width && calibration.getHeight() == height) return calibration;
+			if (Math.abs((double)calibration.getWidth() / calibration.getHeight() - aspect) >= kAspectTolerance * aspect) {
+				continue;
+			}
+			if (best == null || calibration.getWidth() > best.getWidth()) best = calibration;
+		}
+		return best != null ? best.scaledTo(width, height) : null;
+	}
+
+	/**
+	 * @param sensorWidth Width of the frames as the sensor delivers them
+	 * @param sensorHeight Height of the frames as the sensor delivers them
+	 * @param orientation How the sensor's frames are turned upright
+	 * @return The upright camera, calibrated for pose estimation, or one without a
+	 *         calibration if the device has none for frames of this aspect ratio. The same
+	 *         instance for the same arguments until the device's calibrations change.
+	 */
+	public CameraParameters getCamera(String device, int sensorWidth, int sensorHeight, FrameOrientation orientation) {
+		final String key = device + "@" + sensorWidth + "x" + sensorHeight + "/" + orientation.getDegrees();
+		CameraParameters camera = mCameras.get(key);
+		if (camera != null) return camera;
+
+		final int width = orientation.isSideways() ? sensorHeight : sensorWidth,
+				height = orientation.isSideways() ? sensorWidth : sensorHeight;
+		final CameraCalibration calibration = find(device, sensorWidth, sensorHeight);
+		if (calibration == null) {
+			camera = new CameraParameters(height, width, null, null, orientation);
+		} else {
+			final CameraCalibration upright = calibration.turned(orientation);
+			camera = new CameraParameters(height, width, upright.newIntrinsicMatrix(),
+					upright.newDistortionCoefficients(), orientation);
+		}
+		final CameraParameters raced = mCameras.putIfAbsent(key, camera);
+		return raced != null ? raced : camera;
+	}
+
+	private static String fileName(CameraCalibration calibration) {
+		final String device = calibration.getDevice().toLowerCase(Locale.US).replaceAll("[^a-z0-9]+", "-");
+		return device + "-" + calibration.getWidth() + "x" + calibration.getHeight() + kExtension;
+	}
+}
@@ -0,0 +1,160 @@
+package com.frc8.team8vision.vision;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+
+/**
+ * A camera calibration and the size of the frames it was measured on, as the sensor
+ * delivers them unless it was {@link #turned(FrameOrientation)}. Immutable; the matrices
+ * are made on request, so keep the ones that are used often, as {@link CalibrationStore}
+ * does.
+ *
+ * Distortion coefficients are in OpenCV's order, k1, k2, p1, p2 and optionally k3 and on.
+ */
+public final class CameraCalibration {
+
+	private static final int IDX_FX = 0, IDX_CX = 2, IDX_FY = 4, IDX_CY = 5;
+	private static final int IDX_P1 = 2, IDX_P2 = 3;
+
+	private final String mDevice;
+	private final int mWidth, mHeight;
+	private final double[] mIntrinsics, mDistortion;
+	private final double mError;
+
+	/**
+	 * @param intrinsics The 3x3 intrinsic matrix, row by row
+	 * @param error Reprojection error of the calibration in pixels, or NaN if unknown
+	 */
+	public CameraCalibration(String device, int width, int height, double[] intrinsics, double[] distortion,
+							 double error) {
+		if (intrinsics.length != 9) throw new IllegalArgumentException("Expected 9 intrinsics, got " + intrinsics.length);
+		mDevice = device;
+		mWidth = width;
+		mHeight = height;
+		mIntrinsics = intrinsics.clone();
+		mDistortion = distortion.clone();
+		mError = error;
+	}
+
+	public String getDevice() {
+		return mDevice;
+	}
+	public int getWidth() {
+		return mWidth;
+	}
+	public int getHeight() {
+		return mHeight;
+	}
+	public double getError() {
+		return mError;
+	}
+	public double getIntrinsic(int row, int col) {
+		return mIntrinsics[3*row + col];
+	}
+	public double[] getDistortion() {
+		return mDistortion.clone();
+	}
+
+	/**
+	 * The focal lengths and principal point scale with each axis; distortion is measured
+	 * in normalized coordinates and does not change.
+	 *
+	 * @return The calibration for frames of another size of the same sensor
+	 */
+	public CameraCalibration scaledTo(int width, int height) {
+		if (width == mWidth && height == mHeight) return this;
+		final double sx = (double)width / mWidth, sy = (double)height / mHeight;
+		final double[] intrinsics = mIntrinsics.clone();
+		intrinsics[IDX_FX] *= sx;
+		intrinsics[IDX_CX] *= sx;
+		intrinsics[IDX_FY] *= sy;
+		intrinsics[IDX_CY] *= sy;
+		return new CameraCalibration(mDevice, width, height, intrinsics, mDistortion, mError);
+	}
+
+	/**
+	 * @return The calibration for the frames turned by the orientation, e.g. upright ones
+	 */
+	public CameraCalibration turned(FrameOrientation orientation) {
+		if (orientation.isUpright()) return this;
+		// The turn as a linear map plus an offset, read off how it moves pixels
+		final int e = orientation.toUprightX(0, 0, mWidth, mHeight), f = orientation.toUprightY(0, 0, mWidth, mHeight);
+		final int a = orientation.toUprightX(1, 0, mWidth, mHeight) - e, b = orientation.toUprightX(0, 1, mWidth, mHeight) - e,
+				c = orientation.toUprightY(1, 0, mWidth, mHeight) - f, d = orientation.toUprightY(0, 1, mWidth, mHeight) - f;
+
+		final double[] intrinsics = mIntrinsics.clone();
+		final double cx = mIntrinsics[IDX_CX], cy = mIntrinsics[IDX_CY];
+		intrinsics[IDX_CX] = a*cx + b*cy + e;
+		intrinsics[IDX_CY] = c*cx + d*cy + f;
+		if (orientation.isSideways()) {
+			intrinsics[IDX_FX] = mIntrinsics[IDX_FY];
+			intrinsics[IDX_FY] = mIntrinsics[IDX_FX];
+		}
+
+		// Tangential distortion turns like the vector (p2, p1)
+		final double[] distortion = mDistortion.clone();
+		if (distortion.length > IDX_P2) {
+			final double p1 = mDistortion[IDX_P1], p2 = mDistortion[IDX_P2];
+			distortion[IDX_P2] = a*p2 + b*p1;
+			distortion[IDX_P1] = c*p2 + d*p1;
+		}
+
+		final boolean sideways = orientation.isSideways();
+		return new CameraCalibration(mDevice, sideways ? mHeight : mWidth, sideways ? mWidth : mHeight,
+				intrinsics, distortion, mError);
+	}
+
+	/**
+	 * @return A new 3x3 intrinsic matrix for pose estimation
+	 */
+	public Mat newIntrinsicMatrix() {
+		final Mat intrinsics = new Mat(3, 3, CvType.CV_64F);
+		intrinsics.put(0, 0, mIntrinsics);
+		return intrinsics;
+	}
+
+	/**
+	 * @return New distortion coefficients for pose estimation
+	 */
+	public MatOfDouble newDistortionCoefficients() {
+		return new MatOfDouble(mDistortion);
+	}
+
+	public JSONObject toJson() throws JSONException {
+		final JSONObject json = new JSONObject();
+		json.put("device", mDevice);
+		json.put("width", mWidth);
+		json.put("height", mHeight);
+		json.put("intrinsics", toArray(mIntrinsics));
+		json.put("distortion", toArray(mDistortion));
+		if (!Double.isNaN(mError)) json.put("error", mError);
+		return json;
+	}
+
+	public static CameraCalibration fromJson(JSONObject json) throws JSONException {
+		return new CameraCalibration(json.getString("device"), json.getInt("width"), json.getInt("height"),
+				fromArray(json.getJSONArray("intrinsics")), fromArray(json.getJSONArray("distortion")),
+				json.optDouble("error", Double.NaN));
+	}
+
+	private static JSONArray toArray(double[] values) throws JSONException {
+		final JSONArray array = new JSONArray();
+		for (double value : values) array.put(value);
+		return array;
+	}
+
+	private static double[] fromArray(JSONArray array) throws JSONException {
+		final double[] values = new double[array.length()];
+		for (int i = 0; i < values.length; i++) values[i] = array.getDouble(i);
+		return values;
+	}
+
+	@Override
+	public String toString() {
+		return mDevice + " at " + mWidth + "x" + mHeight;
+	}
+}
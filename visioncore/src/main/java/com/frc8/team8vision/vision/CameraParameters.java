@@ -0,0 +1,83 @@
+package com.frc8.team8vision.vision;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+
+/**
+ * Immutable description of the camera that produced a frame: the frame dimensions and
+ * the calibration used for pose estimation, both of the upright image, and how the
+ * sensor's frames are turned to get it. The matrices are shared and must be treated
+ * as read-only. The corner undistorter is made with the calibration, once per camera.
+ */
+public final class CameraParameters {
+
+	private final int mHeight, mWidth;
+	private final Mat mIntrinsicMatrix;
+	private final MatOfDouble mDistCoeffs;
+	private final FrameOrientation mOrientation;
+	private final CornerUndistorter mUndistorter;
+
+	public CameraParameters(int height, int width, Mat intrinsics, MatOfDouble distortion) {
+		this(height, width, intrinsics, distortion, FrameOrientation.UPRIGHT);
+	}
+
+	public CameraParameters(int height, int width, Mat intrinsics, MatOfDouble distortion,
+							FrameOrientation orientation) {
+		this(height, width, intrinsics, distortion, orientation,
+				intrinsics != null ? new CornerUndistorter(intrinsics, distortion) : null);
+	}
+
+	private CameraParameters(int height, int width, Mat intrinsics, MatOfDouble distortion,
+							FrameOrientation orientation, CornerUndistorter undistorter) {
+		mHeight = height;
+		mWidth = width;
+		mIntrinsicMatrix = intrinsics;
+		mDistCoeffs = distortion;
+		mOrientation = orientation;
+		mUndistorter = undistorter;
+	}
+
+	public CameraParameters withDims(int height, int width) {
+		return new CameraParameters(height, width, mIntrinsicMatrix, mDistCoeffs, mOrientation, mUndistorter);
+	}
+	public CameraParameters withCalibration(Mat intrinsics, MatOfDouble distortion) {
+		return new CameraParameters(mHeight, mWidth, intrinsics, distortion, mOrientation);
+	}
+	public CameraParameters withOrientation(FrameOrientation orientation) {
+		return new CameraParameters(mHeight, mWidth, mIntrinsicMatrix, mDistCoeffs, orientation, mUndistorter);
+	}
+
+	public int Height() {
+		return mHeight;
+	}
+	public int Width() {
+		return mWidth;
+	}
+	public Mat IntrinsicMatrix() {
+		return mIntrinsicMatrix;
+	}
+	public MatOfDouble DistortionCoefficients() {
+		return mDistCoeffs;
+	}
+	/**
+	 * @return Undistorter of points in the camera's frames, or null without a calibration
+	 */
+	public CornerUndistorter getCornerUndistorter() {
+		return mUndistorter;
+	}
+	public FrameOrientation getOrientation() {
+		return mOrientation;
+	}
+	/**
+	 * @return Width of the frames as the sensor delivers them
+	 */
+	public int getSensorWidth() {
+		return mOrientation.isSideways() ? mHeight : mWidth;
+	}
+	/**
+	 * @return Height of the frames as the sensor delivers them
+	 */
+	public int getSensorHeight() {
+		return mOrientation.isSideways() ? mWidth : mHeight;
+	}
+}
@@ -0,0 +1,121 @@
+package com.frc8.team8vision.vision;
+
+import org.opencv.calib3d.Calib3d;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.MatOfPoint3f;
+import org.opencv.core.Point3;
+import org.opencv.core.Size;
+import org.opencv.core.TermCriteria;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures a camera's calibration from views of a chessboard, offline: feed it recorded
+ * frames of a board held at different distances and angles, then {@link #calibrate()}.
+ *
+ * The board is given by its inner corners, the points where four squares meet. The
+ * size of the squares does not matter for the intrinsics, so they are taken as one unit.
+ * Tangential distortion and k1, k2 are fitted; k3 is held at zero like the calibrations
+ * the app shipped with, since a few dozen views cannot pin it down.
+ */
+public class ChessboardCalibrator {
+
+	private static final TermCriteria kSubPixelCriteria =
+			new TermCriteria(TermCriteria.EPS + TermCriteria.MAX_ITER, 30, 0.01);
+
+	private final String mDevice;
+	private final Size mBoard;
+	private final MatOfPoint3f mBoardPoints;
+	private final List<Mat> mObjectPoints = new ArrayList<>(), mImagePoints = new ArrayList<>();
+	private int mWidth = 0, mHeight = 0;
+
+	/**
+	 * @param device Device the frames were recorded on
+	 * @param columns Inner corners along a row of the board
+	 * @param rows Inner corners along a column of the board
+	 */
+	public ChessboardCalibrator(String device, int columns, int rows) {
+		mDevice = device;
+		mBoard = new Size(columns, rows);
+		final Point3[] points = new Point3[columns * rows];
+		for (int i = 0; i < points.length; i++) points[i] = new Point3(i % columns, i / columns, 0);
+		mBoardPoints = new MatOfPoint3f(points);
+	}
+
+	/**
+	 * Looks for the board in a frame and keeps its corners if it is found.
+	 *
+	 * @param gray 8 bit grayscale frame, as the sensor delivers it
+	 * @return Whether the whole board was found
+	 */
+	public boolean offer(Mat gray) {
+		if (mWidth == 0) {
+			mWidth = gray.cols();
+			mHeight = gray.rows();
+		} else if (gray.cols() != mWidth || gray.rows() != mHeight) {
+			throw new IllegalArgumentException("Frames of " + gray.cols() + "x" + gray.rows()
+					+ " after frames of " + mWidth + "x" + mHeight);
+		}
+
+		final MatOfPoint2f corners = new MatOfPoint2f();
+		final boolean found = Calib3d.findChessboardCorners(gray, mBoard, corners,
+				Calib3d.CALIB_CB_ADAPTIVE_THRESH + Calib3d.CALIB_CB_NORMALIZE_IMAGE + Calib3d.CALIB_CB_FAST_CHECK);
+		if (!found) {
+			corners.release();
+			return false;
+		}
+		Imgproc.cornerSubPix(gray, corners, new Size(5, 5), new Size(-1, -1), kSubPixelCriteria);
+		mImagePoints.add(corners);
+		mObjectPoints.add(mBoardPoints);
+		return true;
+	}
+
+	/**
+	 * @return Number of frames the board was found in
+	 */
+	public int getViews() {
+		return mImagePoints.size();
+	}
+
+	/**
+	 * @return The calibration fitted to every view found so far, of the frames as offered
+	 */
+	public CameraCalibration calibrate() {
+		if (mImagePoints.size() < 3) {
+			throw new IllegalStateException("The board was found in " + mImagePoints.size() + " frames, at least 3 are needed");
+		}
+		final Mat intrinsics = Mat.eye(3, 3, CvType.CV_64F), distortion = new Mat();
+		final List<Mat> rvecs = new ArrayList<>(), tvecs = new ArrayList<>();
+		try {
+			final double error = Calib3d.calibrateCamera(mObjectPoints, mImagePoints, new Size(mWidth, mHeight),
+					intrinsics, distortion, rvecs, tvecs, Calib3d.CALIB_FIX_K3);
+
+			final double[] k = new double[9], d = new double[(int)distortion.total()];
+			intrinsics.get(0, 0, k);
+			distortion.get(0, 0, d);
+			// k1, k2, p1 and p2; k3 is zero
+			final double[] coefficients = new double[Math.min(4, d.length)];
+			System.arraycopy(d, 0, coefficients, 0, coefficients.length);
+			return new CameraCalibration(mDevice, mWidth, mHeight, k, coefficients, error);
+		} finally {
+			intrinsics.release();
+			distortion.release();
+			for (Mat vec : rvecs) vec.release();
+			for (Mat vec : tvecs) vec.release();
+		}
+	}
+
+	/**
+	 * Frees the corners of every view.
+	 */
+	public void release() {
+		for (Mat corners : mImagePoints) corners.release();
+		mImagePoints.clear();
+		mObjectPoints.clear();
+		mBoardPoints.release();
+	}
+}
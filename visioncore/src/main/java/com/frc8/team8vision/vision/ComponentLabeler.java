@@ -0,0 +1,214 @@
+package com.frc8.team8vision.vision;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import java.util.Arrays;
+
+/**
+ * Finds the 8-connected blobs of a mask in one pass over its pixels.
+ *
+ * Each row is split into runs of set pixels. A run joins the blobs of every run of the
+ * previous row it touches, the joins being tracked with a union-find over provisional
+ * labels. The area, bounding box and extreme points are collected per provisional label
+ * while scanning, and only the labels (not the pixels) are visited again to fold them
+ * into their blob. Nothing but the mask's bytes and a few int arrays is touched, so
+ * unlike {@link org.opencv.imgproc.Imgproc#findContours} there is no Mat or Point made
+ * per blob, however noisy the mask.
+ *
+ * Not thread safe; the buffers are reused between frames.
+ */
+public class ComponentLabeler {
+
+	private byte[] mPixels = new byte[0];
+
+	// Runs of the previous and current rows; x of the first and last pixel, and label
+	private int[] mPrevStart = new int[0], mPrevEnd = new int[0], mPrevLabel = new int[0];
+	private int[] mCurStart = new int[0], mCurEnd = new int[0], mCurLabel = new int[0];
+
+	// Union-find over the provisional labels, and the blob each root ends up as
+	private int[] mParent = new int[64], mBlob = new int[64];
+	// Stats per provisional label, merged into the root's at the end
+	private final Components mLabels = new Components();
+	// Best value of each corner's score: -(x+y), x-y, y-x and x+y
+	private int[] mCornerScore = new int[256];
+
+	/**
+	 * Labels the blobs of a mask.
+	 *
+	 * @param mask CV_8UC1 mask, any non-zero pixel is set
+	 * @param out Filled with the blobs, replacing what it held
+	 */
+	public void label(Mat mask, Components out) {
+		label(mask, 0, 0, out);
+	}
+
+	/**
+	 * Labels the blobs of a mask taken from a bigger image.
+	 *
+	 * @param mask CV_8UC1 mask, any non-zero pixel is set
+	 * @param offsetX Column of the bigger image the mask starts at
+	 * @param offsetY Row of the bigger image the mask starts at
+	 * @param out Filled with the blobs in the coordinates of the bigger image, replacing what it held
+	 */
+	public void label(Mat mask, int offsetX, int offsetY, Components out) {
+		if (mask.type() != CvType.CV_8UC1) {
+			throw new IllegalArgumentException("Mask must be CV_8UC1, not " + CvType.typeToString(mask.type()));
+		}
+		final int cols = mask.cols(), rows = mask.rows();
+		if (mPixels.length < cols * rows) mPixels = new byte[cols * rows];
+		mask.get(0, 0, mPixels);
+		if (mCurStart.length < cols/2 + 1) {
+			final int size = cols/2 + 1;
+			mPrevStart = new int[size]; mPrevEnd = new int[size]; mPrevLabel = new int[size];
+			mCurStart = new int[size]; mCurEnd = new int[size]; mCurLabel = new int[size];
+		}
+
+		mLabels.clear();
+		int prevCount = 0;
+		for (int y = 0; y < rows; y++) {
+			final int base = y * cols;
+			int curCount = 0, p = 0, x = 0;
+			while (x < cols) {
+				if (mPixels[base + x] == 0) {
+					x++;
+					continue;
+				}
+				final int start = x;
+				while (x < cols && mPixels[base + x] != 0) x++;
+				final int end = x - 1;
+
+				// Runs of the previous row that end left of this one cannot touch later runs either
+				while (p < prevCount && mPrevEnd[p] < start - 1) p++;
+				int label = -1;
+				for (int q = p; q < prevCount && mPrevStart[q] <= end + 1; q++) {
+					final int other = find(mPrevLabel[q]);
+					if (label < 0) {
+						label = other;
+					} else if (other != label) {
+						// Keep the older label as the root
+						final int root = Math.min(label, other);
+						mParent[Math.max(label, other)] = root;
+						label = root;
+					}
+				}
+				if (label < 0) label = newLabel(start, y);
+
+				addRun(label, start, end, y);
+				mCurStart[curCount] = start;
+				mCurEnd[curCount] = end;
+				mCurLabel[curCount] = label;
+				curCount++;
+			}
+
+			int[] t;
+			t = mPrevStart; mPrevStart = mCurStart; mCurStart = t;
+			t = mPrevEnd;   mPrevEnd = mCurEnd;     mCurEnd = t;
+			t = mPrevLabel; mPrevLabel = mCurLabel; mCurLabel = t;
+			prevCount = curCount;
+		}
+
+		collect(out);
+		if (offsetX != 0 || offsetY != 0) out.translate(offsetX, offsetY);
+	}
+
+	private int newLabel(int x, int y) {
+		final int label = mLabels.add();
+		if (label == mParent.length) {
+			mParent = Arrays.copyOf(mParent, label * 2);
+			mBlob = Arrays.copyOf(mBlob, label * 2);
+		}
+		if (4*label + 4 > mCornerScore.length) mCornerScore = Arrays.copyOf(mCornerScore, mCornerScore.length * 2);
+		mParent[label] = label;
+
+		mLabels.area[label] = 0;
+		mLabels.minX[label] = x; mLabels.maxX[label] = x;
+		mLabels.minY[label] = y; mLabels.maxY[label] = y;
+		Arrays.fill(mCornerScore, 4*label, 4*label + 4, Integer.MIN_VALUE);
+		return label;
+	}
+
+	private void addRun(int label, int start, int end, int y) {
+		final Components l = mLabels;
+		l.area[label] += end - start + 1;
+		if (start < l.minX[label]) l.minX[label] = start;
+		if (end > l.maxX[label]) l.maxX[label] = end;
+		if (y > l.maxY[label]) l.maxY[label] = y;
+
+		// Each corner is the pixel of the run furthest along its diagonal; the first one found wins ties
+		final int i = 4*label;
+		corner(i + Components.CORNER_TOP_LEFT, -(start + y), start, y);
+		corner(i + Components.CORNER_TOP_RIGHT, end - y, end, y);
+		corner(i + Components.CORNER_BOTTOM_LEFT, y - start, start, y);
+		corner(i + Components.CORNER_BOTTOM_RIGHT, end + y, end, y);
+	}
+
+	private void corner(int idx, int score, int x, int y) {
+		if (score > mCornerScore[idx]) {
+			mCornerScore[idx] = score;
+			mLabels.cornerX[idx] = x;
+			mLabels.cornerY[idx] = y;
+		}
+	}
+
+	/**
+	 * Folds the stats of every provisional label into its root and copies the roots out.
+	 * Roots are always older than the labels joined to them, so blobs come out in the
+	 * order their first pixel is met.
+	 */
+	private void collect(Components out) {
+		out.clear();
+		final Components l = mLabels;
+		for (int label = 0; label < l.count; label++) {
+			final int root = find(label);
+			if (root == label) {
+				final int blob = out.add();
+				mBlob[label] = blob;
+				out.area[blob] = l.area[label];
+				out.minX[blob] = l.minX[label]; out.maxX[blob] = l.maxX[label];
+				out.minY[blob] = l.minY[label]; out.maxY[blob] = l.maxY[label];
+				for (int c = 0; c < 4; c++) {
+					out.cornerX[4*blob + c] = l.cornerX[4*label + c];
+					out.cornerY[4*blob + c] = l.cornerY[4*label + c];
+				}
+				continue;
+			}
+
+			final int blob = mBlob[root];
+			out.area[blob] += l.area[label];
+			if (l.minX[label] < out.minX[blob]) out.minX[blob] = l.minX[label];
+			if (l.maxX[label] > out.maxX[blob]) out.maxX[blob] = l.maxX[label];
+			if (l.minY[label] < out.minY[blob]) out.minY[blob] = l.minY[label];
+			if (l.maxY[label] > out.maxY[blob]) out.maxY[blob] = l.maxY[label];
+			for (int c = 0; c < 4; c++) {
+				final int from = 4*label + c, to = 4*blob + c;
+				final int score = mCornerScore[from];
+				if (score > mCornerScore[4*root + c]
+						|| (score == mCornerScore[4*root + c] && earlier(l, from, out, to))) {
+					mCornerScore[4*root + c] = score;
+					out.cornerX[to] = l.cornerX[from];
+					out.cornerY[to] = l.cornerY[from];
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return Whether the first corner comes before the second in raster order
+	 */
+	private static boolean earlier(Components a, int i, Components b, int j) {
+		return a.cornerY[i] < b.cornerY[j] || (a.cornerY[i] == b.cornerY[j] && a.cornerX[i] < b.cornerX[j]);
+	}
+
+	private int find(int label) {
+		int root = label;
+		while (mParent[root] != root) root = mParent[root];
+		// Point the whole path at the root so later lookups are short
+		while (mParent[label] != root) {
+			final int next = mParent[label];
+			mParent[label] = root;
+			label = next;
+		}
+		return root;
+	}
+}
@@ -0,0 +1,111 @@
+package com.frc8.team8vision.vision;
+
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+
+import java.util.Arrays;
+
+/**
+ * The blobs of a mask found by {@link ComponentLabeler}, kept in flat arrays.
+ *
+ * For every blob this holds only what the processors use from a contour: the pixel
+ * area, the bounding box and the four extreme points that {@link
+ * com.frc8.team8vision.util.VisionUtil#getCorners(MatOfPoint, int)} would pick. Filling
+ * a set again reuses its arrays, so labelling a frame creates no objects once the arrays
+ * have grown to the number of blobs in a typical frame.
+ */
+public class Components {
+
+	/**
+	 * Indices of the extreme points, in the order of {@link
+	 * com.frc8.team8vision.util.VisionUtil#getCorners(MatOfPoint, int)}
+	 */
+	public static final int
+		CORNER_TOP_LEFT = 0,
+		CORNER_TOP_RIGHT = 1,
+		CORNER_BOTTOM_LEFT = 2,
+		CORNER_BOTTOM_RIGHT = 3;
+
+	int count = 0;
+	int[] area = new int[16], minX = new int[16], minY = new int[16], maxX = new int[16], maxY = new int[16];
+	// Four corners per blob, at index 4*blob + corner
+	int[] cornerX = new int[64], cornerY = new int[64];
+
+	void clear() {
+		count = 0;
+	}
+
+	/**
+	 * @return Index of a new blob, with room for its stats
+	 */
+	int add() {
+		if (count == area.length) {
+			final int size = count * 2;
+			area = Arrays.copyOf(area, size);
+			minX = Arrays.copyOf(minX, size);
+			minY = Arrays.copyOf(minY, size);
+			maxX = Arrays.copyOf(maxX, size);
+			maxY = Arrays.copyOf(maxY, size);
+			cornerX = Arrays.copyOf(cornerX, 4*size);
+			cornerY = Arrays.copyOf(cornerY, 4*size);
+		}
+		return count++;
+	}
+
+	public int size() {return count;}
+
+	/**
+	 * @return Number of pixels in the blob
+	 */
+	public int getArea(int blob) {return area[blob];}
+	public int getX(int blob) {return minX[blob];}
+	public int getY(int blob) {return minY[blob];}
+	public int getWidth(int blob) {return maxX[blob] - minX[blob] + 1;}
+	public int getHeight(int blob) {return maxY[blob] - minY[blob] + 1;}
+	public int getCornerX(int blob, int corner) {return cornerX[4*blob + corner];}
+	public int getCornerY(int blob, int corner) {return cornerY[4*blob + corner];}
+
+	/**
+	 * Moves every blob, for blobs found in a part of a bigger image.
+	 */
+	void translate(int dx, int dy) {
+		for (int i = 0; i < count; i++) {
+			minX[i] += dx; maxX[i] += dx;
+			minY[i] += dy; maxY[i] += dy;
+		}
+		for (int i = 0; i < 4*count; i++) {
+			cornerX[i] += dx;
+			cornerY[i] += dy;
+		}
+	}
+
+	/**
+	 * Maps blobs found on an image reduced by the given factor back to full resolution,
+	 * each coarse pixel going to the center of the block of pixels it covers.
+	 */
+	void scale(int factor) {
+		final int offset = factor/2;
+		for (int i = 0; i < count; i++) {
+			area[i] *= factor*factor;
+			minX[i] = minX[i]*factor + offset; maxX[i] = maxX[i]*factor + offset;
+			minY[i] = minY[i]*factor + offset; maxY[i] = maxY[i]*factor + offset;
+		}
+		for (int i = 0; i < 4*count; i++) {
+			cornerX[i] = cornerX[i]*factor + offset;
+			cornerY[i] = cornerY[i]*factor + offset;
+		}
+	}
+
+	/**
+	 * @return The outline through the four corners of the blob, going around it like a
+	 * contour from {@link org.opencv.imgproc.Imgproc#findContours}
+	 */
+	public MatOfPoint toContour(int blob) {
+		final int i = 4*blob;
+		return new MatOfPoint(
+			new Point(cornerX[i + CORNER_TOP_LEFT], cornerY[i + CORNER_TOP_LEFT]),
+			new Point(cornerX[i + CORNER_BOTTOM_LEFT], cornerY[i + CORNER_BOTTOM_LEFT]),
+			new Point(cornerX[i + CORNER_BOTTOM_RIGHT], cornerY[i + CORNER_BOTTOM_RIGHT]),
+			new Point(cornerX[i + CORNER_TOP_RIGHT], cornerY[i + CORNER_TOP_RIGHT]));
+	}
+}
@@ -0,0 +1,157 @@
+package com.frc8.team8vision.vision;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+
+import java.util.List;
+
+/**
+ * Contours kept in one flat array of coordinates, x then y for every point, with the
+ * index of each contour's first point alongside.
+ *
+ * Reading a contour through {@link MatOfPoint#toArray()} creates a Point for every point
+ * of it. Exporting into a set copies the coordinates in bulk instead, and filling a set
+ * again reuses its arrays, so once they have grown to a typical frame no objects are
+ * created at all.
+ */
+public class ContourSet {
+
+	/**
+	 * Indices of the extreme points returned by {@link #getCorners(int, int[])}, in the
+	 * order of {@link com.frc8.team8vision.util.VisionUtil#getCorners(MatOfPoint, int)}
+	 */
+	public static final int
+		CORNER_TOP_LEFT = 0,
+		CORNER_TOP_RIGHT = 1,
+		CORNER_BOTTOM_LEFT = 2,
+		CORNER_BOTTOM_RIGHT = 3;
+
+	private int mCount = 0;
+	// First point of each contour; mStarts[mCount] is the number of points in the set
+	private int[] mStarts = new int[17];
+	private int[] mCoords = new int[512];
+	// Mat.get can only fill an array from its start
+	private int[] mScratch = new int[256];
+
+	public void clear() {
+		mCount = 0;
+	}
+
+	/**
+	 * Replaces the set with the contours, e.g. straight from
+	 * {@link org.opencv.imgproc.Imgproc#findContours}.
+	 */
+	public void set(List<MatOfPoint> contours) {
+		clear();
+		for (int i = 0; i < contours.size(); i++) add(contours.get(i));
+	}
+
+	/**
+	 * Copies the points of a contour to the end of the set.
+	 *
+	 * @param contour Points as from findContours, two 32 bit ints each
+	 * @return Index of the contour in the set
+	 */
+	public int add(Mat contour) {
+		final int points = (int)contour.total(), values = 2*points;
+		final int start = mStarts[mCount];
+
+		if (mCount + 2 > mStarts.length) mStarts = grow(mStarts, mCount + 2);
+		if (2*start + values > mCoords.length) mCoords = grow(mCoords, 2*start + values);
+		if (values > mScratch.length) mScratch = new int[Math.max(values, 2*mScratch.length)];
+
+		if (points > 0) {
+			contour.get(0, 0, mScratch);
+			System.arraycopy(mScratch, 0, mCoords, 2*start, values);
+		}
+		mStarts[mCount + 1] = start + points;
+		return mCount++;
+	}
+
+	public int size() {
+		return mCount;
+	}
+
+	/**
+	 * @return Number of points in the contour
+	 */
+	public int getLength(int contour) {
+		return mStarts[contour + 1] - mStarts[contour];
+	}
+
+	/**
+	 * @return Index of the contour's first point; point p is at coordinates 2p and 2p+1
+	 */
+	public int getStart(int contour) {
+		return mStarts[contour];
+	}
+
+	/**
+	 * @return Coordinates of every point in the set, x then y. Only the first
+	 * 2*{@link #getStart(int) getStart(size())} are meaningful.
+	 */
+	public int[] getCoordinates() {
+		return mCoords;
+	}
+
+	public int getX(int contour, int point) {
+		return mCoords[2*(mStarts[contour] + point)];
+	}
+
+	public int getY(int contour, int point) {
+		return mCoords[2*(mStarts[contour] + point) + 1];
+	}
+
+	/**
+	 * Finds the four extreme points of a contour: the least and greatest x+y for the top
+	 * left and bottom right, the least and greatest x-y for the bottom left and top right.
+	 * Ties are broken the same way as sorting the points would.
+	 *
+	 * @param contour Contour to search; must not be empty
+	 * @param corners Filled with the point of each corner, relative to the contour's start,
+	 *                at the CORNER_ indices
+	 */
+	public void getCorners(int contour, int[] corners) {
+		final int start = mStarts[contour], end = mStarts[contour + 1];
+		int minSum = 0, maxSum = 0, minDiff = 0, maxDiff = 0;
+		for (int p = start; p < end; p++) {
+			final int x = mCoords[2*p], y = mCoords[2*p + 1], sum = x + y, diff = x - y;
+			final int i = p - start;
+			if (i == 0) {
+				minSum = maxSum = sum;
+				minDiff = maxDiff = diff;
+				corners[CORNER_TOP_LEFT] = corners[CORNER_TOP_RIGHT] = 0;
+				corners[CORNER_BOTTOM_LEFT] = corners[CORNER_BOTTOM_RIGHT] = 0;
+				continue;
+			}
+			// The first least sum and the last greatest
+			if (sum < minSum) {
+				minSum = sum;
+				corners[CORNER_TOP_LEFT] = i;
+			}
+			if (sum >= maxSum) {
+				maxSum = sum;
+				corners[CORNER_BOTTOM_RIGHT] = i;
+			}
+			// Equal differences are ordered by their sums
+			if (diff < minDiff || (diff == minDiff && sum < sumAt(start + corners[CORNER_BOTTOM_LEFT]))) {
+				minDiff = diff;
+				corners[CORNER_BOTTOM_LEFT] = i;
+			}
+			if (diff > maxDiff || (diff == maxDiff && sum >= sumAt(start + corners[CORNER_TOP_RIGHT]))) {
+				maxDiff = diff;
+				corners[CORNER_TOP_RIGHT] = i;
+			}
+		}
+	}
+
+	private int sumAt(int point) {
+		return mCoords[2*point] + mCoords[2*point + 1];
+	}
+
+	private static int[] grow(int[] array, int needed) {
+		final int[] grown = new int[Math.max(needed, 2*array.length)];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+}
@@ -0,0 +1,96 @@
+package com.frc8.team8vision.vision;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.Point;
+
+/**
+ * Removes lens distortion from a handful of image points, such as the corners of a
+ * target, so the pose can be solved with an ideal pinhole camera instead of evaluating
+ * the distortion model in every solver iteration.
+ *
+ * The distortion is inverted by fixed point iteration, as OpenCV's undistortPoints does,
+ * but until the points stop moving rather than for a set number of rounds. The points
+ * stay in pixels of the same intrinsic matrix. The coefficients are read once, so one is
+ * kept per camera; it holds no state while undistorting and may be shared by threads.
+ */
+public final class CornerUndistorter {
+
+	private static final int kMaxIterations = 20;
+	// In normalized coordinates; a few hundred thousandths of a pixel at the focal lengths used
+	private static final double kTolerance = 1e-8;
+
+	private final double mFx, mFy, mCx, mCy;
+	private final double mK1, mK2, mP1, mP2, mK3, mK4, mK5, mK6;
+	private final boolean mDistorted;
+
+	/**
+	 * @param intrinsics 3x3 intrinsic matrix
+	 * @param distortion Coefficients k1, k2, p1, p2 and optionally k3 or k3 to k6, or null for none
+	 */
+	public CornerUndistorter(Mat intrinsics, MatOfDouble distortion) {
+		mFx = intrinsics.get(0, 0)[0];
+		mFy = intrinsics.get(1, 1)[0];
+		mCx = intrinsics.get(0, 2)[0];
+		mCy = intrinsics.get(1, 2)[0];
+
+		final double[] d = new double[8];
+		if (distortion != null && !distortion.empty()) {
+			final double[] coefficients = distortion.toArray();
+			for (int i = 0; i < coefficients.length; i++) {
+				if (i < d.length) {
+					d[i] = coefficients[i];
+				} else if (coefficients[i] != 0) {
+					throw new IllegalArgumentException("Thin prism and tilt distortion are not supported");
+				}
+			}
+		}
+		mK1 = d[0];
+		mK2 = d[1];
+		mP1 = d[2];
+		mP2 = d[3];
+		mK3 = d[4];
+		mK4 = d[5];
+		mK5 = d[6];
+		mK6 = d[7];
+		boolean distorted = false;
+		for (double coefficient : d) distorted |= coefficient != 0;
+		mDistorted = distorted;
+	}
+
+	/**
+	 * @return Whether undistorting moves points at all
+	 */
+	public boolean isDistorted() {
+		return mDistorted;
+	}
+
+	/**
+	 * @param points Points in the distorted image
+	 * @param xy Receives x and y of each point as an ideal pinhole camera would see it
+	 */
+	public void undistort(Point[] points, float[] xy) {
+		for (int i = 0; i < points.length; i++) {
+			final Point point = points[i];
+			if (!mDistorted) {
+				xy[2*i] = (float)point.x;
+				xy[2*i + 1] = (float)point.y;
+				continue;
+			}
+			final double x0 = (point.x - mCx) / mFx, y0 = (point.y - mCy) / mFy;
+			double x = x0, y = y0;
+			for (int iteration = 0; iteration < kMaxIterations; iteration++) {
+				final double r2 = x*x + y*y;
+				final double radial = (1 + ((mK6*r2 + mK5)*r2 + mK4)*r2) / (1 + ((mK3*r2 + mK2)*r2 + mK1)*r2);
+				final double dx = 2*mP1*x*y + mP2*(r2 + 2*x*x), dy = mP1*(r2 + 2*y*y) + 2*mP2*x*y;
+				final double nextX = (x0 - dx) * radial, nextY = (y0 - dy) * radial;
+				final boolean converged = Math.abs(nextX - x) < kTolerance && Math.abs(nextY - y) < kTolerance;
+				x = nextX;
+				y = nextY;
+				if (converged) break;
+			}
+			xy[2*i] = (float)(x*mFx + mCx);
+			xy[2*i + 1] = (float)(y*mFy + mCy);
+		}
+	}
+}
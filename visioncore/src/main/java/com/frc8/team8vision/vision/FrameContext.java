@@ -0,0 +1,36 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.util.VisionSettings;
+
+/**
+ * Everything a processor needs to know about a frame besides its pixels. Processors
+ * read camera parameters and settings from here instead of global state, so several
+ * pipelines can run in one process and frames can be replayed off-device.
+ */
+public final class FrameContext {
+
+	private final CameraParameters camera;
+	private final VisionSettings settings;
+
+	public FrameContext(CameraParameters camera, VisionSettings settings) {
+		this.camera = camera;
+		this.settings = settings;
+	}
+
+	/**
+	 * Reuses this context if neither the camera nor the settings snapshot has changed.
+	 *
+	 * @return A context for the given camera and settings
+	 */
+	public FrameContext update(CameraParameters camera, VisionSettings settings) {
+		if (camera == this.camera && settings == this.settings) return this;
+		return new FrameContext(camera, settings);
+	}
+
+	public CameraParameters getCamera() {
+		return camera;
+	}
+	public VisionSettings getSettings() {
+		return settings;
+	}
+}
@@ -0,0 +1,154 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.util.VisionSettings;
+
+import java.util.Locale;
+
+/**
+ * Holds the pipeline to a frame budget when the phone slows down, e.g. once it heats up
+ * during a match, by stepping through ever cheaper {@link Mode}s.
+ *
+ * The latency of every stage of each frame is recorded, and once a window of frames is
+ * complete its mean is compared to the budget. The stages should together cover the whole
+ * interval from one frame to the next, including whatever runs after a frame is handed on,
+ * such as drawing it, so the governor sees the frame rate the camera actually keeps. Going over the budget steps down to the
+ * next cheaper mode right away. Stepping back up takes several windows in a row well under
+ * the budget, so the governor does not flap between two modes that straddle it. The window
+ * starts over after every change so the next decision only sees frames of the new mode.
+ *
+ * Not thread safe; record frames from the thread processing them. The mode may be read from
+ * any thread.
+ */
+public class FrameGovernor {
+
+	/**
+	 * What the pipeline gives up, from nothing to the most. Each mode keeps what the modes
+	 * before it gave up, and never makes the settings finer than they are.
+	 */
+	public enum Mode {
+		NOMINAL(VisionSettings.DetectionScale.FULL, VisionSettings.PreviewMode.FULL, 3),
+		DECIMATED_PREVIEW(VisionSettings.DetectionScale.FULL, VisionSettings.PreviewMode.DECIMATED, 3),
+		HALF_SCALE(VisionSettings.DetectionScale.HALF, VisionSettings.PreviewMode.DECIMATED, 3),
+		QUARTER_SCALE(VisionSettings.DetectionScale.QUARTER, VisionSettings.PreviewMode.DECIMATED, 3),
+		LOW_RESOLUTION(VisionSettings.DetectionScale.QUARTER, VisionSettings.PreviewMode.DECIMATED, 4),
+		HEADLESS(VisionSettings.DetectionScale.QUARTER, VisionSettings.PreviewMode.HEADLESS, 4);
+
+		private final VisionSettings.DetectionScale scale;
+		private final VisionSettings.PreviewMode preview;
+		private final int resolutionFactor;
+
+		Mode(VisionSettings.DetectionScale scale, VisionSettings.PreviewMode preview, int resolutionFactor) {
+			this.scale = scale;
+			this.preview = preview;
+			this.resolutionFactor = resolutionFactor;
+		}
+
+		/**
+		 * @return settings with the detection scale and preview no finer than this mode allows
+		 */
+		public VisionSettings apply(VisionSettings settings) {
+			if (settings.getDetectionScale().getFactor() < scale.getFactor()) {
+				settings = settings.withDetectionScale(scale);
+			}
+			if (settings.getPreviewMode().ordinal() < preview.ordinal()) {
+				settings = settings.withPreviewMode(preview);
+			}
+			return settings;
+		}
+
+		/**
+		 * @return How many times smaller than 1920x1080 the camera frames should be
+		 */
+		public int getResolutionFactor() {return resolutionFactor;}
+	}
+
+	private final long mBudgetNanos;
+	private final int mWindow, mRecoverWindows;
+	private final double mRecoverFraction;
+	private final String[] mStages;
+
+	private volatile Mode mMode = Mode.NOMINAL;
+	private String mReason = "started";
+	private final long[] mStageNanos;
+	private int mFrames = 0, mCalmWindows = 0;
+
+	/**
+	 * @param budgetNanos Time one frame may take through every stage, i.e. the longest
+	 *                    interval between frames
+	 * @param window Frames averaged for each decision
+	 * @param recoverFraction Fraction of the budget a window must stay under to count towards
+	 *                        stepping back up
+	 * @param recoverWindows Windows in a row under that fraction before stepping back up
+	 * @param stages Names of the stages timed, by their index in {@link #record(int, long)}
+	 */
+	public FrameGovernor(long budgetNanos, int window, double recoverFraction, int recoverWindows, String... stages) {
+		mBudgetNanos = budgetNanos;
+		mWindow = window;
+		mRecoverFraction = recoverFraction;
+		mRecoverWindows = recoverWindows;
+		mStages = stages;
+		mStageNanos = new long[stages.length];
+	}
+
+	/**
+	 * Records how long a stage of the current frame took.
+	 */
+	public void record(int stage, long nanos) {
+		mStageNanos[stage] += nanos;
+	}
+
+	/**
+	 * Ends the current frame, deciding on the mode if it completes a window.
+	 *
+	 * @return Whether the mode changed; {@link #getReason()} says why
+	 */
+	public boolean endFrame() {
+		if (++mFrames < mWindow) return false;
+
+		long total = 0;
+		for (long nanos : mStageNanos) total += nanos;
+		final double mean = (double)total / mFrames;
+
+		Mode next = mMode;
+		if (mean > mBudgetNanos) {
+			mCalmWindows = 0;
+			if (mMode.ordinal() < Mode.values().length - 1) next = Mode.values()[mMode.ordinal() + 1];
+		} else if (mean < mRecoverFraction * mBudgetNanos) {
+			if (++mCalmWindows >= mRecoverWindows && mMode.ordinal() > 0) next = Mode.values()[mMode.ordinal() - 1];
+		} else {
+			mCalmWindows = 0;
+		}
+
+		final boolean changed = next != mMode;
+		if (changed) {
+			mReason = describe(mMode, next, mean);
+			mMode = next;
+			mCalmWindows = 0;
+		}
+		mFrames = 0;
+		for (int i = 0; i < mStageNanos.length; i++) mStageNanos[i] = 0;
+		return changed;
+	}
+
+	public Mode getMode() {
+		return mMode;
+	}
+
+	/**
+	 * @return Why the mode last changed
+	 */
+	public String getReason() {
+		return mReason;
+	}
+
+	private String describe(Mode from, Mode to, double mean) {
+		final StringBuilder reason = new StringBuilder();
+		reason.append(from).append(" -> ").append(to).append(String.format(Locale.US,
+				": %.1f ms per frame against a %.1f ms budget over %d frames (", mean / 1e6, mBudgetNanos / 1e6, mFrames));
+		for (int i = 0; i < mStages.length; i++) {
+			if (i > 0) reason.append(", ");
+			reason.append(mStages[i]).append(String.format(Locale.US, " %.1f ms", mStageNanos[i] / 1e6 / mFrames));
+		}
+		return reason.append(')').toString();
+	}
+}
@@ -0,0 +1,170 @@
+package com.frc8.team8vision.vision;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Rect;
+
+import java.util.List;
+
+/**
+ * How the camera's sensor buffer is turned to get an upright image, in quarter turns
+ * clockwise.
+ *
+ * Frames are processed as the sensor delivers them. Only what is found in them, the
+ * contours and corners, is turned upright, which takes a few integer operations per point
+ * instead of a pass over every pixel. The frame itself is turned once with
+ * {@link #apply(Mat, Mat)}, and only when it is shown or streamed.
+ *
+ * Upright coordinates are the ones {@link CameraParameters} describes: its width, height
+ * and intrinsics are for the upright image.
+ */
+public final class FrameOrientation {
+
+	public static final FrameOrientation
+		UPRIGHT = new FrameOrientation(0),
+		CLOCKWISE_90 = new FrameOrientation(1),
+		CLOCKWISE_180 = new FrameOrientation(2),
+		CLOCKWISE_270 = new FrameOrientation(3);
+
+	private static final FrameOrientation[] kAll = {UPRIGHT, CLOCKWISE_90, CLOCKWISE_180, CLOCKWISE_270};
+
+	// Scratch for the points of a contour, one per thread processing frames
+	private static final ThreadLocal<int[]> kPoints = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[256];
+		}
+	};
+
+	private final int mTurns;
+
+	private FrameOrientation(int turns) {
+		mTurns = turns;
+	}
+
+	/**
+	 * @param degrees Clockwise turn to upright, a multiple of 90, e.g. the orientation Android
+	 *                reports for a camera
+	 */
+	public static FrameOrientation fromDegrees(int degrees) {
+		if (degrees % 90 != 0) throw new IllegalArgumentException("Not a quarter turn: " + degrees);
+		return kAll[((degrees / 90) % 4 + 4) % 4];
+	}
+
+	public int getDegrees() {
+		return 90 * mTurns;
+	}
+
+	public boolean isUpright() {
+		return mTurns == 0;
+	}
+
+	/**
+	 * @return Whether width and height swap between the sensor and upright
+	 */
+	public boolean isSideways() {
+		return (mTurns & 1) != 0;
+	}
+
+	/**
+	 * @return The orientation that turns upright images back into sensor ones
+	 */
+	public FrameOrientation inverse() {
+		return kAll[(4 - mTurns) % 4];
+	}
+
+	/**
+	 * Turns a sensor frame upright in a single pass. Upright frames are only copied if
+	 * dst is a different Mat.
+	 */
+	public void apply(Mat sensor, Mat dst) {
+		switch (mTurns) {
+			case 0:
+				if (dst != sensor) sensor.copyTo(dst);
+				break;
+			case 1:
+				Core.rotate(sensor, dst, Core.ROTATE_90_CLOCKWISE);
+				break;
+			case 2:
+				Core.rotate(sensor, dst, Core.ROTATE_180);
+				break;
+			default:
+				Core.rotate(sensor, dst, Core.ROTATE_90_COUNTERCLOCKWISE);
+				break;
+		}
+	}
+
+	/**
+	 * @return Upright x of the sensor pixel (x, y) in a sensor frame of the given size
+	 */
+	public int toUprightX(int x, int y, int sensorWidth, int sensorHeight) {
+		switch (mTurns) {
+			case 0: return x;
+			case 1: return sensorHeight - 1 - y;
+			case 2: return sensorWidth - 1 - x;
+			default: return y;
+		}
+	}
+
+	/**
+	 * @return Upright y of the sensor pixel (x, y) in a sensor frame of the given size
+	 */
+	public int toUprightY(int x, int y, int sensorWidth, int sensorHeight) {
+		switch (mTurns) {
+			case 0: return y;
+			case 1: return x;
+			case 2: return sensorHeight - 1 - y;
+			default: return sensorWidth - 1 - x;
+		}
+	}
+
+	/**
+	 * @return The sensor pixels of an upright rectangle, in a sensor frame of the given size
+	 */
+	public Rect toSensor(Rect upright, int sensorWidth, int sensorHeight) {
+		if (mTurns == 0) return upright.clone();
+		final FrameOrientation inverse = inverse();
+		// The inverse maps from upright frames, whose size is the sensor's turned
+		final int width = isSideways() ? sensorHeight : sensorWidth, height = isSideways() ? sensorWidth : sensorHeight;
+		final int right = upright.x + upright.width - 1, bottom = upright.y + upright.height - 1;
+		final int x0 = inverse.toUprightX(upright.x, upright.y, width, height),
+			y0 = inverse.toUprightY(upright.x, upright.y, width, height),
+			x1 = inverse.toUprightX(right, bottom, width, height),
+			y1 = inverse.toUprightY(right, bottom, width, height);
+		return new Rect(Math.min(x0, x1), Math.min(y0, y1), Math.abs(x1 - x0) + 1, Math.abs(y1 - y0) + 1);
+	}
+
+	/**
+	 * Turns the points of a contour upright in place, reading and writing them in bulk.
+	 */
+	public void toUpright(MatOfPoint contour, int sensorWidth, int sensorHeight) {
+		if (mTurns == 0) return;
+		final int values = 2*(int)contour.total();
+		if (values == 0) return;
+
+		int[] points = kPoints.get();
+		if (points.length < values) {
+			points = new int[Math.max(values, 2*points.length)];
+			kPoints.set(points);
+		}
+		contour.get(0, 0, points);
+		for (int i = 0; i < values; i += 2) {
+			final int x = points[i], y = points[i + 1];
+			points[i] = toUprightX(x, y, sensorWidth, sensorHeight);
+			points[i + 1] = toUprightY(x, y, sensorWidth, sensorHeight);
+		}
+		// put copies no more than the contour holds
+		contour.put(0, 0, points);
+	}
+
+	public void toUpright(List<MatOfPoint> contours, int sensorWidth, int sensorHeight) {
+		if (mTurns == 0) return;
+		for (int i = 0; i < contours.size(); i++) toUpright(contours.get(i), sensorWidth, sensorHeight);
+	}
+
+	@Override
+	public String toString() {
+		return getDegrees() + " degrees clockwise";
+	}
+}
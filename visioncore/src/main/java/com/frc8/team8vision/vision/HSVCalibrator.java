@@ -0,0 +1,213 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.util.AreaComparator;
+import com.frc8.team8vision.util.OnCalibratedCallback;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Proposes an HSV threshold from a region of the image known to contain the tape.
+ *
+ * While sampling, the camera thread offers every HSV frame; whenever the worker thread is
+ * idle the frame is copied and the pixels inside the region are added to per-channel
+ * histograms. Once enough frames are sampled, candidate bounds are cut from the histograms
+ * at a few percentiles, widened by a margin and scored on the last sampled frame. Frames
+ * offered while the worker is busy are skipped, so calibration never stalls the camera.
+ */
+public class HSVCalibrator {
+
+	// Fraction of sampled pixels left out at each end of a channel's histogram
+	private static final double[] kCandidatePercentiles = {0.01, 0.05, 0.10};
+	private static final int[] kChannelMax = {180, 255, 255};
+
+	private final int mFrames;
+	private final int[] mMargins;
+	private final OnCalibratedCallback mCallback;
+
+	private final ExecutorService mWorker = Executors.newSingleThreadExecutor();
+	private final AtomicBoolean mBusy = new AtomicBoolean(false);
+	private volatile boolean mSampling = false;
+
+	// Only touched by the worker thread
+	private final long[][] mHistograms = new long[3][256];
+	private int mSampledFrames = 0;
+	private Rect mRegion;
+
+	/**
+	 * @param frames Number of frames to sample before proposing bounds
+	 * @param margins Amount to widen the hue, saturation and value bounds by
+	 * @param callback Called on the worker thread with the best bounds
+	 */
+	public HSVCalibrator(int frames, int[] margins, OnCalibratedCallback callback) {
+		mFrames = frames;
+		mMargins = margins.clone();
+		mCallback = callback;
+	}
+
+	/**
+	 * Starts sampling a new region, discarding any previous samples.
+	 *
+	 * @param region Region of the frame that contains the tape
+	 */
+	public void start(final Rect region) {
+		mWorker.execute(new Runnable() {
+			@Override
+			public void run() {
+				for (long[] histogram : mHistograms) Arrays.fill(histogram, 0);
+				mSampledFrames = 0;
+				mRegion = region;
+				mSampling = true;
+			}
+		});
+	}
+
+	public boolean isSampling() {
+		return mSampling;
+	}
+
+	/**
+	 * Offers a frame for sampling. Returns immediately; the frame is copied only if the
+	 * worker is ready for it.
+	 *
+	 * @param imageHSV Full frame converted to HSV
+	 */
+	public void offer(Mat imageHSV) {
+		if (!mSampling || !mBusy.compareAndSet(false, true)) return;
+
+		final Mat copy = imageHSV.clone();
+		mWorker.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					sample(copy);
+				} finally {
+					copy.release();
+					mBusy.set(false);
+				}
+			}
+		});
+	}
+
+	public void stop() {
+		mSampling = false;
+		mWorker.shutdownNow();
+	}
+
+	private void sample(Mat imageHSV) {
+		if (!mSampling) return;
+
+		final Rect region = clip(mRegion, imageHSV);
+		if (region.area() <= 0) {
+			mSampling = false;
+			return;
+		}
+
+		final Mat roi = imageHSV.submat(region);
+		final byte[] row = new byte[region.width * 3];
+		for (int r = 0; r < region.height; r++) {
+			roi.get(r, 0, row);
+			for (int i = 0; i < row.length; i += 3) {
+				mHistograms[0][row[i] & 0xff]++;
+				mHistograms[1][row[i+1] & 0xff]++;
+				mHistograms[2][row[i+2] & 0xff]++;
+			}
+		}
+		roi.release();
+
+		if (++mSampledFrames >= mFrames) {
+			mSampling = false;
+			propose(imageHSV, region);
+		}
+	}
+
+	/**
+	 * Scores one candidate per percentile on the last sampled frame and reports the best.
+	 */
+	private void propose(Mat imageHSV, Rect region) {
+		int[] best = null;
+		double bestScore = -1;
+
+		final Mat mask = new Mat();
+		for (double percentile : kCandidatePercentiles) {
+			final int[] bounds = new int[6];
+			for (int c = 0; c < 3; c++) {
+				bounds[c]   = Math.max(0, percentile(mHistograms[c], percentile) - mMargins[c]);
+				bounds[c+3] = Math.min(kChannelMax[c], percentile(mHistograms[c], 1 - percentile) + mMargins[c]);
+			}
+
+			final double score = score(imageHSV, region, bounds, mask);
+			if (score > bestScore) {
+				bestScore = score;
+				best = bounds;
+			}
+		}
+		mask.release();
+
+		mCallback.calibrated(best, bestScore);
+	}
+
+	/**
+	 * A good threshold covers the sampled region, produces few contours and leaves the two
+	 * biggest ones close to solid rectangles, like the tape.
+	 */
+	private double score(Mat imageHSV, Rect region, int[] bounds, Mat mask) {
+		Core.inRange(imageHSV, new Scalar(bounds[0], bounds[1], bounds[2]),
+				new Scalar(bounds[3], bounds[4], bounds[5]), mask);
+
+		final Mat roiMask = mask.submat(region);
+		final double coverage = (double)Core.countNonZero(roiMask) / region.area();
+		roiMask.release();
+
+		final ArrayList<MatOfPoint> contours = new ArrayList<>();
+		final Mat hierarchy = new Mat();
+		Imgproc.findContours(mask, contours, hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
+		hierarchy.release();
+		if (contours.isEmpty()) return 0;
+
+		Collections.sort(contours, new AreaComparator());
+		double fill = 0;
+		final int considered = Math.min(2, contours.size());
+		for (int i = 0; i < considered; i++) {
+			final Rect box = Imgproc.boundingRect(contours.get(i));
+			fill += Imgproc.contourArea(contours.get(i)) / Math.max(1, box.area());
+		}
+		fill /= considered;
+
+		final int extra = Math.max(0, contours.size() - 2);
+		for (MatOfPoint contour : contours) contour.release();
+
+		return coverage * fill / (1 + extra);
+	}
+
+	private static int percentile(long[] histogram, double fraction) {
+		long total = 0;
+		for (long count : histogram) total += count;
+
+		final double target = fraction * total;
+		long cumulative = 0;
+		for (int i = 0; i < histogram.length; i++) {
+			cumulative += histogram[i];
+			if (cumulative >= target && cumulative > 0) return i;
+		}
+		return histogram.length - 1;
+	}
+
+	private static Rect clip(Rect region, Mat image) {
+		final int x = Math.max(0, region.x), y = Math.max(0, region.y);
+		final int width  = Math.min(image.cols(), region.x + region.width)  - x;
+		final int height = Math.min(image.rows(), region.y + region.height) - y;
+		return new Rect(x, y, Math.max(0, width), Math.max(0, height));
+	}
+}
@@ -0,0 +1,206 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.vision.telemetry.StripedCounter;
+import com.frc8.team8vision.vision.telemetry.Telemetry;
+
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Releases the Mats allocated while it is open, in the reverse order they were added,
+ * when it is closed. Without it a Mat's native memory is only freed by its finalizer,
+ * so it grows between collections and the finalizer thread competes with the camera.
+ *
+ * <pre>
+ * try (MatScope scope = new MatScope()) {
+ *     final Mat mask = scope.mat();
+ *     ...
+ * }
+ * </pre>
+ *
+ * A scope belongs to the thread that opened it. A Mat that has to outlive the scope is
+ * taken out of it with {@link #keep(Mat)} and released with {@link #release(Mat)}.
+ *
+ * With {@link #setLeakCheck(int)} every Mat added to a scope is counted against the line
+ * that added it until it is released, and {@link #endFrame()} reports the lines whose
+ * count kept growing. The counted Mats are held on to, so only turn it on to debug.
+ *
+ * Only Mats that go through a scope are tracked. A Mat allocated with {@code new Mat()}
+ * and never added to one is invisible to the check, however much it leaks; the check
+ * finds scoped Mats taken out with {@link #keep(Mat)} and never released, or scopes that
+ * are never closed. Per-frame Mats should therefore always come from a scope.
+ */
+public final class MatScope implements AutoCloseable {
+
+	private static final Object kLock = new Object();
+	// Mats not yet released and the line that added them, only while checking for leaks
+	private static final IdentityHashMap<Mat, String> kLive = new IdentityHashMap<>();
+	private static Map<String, Integer> sLastCounts = new HashMap<>();
+	private static volatile int sCheckFrames;
+	private static int sFrames;
+	// Mats added to scopes and not released yet, and ever added, always counted
+	private static final StripedCounter
+			kScoped = Telemetry.counter(Telemetry.kMemory + "scopedMats"),
+			kAdded = Telemetry.counter(Telemetry.kMemory + "scopedMatsAdded");
+
+	private final ArrayList<Mat> mMats = new ArrayList<>();
+
+	/**
+	 * @return A new, empty Mat released when the scope closes
+	 */
+	public Mat mat() {
+		return add(new Mat());
+	}
+
+	/**
+	 * Releases the Mat when the scope closes.
+	 *
+	 * @return mat
+	 */
+	public <T extends Mat> T add(T mat) {
+		mMats.add(mat);
+		kScoped.increment();
+		kAdded.increment();
+		if (sCheckFrames > 0) count(mat);
+		return mat;
+	}
+
+	/**
+	 * Releases every Mat in the collection when the scope closes.
+	 */
+	public void addAll(Collection<? extends Mat> mats) {
+		for (Mat mat : mats) add(mat);
+	}
+
+	/**
+	 * Releases every Mat in the array when the scope closes. Null entries are skipped.
+	 *
+	 * @return mats
+	 */
+	public <T extends Mat> T[] addAll(T[] mats) {
+		if (mats == null) return null;
+		for (T mat : mats) {
+			if (mat != null) add(mat);
+		}
+		return mats;
+	}
+
+	/**
+	 * Takes the Mat out of the scope so it outlives it. The caller is responsible for
+	 * releasing it with {@link #release(Mat)}.
+	 *
+	 * @return mat
+	 */
+	public <T extends Mat> T keep(T mat) {
+		for (int i = mMats.size() - 1; i >= 0; i--) {
+			if (mMats.get(i) == mat) mMats.remove(i);
+		}
+		return mat;
+	}
+
+	/**
+	 * Releases every Mat in the scope. The scope may be used again afterwards.
+	 */
+	@Override
+	public void close() {
+		for (int i = mMats.size() - 1; i >= 0; i--) release(mMats.get(i));
+		mMats.clear();
+	}
+
+	/**
+	 * Releases a Mat and stops counting it. Use it for Mats taken out of a scope.
+	 */
+	public static void release(Mat mat) {
+		mat.release();
+		kScoped.add(-1);
+		if (sCheckFrames > 0) {
+			synchronized (kLock) {
+				kLive.remove(mat);
+			}
+		}
+	}
+
+	/**
+	 * Starts or stops counting the Mats added to scopes. Mats never added to a scope are
+	 * not counted.
+	 *
+	 * @param frames Frames between reports from {@link #endFrame()}, or 0 to stop counting
+	 */
+	public static void setLeakCheck(int frames) {
+		synchronized (kLock) {
+			sCheckFrames = Math.max(0, frames);
+			sFrames = 0;
+			kLive.clear();
+			sLastCounts = new HashMap<>();
+		}
+	}
+
+	/**
+	 * @return Mats added to scopes and not released yet, by the line that added them
+	 */
+	public static Map<String, Integer> getLiveCounts() {
+		final Map<String, Integer> counts = new TreeMap<>();
+		synchronized (kLock) {
+			for (String site : kLive.values()) {
+				final Integer count = counts.get(site);
+				counts.put(site, count == null ? 1 : count + 1);
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * @return Mats ever added to scopes, each of which is a native allocation per frame
+	 */
+	public static long getAddedMats() {
+		return kAdded.sum();
+	}
+
+	/**
+	 * Marks the end of a frame. Every so many frames set by {@link #setLeakCheck(int)} the
+	 * live scoped Mats are counted again, and the lines with more of them than at the last
+	 * count are reported.
+	 *
+	 * @return The leaking lines, or null if there is nothing to report
+	 */
+	public static String endFrame() {
+		if (sCheckFrames == 0) return null;
+		synchronized (kLock) {
+			if (++sFrames < sCheckFrames) return null;
+			sFrames = 0;
+		}
+
+		final Map<String, Integer> counts = getLiveCounts();
+		final StringBuilder report = new StringBuilder();
+		for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+			final Integer last = sLastCounts.get(entry.getKey());
+			final int growth = entry.getValue() - (last == null ? 0 : last);
+			if (growth > 0) {
+				report.append(entry.getKey()).append(": ").append(entry.getValue())
+						.append(" live, ").append(growth).append(" more than ").append(sCheckFrames)
+						.append(" frames ago\n");
+			}
+		}
+		sLastCounts = counts;
+		return report.length() == 0 ? null : report.toString();
+	}
+
+	private static void count(Mat mat) {
+		String site = "unknown";
+		for (StackTraceElement element : new Throwable().getStackTrace()) {
+			if (!element.getClassName().equals(MatScope.class.getName())) {
+				site = element.toString();
+				break;
+			}
+		}
+		synchronized (kLock) {
+			kLive.put(mat, site);
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package com.frc8.team8vision.vision;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * What the processors would draw on a frame, recorded as a list of primitives in upright
+ * full resolution coordinates and only drawn by {@link #rasterize(Mat)} for whoever shows
+ * the frame annotated.
+ *
+ * A frame nobody looks at is never drawn on, and while the overlay is not recording the
+ * primitives are not even kept; processors may check {@link #isRecording()} to skip work
+ * that only feeds the overlay. Text is kept as a format and its values, so it is only
+ * formatted when drawn.
+ *
+ * Owned by the caller like {@link TrackingState}; reset it for every frame. Recording
+ * reuses the arrays of earlier frames, so once they have grown nothing is allocated.
+ */
+public final class Overlay {
+
+	private static final int OP_CONTOUR = 0, OP_CIRCLE = 1, OP_LINE = 2, OP_TEXT = 3;
+	// Per primitive: two points or a point and two text values, then a size and a thickness
+	private static final int kParams = 6, IDX_SIZE = 4, IDX_THICKNESS = 5;
+
+	private boolean mRecording = true;
+	private int mCount = 0;
+	private int[] mOps = new int[16];
+	private double[] mParams = new double[16 * kParams];
+	private Scalar[] mColors = new Scalar[16];
+	private String[] mFormats = new String[16];
+
+	// Points of the contours, x then y; a contour's primitive holds its first value and count
+	private int mValues = 0;
+	private int[] mPoints = new int[256];
+	// Mat.get and put only work from the start of an array
+	private int[] mScratch = new int[256];
+	private MatOfPoint mContour;
+	private List<MatOfPoint> mContours;
+
+	/**
+	 * Forgets the primitives of the last frame.
+	 *
+	 * @param recording Whether anything will be drawn from the next frame; if not, every
+	 *                  primitive is dropped as soon as it is recorded
+	 */
+	public void reset(boolean recording) {
+		mRecording = recording;
+		mCount = 0;
+		mValues = 0;
+	}
+
+	public boolean isRecording() {
+		return mRecording;
+	}
+
+	/**
+	 * @return Number of primitives recorded since the last reset
+	 */
+	public int size() {
+		return mCount;
+	}
+
+	/**
+	 * Outlines a contour. Its points are copied, so it may be released before the overlay is drawn.
+	 */
+	public void contour(Mat contour, Scalar color) {
+		final int values = 2*(int)contour.total();
+		if (!mRecording || values == 0) return;
+		if (mValues + values > mPoints.length) mPoints = grow(mPoints, mValues + values);
+		if (values > mScratch.length) mScratch = new int[Math.max(values, 2*mScratch.length)];
+		contour.get(0, 0, mScratch);
+		System.arraycopy(mScratch, 0, mPoints, mValues, values);
+		add(OP_CONTOUR, mValues, values, 0, 0, 0, 1, color, null);
+		mValues += values;
+	}
+
+	/**
+	 * @param thickness Thickness of the outline, or -1 to fill the circle
+	 */
+	public void circle(double x, double y, int radius, Scalar color, int thickness) {
+		if (mRecording) add(OP_CIRCLE, x, y, 0, 0, radius, thickness, color, null);
+	}
+
+	public void line(double x1, double y1, double x2, double y2, Scalar color, int thickness) {
+		if (mRecording) add(OP_LINE, x1, y1, x2, y2, 0, thickness, color, null);
+	}
+
+	/**
+	 * Writes text formatted from up to two values, e.g. "%.2f, %.2f"; a format using one
+	 * value ignores the second.
+	 *
+	 * @param x Left of the text
+	 * @param y Baseline of the text
+	 */
+	public void text(String format, double first, double second, double x, double y, double scale,
+					 Scalar color, int thickness) {
+		if (mRecording) add(OP_TEXT, first, second, x, y, scale, thickness, color, format);
+	}
+
+	/**
+	 * Draws every primitive recorded since the last reset.
+	 *
+	 * @param canvas Upright image at full resolution
+	 */
+	public void rasterize(Mat canvas) {
+		for (int i = 0; i < mCount; i++) {
+			final int p = i * kParams;
+			final int thickness = (int)mParams[p + IDX_THICKNESS];
+			switch (mOps[i]) {
+				case OP_CONTOUR:
+					Imgproc.polylines(canvas, contour((int)mParams[p], (int)mParams[p + 1]), true, mColors[i], thickness);
+					break;
+				case OP_CIRCLE:
+					Imgproc.circle(canvas, new Point(mParams[p], mParams[p + 1]), (int)mParams[p + IDX_SIZE],
+							mColors[i], thickness);
+					break;
+				case OP_LINE:
+					Imgproc.line(canvas, new Point(mParams[p], mParams[p + 1]), new Point(mParams[p + 2], mParams[p + 3]),
+							mColors[i], thickness);
+					break;
+				default:
+					Imgproc.putText(canvas, String.format(Locale.US, mFormats[i], mParams[p], mParams[p + 1]),
+							new Point(mParams[p + 2], mParams[p + 3]), Core.FONT_HERSHEY_SIMPLEX, mParams[p + IDX_SIZE],
+							mColors[i], thickness);
+					break;
+			}
+		}
+	}
+
+	private void add(int op, double a, double b, double c, double d, double size, int thickness, Scalar color,
+					 String format) {
+		if (mCount == mOps.length) {
+			final int capacity = 2*mCount;
+			mOps = grow(mOps, capacity);
+			final double[] params = new double[capacity * kParams];
+			System.arraycopy(mParams, 0, params, 0, mParams.length);
+			mParams = params;
+			final Scalar[] colors = new Scalar[capacity];
+			System.arraycopy(mColors, 0, colors, 0, mCount);
+			mColors = colors;
+			final String[] formats = new String[capacity];
+			System.arraycopy(mFormats, 0, formats, 0, mCount);
+			mFormats = formats;
+		}
+		final int p = mCount * kParams;
+		mOps[mCount] = op;
+		mParams[p] = a;
+		mParams[p + 1] = b;
+		mParams[p + 2] = c;
+		mParams[p + 3] = d;
+		mParams[p + IDX_SIZE] = size;
+		mParams[p + IDX_THICKNESS] = thickness;
+		mColors[mCount] = color;
+		mFormats[mCount] = format;
+		mCount++;
+	}
+
+	/**
+	 * @return The recorded points as a contour to draw, in a Mat reused between contours
+	 */
+	private List<MatOfPoint> contour(int start, int values) {
+		if (mContour == null) {
+			mContour = new MatOfPoint();
+			mContours = Collections.singletonList(mContour);
+		}
+		mContour.create(values / 2, 1, CvType.CV_32SC2);
+		System.arraycopy(mPoints, start, mScratch, 0, values);
+		mContour.put(0, 0, mScratch);
+		return mContours;
+	}
+
+	private static int[] grow(int[] array, int needed) {
+		final int[] grown = new int[Math.max(needed, 2*array.length)];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+}
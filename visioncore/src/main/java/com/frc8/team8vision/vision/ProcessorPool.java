@@ -0,0 +1,78 @@
+package com.frc8.team8vision.vision;
+
+import org.opencv.core.Mat;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processes several frames at once on a fixed set of worker threads.
+ *
+ * Processors keep no state between calls, so one processor is shared by every worker.
+ * Each frame is processed with its own {@link TrackingState} starting from the settings
+ * and writes into the output array the caller submits with it. The caller must not touch
+ * the frame or the output until the frame's future is done.
+ */
+public class ProcessorPool implements AutoCloseable {
+
+	private final ExecutorService mExecutor;
+	private final int mWorkers;
+
+	/**
+	 * @param workers Number of frames processed at once
+	 */
+	public ProcessorPool(int workers) {
+		this("VisionWorker", workers);
+	}
+
+	/**
+	 * @param name Prefix of the workers' thread names
+	 * @param workers Number of frames processed at once
+	 */
+	public ProcessorPool(String name, int workers) {
+		mWorkers = workers;
+		mExecutor = Executors.newFixedThreadPool(workers, ThreadTuning.factory(name, ThreadTuning.Role.PROCESSING));
+	}
+
+	/**
+	 * Queues a frame to be processed by the next free worker.
+	 *
+	 * @param processor Processor to run
+	 * @param input Frame to process
+	 * @param overlay Records what was found; owned by the frame like out
+	 * @param context Camera parameters and settings for the frame
+	 * @param out Output from {@link VisionProcessorBase#newOutput()} to write the results into
+	 * @return Completes with out once the frame has been processed
+	 */
+	public Future<VisionDataUnit<?>[]> submit(final VisionProcessorBase processor, final Mat input, final Overlay overlay,
+										      final FrameContext context, final VisionDataUnit<?>[] out) {
+		return mExecutor.submit(new Callable<VisionDataUnit<?>[]>() {
+			@Override
+			public VisionDataUnit<?>[] call() {
+				final TrackingState tracking = new TrackingState(context.getSettings().isTrackingLeft());
+				return processor.process(input, overlay, context, tracking, out);
+			}
+		});
+	}
+
+	public int getWorkers() {
+		return mWorkers;
+	}
+
+	/**
+	 * Finishes the queued frames and stops the workers. If interrupted while waiting, the
+	 * workers still finish on their own and the interrupt is kept for the caller.
+	 */
+	@Override
+	public void close() {
+		mExecutor.shutdown();
+		try {
+			mExecutor.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,250 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.util.Constants;
+import com.frc8.team8vision.vision.processors.CentroidProcessor;
+import com.frc8.team8vision.vision.processors.DoubleTargetProcessor;
+import com.frc8.team8vision.vision.processors.ProjectionProcessor;
+import com.frc8.team8vision.vision.processors.SingleTargetProcessor;
+import com.frc8.team8vision.vision.sources.TargetFrameGenerator;
+import com.frc8.team8vision.vision.telemetry.LatencyHistogram;
+import com.frc8.team8vision.vision.telemetry.StripedCounter;
+import com.frc8.team8vision.vision.telemetry.Telemetry;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Select which processor to use
+ *
+ * The camera thread reads the processor every frame while the UI thread picks another
+ * one, so a processor is swapped in together with its type, all at once. The first one
+ * is built right away; any picked after it is built and warmed up on a background
+ * thread, by processing synthetic frames of the target until the JIT has compiled its
+ * paths, and only swapped in once it is ready. Frames arriving meanwhile are processed
+ * by the processor in use. When several are picked in a row, the last one wins.
+ *
+ * A shadow processor is picked and warmed up the same way; {@link ShadowRunner} runs it
+ * next to the processor in use.
+ */
+public class ProcessorSelector {
+
+	public enum ProcessorType {
+		CENTROID, SINGLE_TARGET, DOUBLE_TARGET, PROJECTION
+	}
+
+	/**
+	 * A processor and its type, swapped in as one
+	 */
+	static final class Selection {
+		final ProcessorType type;
+		final VisionProcessorBase processor;
+
+		Selection(ProcessorType type, VisionProcessorBase processor) {
+			this.type = type;
+			this.processor = processor;
+		}
+	}
+
+	private static final long kWarmupSeed = 8, kIdleWarmerSeconds = 30;
+
+	// Guarded by this
+	private final HashMap<ProcessorType, VisionProcessorBase> processor_map = new HashMap<>();
+	private ProcessorType requested = null, requestedShadow = null;
+
+	private volatile Selection processor = null, shadow = null;
+	private volatile FrameContext warmupContext = null;
+
+	private final ThreadPoolExecutor warmer = new ThreadPoolExecutor(1, 1, kIdleWarmerSeconds, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(), ThreadTuning.factory("ProcessorWarmup", ThreadTuning.Role.BACKGROUND));
+	private final LatencyHistogram warmupLatency = Telemetry.latency("warmup");
+	private final StripedCounter swaps = Telemetry.counter("processor.swaps");
+
+	public ProcessorSelector() {
+		warmer.allowCoreThreadTimeOut(true);
+	}
+
+	public VisionProcessorBase getProcessor(){
+		Selection selection = this.processor;
+		if(selection == null){
+			this.setProcessor(ProcessorType.CENTROID);
+			selection = this.processor;
+		}
+		return selection.processor;
+	}
+
+	public void setProcessor(ProcessorType type){
+		synchronized (this) {
+			requested = type;
+			if (processor == null) {
+				// Nothing to fall back on while it warms up
+				processor = new Selection(type, get(type));
+				return;
+			}
+			if (processor.type == type) return;
+		}
+		schedule(new Swap(type, false));
+	}
+
+	/**
+	 * @return The shadow processor, or null if there is none
+	 */
+	public VisionProcessorBase getShadow(){
+		final Selection selection = this.shadow;
+		return selection != null ? selection.processor : null;
+	}
+
+	/**
+	 * @param type Processor to run in the shadow of the one in use, or null to stop running one
+	 */
+	public void setShadow(ProcessorType type){
+		synchronized (this) {
+			requestedShadow = type;
+			if (type == null) {
+				shadow = null;
+				return;
+			}
+			if (shadow != null && shadow.type == type) return;
+		}
+		schedule(new Swap(type, true));
+	}
+
+	/**
+	 * Sets the camera and settings processors are warmed up with. Without a calibrated
+	 * camera they are swapped in cold.
+	 */
+	public void setWarmupContext(FrameContext context){
+		warmupContext = context;
+	}
+
+	/**
+	 * Stops warming up processors; those picked from now on are swapped in cold.
+	 */
+	public void shutdown(){
+		warmer.shutdownNow();
+	}
+
+	Selection getShadowSelection(){
+		return shadow;
+	}
+
+	/**
+	 * Waits until every processor picked so far is warmed up and swapped in.
+	 */
+	void awaitWarmup() throws InterruptedException, ExecutionException {
+		warmer.submit(new Runnable() {
+			@Override
+			public void run() {}
+		}).get();
+	}
+
+	private void schedule(Swap swap){
+		try {
+			warmer.execute(swap);
+		} catch (RejectedExecutionException e) {
+			// Shut down, so there is nothing to warm it up on
+			swap.swapIn(get(swap.type));
+		}
+	}
+
+	private synchronized VisionProcessorBase get(ProcessorType type){
+		VisionProcessorBase built = processor_map.get(type);
+		if(built == null){
+			switch (type){
+				case CENTROID:
+					built = new CentroidProcessor();
+					break;
+				case SINGLE_TARGET:
+					built = new SingleTargetProcessor();
+					break;
+				case DOUBLE_TARGET:
+					built = new DoubleTargetProcessor();
+					break;
+				case PROJECTION:
+					built = new ProjectionProcessor();
+					break;
+			}
+			processor_map.put(type, built);
+		}
+		return built;
+	}
+
+	/**
+	 * Processes synthetic frames of the target as the camera of the warm-up context would
+	 * deliver them, with a threshold the rendered tape passes, so every path a live frame
+	 * takes is compiled. The scratch buffers of the camera thread are still made on its
+	 * first frame.
+	 */
+	private void warm(VisionProcessorBase processor){
+		final FrameContext context = warmupContext;
+		if (context == null || context.getCamera().IntrinsicMatrix() == null) return;
+
+		final long start = System.nanoTime();
+		final CameraParameters camera = context.getCamera();
+		final FrameContext warmup = new FrameContext(camera,
+				context.getSettings().withSliderValues(Constants.kWarmupThreshold));
+		final TargetFrameGenerator generator = new TargetFrameGenerator(camera.getSensorWidth(),
+				camera.getSensorHeight(), camera, kWarmupSeed);
+		final Overlay overlay = new Overlay();
+		overlay.reset(false);
+		final TrackingState tracking = new TrackingState(false);
+		final VisionDataUnit<?>[] out = VisionProcessorBase.newOutput();
+
+		final Mat frame = new Mat(camera.getSensorHeight(), camera.getSensorWidth(), CvType.CV_8UC4);
+		try {
+			for (int i = 0; i < Constants.kWarmupFrames && !Thread.currentThread().isInterrupted(); i++) {
+				generator.generate(i, frame);
+				processor.process(frame, overlay, warmup, tracking, out);
+			}
+		} finally {
+			frame.release();
+		}
+		warmupLatency.record(System.nanoTime() - start);
+	}
+
+	/**
+	 * Warms up a processor and swaps it in, unless another one was picked meanwhile.
+	 */
+	private final class Swap implements Runnable {
+
+		private final ProcessorType type;
+		private final boolean isShadow;
+
+		Swap(ProcessorType type, boolean isShadow) {
+			this.type = type;
+			this.isShadow = isShadow;
+		}
+
+		@Override
+		public void run() {
+			if (!isRequested()) return;
+			final VisionProcessorBase built = get(type);
+			warm(built);
+			swapIn(built);
+		}
+
+		void swapIn(VisionProcessorBase built) {
+			synchronized (ProcessorSelector.this) {
+				if (!isRequested()) return;
+				if (isShadow) {
+					shadow = new Selection(type, built);
+				} else {
+					processor = new Selection(type, built);
+					swaps.increment();
+				}
+			}
+		}
+
+		private boolean isRequested() {
+			synchronized (ProcessorSelector.this) {
+				return (isShadow ? requestedShadow : requested) == type;
+			}
+		}
+	}
+}
@@ -0,0 +1,197 @@
+package com.frc8.team8vision.vision;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.Arrays;
+
+/**
+ * Finds both strips of tape from projections of the mask instead of its contours.
+ *
+ * The mask is copied out once and summed down its columns, which gives runs of columns
+ * that hold something lit. Each run is summed across its rows to split it into blobs
+ * stacked above each other, and so on until no blob splits further. The blobs are paired by
+ * {@link TargetPairer}, and the corners of each strip come from the top and bottom rows
+ * lit near its left and right edges. The corners are approximate, since a strip is
+ * assumed to have vertical sides, but nothing is traced.
+ *
+ * The sums are plain loops over the copied bytes: {@link Core#reduce} takes longer on a
+ * mostly empty mask than {@link Imgproc#findContours}, which would defeat the purpose.
+ *
+ * Not thread safe; the buffers are reused between frames.
+ */
+public class ProjectionFinder {
+
+	// Deepest a box is cut before whatever is left of it is taken as a blob
+	private static final int kMaxCuts = 8;
+
+	private final TargetPairer mPairer = new TargetPairer();
+	private byte[] mPixels = new byte[0];
+	private int mCols;
+	private int[] mSums = new int[0];
+	// Start and end of each run found by a cut, one array per depth of cutting
+	private final int[][] mRuns = new int[kMaxCuts][];
+
+	// Bounding boxes of the blobs, first and last row and column inclusive, and lit pixels
+	private int mCount = 0;
+	private int[] mLeft = new int[16], mRight = new int[16], mTop = new int[16], mBottom = new int[16],
+		mArea = new int[16];
+
+	/**
+	 * @param mask Thresholded frame
+	 * @param scale How much smaller the mask is than the input
+	 * @param overlay Records the outlines of the strips
+	 * @return Outlines through the corners of the left and right strips, or null if no
+	 * pair of blobs looks like the target
+	 */
+	public MatOfPoint[] find(Mat mask, int scale, Overlay overlay) {
+		mCount = 0;
+		final int cols = mCols = mask.cols(), rows = mask.rows();
+		if (mPixels.length < cols * rows) mPixels = new byte[cols * rows];
+		mask.get(0, 0, mPixels);
+
+		cut(0, rows - 1, 0, cols - 1, true, false, 0);
+
+		mPairer.clear();
+		for (int i = 0; i < mCount; i++) {
+			final int width = mRight[i] - mLeft[i] + 1, height = mBottom[i] - mTop[i] + 1;
+			mPairer.addCandidate(i, mLeft[i] + width/2.0, mTop[i] + height/2.0, width, height, mArea[i]);
+		}
+		final TargetPairer.Pair pair = mPairer.pairCandidates();
+		if (pair == null) return null;
+
+		final MatOfPoint left = outline(pair.left, scale), right = outline(pair.right, scale);
+
+		// Draw tape outlines on screen
+		overlay.contour(left, VisionProcessorBase.kLeftTapeColor);
+		overlay.contour(right, VisionProcessorBase.kRightTapeColor);
+
+		return new MatOfPoint[] { left, right };
+	}
+
+	/**
+	 * Cuts a box of the mask into the runs of columns or rows that have something lit,
+	 * then cuts each run the other way. A box is a blob once neither way cuts it any
+	 * further, so blobs beside, above or diagonal to each other all come apart as long
+	 * as they do not touch.
+	 *
+	 * @param alongColumns Whether to cut into runs of columns or of rows
+	 * @param uncut Whether the cut of the other way left the box whole
+	 */
+	private void cut(int top, int bottom, int left, int right, boolean alongColumns, boolean uncut, int depth) {
+		final int origin = alongColumns ? left : top, length = alongColumns ? right - left + 1 : bottom - top + 1;
+		final int[] sums = mSums = project(top, bottom, left, right, alongColumns, mSums);
+
+		if (mRuns[depth] == null || mRuns[depth].length < length + 1) mRuns[depth] = new int[length + 1];
+		final int[] runs = mRuns[depth];
+		int count = 0;
+		for (int i = 0; i < length; ) {
+			if (sums[i] == 0) {
+				i++;
+				continue;
+			}
+			runs[2*count] = origin + i;
+			while (i < length && sums[i] > 0) i++;
+			runs[2*count + 1] = origin + i - 1;
+			count++;
+		}
+
+		final boolean whole = count == 1 && runs[0] == origin && runs[1] == origin + length - 1;
+		if ((whole && uncut) || depth == kMaxCuts - 1) {
+			for (int r = 0; r < count; r++) {
+				int area = 0;
+				for (int i = runs[2*r]; i <= runs[2*r + 1]; i++) area += sums[i - origin];
+				if (alongColumns) addBlob(runs[2*r], runs[2*r + 1], top, bottom, area);
+				else addBlob(left, right, runs[2*r], runs[2*r + 1], area);
+			}
+			return;
+		}
+
+		for (int r = 0; r < count; r++) {
+			if (alongColumns) cut(top, bottom, runs[2*r], runs[2*r + 1], false, whole, depth + 1);
+			else cut(runs[2*r], runs[2*r + 1], left, right, true, whole, depth + 1);
+		}
+	}
+
+	private void addBlob(int left, int right, int top, int bottom, int area) {
+		if (mCount == mLeft.length) {
+			final int size = mCount * 2;
+			mLeft = Arrays.copyOf(mLeft, size);
+			mRight = Arrays.copyOf(mRight, size);
+			mTop = Arrays.copyOf(mTop, size);
+			mBottom = Arrays.copyOf(mBottom, size);
+			mArea = Arrays.copyOf(mArea, size);
+		}
+		mLeft[mCount] = left;
+		mRight[mCount] = right;
+		mTop[mCount] = top;
+		mBottom[mCount] = bottom;
+		mArea[mCount] = area;
+		mCount++;
+	}
+
+	/**
+	 * @return Outline through the corners of the blob, in full resolution coordinates.
+	 * Each side's corners are the first and last lit rows within a quarter of the blob's
+	 * width of that side.
+	 */
+	private MatOfPoint outline(int blob, int scale) {
+		final int left = mLeft[blob], right = mRight[blob], top = mTop[blob], bottom = mBottom[blob];
+		final int edge = Math.max(1, (right - left + 1) / 4);
+
+		final int[] leftRows = rowExtent(top, bottom, left, left + edge - 1);
+		final int[] rightRows = rowExtent(top, bottom, right - edge + 1, right);
+
+		final double offset = scale/2;
+		return new MatOfPoint(
+			new Point(left*scale + offset, leftRows[0]*scale + offset),
+			new Point(left*scale + offset, leftRows[1]*scale + offset),
+			new Point(right*scale + offset, rightRows[1]*scale + offset),
+			new Point(right*scale + offset, rightRows[0]*scale + offset));
+	}
+
+	/**
+	 * @return First and last rows in [top, bottom] with a lit pixel in columns [left, right]
+	 */
+	private int[] rowExtent(int top, int bottom, int left, int right) {
+		final int[] rows = mSums = project(top, bottom, left, right, false, mSums);
+
+		int first = 0, last = bottom - top;
+		while (first < last && rows[first] == 0) first++;
+		while (last > first && rows[last] == 0) last--;
+		return new int[] { top + first, top + last };
+	}
+
+	/**
+	 * Counts the lit pixels of each column or row of a box of the copied mask.
+	 *
+	 * @param top First row of the box
+	 * @param bottom Last row of the box
+	 * @param left First column of the box
+	 * @param right Last column of the box
+	 * @param columns Whether to count each column or each row
+	 * @param sums Array the counts are written to if it is big enough
+	 * @return The counts, from the top or left of the box; sums or a bigger array replacing it
+	 */
+	private int[] project(int top, int bottom, int left, int right, boolean columns, int[] sums) {
+		final int length = columns ? right - left + 1 : bottom - top + 1;
+		if (sums.length < length) sums = new int[length];
+		Arrays.fill(sums, 0, length, 0);
+
+		final byte[] pixels = mPixels;
+		for (int y = top; y <= bottom; y++) {
+			final int base = y * mCols;
+			if (columns) {
+				for (int x = left; x <= right; x++) sums[x - left] += pixels[base + x] & 1;
+			} else {
+				int count = 0;
+				for (int x = left; x <= right; x++) count += pixels[base + x] & 1;
+				sums[y - top] = count;
+			}
+		}
+		return sums;
+	}
+}
@@ -0,0 +1,189 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.util.VisionSettings;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Coarse-to-fine tape detection.
+ *
+ * Finding the tape does not need full resolution, only locating its corners does. The
+ * frame is reduced with {@link Imgproc#pyrDown(Mat, Mat)} to 1/2 or 1/4 scale and the
+ * threshold and contour search run there, which costs roughly the square of the scale
+ * less. Once the best contours are chosen, each one is traced again at full resolution
+ * inside a window just around its coarse outline, so the corners passed to the pose
+ * solver are exactly the ones full resolution detection would have found.
+ *
+ * Blobs are found either with {@link Imgproc#findContours} or with a {@link ComponentLabeler}.
+ * The labeler's blobs are only turned into contours, outlined by their four corners, if
+ * {@link TargetPairer#isCandidate(double, double, double)} says they could be tape.
+ *
+ * The input is searched as the sensor delivered it and the contours are turned upright
+ * with a {@link FrameOrientation}.
+ *
+ * The threshold runs in stripes on a {@link StripeExecutor}.
+ *
+ * Not thread safe; the Mats are reused between frames.
+ */
+public class PyramidDetector {
+
+	// Extra full resolution pixels around a coarse contour, per level of the pyramid
+	private static final int kRefineMargin = 2;
+
+	private final Mat mLevel = new Mat(), mHSV = new Mat(), mMask = new Mat(), mHierarchy = new Mat();
+	private final Mat mWindowHSV = new Mat(), mWindowMask = new Mat();
+	private final ArrayList<MatOfPoint> mWindowContours = new ArrayList<>();
+	private final ComponentLabeler mLabeler = new ComponentLabeler();
+	private final Components mComponents = new Components();
+	private final StripeExecutor mExecutor;
+
+	public PyramidDetector() {
+		this(StripeExecutor.getShared());
+	}
+
+	/**
+	 * @param executor Executor the threshold of the searched image runs on
+	 */
+	public PyramidDetector(StripeExecutor executor) {
+		mExecutor = executor;
+	}
+
+	/**
+	 * Reduces the frame to the given scale and thresholds it.
+	 *
+	 * @param input RGBA frame at full resolution
+	 * @param lower Lower HSV bound
+	 * @param upper Upper HSV bound
+	 * @param scale 1, 2 or 4; how much smaller the mask is than the input
+	 * @return The mask, valid until the next call
+	 */
+	public Mat threshold(Mat input, Scalar lower, Scalar upper, int scale) {
+		Mat level = input;
+		for (int s = scale; s > 1; s /= 2) {
+			Imgproc.pyrDown(level, mLevel);
+			level = mLevel;
+		}
+		mExecutor.threshold(level, lower, upper, mHSV, mMask);
+		return mMask;
+	}
+
+	/**
+	 * Thresholds the frame at the given scale and finds the contours of the mask.
+	 *
+	 * @param input RGBA frame at full resolution
+	 * @param lower Lower HSV bound
+	 * @param upper Upper HSV bound
+	 * @param scale 1, 2 or 4; how much smaller the image searched is than the input
+	 * @param method How the blobs of the mask are found
+	 * @param orientation How the input is turned upright
+	 * @param contours Filled with the contours, in full resolution upright coordinates
+	 */
+	public void findContours(Mat input, Scalar lower, Scalar upper, int scale,
+							 VisionSettings.ContourMethod method, FrameOrientation orientation,
+							 List<MatOfPoint> contours) {
+		threshold(input, lower, upper, scale);
+
+		if (method == VisionSettings.ContourMethod.COMPONENTS) {
+			mLabeler.label(mMask, mComponents);
+			if (scale > 1) mComponents.scale(scale);
+			final boolean sideways = orientation.isSideways();
+			for (int i = 0; i < mComponents.size(); i++) {
+				final int width = mComponents.getWidth(i), height = mComponents.getHeight(i);
+				if (TargetPairer.isCandidate(mComponents.getArea(i), sideways ? height : width, sideways ? width : height)) {
+					final MatOfPoint contour = mComponents.toContour(i);
+					orientation.toUpright(contour, input.cols(), input.rows());
+					contours.add(contour);
+				}
+			}
+			return;
+		}
+
+		Imgproc.findContours(mMask, contours, mHierarchy, Imgproc.RETR_LIST, Imgproc.CHAIN_APPROX_SIMPLE);
+
+		if (scale > 1) {
+			// Map each coarse pixel to the center of the block of pixels it covers
+			final Scalar factor = new Scalar(scale, scale), offset = new Scalar(scale/2, scale/2);
+			for (MatOfPoint contour : contours) {
+				Core.multiply(contour, factor, contour);
+				Core.add(contour, offset, contour);
+			}
+		}
+		orientation.toUpright(contours, input.cols(), input.rows());
+	}
+
+	/**
+	 * Replaces each coarse contour with the biggest contour found at full resolution
+	 * inside a window around it. Contours that vanish at full resolution are kept as they are.
+	 * The replaced contours are not released; the caller still owns them.
+	 *
+	 * @param contours Upright contours from {@link #findContours(Mat, Scalar, Scalar, int,
+	 *                 VisionSettings.ContourMethod, FrameOrientation, List)}, replaced in place
+	 * @param input RGBA frame at full resolution
+	 * @param scale Scale the contours were found at
+	 * @param method How the blobs of the mask are found
+	 * @param orientation How the input is turned upright
+	 */
+	public void refine(MatOfPoint[] contours, Mat input, Scalar lower, Scalar upper, int scale,
+					   VisionSettings.ContourMethod method, FrameOrientation orientation) {
+		if (contours == null || scale <= 1) return;
+
+		final int margin = kRefineMargin * scale;
+		for (int i = 0; i < contours.length; i++) {
+			final Rect box = orientation.toSensor(Imgproc.boundingRect(contours[i]), input.cols(), input.rows());
+			final int x = Math.max(0, box.x - margin), y = Math.max(0, box.y - margin);
+			final Rect window = new Rect(x, y,
+					Math.min(input.cols(), box.x + box.width + margin) - x,
+					Math.min(input.rows(), box.y + box.height + margin) - y);
+			if (window.width <= 0 || window.height <= 0) continue;
+
+			final Mat roi = input.submat(window);
+			Imgproc.cvtColor(roi, mWindowHSV, Imgproc.COLOR_RGB2HSV);
+			roi.release();
+			Core.inRange(mWindowHSV, lower, upper, mWindowMask);
+
+			if (method == VisionSettings.ContourMethod.COMPONENTS) {
+				mLabeler.label(mWindowMask, window.x, window.y, mComponents);
+				int biggest = -1;
+				for (int j = 0; j < mComponents.size(); j++) {
+					if (biggest < 0 || mComponents.getArea(j) > mComponents.getArea(biggest)) biggest = j;
+				}
+				if (biggest >= 0) {
+					contours[i] = mComponents.toContour(biggest);
+					orientation.toUpright(contours[i], input.cols(), input.rows());
+				}
+				continue;
+			}
+
+			mWindowContours.clear();
+			Imgproc.findContours(mWindowMask, mWindowContours, mHierarchy, Imgproc.RETR_EXTERNAL,
+					Imgproc.CHAIN_APPROX_SIMPLE, new Point(window.x, window.y));
+
+			MatOfPoint biggest = null;
+			double biggestArea = 0;
+			for (MatOfPoint contour : mWindowContours) {
+				final double area = Imgproc.contourArea(contour);
+				if (area > biggestArea) {
+					biggestArea = area;
+					biggest = contour;
+				}
+			}
+			// The rest are never handed out
+			for (MatOfPoint contour : mWindowContours) {
+				if (contour != biggest) contour.release();
+			}
+			if (biggest != null) {
+				orientation.toUpright(biggest, input.cols(), input.rows());
+				contours[i] = biggest;
+			}
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.vision.telemetry.LatencyHistogram;
+import com.frc8.team8vision.vision.telemetry.StripedCounter;
+import com.frc8.team8vision.vision.telemetry.Telemetry;
+
+import org.opencv.core.Mat;
+
+import java.util.EnumMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the shadow processor of a {@link ProcessorSelector} on the frames the camera thread
+ * processes, off the camera thread, and records how it compares with the processor in
+ * use, so a new processor can be judged on the field at full frame rate.
+ *
+ * The camera thread offers the frame it processed, or the mask, with its results; the
+ * shadow needs the pixels and not only the contours, since it finds and refines its own.
+ * The frame is copied into a single spare buffer: while the shadow is still busy with
+ * the last frame the next one is dropped rather than queued, and counted under
+ * dropped.shadow. The shadow runs on a background thread with its own overlay, tracking
+ * state and results, so nothing it finds is drawn, sent or kept.
+ *
+ * Frames compared are counted under shadow.frames, split into shadow.bothFound,
+ * shadow.neitherFound, shadow.primaryOnly and shadow.candidateOnly. Where both found the
+ * target, the differences of their distances are summed under shadow.xDiffMilli and
+ * shadow.zDiffMilli, in thousandths of an inch. The latency of each on the frames compared
+ * is recorded under latency.shadow.primary and latency.shadow.TYPE.
+ */
+public final class ShadowRunner {
+
+	private static final long kIdleWorkerSeconds = 30;
+
+	private final ProcessorSelector mSelector;
+	private final ThreadPoolExecutor mWorker;
+	private final AtomicBoolean mBusy = new AtomicBoolean(false);
+
+	// Written by the camera thread while idle, then only read by the worker until it is idle again
+	private final Mat mFrame = new Mat();
+	private boolean mIsMask;
+	private FrameContext mContext;
+	private ProcessorSelector.Selection mCandidate;
+	private long mPrimaryNanos;
+	private boolean mPrimaryFound;
+	private double mPrimaryX, mPrimaryZ;
+
+	// Only touched by the worker
+	private final Overlay mOverlay = new Overlay();
+	private final TrackingState mTracking = new TrackingState(false);
+	private final VisionDataUnit<?>[] mOutput = VisionProcessorBase.newOutput();
+
+	private final StripedCounter mDropped = Telemetry.counter(Telemetry.kDropped + "shadow"),
+			mFrames = Telemetry.counter(Telemetry.kShadow + "frames"),
+			mBothFound = Telemetry.counter(Telemetry.kShadow + "bothFound"),
+			mNeitherFound = Telemetry.counter(Telemetry.kShadow + "neitherFound"),
+			mPrimaryOnly = Telemetry.counter(Telemetry.kShadow + "primaryOnly"),
+			mCandidateOnly = Telemetry.counter(Telemetry.kShadow + "candidateOnly"),
+			mXDiff = Telemetry.counter(Telemetry.kShadow + "xDiffMilli"),
+			mZDiff = Telemetry.counter(Telemetry.kShadow + "zDiffMilli");
+	private final LatencyHistogram mPrimaryLatency = Telemetry.latency(Telemetry.kShadow + "primary");
+	private final EnumMap<ProcessorSelector.ProcessorType, LatencyHistogram> mCandidateLatency =
+			new EnumMap<>(ProcessorSelector.ProcessorType.class);
+
+	private final Runnable mRun = new Runnable() {
+		@Override
+		public void run() {
+			try {
+				compare();
+			} finally {
+				mBusy.set(false);
+			}
+		}
+	};
+
+	public ShadowRunner(ProcessorSelector selector) {
+		mSelector = selector;
+		mWorker = new ThreadPoolExecutor(0, 1, kIdleWorkerSeconds, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), ThreadTuning.factory("VisionShadow", ThreadTuning.Role.BACKGROUND));
+		mOverlay.reset(false);
+		for (ProcessorSelector.ProcessorType type : ProcessorSelector.ProcessorType.values()) {
+			mCandidateLatency.put(type, Telemetry.latency(Telemetry.kShadow + type.name()));
+		}
+	}
+
+	/**
+	 * Hands a processed frame to the shadow processor, if there is one and it is idle.
+	 * Call it from the thread processing frames, after the processor in use.
+	 *
+	 * @param frame Frame the processor in use processed, as the sensor delivered it
+	 * @param isMask Whether the frame is a mask, processed with
+	 *               {@link VisionProcessorBase#processMask(Mat, Overlay, FrameContext, TrackingState, VisionDataUnit[])}
+	 * @param context Context the frame was processed with
+	 * @param primary Results of the processor in use
+	 * @param primaryNanos Time the processor in use took
+	 * @return Whether the shadow processor took the frame
+	 */
+	public boolean offer(Mat frame, boolean isMask, FrameContext context, VisionDataUnit<?>[] primary, long primaryNanos) {
+		final ProcessorSelector.Selection candidate = mSelector.getShadowSelection();
+		if (candidate == null || mWorker.isShutdown()) return false;
+		if (!mBusy.compareAndSet(false, true)) {
+			mDropped.increment();
+			return false;
+		}
+
+		frame.copyTo(mFrame);
+		mIsMask = isMask;
+		mContext = context;
+		mCandidate = candidate;
+		mPrimaryNanos = primaryNanos;
+		mPrimaryFound = isFound(primary);
+		mPrimaryX = (Double)primary[VisionProcessorBase.IDX_OUT_XDIST].get();
+		mPrimaryZ = (Double)primary[VisionProcessorBase.IDX_OUT_ZDIST].get();
+		try {
+			mWorker.execute(mRun);
+		} catch (RejectedExecutionException e) {
+			// Shut down after it was checked; the frame is dropped
+			mBusy.set(false);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return Whether the shadow processor is still busy with the last frame offered
+	 */
+	public boolean isBusy() {
+		return mBusy.get();
+	}
+
+	/**
+	 * Stops running the shadow processor; frames offered from now on are dropped.
+	 */
+	public void shutdown() {
+		mWorker.shutdownNow();
+	}
+
+	private void compare() {
+		final VisionProcessorBase processor = mCandidate.processor;
+		final long start = System.nanoTime();
+		if (mIsMask) {
+			processor.processMask(mFrame, mOverlay, mContext, mTracking, mOutput);
+		} else {
+			processor.process(mFrame, mOverlay, mContext, mTracking, mOutput);
+		}
+		mCandidateLatency.get(mCandidate.type).record(System.nanoTime() - start);
+		mPrimaryLatency.record(mPrimaryNanos);
+
+		mFrames.increment();
+		final boolean candidateFound = isFound(mOutput);
+		if (mPrimaryFound && candidateFound) {
+			mBothFound.increment();
+			mXDiff.add(Math.round(1000 * Math.abs((Double)mOutput[VisionProcessorBase.IDX_OUT_XDIST].get() - mPrimaryX)));
+			mZDiff.add(Math.round(1000 * Math.abs((Double)mOutput[VisionProcessorBase.IDX_OUT_ZDIST].get() - mPrimaryZ)));
+		} else if (mPrimaryFound) {
+			mPrimaryOnly.increment();
+		} else if (candidateFound) {
+			mCandidateOnly.increment();
+		} else {
+			mNeitherFound.increment();
+		}
+	}
+
+	private static boolean isFound(VisionDataUnit<?>[] out) {
+		return (Integer)out[VisionProcessorBase.IDX_OUT_FUNCTION_EXECUTION_CODE].get() == VisionProcessorBase.EXECUTION_CODE_OKAY
+				&& out[VisionProcessorBase.IDX_OUT_XDIST].exists() && out[VisionProcessorBase.IDX_OUT_ZDIST].exists();
+	}
+}
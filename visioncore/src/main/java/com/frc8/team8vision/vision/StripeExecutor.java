@@ -0,0 +1,135 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.util.Constants;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs per-pixel stages over a frame in stripes of rows, one stripe per task on a
+ * fork-join pool, and returns once every stripe is done.
+ *
+ * A stage is given a range of rows and works on submats of that range. Outputs have to
+ * be allocated at full size before the stages run so the submats are views into them.
+ * Neighbourhood filters such as erode or blur are safe as long as they do not write
+ * the Mat they read: OpenCV reads the rows just outside a submat from its parent, so
+ * stripes see the same pixels a full-frame call would.
+ */
+public class StripeExecutor {
+
+	/**
+	 * Work done on one stripe of the frame.
+	 */
+	public interface RowStage {
+		/**
+		 * @param start First row of the stripe
+		 * @param end Row after the last row of the stripe
+		 */
+		public void apply(int start, int end);
+	}
+
+	private static final StripeExecutor kShared = new StripeExecutor(
+		new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+			ThreadTuning.forkJoinFactory(ThreadTuning.Role.PROCESSING), null, false), Constants.kStripeRows);
+
+	private final ForkJoinPool mPool;
+	private volatile int mStripeRows;
+
+	/**
+	 * @param pool Pool the stripes run on
+	 * @param stripeRows Stripes are split until they have at most this many rows
+	 */
+	public StripeExecutor(ForkJoinPool pool, int stripeRows) {
+		mPool = pool;
+		setStripeRows(stripeRows);
+	}
+
+	/**
+	 * @return Executor on a pool with a thread per core, shared by every vision stage
+	 */
+	public static StripeExecutor getShared() {
+		return kShared;
+	}
+
+	public ForkJoinPool getPool() {
+		return mPool;
+	}
+
+	public int getStripeRows() {
+		return mStripeRows;
+	}
+
+	public void setStripeRows(int stripeRows) {
+		if (stripeRows < 1) throw new IllegalArgumentException("Stripes need at least one row");
+		mStripeRows = stripeRows;
+	}
+
+	/**
+	 * Runs the stage over rows [0, rows) and waits for every stripe.
+	 */
+	public void run(int rows, RowStage stage) {
+		final int stripeRows = mStripeRows;
+		// Not worth handing to the pool if there is nobody to share the work with
+		if (rows <= stripeRows || mPool.getParallelism() == 1) {
+			stage.apply(0, rows);
+			return;
+		}
+		mPool.invoke(new StripeTask(stage, 0, rows, stripeRows));
+	}
+
+	/**
+	 * Converts an RGBA frame to HSV and thresholds it, a stripe at a time.
+	 *
+	 * @param rgba Frame from the camera
+	 * @param lower Lower HSV bound
+	 * @param upper Upper HSV bound
+	 * @param hsv Filled with the frame in HSV
+	 * @param mask Filled with the thresholded frame
+	 */
+	public void threshold(final Mat rgba, final Scalar lower, final Scalar upper, final Mat hsv, final Mat mask) {
+		hsv.create(rgba.size(), CvType.CV_8UC3);
+		mask.create(rgba.size(), CvType.CV_8UC1);
+		run(rgba.rows(), new RowStage() {
+			@Override
+			public void apply(int start, int end) {
+				final Mat in = rgba.rowRange(start, end), h = hsv.rowRange(start, end), m = mask.rowRange(start, end);
+				Imgproc.cvtColor(in, h, Imgproc.COLOR_RGB2HSV);
+				Core.inRange(h, lower, upper, m);
+				in.release();
+				h.release();
+				m.release();
+			}
+		});
+	}
+
+	private static class StripeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final RowStage mStage;
+		private final int mStart, mEnd, mStripeRows;
+
+		StripeTask(RowStage stage, int start, int end, int stripeRows) {
+			mStage = stage;
+			mStart = start;
+			mEnd = end;
+			mStripeRows = stripeRows;
+		}
+
+		@Override
+		protected void compute() {
+			if (mEnd - mStart <= mStripeRows) {
+				mStage.apply(mStart, mEnd);
+				return;
+			}
+			final int middle = (mStart + mEnd) >>> 1;
+			invokeAll(new StripeTask(mStage, mStart, middle, mStripeRows),
+				new StripeTask(mStage, middle, mEnd, mStripeRows));
+		}
+	}
+}
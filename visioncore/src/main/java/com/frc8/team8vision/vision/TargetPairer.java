@@ -0,0 +1,250 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.util.Constants;
+
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Rect;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds the two strips of tape among the contours of a mask.
+ *
+ * Contours that cannot be tape (too small, not solid or not upright) are filtered out
+ * first. Every remaining left/right pair is then scored on how much it looks like the
+ * peg target: similar heights, spacing that matches {@link Constants#kVisionTargetWidth},
+ * vertical alignment and solid fill. Each term is between 0 and 1 and the score is their
+ * product, so one bad property rules a pair out no matter how big its contours are.
+ * When there are many candidates the pairs are scored in parallel.
+ *
+ * Not thread safe; each processor owns its own pairer.
+ */
+public class TargetPairer {
+
+	/**
+	 * The best scoring pair of contours, as indices into the list given to {@link #findBestPair(List)}.
+	 */
+	public static class Pair {
+		public final int left, right;
+		public final double score;
+
+		Pair(int left, int right, double score) {
+			this.left = left;
+			this.right = right;
+			this.score = score;
+		}
+	}
+
+	// Candidate filter
+	private static final double
+		kMinArea = 20,
+		kMinFill = 0.6,
+		kMinAspect = 1.2;
+	private static final int kMaxCandidates = 64;
+
+	// Error at which each score term reaches zero
+	private static final double
+		kHeightTolerance = 0.5,
+		kSpacingTolerance = 0.6,
+		kAlignmentTolerance = 0.5;
+
+	private static final double kMinScore = 0.2;
+
+	// Expected distance between the centers of the strips, in tape heights
+	private static final double kSpacingPerHeight =
+		(Constants.kVisionTargetWidth - Constants.kTapeWidth) / Constants.kVisionTargetHeight;
+
+	private static final ForkJoinPool kPool = StripeExecutor.getShared().getPool();
+
+	// Features of the candidates, reused between frames
+	private int mCount = 0;
+	private int[] mIndex = new int[16];
+	private double[] mX = new double[16], mY = new double[16], mHeight = new double[16],
+		mFill = new double[16], mArea = new double[16];
+
+	/**
+	 * @param contours Contours found in the mask
+	 * @return The pair most likely to be the target, or null if no pair is plausible
+	 */
+	public Pair findBestPair(List<MatOfPoint> contours) {
+		clear();
+		for (int i = 0; i < contours.size(); i++) {
+			final MatOfPoint contour = contours.get(i);
+			final double area = Imgproc.contourArea(contour);
+			if (area < kMinArea) continue;
+
+			final Rect box = Imgproc.boundingRect(contour);
+			addCandidate(i, box.x + box.width/2.0, box.y + box.height/2.0, box.width, box.height, area);
+		}
+		return pairCandidates();
+	}
+
+	/**
+	 * Forgets the candidates added since the last pairing.
+	 */
+	public void clear() {
+		mCount = 0;
+	}
+
+	/**
+	 * Adds a blob to pair, for callers that find blobs without contours. Blobs that
+	 * cannot be tape are dropped here.
+	 *
+	 * @param index Reported in the {@link Pair} if this blob is chosen
+	 * @param x Center of the blob's bounding box
+	 * @param y Center of the blob's bounding box
+	 * @param width Width of the blob's bounding box
+	 * @param height Height of the blob's bounding box
+	 * @param area Area of the blob
+	 */
+	public void addCandidate(int index, double x, double y, double width, double height, double area) {
+		if (!isCandidate(area, width, height)) return;
+
+		if (mCount == mIndex.length) grow();
+		mIndex[mCount] = index;
+		mX[mCount] = x;
+		mY[mCount] = y;
+		mHeight[mCount] = height;
+		mFill[mCount] = area / (width * height);
+		mArea[mCount] = area;
+		mCount++;
+	}
+
+	/**
+	 * @return The pair of the candidates added since {@link #clear()} most likely to be the
+	 * target, or null if no pair is plausible
+	 */
+	public Pair pairCandidates() {
+		trimCandidates();
+		if (mCount < 2) return null;
+
+		final Best best = (mCount >= Constants.kPairingParallelCandidates)
+			? kPool.invoke(new ScoreTask(0, mCount))
+			: scoreRows(0, mCount);
+
+		if (best.score < kMinScore) return null;
+		return new Pair(mIndex[best.left], mIndex[best.right], best.score);
+	}
+
+	/**
+	 * @param area Area of the blob
+	 * @param width Width of the blob's bounding box
+	 * @param height Height of the blob's bounding box
+	 * @return Whether the blob is solid and upright enough to be a strip of tape
+	 */
+	public static boolean isCandidate(double area, double width, double height) {
+		return area >= kMinArea && area >= kMinFill * width * height && height >= kMinAspect * width;
+	}
+
+	private void trimCandidates() {
+		// Keep the biggest candidates if a noisy mask produced too many
+		if (mCount > kMaxCandidates) {
+			for (int i = 0; i < kMaxCandidates; i++) {
+				int biggest = i;
+				for (int j = i + 1; j < mCount; j++) {
+					if (mArea[j] > mArea[biggest]) biggest = j;
+				}
+				swap(i, biggest);
+			}
+			mCount = kMaxCandidates;
+		}
+	}
+
+	/**
+	 * Scores the pairs of every candidate in [start, end) with the candidates after it.
+	 */
+	private Best scoreRows(int start, int end) {
+		final Best best = new Best();
+		for (int a = start; a < end; a++) {
+			for (int b = a + 1; b < mCount; b++) {
+				final int left = (mX[a] <= mX[b]) ? a : b, right = (left == a) ? b : a;
+				final double score = score(left, right);
+				if (score > best.score) {
+					best.score = score;
+					best.left = left;
+					best.right = right;
+				}
+			}
+		}
+		return best;
+	}
+
+	private double score(int left, int right) {
+		final double height = (mHeight[left] + mHeight[right]) / 2;
+
+		final double heightRatio = Math.min(mHeight[left], mHeight[right]) / Math.max(mHeight[left], mHeight[right]);
+		final double heightTerm = term(1 - heightRatio, kHeightTolerance);
+		if (heightTerm == 0) return 0;
+
+		final double spacing = (mX[right] - mX[left]) / (kSpacingPerHeight * height);
+		final double spacingTerm = term(Math.abs(1 - spacing), kSpacingTolerance);
+		if (spacingTerm == 0) return 0;
+
+		final double alignmentTerm = term(Math.abs(mY[left] - mY[right]) / height, kAlignmentTolerance);
+
+		return heightTerm * spacingTerm * alignmentTerm * (mFill[left] + mFill[right]) / 2;
+	}
+
+	private static double term(double error, double tolerance) {
+		return Math.max(0, 1 - error / tolerance);
+	}
+
+	private void swap(int a, int b) {
+		final int index = mIndex[a]; mIndex[a] = mIndex[b]; mIndex[b] = index;
+		double t;
+		t = mX[a];      mX[a] = mX[b];           mX[b] = t;
+		t = mY[a];      mY[a] = mY[b];           mY[b] = t;
+		t = mHeight[a]; mHeight[a] = mHeight[b]; mHeight[b] = t;
+		t = mFill[a];   mFill[a] = mFill[b];     mFill[b] = t;
+		t = mArea[a];   mArea[a] = mArea[b];     mArea[b] = t;
+	}
+
+	private void grow() {
+		final int size = mIndex.length * 2;
+		mIndex = Arrays.copyOf(mIndex, size);
+		mX = Arrays.copyOf(mX, size);
+		mY = Arrays.copyOf(mY, size);
+		mHeight = Arrays.copyOf(mHeight, size);
+		mFill = Arrays.copyOf(mFill, size);
+		mArea = Arrays.copyOf(mArea, size);
+	}
+
+	private static class Best {
+		double score = 0;
+		int left = -1, right = -1;
+	}
+
+	/**
+	 * Splits the rows of the pair matrix until each task scores about
+	 * {@link Constants#kPairingPairsPerTask} pairs.
+	 */
+	private class ScoreTask extends RecursiveTask<Best> {
+		private static final long serialVersionUID = 1L;
+
+		private final int mStart, mEnd;
+
+		ScoreTask(int start, int end) {
+			mStart = start;
+			mEnd = end;
+		}
+
+		@Override
+		protected Best compute() {
+			final long pairs = (long)(mEnd - mStart) * (2*mCount - mStart - mEnd - 1) / 2;
+			if (pairs <= Constants.kPairingPairsPerTask || mEnd - mStart == 1) {
+				return scoreRows(mStart, mEnd);
+			}
+
+			// Early rows have more pairs, so split closer to the start
+			final int middle = mStart + (int)((mEnd - mStart) * 0.3) + 1;
+			final ScoreTask first = new ScoreTask(mStart, middle), second = new ScoreTask(middle, mEnd);
+			first.fork();
+			final Best b = second.compute(), a = first.join();
+			return (a.score >= b.score) ? a : b;
+		}
+	}
+}
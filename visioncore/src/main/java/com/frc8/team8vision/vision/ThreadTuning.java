@@ -0,0 +1,121 @@
+package com.frc8.team8vision.vision;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gives every thread of the pipeline a role and lets the platform decide what each role
+ * gets: the camera thread must never wait behind a socket write, and transports can take
+ * whatever is left over. Threads tune themselves by role when they start.
+ *
+ * Plain Java only has thread priorities, so that is all the default tuner sets. The app
+ * installs a tuner using the platform's scheduling classes, which is also where placing
+ * threads on particular cores would go on a platform that allows it.
+ */
+public final class ThreadTuning {
+
+	public enum Role {
+		/**
+		 * Receives frames from the camera and hands them to processing
+		 */
+		CAMERA,
+		/**
+		 * Processes frames, including the stripes of a frame processed in parallel
+		 */
+		PROCESSING,
+		/**
+		 * Sends results and video off the device, writes recordings and serves telemetry
+		 */
+		TRANSPORT,
+		/**
+		 * Warms up processors and runs shadow processors, on time nobody else wants
+		 */
+		BACKGROUND
+	}
+
+	public interface Tuner {
+		/**
+		 * Tunes the calling thread for its role.
+		 */
+		public void tune(Role role);
+	}
+
+	private static final Tuner kPriorities = new Tuner() {
+		@Override
+		public void tune(Role role) {
+			switch (role) {
+				case CAMERA:
+					Thread.currentThread().setPriority(Thread.MAX_PRIORITY);
+					break;
+				case PROCESSING:
+					Thread.currentThread().setPriority(Thread.NORM_PRIORITY + 1);
+					break;
+				case TRANSPORT:
+				case BACKGROUND:
+					Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+					break;
+			}
+		}
+	};
+
+	private static volatile Tuner sTuner = kPriorities;
+
+	private ThreadTuning() {}
+
+	/**
+	 * Replaces the tuner for threads started from now on; threads already running keep
+	 * how they were tuned.
+	 */
+	public static void setTuner(Tuner tuner) {
+		sTuner = tuner != null ? tuner : kPriorities;
+	}
+
+	/**
+	 * Tunes the calling thread for its role.
+	 */
+	public static void tune(Role role) {
+		sTuner.tune(role);
+	}
+
+	/**
+	 * @return Factory of daemon threads named name-1, name-2 and on, tuned for the role
+	 */
+	public static ThreadFactory factory(final String name, final Role role) {
+		return new ThreadFactory() {
+			private final AtomicInteger mCount = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						tune(role);
+						runnable.run();
+					}
+				}, name + "-" + mCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * @return Factory of fork-join workers tuned for the role
+	 */
+	public static ForkJoinPool.ForkJoinWorkerThreadFactory forkJoinFactory(final Role role) {
+		return new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+			@Override
+			public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+				return new ForkJoinWorkerThread(pool) {
+					@Override
+					protected void onStart() {
+						super.onStart();
+						tune(role);
+					}
+				};
+			}
+		};
+	}
+}
@@ -0,0 +1,25 @@
+package com.frc8.team8vision.vision;
+
+/**
+ * Which strip of tape a processor is aiming for in the frame being processed.
+ *
+ * Processors keep no state between calls, so the side being tracked is passed in by the
+ * caller, starting from the side in the settings. In dynamic tracking mode a processor
+ * may switch it; the caller decides whether to keep the switch.
+ */
+public final class TrackingState {
+
+	private boolean trackingLeft;
+
+	public TrackingState(boolean trackingLeft) {
+		this.trackingLeft = trackingLeft;
+	}
+
+	public boolean isTrackingLeft() {
+		return trackingLeft;
+	}
+
+	public void setTrackingLeft(boolean trackingLeft) {
+		this.trackingLeft = trackingLeft;
+	}
+}
@@ -0,0 +1,168 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.util.DataExistsCallback;
+import com.frc8.team8vision.vision.telemetry.StripedCounter;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Results of one frame source: its latest distances and the latest frame to stream.
+ *
+ * Every source publishes to a channel of its own from {@link VisionInfoData#getChannel(String)},
+ * so the results of several cameras never overwrite each other. Listeners added to the
+ * channel run for its results only; see {@link VisionInfoData} for those run for every
+ * channel.
+ */
+public final class VisionChannel {
+
+	private static final DataExistsCallback<Double> kDistanceExists = new DataExistsCallback<Double>() {
+		@Override
+		public boolean doesExist(Double data) {
+			return !(data == null || data.isNaN() || data.isInfinite());
+		}
+	};
+
+	private final String mName;
+	private final VisionDataUnit<Double> mXDist, mZDist;
+	// Copy of the last frame published, guarded by mFrameLock
+	private final Object mFrameLock = new Object();
+	private Mat mFrame;
+	private boolean mFrameTaken = true;
+	private final StripedCounter mStreamDropped;
+	// Run when new distances or a new frame are published, e.g. to wake the transports sending them
+	private final CopyOnWriteArrayList<Runnable> mDataListeners = new CopyOnWriteArrayList<>(),
+			mFrameListeners = new CopyOnWriteArrayList<>();
+	private final List<Runnable> mSharedDataListeners, mSharedFrameListeners;
+
+	/**
+	 * @param name Name of the source
+	 * @param streamDropped Counts frames replaced before anyone took them
+	 * @param sharedDataListeners Also run after new distances, shared with other channels
+	 * @param sharedFrameListeners Also run after a new frame, shared with other channels
+	 */
+	VisionChannel(String name, StripedCounter streamDropped, List<Runnable> sharedDataListeners,
+				  List<Runnable> sharedFrameListeners) {
+		mName = name;
+		mXDist = new VisionDataUnitSynchronized<>(name + ".x_dist", Double.NaN, Double.NaN, kDistanceExists);
+		mZDist = new VisionDataUnitSynchronized<>(name + ".z_dist", Double.NaN, Double.NaN, kDistanceExists);
+		mStreamDropped = streamDropped;
+		mSharedDataListeners = sharedDataListeners;
+		mSharedFrameListeners = sharedFrameListeners;
+	}
+
+	public String getName() {
+		return mName;
+	}
+
+	public void setXDist(VisionDataUnit<Double> x_value) {
+		mXDist.set(x_value);
+	}
+	public void setZDist(VisionDataUnit<Double> z_value) {
+		mZDist.set(z_value);
+	}
+
+	/**
+	 * Sets both distances, then runs the data listeners once.
+	 */
+	public void setDistances(VisionDataUnit<Double> x_value, VisionDataUnit<Double> z_value) {
+		mXDist.set(x_value);
+		mZDist.set(z_value);
+		for (Runnable listener : mDataListeners) listener.run();
+		for (Runnable listener : mSharedDataListeners) listener.run();
+	}
+
+	/**
+	 * @param listener Run on the publishing thread after {@link #setDistances}; must return quickly
+	 */
+	public void addDataListener(Runnable listener) {
+		mDataListeners.addIfAbsent(listener);
+	}
+	public void removeDataListener(Runnable listener) {
+		mDataListeners.remove(listener);
+	}
+
+	/**
+	 * @param listener Run on the publishing thread after {@link #setFrame}; must return quickly
+	 */
+	public void addFrameListener(Runnable listener) {
+		mFrameListeners.addIfAbsent(listener);
+	}
+	public void removeFrameListener(Runnable listener) {
+		mFrameListeners.remove(listener);
+	}
+
+	/**
+	 * Copies the frame, so the caller may release or reuse it right away.
+	 */
+	public void setFrame(Mat image) {
+		if (image == null || image.empty()) return;
+		synchronized (mFrameLock) {
+			if (mFrame == null) mFrame = new Mat();
+			// Replacing a frame the stream never took drops it
+			if (!mFrameTaken) mStreamDropped.increment();
+			image.copyTo(mFrame);
+			mFrameTaken = false;
+		}
+		for (Runnable listener : mFrameListeners) listener.run();
+		for (Runnable listener : mSharedFrameListeners) listener.run();
+	}
+
+	public Double getXDist() {
+		return mXDist.get();
+	}
+	public Double getZDist() {
+		return mZDist.get();
+	}
+
+	/**
+	 * @return A copy of the last frame, or null if there is none yet. The caller releases it.
+	 */
+	public Mat getFrame() {
+		synchronized (mFrameLock) {
+			if (mFrame == null) return null;
+			mFrameTaken = true;
+			return mFrame.clone();
+		}
+	}
+
+	/**
+	 * Writes the distances into a JSON object.
+	 *
+	 * @return json
+	 */
+	public JSONObject putDistances(JSONObject json) throws JSONException {
+		json.put("x_displacement", Double.toString(getXDist()));
+		json.put("z_displacement", Double.toString(getZDist()));
+		return json;
+	}
+
+	/**
+	 * Convert the last frame to a byte array for transmission.
+	 *
+	 * @return Byte array representing image, or null if there is no frame yet
+	 */
+	public byte[] getFrameAsByteArray() {
+
+		final Mat imageRGB = getFrame();
+
+		if (imageRGB == null)
+			return null;
+
+		try (MatScope scope = new MatScope()) {
+			scope.add(imageRGB);
+
+			// Convert Mat to JPEG byte array
+			MatOfByte byteMatrix = scope.add(new MatOfByte());
+			Imgcodecs.imencode(".jpg", imageRGB, byteMatrix);
+
+			return byteMatrix.toArray();
+		}
+	}
+}
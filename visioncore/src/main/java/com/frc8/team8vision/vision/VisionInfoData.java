@@ -0,0 +1,151 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.vision.telemetry.Telemetry;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Contains various vision info data to be referenced in a static context
+ *
+ * Each frame source publishes to a {@link VisionChannel} of its own. The static methods
+ * read and write the channel of the camera on screen, {@link #kPrimary}, whose frame is
+ * the one streamed. The JSON representation also carries the distances of every other
+ * source, so one transport sends them all, and data listeners run for every channel.
+ *
+ * @author Alvin On
+ */
+public class VisionInfoData {
+
+	/**
+	 * Name of the channel of the camera on screen
+	 */
+	public static final String kPrimary = "camera";
+
+	// Run when any channel publishes new distances, or the primary one a new frame
+	private static final CopyOnWriteArrayList<Runnable> dataListeners = new CopyOnWriteArrayList<>(),
+			frameListeners = new CopyOnWriteArrayList<>();
+	private static final ConcurrentHashMap<String, VisionChannel> channels = new ConcurrentHashMap<>();
+	private static final VisionChannel primary = getChannel(kPrimary);
+
+	/**
+	 * @param source Name of the frame source
+	 * @return The source's channel, made the first time it is asked for
+	 */
+	public static VisionChannel getChannel(String source) {
+		VisionChannel channel = channels.get(source);
+		if (channel == null) {
+			// Only the primary frame is streamed, and it keeps the stream's drop counter
+			final boolean isPrimary = source.equals(kPrimary);
+			final VisionChannel created = new VisionChannel(source, Telemetry.counter(isPrimary
+					? Telemetry.kDropped + "stream" : Telemetry.kPipeline + source + ".droppedStream"),
+					dataListeners, isPrimary ? frameListeners : Collections.<Runnable>emptyList());
+			channel = channels.putIfAbsent(source, created);
+			if (channel == null) channel = created;
+		}
+		return channel;
+	}
+
+	/**
+	 * @return Every channel made so far, the primary one included
+	 */
+	public static List<VisionChannel> getChannels() {
+		return new ArrayList<>(channels.values());
+	}
+
+	public static void setXDist(VisionDataUnit<Double> x_value) {
+		primary.setXDist(x_value);
+	}
+	public static void setZDist(VisionDataUnit<Double> z_value) {
+		primary.setZDist(z_value);
+	}
+
+	/**
+	 * Sets both distances, then runs the data listeners once.
+	 */
+	public static void setDistances(VisionDataUnit<Double> x_value, VisionDataUnit<Double> z_value) {
+		primary.setDistances(x_value, z_value);
+	}
+
+	/**
+	 * @param listener Run on the publishing thread after any channel sets its distances; must return quickly
+	 */
+	public static void addDataListener(Runnable listener) {
+		dataListeners.addIfAbsent(listener);
+	}
+	public static void removeDataListener(Runnable listener) {
+		dataListeners.remove(listener);
+	}
+
+	/**
+	 * @param listener Run on the publishing thread after {@link #setFrame}; must return quickly
+	 */
+	public static void addFrameListener(Runnable listener) {
+		frameListeners.addIfAbsent(listener);
+	}
+	public static void removeFrameListener(Runnable listener) {
+		frameListeners.remove(listener);
+	}
+
+	/**
+	 * Copies the frame, so the caller may release or reuse it right away.
+	 */
+	public static void setFrame(Mat image) {
+		primary.setFrame(image);
+	}
+
+	public static Double getXDist() {
+		return primary.getXDist();
+	}
+	public static Double getZDist() {
+		return primary.getZDist();
+	}
+	/**
+	 * @return A copy of the last frame, or null if there is none yet. The caller releases it.
+	 */
+	public static Mat getFrame() {
+		return primary.getFrame();
+	}
+
+	/**
+	 * Get vision data as a JSON object. Distances of sources other than the camera on
+	 * screen are nested under "sources" by name.
+	 *
+	 * @return JSON object representing vision data
+	 */
+	public static JSONObject getJsonRepresentation() {
+
+		JSONObject json = new JSONObject();
+		try {
+			json.put("state", "STREAMING");
+			primary.putDistances(json);
+			JSONObject sources = null;
+			for (VisionChannel channel : channels.values()) {
+				if (channel == primary) continue;
+				if (sources == null) sources = new JSONObject();
+				sources.put(channel.getName(), channel.putDistances(new JSONObject()));
+			}
+			if (sources != null) json.put("sources", sources);
+			return json;
+		} catch (JSONException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Convert image to a byte array for transmission.
+	 *
+	 * @return Byte array representing image
+	 */
+	public static byte[] getFrameAsByteArray() {
+		return primary.getFrameAsByteArray();
+	}
+}
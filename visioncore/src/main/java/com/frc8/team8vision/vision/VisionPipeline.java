@@ -0,0 +1,266 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.util.VisionSettings;
+import com.frc8.team8vision.vision.sources.Frame;
+import com.frc8.team8vision.vision.sources.FrameSource;
+import com.frc8.team8vision.vision.telemetry.LatencyHistogram;
+import com.frc8.team8vision.vision.telemetry.StripedCounter;
+import com.frc8.team8vision.vision.telemetry.Telemetry;
+
+import org.opencv.core.Mat;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Processes the frames of one source on threads of its own and publishes the results to
+ * the source's {@link VisionChannel}, so several cameras, or several phones feeding one
+ * aggregator, can be processed side by side.
+ *
+ * Each pipeline has its own camera parameters, settings, {@link ProcessorSelector} and
+ * {@link ProcessorPool}. A reader thread takes frames from the source and keeps one frame
+ * per worker in flight; results are published in the order the frames arrived, and a
+ * frame goes back to the source once its results are out.
+ *
+ * Under pipeline.NAME the pipeline counts the frames it published, those where the target
+ * was found and those whose processing failed, and keeps the frames the source dropped.
+ * The time from taking a frame to publishing its results is recorded under
+ * latency.pipeline.NAME.
+ */
+public final class VisionPipeline implements AutoCloseable {
+
+	/**
+	 * A frame in flight with everything its worker writes to
+	 */
+	private static final class Slot {
+		final Mat rgba = new Mat();
+		final Overlay overlay = new Overlay();
+		final VisionDataUnit<?>[] out = VisionProcessorBase.newOutput();
+		Frame frame;
+		Future<VisionDataUnit<?>[]> result;
+		long start;
+
+		Slot() {
+			overlay.reset(false);
+		}
+	}
+
+	private final String mName;
+	private final FrameSource mSource;
+	private final ProcessorSelector mSelector = new ProcessorSelector();
+	private final ProcessorPool mPool;
+	private final VisionChannel mChannel;
+	private final Slot[] mSlots;
+	private final Thread mReader;
+
+	private volatile CameraParameters mCamera;
+	private volatile VisionSettings mSettings;
+	// Only touched by the reader
+	private FrameContext mContext;
+
+	private final StripedCounter mFrames, mFound, mFailed;
+	private final AtomicLong mSourceDropped;
+	private final LatencyHistogram mLatency;
+
+	/**
+	 * @param name Name of the source; names its channel, threads and metrics
+	 * @param source Source to process, not started yet, that lets its consumer hold one
+	 *               frame more than there are workers
+	 * @param camera Calibration of the source's camera for the frames it delivers
+	 * @param settings Settings to process with; the processor is the one they name
+	 * @param workers Number of frames processed at once
+	 */
+	public VisionPipeline(String name, FrameSource source, CameraParameters camera, VisionSettings settings,
+						  int workers) {
+		mName = name;
+		mSource = source;
+		mCamera = camera;
+		mSettings = settings;
+		mContext = new FrameContext(camera, settings);
+		mSelector.setWarmupContext(mContext);
+		mSelector.setProcessor(settings.getProcessorType());
+		mPool = new ProcessorPool(name + "Worker", workers);
+		mChannel = VisionInfoData.getChannel(name);
+		mSlots = new Slot[workers];
+		for (int i = 0; i < workers; i++) mSlots[i] = new Slot();
+
+		mFrames = Telemetry.counter(Telemetry.kPipeline + name + ".frames");
+		mFound = Telemetry.counter(Telemetry.kPipeline + name + ".found");
+		mFailed = Telemetry.counter(Telemetry.kPipeline + name + ".failed");
+		mSourceDropped = Telemetry.gauge(Telemetry.kPipeline + name + ".sourceDropped");
+		mLatency = Telemetry.latency(Telemetry.kPipeline + name);
+
+		mReader = ThreadTuning.factory(name + "Reader", ThreadTuning.Role.CAMERA).newThread(new Runnable() {
+			@Override
+			public void run() {
+				read();
+			}
+		});
+	}
+
+	/**
+	 * Starts the source and the reader.
+	 *
+	 * @return Whether or not the source could be started
+	 */
+	public boolean start() {
+		if (!mSource.start()) return false;
+		mReader.start();
+		return true;
+	}
+
+	/**
+	 * Stops the source; the frames in flight are still published.
+	 */
+	public void stop() {
+		mSource.stop();
+	}
+
+	/**
+	 * Interrupts the reader, e.g. when it did not stop in time. It still waits for the
+	 * frames in flight before it exits.
+	 */
+	public void interrupt() {
+		mReader.interrupt();
+	}
+
+	/**
+	 * Waits for the pipeline to publish its last frame, after it is stopped or its source
+	 * runs out of frames.
+	 *
+	 * @return Whether the pipeline is done
+	 */
+	public boolean join(long timeoutMS) throws InterruptedException {
+		mReader.join(timeoutMS);
+		return !mReader.isAlive();
+	}
+
+	/**
+	 * Stops the pipeline, waits for it and frees its threads and buffers. Its channel then
+	 * reports no target, so stale distances are never sent. Waits for the reader even if
+	 * interrupted, as its frames must not be freed under it; see {@link #join(long)} to
+	 * wait a bounded time first.
+	 */
+	@Override
+	public void close() {
+		stop();
+		boolean interrupted = false;
+		while (mReader.isAlive()) {
+			try {
+				mReader.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+		mPool.close();
+		mSelector.shutdown();
+		mSource.close();
+		for (Slot slot : mSlots) slot.rgba.release();
+
+		final VisionDataUnit<?>[] none = VisionProcessorBase.newOutput();
+		mChannel.setDistances(VisionProcessorBase.xDist(none), VisionProcessorBase.zDist(none));
+	}
+
+	public String getName() {
+		return mName;
+	}
+
+	public VisionChannel getChannel() {
+		return mChannel;
+	}
+
+	/**
+	 * @return The pipeline's processors; picking another one swaps it in once warmed up
+	 */
+	public ProcessorSelector getSelector() {
+		return mSelector;
+	}
+
+	/**
+	 * @param camera Calibration used from the next frame on
+	 */
+	public void setCamera(CameraParameters camera) {
+		mCamera = camera;
+		mSelector.setWarmupContext(new FrameContext(camera, mSettings));
+	}
+
+	/**
+	 * @param settings Settings used from the next frame on; picks the processor they name
+	 */
+	public void setSettings(VisionSettings settings) {
+		mSettings = settings;
+		mSelector.setProcessor(settings.getProcessorType());
+	}
+
+	/**
+	 * @return Number of frames whose results were published
+	 */
+	public long getPublishedFrames() {
+		return mFrames.sum();
+	}
+
+	private void read() {
+		long next = 0;
+		try {
+			Frame frame;
+			while ((frame = mSource.next()) != null) {
+				// The slot to fill holds the oldest frame still in flight
+				final Slot slot = mSlots[(int)(next++ % mSlots.length)];
+				if (slot.frame != null) publish(slot);
+
+				slot.frame = frame;
+				slot.start = System.nanoTime();
+				final FrameContext context = mContext = mContext.update(mCamera, mSettings);
+				slot.result = mPool.submit(mSelector.getProcessor(), frame.rgba(slot.rgba), slot.overlay, context, slot.out);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			for (int i = 0; i < mSlots.length; i++) {
+				final Slot slot = mSlots[(int)(next++ % mSlots.length)];
+				if (slot.frame != null) publish(slot);
+			}
+		}
+	}
+
+	/**
+	 * Waits for the slot's results, publishes them and gives its frame back to the source.
+	 */
+	private void publish(Slot slot) {
+		try {
+			final VisionDataUnit<?>[] out = await(slot.result);
+			mChannel.setDistances(VisionProcessorBase.xDist(out), VisionProcessorBase.zDist(out));
+			if (out[VisionProcessorBase.IDX_OUT_XDIST].exists()) mFound.increment();
+			mFrames.increment();
+			mLatency.record(System.nanoTime() - slot.start);
+		} catch (ExecutionException e) {
+			mFailed.increment();
+			e.getCause().printStackTrace();
+		} finally {
+			mSource.release(slot.frame);
+			slot.frame = null;
+			slot.result = null;
+			mSourceDropped.set(mSource.getDroppedFrames());
+		}
+	}
+
+	/**
+	 * Waits for a worker even if interrupted, as its frame must not be given back before it is done.
+	 */
+	private static <T> T await(Future<T> result) throws ExecutionException {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return result.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} finally {
+			if (interrupted) Thread.currentThread().interrupt();
+		}
+	}
+}
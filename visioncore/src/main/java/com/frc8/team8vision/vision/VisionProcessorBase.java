@@ -0,0 +1,234 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.util.DataExistsCallback;
+import com.frc8.team8vision.util.VisionSettings;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+
+/**
+ * Base class for all vision processors.
+ */
+public abstract class VisionProcessorBase {
+
+	/**
+	 * Checks if a double exists for the data structure.
+	 */
+	private static class DoubleExistsCallback extends DataExistsCallback<Double> {
+		@Override
+		public boolean doesExist(Double data) {
+			return !(data == null || data.isInfinite() || data.isNaN());
+		}
+	}
+
+	public static final int
+		EXECUTION_CODE_OKAY = 0,
+		EXECUTION_CODE_FAIL = 1;
+
+	public static final int
+		OUT_DIM = 5,
+		IDX_OUT_FUNCTION_EXECUTION_CODE = 0,
+		IDX_OUT_EXECUTION_MESSAGE = 1,
+		IDX_OUT_XDIST = 2,
+		IDX_OUT_ZDIST = 3,
+		IDX_OUT_TRACKING_LEFT = 4;
+
+	// Outline colors of the left and right strip of tape
+	protected static final Scalar
+		kLeftTapeColor = new Scalar(255, 0, 0),
+		kRightTapeColor = new Scalar(0, 255, 0);
+
+	// Scratch buffers, one set per thread processing frames
+	private final ThreadLocal<PyramidDetector> detector = new ThreadLocal<PyramidDetector>() {
+		@Override
+		protected PyramidDetector initialValue() {
+			return new PyramidDetector();
+		}
+	};
+	private final ThreadLocal<TargetPairer> pairer = new ThreadLocal<TargetPairer>() {
+		@Override
+		protected TargetPairer initialValue() {
+			return new TargetPairer();
+		}
+	};
+
+	/**
+	 * Creates the array a processor writes its results into. Each caller owns its own, so
+	 * results are never changed by a frame processed on another thread.
+	 *
+	 * @return Vision data with every value at its default
+	 */
+	public static VisionDataUnit<?>[] newOutput() {
+
+		final VisionDataUnit<?>[] output = new VisionDataUnit<?>[OUT_DIM];
+
+		output[IDX_OUT_FUNCTION_EXECUTION_CODE] = new VisionDataUnit<>(0, 1, new DataExistsCallback<Integer>(){});
+		output[IDX_OUT_EXECUTION_MESSAGE] = new VisionDataUnit<>("Safe execution", null, new DataExistsCallback<String>(){});
+		output[IDX_OUT_XDIST] = new VisionDataUnit<>(Double.NaN, Double.NaN, new DoubleExistsCallback());
+		output[IDX_OUT_ZDIST] = new VisionDataUnit<>(Double.NaN, Double.NaN, new DoubleExistsCallback());
+		output[IDX_OUT_TRACKING_LEFT] = new VisionDataUnit<>(false, false, new DataExistsCallback<Boolean>(){});
+		return output;
+	}
+
+	/*
+	 * Typed views of the entries of an array made by newOutput, whose types are fixed there
+	 */
+	@SuppressWarnings("unchecked")
+	public static VisionDataUnit<Integer> executionCode(VisionDataUnit<?>[] out) {
+		return (VisionDataUnit<Integer>)out[IDX_OUT_FUNCTION_EXECUTION_CODE];
+	}
+	@SuppressWarnings("unchecked")
+	public static VisionDataUnit<String> executionMessage(VisionDataUnit<?>[] out) {
+		return (VisionDataUnit<String>)out[IDX_OUT_EXECUTION_MESSAGE];
+	}
+	@SuppressWarnings("unchecked")
+	public static VisionDataUnit<Double> xDist(VisionDataUnit<?>[] out) {
+		return (VisionDataUnit<Double>)out[IDX_OUT_XDIST];
+	}
+	@SuppressWarnings("unchecked")
+	public static VisionDataUnit<Double> zDist(VisionDataUnit<?>[] out) {
+		return (VisionDataUnit<Double>)out[IDX_OUT_ZDIST];
+	}
+	@SuppressWarnings("unchecked")
+	public static VisionDataUnit<Boolean> trackingLeft(VisionDataUnit<?>[] out) {
+		return (VisionDataUnit<Boolean>)out[IDX_OUT_TRACKING_LEFT];
+	}
+
+	/**
+	 * Process a mask already thresholded from the image received from the camera.
+	 *
+	 * Processors keep nothing between calls besides scratch buffers owned by each thread,
+	 * so one processor can work on several frames at once. The side being tracked starts
+	 * out as the one in the settings; in dynamic tracking mode
+	 * {@link #getBestContours(ArrayList, Overlay, FrameContext, TrackingState)} may change it,
+	 * and the choice is reported through {@link #IDX_OUT_TRACKING_LEFT} for the caller to persist.
+	 *
+	 * Frames are searched as the sensor delivered them; the contours found are turned
+	 * upright with the camera's {@link FrameOrientation} before anything else looks at them.
+	 * Nothing is drawn on the frame; what the processor finds is recorded in an {@link Overlay}.
+	 *
+	 * @param mask A filtered image of ones and zeros, as the sensor delivered it.
+	 * @param overlay Records what was found, owned by the caller.
+	 * @param context Camera parameters and settings for this frame.
+	 * @param tracking Side being tracked, owned by the caller.
+	 * @param out Vision data from {@link #newOutput()} to write the results into.
+	 * @return out
+	 */
+	public VisionDataUnit<?>[] processMask(Mat mask, Overlay overlay, FrameContext context, TrackingState tracking,
+										   VisionDataUnit<?>[] out) {
+
+		tracking.setTrackingLeft(context.getSettings().isTrackingLeft());
+
+		try (MatScope scope = new MatScope()) {
+			// Find contours that represent tape on the peg
+			ArrayList<MatOfPoint> contours = new ArrayList<>();
+			Imgproc.findContours(mask, contours, scope.mat(), Imgproc.RETR_LIST, Imgproc.CHAIN_APPROX_SIMPLE);
+			scope.addAll(contours);
+			context.getCamera().getOrientation().toUpright(contours, mask.cols(), mask.rows());
+
+			MatOfPoint[] bestContours = scope.addAll(getBestContours(contours, overlay, context, tracking));
+
+			return finish(processContours(bestContours, overlay, context, tracking, out), tracking);
+		}
+	}
+
+	/**
+	 * Thresholds the image with the HSV bounds from the settings and processes it.
+	 *
+	 * At a {@link VisionSettings.DetectionScale} below full resolution the tape is found on
+	 * a reduced image and only the chosen contours are traced again at full resolution; see
+	 * {@link PyramidDetector}. The blobs of the mask are found with the
+	 * {@link VisionSettings.ContourMethod} from the settings.
+	 *
+	 * @param input The raw image input from the camera, as the sensor delivered it.
+	 * @param overlay Records what was found, owned by the caller.
+	 * @param context Camera parameters and settings for this frame.
+	 * @param tracking Side being tracked, owned by the caller.
+	 * @param out Vision data from {@link #newOutput()} to write the results into.
+	 * @return out
+	 */
+	public VisionDataUnit<?>[] process(Mat input, Overlay overlay, FrameContext context, TrackingState tracking,
+									   VisionDataUnit<?>[] out) {
+
+		final VisionSettings settings = context.getSettings();
+		tracking.setTrackingLeft(settings.isTrackingLeft());
+
+		final PyramidDetector detector = this.detector.get();
+		final Scalar lower = getLowerBound(settings), upper = getUpperBound(settings);
+		final int scale = settings.getDetectionScale().getFactor();
+		final FrameOrientation orientation = context.getCamera().getOrientation();
+
+		try (MatScope scope = new MatScope()) {
+			ArrayList<MatOfPoint> contours = new ArrayList<>();
+			detector.findContours(input, lower, upper, scale, settings.getContourMethod(), orientation, contours);
+			scope.addAll(contours);
+
+			MatOfPoint[] bestContours = scope.addAll(getBestContours(contours, overlay, context, tracking));
+			detector.refine(bestContours, input, lower, upper, scale, settings.getContourMethod(), orientation);
+			scope.addAll(bestContours);
+
+			return finish(processContours(bestContours, overlay, context, tracking, out), tracking);
+		}
+	}
+
+	/**
+	 * Reports the side tracked in the frame.
+	 *
+	 * @return out
+	 */
+	protected static VisionDataUnit<?>[] finish(VisionDataUnit<?>[] out, TrackingState tracking) {
+		trackingLeft(out).set(tracking.isTrackingLeft());
+		return out;
+	}
+
+	/**
+	 * @return The calling thread's pairer
+	 */
+	protected TargetPairer getPairer() {
+		return pairer.get();
+	}
+
+	/**
+	 * @return Lower HSV bound of the threshold sliders
+	 */
+	protected static Scalar getLowerBound(VisionSettings settings) {
+		return new Scalar(settings.getSliderValue(0), settings.getSliderValue(1), settings.getSliderValue(2));
+	}
+
+	/**
+	 * @return Upper HSV bound of the threshold sliders
+	 */
+	protected static Scalar getUpperBound(VisionSettings settings) {
+		return new Scalar(settings.getSliderValue(3), settings.getSliderValue(4), settings.getSliderValue(5));
+	}
+
+	/**
+	 * Processes the best contours from {@link #getBestContours(ArrayList, Overlay, FrameContext, TrackingState)}.
+	 * These are contours that represent the reflective tape.
+	 *
+	 * @param corners The corners of the tape(s) in upright image space.
+	 * @param overlay Records what was found.
+	 * @param context Camera parameters and settings for this frame.
+	 * @param tracking Side being tracked.
+	 * @param out Vision data to write the results into.
+	 * @return out
+	 */
+	public abstract VisionDataUnit<?>[] processContours(MatOfPoint[] corners, Overlay overlay, FrameContext context,
+													    TrackingState tracking, VisionDataUnit<?>[] out);
+
+	/**
+	 * Get best contours to process from a list.
+	 *
+	 * @param contours Contours found from the masked image, upright.
+	 * @param overlay Records what was found.
+	 * @param context Camera parameters and settings for this frame.
+	 * @param tracking Side being tracked; may be switched in dynamic tracking mode.
+	 * @return Array of contours which represents best points.
+	 */
+	public abstract MatOfPoint[] getBestContours(ArrayList<MatOfPoint> contours, Overlay overlay, FrameContext context,
+												 TrackingState tracking);
+}
@@ -0,0 +1,259 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.vision.telemetry.StripedCounter;
+import com.frc8.team8vision.vision.telemetry.Telemetry;
+
+import java.util.Arrays;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs every transport of the app, the threads that send results and video and serve
+ * telemetry, as tasks instead of threads that sleep and poll.
+ *
+ * A task runs when it is woken, e.g. because a new frame is ready, and on a deadline
+ * every period if it has one. A paused or stopped task is not scheduled at all, so it
+ * costs no wakeups. One timer thread keeps the deadlines and hands due tasks to worker
+ * threads, which are made when every worker is busy and exit once idle for a while; a
+ * task may therefore block, e.g. on a connection, without holding up the others. A task
+ * never runs twice at once, and wakes while it runs are folded into one more run.
+ *
+ * Waking a task only sets a flag and unparks a waker thread, which hands the task to a
+ * worker, so the camera thread publishing a frame neither allocates nor waits on a task's
+ * lock while a transport holds it.
+ */
+public final class VisionScheduler {
+
+	private static final long kIdleWorkerSeconds = 30;
+
+	private static final VisionScheduler kShared = new VisionScheduler("VisionTransport", ThreadTuning.Role.TRANSPORT);
+
+	private final ScheduledThreadPoolExecutor mTimer;
+	private final ThreadPoolExecutor mWorkers;
+	private final Thread mWaker;
+	// Tasks not stopped, the ones the waker looks at; replaced whole, guarded by this
+	private volatile Task[] mTasks = new Task[0];
+	private volatile boolean mShutdown = false;
+
+	/**
+	 * @param name Prefix of the scheduler's thread names
+	 * @param role Role the scheduler's threads are tuned for
+	 */
+	public VisionScheduler(String name, ThreadTuning.Role role) {
+		mTimer = new ScheduledThreadPoolExecutor(1, ThreadTuning.factory(name + "Timer", role));
+		// Paused tasks leave the timer's queue right away rather than at their deadline
+		mTimer.setRemoveOnCancelPolicy(true);
+		mWorkers = new ThreadPoolExecutor(0, Integer.MAX_VALUE, kIdleWorkerSeconds, TimeUnit.SECONDS,
+				new SynchronousQueue<Runnable>(), ThreadTuning.factory(name, role));
+		mWaker = ThreadTuning.factory(name + "Waker", role).newThread(new Runnable() {
+			@Override
+			public void run() {
+				while (!mShutdown) {
+					// A wake between the scan and parking makes the next park return right away
+					LockSupport.park(VisionScheduler.this);
+					for (Task task : mTasks) {
+						if (task.mWoken.getAndSet(false)) task.dispatchWake();
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * @return Scheduler for the transports, on threads tuned for them
+	 */
+	public static VisionScheduler getShared() {
+		return kShared;
+	}
+
+	/**
+	 * @param name Name of the task, its runs are counted under scheduler.name.runs
+	 * @param periodMS Time between the starts of runs when nothing wakes the task, or 0 to only
+	 *                 run when woken
+	 * @param body Work done by each run
+	 * @return The task, paused until {@link Task#resume()}
+	 */
+	public synchronized Task newTask(String name, long periodMS, Runnable body) {
+		// Like the workers, the waker is only made once needed
+		if (mWaker.getState() == Thread.State.NEW) mWaker.start();
+		final Task task = new Task(name, periodMS, body);
+		final Task[] tasks = Arrays.copyOf(mTasks, mTasks.length + 1);
+		tasks[tasks.length - 1] = task;
+		mTasks = tasks;
+		return task;
+	}
+
+	private synchronized void removeTask(Task task) {
+		final Task[] tasks = mTasks;
+		for (int i = 0; i < tasks.length; i++) {
+			if (tasks[i] != task) continue;
+			final Task[] rest = Arrays.copyOf(tasks, tasks.length - 1);
+			System.arraycopy(tasks, i + 1, rest, i, tasks.length - i - 1);
+			mTasks = rest;
+			return;
+		}
+	}
+
+	/**
+	 * @return Number of tasks waiting for their deadline
+	 */
+	int getWaiting() {
+		return mTimer.getQueue().size();
+	}
+
+	/**
+	 * Stops the threads; tasks are no longer run.
+	 */
+	public void shutdown() {
+		mShutdown = true;
+		LockSupport.unpark(mWaker);
+		mTimer.shutdownNow();
+		mWorkers.shutdown();
+	}
+
+	public final class Task {
+
+		private final Runnable mBody;
+		private final StripedCounter mRuns;
+		// Set by wake, cleared by the waker as it hands the wake on
+		private final AtomicBoolean mWoken = new AtomicBoolean();
+		// Guarded by this
+		private long mPeriodMS;
+		private boolean mActive = false, mStopped = false, mRunning = false, mWakeRequested = false;
+		private ScheduledFuture<?> mDeadline;
+
+		private final Runnable mDispatch = new Runnable() {
+			@Override
+			public void run() {
+				synchronized (Task.this) {
+					mDeadline = null;
+					if (!mActive) return;
+					if (mRunning) {
+						// Resumed while a run was finishing
+						mWakeRequested = true;
+						return;
+					}
+					mRunning = true;
+				}
+				mWorkers.execute(mRun);
+			}
+		};
+
+		private final Runnable mRun = new Runnable() {
+			@Override
+			public void run() {
+				final long start = System.nanoTime();
+				try {
+					mBody.run();
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				} finally {
+					mRuns.increment();
+					finished(start);
+				}
+			}
+		};
+
+		private Task(String name, long periodMS, Runnable body) {
+			mBody = body;
+			mPeriodMS = periodMS;
+			mRuns = Telemetry.counter(Telemetry.kScheduler + name + ".runs");
+		}
+
+		/**
+		 * Starts running the task, right away and then on its deadlines. Does nothing once
+		 * the task is stopped.
+		 */
+		public synchronized void resume() {
+			if (mStopped || mActive) return;
+			mActive = true;
+			schedule(0);
+		}
+
+		/**
+		 * Stops running the task until it is resumed. A run in progress finishes.
+		 */
+		public synchronized void pause() {
+			mActive = false;
+			mWakeRequested = false;
+			if (mDeadline != null) {
+				mDeadline.cancel(false);
+				mDeadline = null;
+			}
+		}
+
+		/**
+		 * Stops running the task for good.
+		 */
+		public void stop() {
+			synchronized (this) {
+				mStopped = true;
+				pause();
+			}
+			removeTask(this);
+		}
+
+		/**
+		 * Runs the task as soon as possible if it is active, instead of at its deadline.
+		 * Neither allocates nor blocks; wakes before the waker gets to the task are one wake.
+		 */
+		public void wake() {
+			if (!mWoken.getAndSet(true)) LockSupport.unpark(mWaker);
+		}
+
+		// Called by the waker
+		private synchronized void dispatchWake() {
+			if (!mActive) return;
+			if (mRunning) {
+				mWakeRequested = true;
+			} else if (mDeadline == null || mDeadline.getDelay(TimeUnit.NANOSECONDS) > 0) {
+				// Straight to a worker, no deadline due is dispatching it already
+				if (mDeadline != null) {
+					mDeadline.cancel(false);
+					mDeadline = null;
+				}
+				mRunning = true;
+				mWorkers.execute(mRun);
+			}
+		}
+
+		/**
+		 * @param periodMS Time between the starts of runs when nothing wakes the task, or 0 to
+		 *                 only run when woken; takes effect from the next run
+		 */
+		public synchronized void setPeriod(long periodMS) {
+			mPeriodMS = periodMS;
+		}
+
+		public synchronized boolean isActive() {
+			return mActive;
+		}
+
+		public long getRuns() {
+			return mRuns.sum();
+		}
+
+		private synchronized void finished(long start) {
+			mRunning = false;
+			if (!mActive) return;
+			if (mWakeRequested) {
+				mWakeRequested = false;
+				schedule(0);
+			} else if (mPeriodMS > 0) {
+				final long elapsedMS = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+				schedule(Math.max(0, mPeriodMS - elapsedMS));
+			}
+		}
+
+		// Called holding the lock
+		private void schedule(long delayMS) {
+			if (mDeadline != null) mDeadline.cancel(false);
+			mDeadline = mTimer.schedule(mDispatch, delayMS, TimeUnit.MILLISECONDS);
+		}
+	}
+}
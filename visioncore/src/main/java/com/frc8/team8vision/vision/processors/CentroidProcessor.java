@@ -0,0 +1,113 @@
+package com.frc8.team8vision.vision.processors;
+
+import com.frc8.team8vision.util.Constants;
+import com.frc8.team8vision.util.VisionSettings;
+import com.frc8.team8vision.util.VisionUtil;
+import com.frc8.team8vision.vision.CameraParameters;
+import com.frc8.team8vision.vision.FrameContext;
+import com.frc8.team8vision.vision.Overlay;
+import com.frc8.team8vision.vision.TargetPairer;
+import com.frc8.team8vision.vision.TrackingState;
+import com.frc8.team8vision.vision.VisionProcessorBase;
+import com.frc8.team8vision.vision.VisionDataUnit;
+
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfPoint3f;
+import org.opencv.core.Point;
+import org.opencv.core.Point3;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+
+import static com.frc8.team8vision.util.VisionUtil.*;
+
+public class CentroidProcessor extends VisionProcessorBase {
+
+	// Corners are shaded from black to blue in the order of VisionUtil.getCorners
+	private static final Scalar[] kCornerColors = {
+		new Scalar(0, 0, 0), new Scalar(85, 0, 0), new Scalar(170, 0, 0), new Scalar(255, 0, 0)
+	};
+	private static final Scalar kTargetColor = new Scalar(0, 0, 255);
+
+	private final MatOfPoint3f kLeftTargetMatrix, kRightTargetMatrix;
+
+	public CentroidProcessor() {
+		kLeftTargetMatrix  = new MatOfPoint3f(Constants.kLeftSourcePoints );
+		kRightTargetMatrix = new MatOfPoint3f(Constants.kRightSourcePoints);
+	}
+
+	@Override
+	public MatOfPoint[] getBestContours(ArrayList<MatOfPoint> contours, Overlay overlay, FrameContext context,
+			TrackingState tracking) {
+
+		final boolean dynamicTracking = context.getSettings().isDynamicTracking();
+
+		final TargetPairer.Pair pair = getPairer().findBestPair(contours);
+		if (pair == null) return null;
+
+		final MatOfPoint left = contours.get(pair.left), right = contours.get(pair.right);
+
+		final double leftArea = Imgproc.contourArea(left), rightArea = Imgproc.contourArea(right);
+		final boolean leftIsBigger = leftArea > rightArea;
+		if (dynamicTracking)
+			tracking.setTrackingLeft(leftIsBigger);
+		final boolean trackingLeft = tracking.isTrackingLeft();
+
+		final double
+				primaryArea = trackingLeft ? rightArea : leftArea,
+				secondaryArea = trackingLeft ? leftArea : rightArea;
+
+		MatOfPoint finalContour;
+
+		// Find the final contour based on which target we are aiming for
+		if (secondaryArea / primaryArea > 0.75f) {
+			finalContour = trackingLeft ? left : right;
+		} else {
+			finalContour = trackingLeft ? right : left;
+		}
+
+		// Draw tape contours on screen
+		overlay.contour(contours.get(pair.left), kLeftTapeColor);
+		overlay.contour(contours.get(pair.right), kRightTapeColor);
+
+		return new MatOfPoint[] { finalContour };
+	}
+
+	@Override
+	public VisionDataUnit<?>[] processContours(MatOfPoint[] bestContours, Overlay overlay, FrameContext context,
+			TrackingState tracking, VisionDataUnit<?>[] out) {
+
+		final VisionSettings settings = context.getSettings();
+		final CameraParameters camera = context.getCamera();
+		final boolean trackingLeft = tracking.isTrackingLeft();
+
+		if (bestContours != null && bestContours.length == 1) {
+
+			final Point[] corners = VisionUtil.getCorners(bestContours[0], 0);
+
+			final Point3 posePnP = getPosePnP(trackingLeft ? kLeftTargetMatrix : kRightTargetMatrix, corners, overlay, camera);
+			zDist(out).set(posePnP.z - settings.getZ_shift());
+
+			// Draw corners on image
+			for (int i = 0; i < corners.length; i++)
+				overlay.circle(corners[i].x, corners[i].y, 5, kCornerColors[i], -1);
+
+			final double
+				ratio = Math.max(corners[1].x - corners[0].x, corners[3].x - corners[2].x)/2,
+				target = trackingLeft
+					? corners[0].x + (Constants.kVisionTargetWidth/2) * ratio
+					: corners[1].x - (Constants.kVisionTargetWidth/2) * ratio,
+				hh = camera.Height()/2.0, hw = camera.Width()/2.0;
+
+			overlay.circle(target, hh, 5, kTargetColor, -1);
+			xDist(out).set((target - hw) / ratio + settings.getX_shift());
+
+		} else {
+			out[IDX_OUT_XDIST].setToDefault();
+			out[IDX_OUT_ZDIST].setToDefault();
+		}
+
+		return out;
+	}
+}
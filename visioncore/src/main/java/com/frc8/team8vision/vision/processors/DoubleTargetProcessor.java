@@ -0,0 +1,76 @@
+package com.frc8.team8vision.vision.processors;
+
+import com.frc8.team8vision.util.Constants;
+import com.frc8.team8vision.util.VisionSettings;
+import com.frc8.team8vision.util.VisionUtil;
+import com.frc8.team8vision.vision.CameraParameters;
+import com.frc8.team8vision.vision.FrameContext;
+import com.frc8.team8vision.vision.Overlay;
+import com.frc8.team8vision.vision.TargetPairer;
+import com.frc8.team8vision.vision.TrackingState;
+import com.frc8.team8vision.vision.VisionDataUnit;
+import com.frc8.team8vision.vision.VisionProcessorBase;
+
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfPoint3f;
+import org.opencv.core.Point;
+import org.opencv.core.Point3;
+
+import java.util.ArrayList;
+
+/**
+ * Vision processor which takes into account both tape targets.
+ *
+ * @author Quintin
+ */
+public class DoubleTargetProcessor extends VisionProcessorBase {
+
+    private final MatOfPoint3f kAllTargetMatrix;
+
+    public DoubleTargetProcessor() {
+        kAllTargetMatrix = new MatOfPoint3f(VisionUtil.concat(Constants.kLeftSourcePoints, Constants.kRightSourcePoints));
+    }
+
+    @Override
+    public MatOfPoint[] getBestContours(ArrayList<MatOfPoint> contours, Overlay overlay, FrameContext context,
+            TrackingState tracking) {
+
+        final TargetPairer.Pair pair = getPairer().findBestPair(contours);
+        if (pair == null) return null;
+
+        // Draw tape contours on screen
+        overlay.contour(contours.get(pair.left), kLeftTapeColor);
+        overlay.contour(contours.get(pair.right), kRightTapeColor);
+
+        return new MatOfPoint[] { contours.get(pair.left), contours.get(pair.right) };
+    }
+
+    @Override
+    public VisionDataUnit<?>[] processContours(MatOfPoint[] bestContours, Overlay overlay, FrameContext context,
+            TrackingState tracking, VisionDataUnit<?>[] out) {
+
+        if (bestContours != null && bestContours.length == 2) {
+
+            final VisionSettings settings = context.getSettings();
+            final CameraParameters camera = context.getCamera();
+
+            // Get corners for both targets
+            Point[][] tapeCornersFromImage = new Point[2][4];
+            for (int i = 0; i < 2; i++) tapeCornersFromImage[i] = VisionUtil.getCorners(bestContours[i], camera.Width()/2);
+
+
+            // Combine into single array
+            final Point[] allCorners = VisionUtil.concat(tapeCornersFromImage[0], tapeCornersFromImage[1]);
+
+            final Point3 posePnP = VisionUtil.getPosePnP(kAllTargetMatrix, allCorners, overlay, camera);
+            zDist(out).set(posePnP.z + settings.getZ_shift());
+            xDist(out).set(posePnP.x + settings.getX_shift());
+        } else {
+            out[IDX_OUT_XDIST].setToDefault();
+            out[IDX_OUT_ZDIST].setToDefault();
+        }
+        return out;
+    }
+
+
+}
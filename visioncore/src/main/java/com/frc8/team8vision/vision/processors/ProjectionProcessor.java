@@ -0,0 +1,78 @@
+package com.frc8.team8vision.vision.processors;
+
+import com.frc8.team8vision.util.VisionSettings;
+import com.frc8.team8vision.vision.FrameContext;
+import com.frc8.team8vision.vision.FrameOrientation;
+import com.frc8.team8vision.vision.MatScope;
+import com.frc8.team8vision.vision.Overlay;
+import com.frc8.team8vision.vision.ProjectionFinder;
+import com.frc8.team8vision.vision.PyramidDetector;
+import com.frc8.team8vision.vision.TrackingState;
+import com.frc8.team8vision.vision.VisionDataUnit;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+
+/**
+ * Finds both strips of tape from projections of the mask instead of its contours; see
+ * {@link ProjectionFinder}. Nothing is traced so this is the cheapest processor. The pose
+ * is solved from both strips like {@link DoubleTargetProcessor}.
+ *
+ * The finder relies on the strips standing upright, so unlike the other processors the
+ * mask is turned upright before it is searched. It is a single byte per pixel and usually
+ * reduced, so that costs far less than turning the frame.
+ */
+public class ProjectionProcessor extends DoubleTargetProcessor {
+
+	// Scratch buffers, one set per thread processing frames
+	private final ThreadLocal<PyramidDetector> mDetector = new ThreadLocal<PyramidDetector>() {
+		@Override
+		protected PyramidDetector initialValue() {
+			return new PyramidDetector();
+		}
+	};
+	private final ThreadLocal<ProjectionFinder> mFinder = new ThreadLocal<ProjectionFinder>() {
+		@Override
+		protected ProjectionFinder initialValue() {
+			return new ProjectionFinder();
+		}
+	};
+	private final ThreadLocal<Mat> mUpright = new ThreadLocal<Mat>() {
+		@Override
+		protected Mat initialValue() {
+			return new Mat();
+		}
+	};
+
+	@Override
+	public VisionDataUnit<?>[] processMask(Mat mask, Overlay overlay, FrameContext context, TrackingState tracking,
+										   VisionDataUnit<?>[] out) {
+		tracking.setTrackingLeft(context.getSettings().isTrackingLeft());
+		try (MatScope scope = new MatScope()) {
+			final MatOfPoint[] corners = scope.addAll(mFinder.get().find(upright(mask, context), 1, overlay));
+			return finish(processContours(corners, overlay, context, tracking, out), tracking);
+		}
+	}
+
+	@Override
+	public VisionDataUnit<?>[] process(Mat input, Overlay overlay, FrameContext context, TrackingState tracking,
+									   VisionDataUnit<?>[] out) {
+		final VisionSettings settings = context.getSettings();
+		tracking.setTrackingLeft(settings.isTrackingLeft());
+
+		final int scale = settings.getDetectionScale().getFactor();
+		final Mat mask = mDetector.get().threshold(input, getLowerBound(settings), getUpperBound(settings), scale);
+		try (MatScope scope = new MatScope()) {
+			final MatOfPoint[] corners = scope.addAll(mFinder.get().find(upright(mask, context), scale, overlay));
+			return finish(processContours(corners, overlay, context, tracking, out), tracking);
+		}
+	}
+
+	private Mat upright(Mat mask, FrameContext context) {
+		final FrameOrientation orientation = context.getCamera().getOrientation();
+		if (orientation.isUpright()) return mask;
+		final Mat upright = mUpright.get();
+		orientation.apply(mask, upright);
+		return upright;
+	}
+}
@@ -0,0 +1,78 @@
+package com.frc8.team8vision.vision.processors;
+
+import com.frc8.team8vision.util.Constants;
+import com.frc8.team8vision.util.VisionSettings;
+import com.frc8.team8vision.util.VisionUtil;
+import com.frc8.team8vision.vision.CameraParameters;
+import com.frc8.team8vision.vision.FrameContext;
+import com.frc8.team8vision.vision.Overlay;
+import com.frc8.team8vision.vision.TargetPairer;
+import com.frc8.team8vision.vision.TrackingState;
+import com.frc8.team8vision.vision.VisionProcessorBase;
+import com.frc8.team8vision.vision.VisionDataUnit;
+
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfPoint3f;
+import org.opencv.core.Point;
+import org.opencv.core.Point3;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+
+public class SingleTargetProcessor extends VisionProcessorBase {
+
+	private final MatOfPoint3f kLeftTargetMatrix, kRightTargetMatrix;
+
+	public SingleTargetProcessor() {
+		kLeftTargetMatrix = new MatOfPoint3f(Constants.kLeftSourcePoints);
+		kRightTargetMatrix = new MatOfPoint3f(Constants.kRightSourcePoints);
+	}
+
+	@Override
+	public MatOfPoint[] getBestContours(ArrayList<MatOfPoint> contours, Overlay overlay, FrameContext context,
+			TrackingState tracking) {
+
+		final boolean dynamicTracking = context.getSettings().isDynamicTracking();
+
+		final TargetPairer.Pair pair = getPairer().findBestPair(contours);
+		if (pair == null) return null;
+
+		final MatOfPoint left = contours.get(pair.left), right = contours.get(pair.right);
+
+		final boolean leftIsBigger = Imgproc.contourArea(left) > Imgproc.contourArea(right);
+		if (dynamicTracking)
+			tracking.setTrackingLeft(leftIsBigger);
+
+		// Find the final contour based on which target we are aiming for
+		final MatOfPoint finalContour = tracking.isTrackingLeft() ? left : right;
+
+		// Draw tape contours on screen
+		overlay.contour(contours.get(pair.left), kLeftTapeColor);
+		overlay.contour(contours.get(pair.right), kRightTapeColor);
+
+		return new MatOfPoint[] { finalContour };
+	}
+
+	@Override
+	public VisionDataUnit<?>[] processContours(MatOfPoint[] bestContours, Overlay overlay, FrameContext context,
+			TrackingState tracking, VisionDataUnit<?>[] out) {
+
+		if (bestContours != null && bestContours.length == 1) {
+
+			final VisionSettings settings = context.getSettings();
+			final CameraParameters camera = context.getCamera();
+			final boolean isTrackingLeft = tracking.isTrackingLeft();
+
+			// Get corners for both targets
+			final Point[] corners = VisionUtil.getCorners(bestContours[0], camera.Width()/2);
+
+			final Point3 posePnP = VisionUtil.getPosePnP(isTrackingLeft ? kLeftTargetMatrix : kRightTargetMatrix, corners, overlay, camera);
+			zDist(out).set(posePnP.z + settings.getZ_shift());
+			xDist(out).set(posePnP.x + settings.getX_shift());
+		} else {
+			out[IDX_OUT_XDIST].setToDefault();
+			out[IDX_OUT_ZDIST].setToDefault();
+		}
+		return out;
+	}
+}
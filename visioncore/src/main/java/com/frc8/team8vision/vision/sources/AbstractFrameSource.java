@@ -0,0 +1,70 @@
+package com.frc8.team8vision.vision.sources;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Frame counting and real-time pacing shared by the frame sources.
+ *
+ * A paced source plays frames back at the rate they were captured. When the consumer
+ * falls behind, frames whose successor is already due are dropped, just like the camera
+ * drops frames while the pipeline is busy.
+ */
+public abstract class AbstractFrameSource implements FrameSource {
+
+	private final AtomicLong mDelivered = new AtomicLong(), mDropped = new AtomicLong();
+
+	private final boolean mPaced;
+	private long mClockStart = -1, mFirstCapture;
+
+	protected AbstractFrameSource(boolean paced) {
+		mPaced = paced;
+	}
+
+	protected void onDelivered() {
+		mDelivered.incrementAndGet();
+	}
+
+	protected void onDropped(long frames) {
+		mDropped.addAndGet(frames);
+	}
+
+	@Override
+	public long getDeliveredFrames() {
+		return mDelivered.get();
+	}
+
+	@Override
+	public long getDroppedFrames() {
+		return mDropped.get();
+	}
+
+	public boolean isPaced() {
+		return mPaced;
+	}
+
+	/**
+	 * @param capture Capture time of a frame in nanoseconds
+	 * @return Whether a paced source is already past the time the frame is due
+	 */
+	protected boolean isDue(long capture) {
+		if (!mPaced) return false;
+		if (mClockStart < 0) return false;
+		return System.nanoTime() - mClockStart >= capture - mFirstCapture;
+	}
+
+	/**
+	 * Sleeps until a frame is due. The first frame is always due immediately.
+	 *
+	 * @param capture Capture time of the frame in nanoseconds
+	 */
+	protected void awaitCapture(long capture) throws InterruptedException {
+		if (!mPaced) return;
+		if (mClockStart < 0) {
+			mClockStart = System.nanoTime();
+			mFirstCapture = capture;
+			return;
+		}
+		final long wait = (capture - mFirstCapture) - (System.nanoTime() - mClockStart);
+		if (wait > 0) Thread.sleep(wait / 1000000, (int)(wait % 1000000));
+	}
+}
@@ -0,0 +1,108 @@
+package com.frc8.team8vision.vision.sources;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * One reusable frame buffer handed out by a {@link FrameSource}.
+ *
+ * Sources that receive frames as byte arrays (the camera, the ring file) fill
+ * {@link #buffer()} and the pixels are only copied into the Mat the first time
+ * {@link #mat()} is called, on the consumer's thread. Sources that draw frames
+ * with OpenCV write to the Mat directly and have no buffer.
+ */
+public class Frame {
+
+	public static final int
+		FORMAT_NV21 = 0,
+		FORMAT_RGBA = 1;
+
+	private final int mWidth, mHeight, mFormat;
+	private final byte[] mBuffer;
+	private final Mat mData;
+	private boolean mUploaded = false;
+
+	private long mSequence = -1, mTimestamp = 0;
+
+	/**
+	 * @param width Width of the image
+	 * @param height Height of the image
+	 * @param format {@link #FORMAT_NV21} or {@link #FORMAT_RGBA}
+	 * @param buffered Whether the source fills a byte array instead of the Mat
+	 */
+	public Frame(int width, int height, int format, boolean buffered) {
+		mWidth = width;
+		mHeight = height;
+		mFormat = format;
+		if (format == FORMAT_NV21) {
+			mData = new Mat(height + height/2, width, CvType.CV_8UC1);
+		} else {
+			mData = new Mat(height, width, CvType.CV_8UC4);
+		}
+		mBuffer = buffered ? new byte[(int)(mData.total() * mData.elemSize())] : null;
+	}
+
+	/**
+	 * Marks the frame as holding new data. Called by the source before handing it out.
+	 *
+	 * @param sequence Index of the frame in its source, counting dropped frames
+	 * @param timestamp Capture time in nanoseconds
+	 */
+	public void stamp(long sequence, long timestamp) {
+		mSequence = sequence;
+		mTimestamp = timestamp;
+		mUploaded = false;
+	}
+
+	/**
+	 * @return The raw pixels, or null if the source writes to the Mat directly
+	 */
+	public byte[] buffer() {
+		return mBuffer;
+	}
+
+	/**
+	 * @return The pixels as a Mat, in the layout given by {@link #getFormat()}
+	 */
+	public Mat mat() {
+		if (mBuffer != null && !mUploaded) {
+			mData.put(0, 0, mBuffer);
+			mUploaded = true;
+		}
+		return mData;
+	}
+
+	/**
+	 * Converts the frame the same way the camera view does, so replayed frames reach
+	 * the pipeline exactly as live ones would.
+	 *
+	 * @param dst Mat to convert NV21 frames into
+	 * @return dst, or the frame's own Mat if it is already RGBA
+	 */
+	public Mat rgba(Mat dst) {
+		if (mFormat == FORMAT_RGBA) return mat();
+		Imgproc.cvtColor(mat(), dst, Imgproc.COLOR_YUV2BGR_NV12, 4);
+		return dst;
+	}
+
+	public int getWidth() {
+		return mWidth;
+	}
+	public int getHeight() {
+		return mHeight;
+	}
+	public int getFormat() {
+		return mFormat;
+	}
+	public long getSequence() {
+		return mSequence;
+	}
+	public long getTimestamp() {
+		return mTimestamp;
+	}
+
+	public void release() {
+		mData.release();
+	}
+}
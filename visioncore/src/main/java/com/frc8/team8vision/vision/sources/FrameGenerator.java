@@ -0,0 +1,14 @@
+package com.frc8.team8vision.vision.sources;
+
+import org.opencv.core.Mat;
+
+/**
+ * Draws the frames of a {@link SyntheticFrameSource}.
+ */
+public interface FrameGenerator {
+	/**
+	 * @param sequence Index of the frame being drawn
+	 * @param rgba Frame to draw into, with the size of the source
+	 */
+	public void generate(long sequence, Mat rgba);
+}
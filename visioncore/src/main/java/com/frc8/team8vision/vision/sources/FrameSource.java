@@ -0,0 +1,55 @@
+package com.frc8.team8vision.vision.sources;
+
+/**
+ * Something the vision pipeline can pull frames from: the phone camera, a recording
+ * or a generator. The same processing loop runs against any of them.
+ *
+ * A source is used by a single consumer thread, which calls {@link #next()} and hands
+ * every frame back with {@link #release(Frame)} once it is done with it.
+ */
+public interface FrameSource extends AutoCloseable {
+
+	/**
+	 * Opens the source and starts producing frames.
+	 *
+	 * @return Whether or not the source could be opened
+	 */
+	public boolean start();
+
+	/**
+	 * Waits for the next frame.
+	 *
+	 * @return The next frame, or null once the source is stopped or has run out of frames
+	 */
+	public Frame next() throws InterruptedException;
+
+	/**
+	 * Hands a frame returned by {@link #next()} back so its buffer can be reused.
+	 */
+	public void release(Frame frame);
+
+	/**
+	 * Stops producing frames and wakes up a consumer waiting in {@link #next()}.
+	 */
+	public void stop();
+
+	/**
+	 * Frees the frame buffers. Called after the consumer has stopped.
+	 */
+	@Override
+	public void close();
+
+	public int getWidth();
+	public int getHeight();
+
+	/**
+	 * @return Number of frames returned by {@link #next()}
+	 */
+	public long getDeliveredFrames();
+
+	/**
+	 * @return Number of frames the source produced or knew of but never delivered,
+	 * because the consumer was too slow or the frames were missing
+	 */
+	public long getDroppedFrames();
+}
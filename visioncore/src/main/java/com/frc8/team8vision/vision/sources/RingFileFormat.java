@@ -0,0 +1,49 @@
+package com.frc8.team8vision.vision.sources;
+
+/**
+ * Layout of the ring file raw preview frames are recorded to.
+ *
+ * All values are little endian. The file is a {@link #FILE_HEADER_BYTES} header followed
+ * by {@code slotCount} slots, each of which is a {@link #FRAME_HEADER_BYTES} frame header
+ * and {@code frameBytes} of NV21 data. Frame {@code seq} is stored in slot
+ * {@code seq % slotCount}; a slot whose sequence is -1 is empty or being rewritten.
+ */
+public final class RingFileFormat {
+
+	public static final int
+		MAGIC = 0x38524543, // "8REC"
+		VERSION = 1,
+		FILE_HEADER_BYTES = 64,
+		FRAME_HEADER_BYTES = 64;
+
+	// File header offsets
+	public static final int
+		HDR_MAGIC = 0,
+		HDR_VERSION = 4,
+		HDR_WIDTH = 8,
+		HDR_HEIGHT = 12,
+		HDR_FRAME_BYTES = 16,
+		HDR_SLOT_COUNT = 20,
+		HDR_LAST_SEQUENCE = 24,
+		HDR_FRAMES_WRITTEN = 32;
+
+	// Frame header offsets, relative to the start of a slot
+	public static final int
+		FRM_SEQUENCE = 0,
+		FRM_TIMESTAMP_NS = 8,
+		FRM_LENGTH = 16,
+		FRM_FLAGS = 20,
+		FRM_PROCESSOR = 21,
+		FRM_X_SHIFT = 24,
+		FRM_Z_SHIFT = 28,
+		FRM_SLIDERS = 32;
+
+	// Bits of the frame header flags byte
+	public static final int
+		FLAG_TRACKING_LEFT = 1,
+		FLAG_DYNAMIC_TRACKING = 1 << 1,
+		FLAG_TUNING_MODE = 1 << 2,
+		FLAG_FLASHLIGHT_ON = 1 << 3;
+
+	private RingFileFormat() {}
+}
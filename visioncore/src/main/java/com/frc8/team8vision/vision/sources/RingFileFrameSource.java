@@ -0,0 +1,193 @@
+package com.frc8.team8vision.vision.sources;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+import static com.frc8.team8vision.vision.sources.RingFileFormat.*;
+
+/**
+ * Replays the NV21 frames of a ring file written by the frame recorder, oldest first.
+ *
+ * Frames the recorder had to drop show up as gaps in the sequence numbers and are
+ * counted as dropped here, as are frames skipped because a paced replay fell behind.
+ */
+public class RingFileFrameSource extends AbstractFrameSource {
+
+	private final File mFile;
+	private final int mPoolSize;
+
+	private RandomAccessFile mRandomAccessFile;
+	private MappedByteBuffer mMap;
+	private int mWidth, mHeight, mFrameBytes, mSlotBytes;
+
+	// Slot offsets and their sequence numbers and capture times, in sequence order
+	private int[] mSlots;
+	private long[] mSequences, mTimestamps;
+	private int mNext = 0;
+
+	private final ArrayDeque<Frame> mFree = new ArrayDeque<>();
+	private final ArrayList<Frame> mFrames = new ArrayList<>();
+	private volatile boolean mRunning = false;
+
+	/**
+	 * @param file Ring file to replay
+	 * @param paced Whether to replay at the recorded rate instead of as fast as possible
+	 * @param poolSize Number of frames the consumer may hold at once
+	 */
+	public RingFileFrameSource(File file, boolean paced, int poolSize) {
+		super(paced);
+		mFile = file;
+		mPoolSize = poolSize;
+	}
+
+	@Override
+	public boolean start() {
+		try {
+			mRandomAccessFile = new RandomAccessFile(mFile, "r");
+			mMap = mRandomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, mRandomAccessFile.length());
+			mMap.order(ByteOrder.LITTLE_ENDIAN);
+		} catch (IOException e) {
+			e.printStackTrace();
+			close();
+			return false;
+		}
+
+		if (mMap.capacity() < FILE_HEADER_BYTES || mMap.getInt(HDR_MAGIC) != MAGIC
+				|| mMap.getInt(HDR_VERSION) != VERSION) {
+			close();
+			return false;
+		}
+
+		mWidth = mMap.getInt(HDR_WIDTH);
+		mHeight = mMap.getInt(HDR_HEIGHT);
+		mFrameBytes = mMap.getInt(HDR_FRAME_BYTES);
+		mSlotBytes = FRAME_HEADER_BYTES + mFrameBytes;
+		final int slotCount = Math.min(mMap.getInt(HDR_SLOT_COUNT),
+				(mMap.capacity() - FILE_HEADER_BYTES) / mSlotBytes);
+
+		// Collect the written slots and sort them by sequence number
+		final ArrayList<Integer> written = new ArrayList<>();
+		for (int i = 0; i < slotCount; i++) {
+			if (sequenceAt(slotOffset(i)) >= 0) written.add(i);
+		}
+		Collections.sort(written, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				final long sa = sequenceAt(slotOffset(a)), sb = sequenceAt(slotOffset(b));
+				return (sa < sb) ? -1 : ((sa == sb) ? 0 : 1);
+			}
+		});
+
+		mSlots = new int[written.size()];
+		mSequences = new long[mSlots.length];
+		mTimestamps = new long[mSlots.length];
+		for (int i = 0; i < mSlots.length; i++) {
+			mSlots[i] = slotOffset(written.get(i));
+			mSequences[i] = sequenceAt(mSlots[i]);
+			mTimestamps[i] = mMap.getLong(mSlots[i] + FRM_TIMESTAMP_NS);
+		}
+		mNext = 0;
+
+		for (int i = 0; i < mPoolSize; i++) {
+			final Frame frame = new Frame(mWidth, mHeight, Frame.FORMAT_NV21, true);
+			mFrames.add(frame);
+			mFree.add(frame);
+		}
+		mRunning = true;
+		return true;
+	}
+
+	@Override
+	public Frame next() throws InterruptedException {
+		while (mRunning && mNext < mSlots.length) {
+			final int idx = mNext++;
+
+			// Account for frames the recorder dropped before this one
+			final long previous = (idx == 0) ? mSequences[0] - 1 : mSequences[idx-1];
+			if (mSequences[idx] - previous > 1) onDropped(mSequences[idx] - previous - 1);
+
+			if (idx + 1 < mSlots.length && isDue(mTimestamps[idx+1])) {
+				onDropped(1);
+				continue;
+			}
+
+			final Frame frame;
+			synchronized (mFree) {
+				frame = mFree.poll();
+			}
+			if (frame == null) throw new IllegalStateException("All " + mPoolSize + " frames are in use");
+
+			awaitCapture(mTimestamps[idx]);
+
+			final int length = Math.min(mMap.getInt(mSlots[idx] + FRM_LENGTH), frame.buffer().length);
+			mMap.position(mSlots[idx] + FRAME_HEADER_BYTES);
+			mMap.get(frame.buffer(), 0, length);
+			frame.stamp(mSequences[idx], mTimestamps[idx]);
+
+			onDelivered();
+			return frame;
+		}
+		return null;
+	}
+
+	@Override
+	public void release(Frame frame) {
+		synchronized (mFree) {
+			mFree.add(frame);
+		}
+	}
+
+	@Override
+	public void stop() {
+		mRunning = false;
+	}
+
+	@Override
+	public void close() {
+		mRunning = false;
+		for (Frame frame : mFrames) frame.release();
+		mFrames.clear();
+		mFree.clear();
+		mMap = null;
+		if (mRandomAccessFile != null) {
+			try {
+				mRandomAccessFile.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			mRandomAccessFile = null;
+		}
+	}
+
+	private int slotOffset(int slot) {
+		return FILE_HEADER_BYTES + slot*mSlotBytes;
+	}
+
+	private long sequenceAt(int offset) {
+		return mMap.getLong(offset + FRM_SEQUENCE);
+	}
+
+	/**
+	 * @return Number of frames in the file
+	 */
+	public int getFrameCount() {
+		return mSlots == null ? 0 : mSlots.length;
+	}
+
+	@Override
+	public int getWidth() {
+		return mWidth;
+	}
+	@Override
+	public int getHeight() {
+		return mHeight;
+	}
+}
@@ -0,0 +1,110 @@
+package com.frc8.team8vision.vision.sources;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * Produces RGBA frames drawn by a {@link FrameGenerator}, for tests and benchmarks.
+ *
+ * Unpaced sources generate a frame as soon as the consumer asks for one. Paced sources
+ * produce frames at a fixed rate and drop the ones the consumer was too slow for.
+ */
+public class SyntheticFrameSource extends AbstractFrameSource {
+
+	private final int mWidth, mHeight, mPoolSize;
+	private final long mFrameCount, mPeriodNanos;
+	private final FrameGenerator mGenerator;
+
+	private final ArrayDeque<Frame> mFree = new ArrayDeque<>();
+	private final ArrayList<Frame> mFrames = new ArrayList<>();
+	private volatile boolean mRunning = false;
+	private long mSequence = 0;
+
+	/**
+	 * @param width Width of the generated frames
+	 * @param height Height of the generated frames
+	 * @param generator Draws each frame
+	 * @param frameCount Number of frames to produce, or -1 to produce frames until stopped
+	 * @param fps Rate to produce frames at, or 0 to produce them as fast as they are consumed
+	 * @param poolSize Number of frames the consumer may hold at once
+	 */
+	public SyntheticFrameSource(int width, int height, FrameGenerator generator, long frameCount,
+								double fps, int poolSize) {
+		super(fps > 0);
+		mWidth = width;
+		mHeight = height;
+		mGenerator = generator;
+		mFrameCount = frameCount;
+		mPeriodNanos = (fps > 0) ? (long)(1e9 / fps) : 0;
+		mPoolSize = poolSize;
+	}
+
+	@Override
+	public boolean start() {
+		for (int i = 0; i < mPoolSize; i++) {
+			final Frame frame = new Frame(mWidth, mHeight, Frame.FORMAT_RGBA, false);
+			mFrames.add(frame);
+			mFree.add(frame);
+		}
+		mSequence = 0;
+		mRunning = true;
+		return true;
+	}
+
+	@Override
+	public Frame next() throws InterruptedException {
+		while (mRunning && (mFrameCount < 0 || mSequence < mFrameCount)) {
+			final long sequence = mSequence++;
+			final long capture = sequence * mPeriodNanos;
+
+			final boolean last = mFrameCount >= 0 && sequence + 1 >= mFrameCount;
+			if (!last && isDue(capture + mPeriodNanos)) {
+				onDropped(1);
+				continue;
+			}
+
+			final Frame frame;
+			synchronized (mFree) {
+				frame = mFree.poll();
+			}
+			if (frame == null) throw new IllegalStateException("All " + mPoolSize + " frames are in use");
+
+			awaitCapture(capture);
+			mGenerator.generate(sequence, frame.mat());
+			frame.stamp(sequence, isPaced() ? capture : System.nanoTime());
+
+			onDelivered();
+			return frame;
+		}
+		return null;
+	}
+
+	@Override
+	public void release(Frame frame) {
+		synchronized (mFree) {
+			mFree.add(frame);
+		}
+	}
+
+	@Override
+	public void stop() {
+		mRunning = false;
+	}
+
+	@Override
+	public void close() {
+		mRunning = false;
+		for (Frame frame : mFrames) frame.release();
+		mFrames.clear();
+		mFree.clear();
+	}
+
+	@Override
+	public int getWidth() {
+		return mWidth;
+	}
+	@Override
+	public int getHeight() {
+		return mHeight;
+	}
+}
@@ -0,0 +1,243 @@
+package com.frc8.team8vision.vision.sources;
+
+import com.frc8.team8vision.util.Constants;
+import com.frc8.team8vision.vision.CameraParameters;
+
+import org.opencv.calib3d.Calib3d;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.MatOfPoint3f;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Renders the two strips of tape of the peg target at known poses, so the processors can
+ * be checked against ground truth without labelled footage.
+ *
+ * The tape corners from {@link Constants#kLeftSourcePoints} and {@link Constants#kRightSourcePoints}
+ * are projected with the focal lengths and distortion of the given camera. The stored
+ * calibrations leave the principal point at zero, so it is placed at the image center.
+ * Every pose and every noise pattern is derived from the seed and the frame's sequence
+ * number, so {@link #getTruth(long)} can be called for any frame, from any thread.
+ */
+public class TargetFrameGenerator implements FrameGenerator {
+
+	/**
+	 * Pose the target was rendered at, relative to the camera.
+	 */
+	public static class GroundTruth {
+		/**
+		 * Lateral offset and distance of the center of the target, in inches
+		 */
+		public final double x, z;
+		/**
+		 * Rotation of the target about the vertical axis, in degrees
+		 */
+		public final double yaw;
+
+		GroundTruth(double x, double z, double yaw) {
+			this.x = x;
+			this.z = z;
+			this.yaw = yaw;
+		}
+	}
+
+	// Color of the lit tape and of the background, RGBA
+	private static final Scalar kTapeColor = new Scalar(40, 255, 120, 255);
+	private static final int kEdgeMargin = 8, kNoiseOffsets = 64;
+
+	private final int mWidth, mHeight;
+	private final long mSeed;
+	private final double mFocalX, mFocalY;
+	private final Mat mIntrinsics;
+	private final MatOfDouble mDistortion;
+	private final MatOfPoint3f mLeftTape, mRightTape;
+
+	private double mMinDistance = 30, mMaxDistance = 100, mMaxYaw = 25;
+	private double mNoise = 0, mBlur = 0;
+	private int mDistractors = 0, mGlares = 0, mDecoys = 0;
+
+	// Reused between frames; only touched by the thread drawing frames
+	private final Mat mNoiseTexture = new Mat(), mNoMask = new Mat();
+	private final MatOfDouble mRvec = new MatOfDouble(), mTvec = new MatOfDouble();
+	private final MatOfPoint2f mProjected = new MatOfPoint2f();
+	private final ArrayList<MatOfPoint> mPolygons = new ArrayList<>();
+
+	/**
+	 * @param width Width of the frames
+	 * @param height Height of the frames
+	 * @param camera Camera whose focal lengths and distortion are used to render the target
+	 * @param seed Seed for the poses and noise
+	 */
+	public TargetFrameGenerator(int width, int height, CameraParameters camera, long seed) {
+		mWidth = width;
+		mHeight = height;
+		mSeed = seed;
+		mFocalX = camera.IntrinsicMatrix().get(0, 0)[0];
+		mFocalY = camera.IntrinsicMatrix().get(1, 1)[0];
+
+		mIntrinsics = new Mat(3, 3, CvType.CV_64F);
+		mIntrinsics.put(0, 0,
+				mFocalX, 0,       width/2.0,
+				0,       mFocalY, height/2.0,
+				0,       0,       1);
+		mDistortion = camera.DistortionCoefficients();
+
+		mLeftTape = new MatOfPoint3f(Constants.kLeftSourcePoints);
+		mRightTape = new MatOfPoint3f(Constants.kRightSourcePoints);
+		mPolygons.add(new MatOfPoint());
+		mPolygons.add(new MatOfPoint());
+	}
+
+	/**
+	 * Sets the range of distances and yaw angles targets are rendered at.
+	 */
+	public void setPoseRange(double minDistance, double maxDistance, double maxYaw) {
+		mMinDistance = minDistance;
+		mMaxDistance = maxDistance;
+		mMaxYaw = maxYaw;
+	}
+
+	/**
+	 * @param noise Standard deviation of the per-pixel noise
+	 * @param blur Standard deviation of the Gaussian blur, or 0 for sharp edges
+	 * @param distractors Number of small reflections of the tape color added to each frame
+	 */
+	public void setDegradation(double noise, double blur, int distractors) {
+		mNoise = noise;
+		mNoiseTexture.release();
+		mBlur = blur;
+		mDistractors = distractors;
+	}
+
+	/**
+	 * @param glares Number of lights bigger than the tape added to each frame
+	 */
+	public void setGlares(int glares) {
+		mGlares = glares;
+	}
+
+	/**
+	 * @param decoys Number of single strips shaped like the tape but taller, added to each
+	 *               frame. They pass every check on a single contour, so only pairing by
+	 *               how the two strips of the target relate tells them apart.
+	 */
+	public void setDecoys(int decoys) {
+		mDecoys = decoys;
+	}
+
+	/**
+	 * @return Pose the target is rendered at in the given frame
+	 */
+	public GroundTruth getTruth(long sequence) {
+		final Random random = random(sequence);
+		final double z = mMinDistance + random.nextDouble() * (mMaxDistance - mMinDistance);
+		final double yaw = (2*random.nextDouble() - 1) * mMaxYaw;
+
+		// Keep the whole target inside the frame
+		final double halfWidth = Constants.kVisionTargetWidth/2;
+		final double reach = Math.max(0, z * (mWidth/2.0 - kEdgeMargin) / mFocalX - halfWidth);
+		final double x = (2*random.nextDouble() - 1) * reach;
+
+		return new GroundTruth(x, z, yaw);
+	}
+
+	@Override
+	public void generate(long sequence, Mat rgba) {
+		final GroundTruth truth = getTruth(sequence);
+		final Random random = random(sequence);
+		// Skip the draws used by getTruth
+		for (int i = 0; i < 3; i++) random.nextDouble();
+
+		final int background = 20 + random.nextInt(40);
+		rgba.setTo(new Scalar(background, background, background, 255));
+
+		// Reflections are drawn first so the tape is never hidden behind one
+		for (int i = 0; i < mDistractors; i++) {
+			final Point center = new Point(random.nextInt(mWidth), random.nextInt(mHeight));
+			final int radius = 1 + random.nextInt(Math.max(2, (int)(mFocalX * Constants.kTapeWidth / truth.z / 3)));
+			Imgproc.circle(rgba, center, radius, kTapeColor, -1);
+		}
+
+		mRvec.fromArray(0, Math.toRadians(truth.yaw), 0);
+		mTvec.fromArray(truth.x, 0, truth.z);
+		projectTape(mLeftTape, 0);
+		projectTape(mRightTape, 1);
+
+		// Glares and decoys are kept clear of the target; one covering the tape just hides it
+		final Rect left = Imgproc.boundingRect(mPolygons.get(0)), right = Imgproc.boundingRect(mPolygons.get(1));
+		final int top = Math.min(left.y, right.y), bottom = Math.max(left.y + left.height, right.y + right.height);
+		final Rect target = new Rect(left.x, top, right.x + right.width - left.x, bottom - top);
+		final int tapeHeight = target.height;
+		for (int i = 0; i < mGlares; i++) {
+			final int radius = tapeHeight/2 + random.nextInt(tapeHeight);
+			for (int attempt = 0; attempt < 10; attempt++) {
+				final Point center = new Point(random.nextInt(mWidth), random.nextInt(mHeight));
+				if (center.x + radius < target.x || center.x - radius > target.x + target.width
+						|| center.y + radius < target.y || center.y - radius > target.y + target.height) {
+					Imgproc.circle(rgba, center, radius, kTapeColor, -1);
+					break;
+				}
+			}
+		}
+		for (int i = 0; i < mDecoys; i++) {
+			final int height = (int)(tapeHeight * (1.2 + 0.6 * random.nextDouble())),
+					width = Math.max(2, (int)(height / (2 + random.nextDouble())));
+			for (int attempt = 0; attempt < 10; attempt++) {
+				final Rect decoy = new Rect(random.nextInt(Math.max(1, mWidth - width)),
+						random.nextInt(Math.max(1, mHeight - height)), width, height);
+				if (decoy.x + decoy.width < target.x - tapeHeight || decoy.x > target.x + target.width + tapeHeight
+						|| decoy.y + decoy.height < target.y || decoy.y > target.y + target.height) {
+					Imgproc.rectangle(rgba, decoy.tl(), decoy.br(), kTapeColor, -1);
+					break;
+				}
+			}
+		}
+		Imgproc.fillPoly(rgba, mPolygons, kTapeColor);
+
+		if (mBlur > 0) {
+			Imgproc.GaussianBlur(rgba, rgba, new Size(0, 0), mBlur);
+		}
+		if (mNoise > 0) {
+			// Drawing fresh noise for every frame costs more than processing it, so a
+			// precomputed noise texture is added at a different offset each frame
+			if (mNoiseTexture.empty()) {
+				mNoiseTexture.create(mHeight + kNoiseOffsets, mWidth + kNoiseOffsets, CvType.CV_16SC4);
+				Core.setRNGSeed((int)mSeed);
+				Core.randn(mNoiseTexture, 0, mNoise);
+			}
+			final int dx = random.nextInt(kNoiseOffsets), dy = random.nextInt(kNoiseOffsets);
+			final Mat noise = mNoiseTexture.submat(dy, dy + mHeight, dx, dx + mWidth);
+			Core.add(rgba, noise, rgba, mNoMask, CvType.CV_8UC4);
+			noise.release();
+		}
+	}
+
+	private void projectTape(MatOfPoint3f tape, int idx) {
+		Calib3d.projectPoints(tape, mRvec, mTvec, mIntrinsics, mDistortion, mProjected);
+		final Point[] p = mProjected.toArray();
+		// Source points are ordered top left, top right, bottom left, bottom right
+		mPolygons.get(idx).fromArray(p[0], p[1], p[3], p[2]);
+	}
+
+	private Random random(long sequence) {
+		return new Random(mSeed * 31 + sequence);
+	}
+
+	public int getWidth() {
+		return mWidth;
+	}
+	public int getHeight() {
+		return mHeight;
+	}
+}
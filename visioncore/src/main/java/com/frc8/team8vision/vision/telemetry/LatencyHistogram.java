@@ -0,0 +1,94 @@
+package com.frc8.team8vision.vision.telemetry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts latencies in logarithmic buckets to report percentiles, striped like a
+ * {@link StripedCounter} so recording never contends.
+ *
+ * Every power of two of microseconds is split into four buckets, so a percentile is
+ * within 25% of the truth from 4 us to beyond a second, which is plenty to tell a 20 ms
+ * stage from a 30 ms one. Latencies are counted since the app started.
+ */
+public final class LatencyHistogram {
+
+	private static final int kSubBuckets = 4, kSubBits = 2;
+	// Up to 2^31 us, over half an hour
+	static final int kBuckets = 31 * kSubBuckets;
+	// Buckets of a stripe, rounded up so stripes never share a cache line
+	private static final int kRow = (kBuckets + StripedCounter.kPadding - 1)
+			/ StripedCounter.kPadding * StripedCounter.kPadding;
+
+	private final AtomicLongArray mCounts = new AtomicLongArray(StripedCounter.kStripes * kRow);
+	private final AtomicLong mMax = new AtomicLong();
+
+	public void record(long nanos) {
+		mCounts.getAndIncrement(StripedCounter.stripe() * kRow + bucket(nanos / 1000));
+		// Only contends while the maximum is still climbing
+		long max = mMax.get();
+		while (nanos > max && !mMax.compareAndSet(max, nanos)) max = mMax.get();
+	}
+
+	/**
+	 * @return Latencies recorded for each bucket, summed over the stripes
+	 */
+	long[] counts() {
+		final long[] counts = new long[kBuckets];
+		for (int stripe = 0; stripe < StripedCounter.kStripes; stripe++) {
+			for (int i = 0; i < kBuckets; i++) counts[i] += mCounts.get(stripe * kRow + i);
+		}
+		return counts;
+	}
+
+	/**
+	 * Reads the histogram once for several percentiles.
+	 *
+	 * @param quantiles Fractions of the latencies, e.g. 0.99, in increasing order
+	 * @param nanos Receives the latency each fraction of the latencies stayed under, or 0
+	 *              if none were recorded
+	 * @return Number of latencies recorded
+	 */
+	public long percentiles(double[] quantiles, long[] nanos) {
+		final long[] counts = counts();
+		long total = 0;
+		for (long count : counts) total += count;
+
+		long seen = 0;
+		int bucket = 0;
+		for (int q = 0; q < quantiles.length; q++) {
+			if (total == 0) {
+				nanos[q] = 0;
+				continue;
+			}
+			final long rank = Math.max(1, (long)Math.ceil(quantiles[q] * total));
+			while (seen + counts[bucket] < rank) seen += counts[bucket++];
+			// The bucket's upper bound, but never beyond the slowest latency seen
+			nanos[q] = Math.min(lowerBound(bucket + 1) * 1000, getMaxNanos());
+		}
+		return total;
+	}
+
+	public long getMaxNanos() {
+		return mMax.get();
+	}
+
+	/**
+	 * @return Bucket of a latency, the first four microseconds one each
+	 */
+	static int bucket(long micros) {
+		if (micros < kSubBuckets) return (int)Math.max(0, micros);
+		final int msb = 63 - Long.numberOfLeadingZeros(micros);
+		final int bucket = (msb - kSubBits + 1) * kSubBuckets + (int)((micros >>> (msb - kSubBits)) & (kSubBuckets - 1));
+		return Math.min(bucket, kBuckets - 1);
+	}
+
+	/**
+	 * @return Smallest latency in microseconds that falls in a bucket
+	 */
+	static long lowerBound(int bucket) {
+		if (bucket < kSubBuckets) return bucket;
+		final int msb = bucket / kSubBuckets + kSubBits - 1;
+		return (long)(kSubBuckets + bucket % kSubBuckets) << (msb - kSubBits);
+	}
+}
@@ -0,0 +1,47 @@
+package com.frc8.team8vision.vision.telemetry;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter threads can add to without contending with each other: each thread adds to
+ * one of several stripes, picked by its id and kept a cache line apart, and reading the
+ * counter sums them. Reads are not atomic with respect to adds in progress, which is fine
+ * for telemetry.
+ */
+public final class StripedCounter {
+
+	// Longs between stripes, so two stripes never share a 64 byte cache line
+	static final int kPadding = 8;
+	static final int kStripes = stripes();
+
+	private final AtomicLongArray mStripes = new AtomicLongArray(kStripes * kPadding);
+
+	public void increment() {
+		add(1);
+	}
+
+	public void add(long delta) {
+		mStripes.getAndAdd(stripe() * kPadding, delta);
+	}
+
+	public long sum() {
+		long sum = 0;
+		for (int i = 0; i < kStripes; i++) sum += mStripes.get(i * kPadding);
+		return sum;
+	}
+
+	/**
+	 * @return The calling thread's stripe, below {@link #kStripes}
+	 */
+	static int stripe() {
+		final long id = Thread.currentThread().getId();
+		return (int)(id ^ (id >>> 32)) & (kStripes - 1);
+	}
+
+	/**
+	 * @return A power of two of at least twice the number of cores
+	 */
+	private static int stripes() {
+		return Integer.highestOneBit(Math.max(1, 2 * Runtime.getRuntime().availableProcessors() - 1)) << 1;
+	}
+}
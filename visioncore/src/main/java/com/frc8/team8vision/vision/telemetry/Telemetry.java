@@ -0,0 +1,197 @@
+package com.frc8.team8vision.vision.telemetry;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of the whole app, referenced in a static context like {@link
+ * com.frc8.team8vision.vision.VisionInfoData} so any thread can record to them.
+ *
+ * Metrics are named by dotted paths, e.g. "transport.VideoSocketClient.bytes", which
+ * {@link #toJson()} nests into objects. Look a metric up once and keep it; recording to
+ * counters and latencies is contention free, while gauges are simply overwritten.
+ */
+public final class Telemetry {
+
+	public static final String
+			kDropped = "dropped.",
+			kLatency = "latency.",
+			kTransport = "transport.",
+			kMemory = "memory.",
+			kScheduler = "scheduler.",
+			kShadow = "shadow.",
+			kPipeline = "pipeline.";
+
+	// Written at the head of every binary snapshot
+	public static final int kBinaryMagic = 0x54454C45, kBinaryVersion = 1;
+
+	// Percentiles reported for every latency
+	private static final double[] kQuantiles = {0.5, 0.9, 0.99};
+	private static final String[] kQuantileNames = {"p50", "p90", "p99"};
+
+	private static final ConcurrentHashMap<String, StripedCounter> kCounters = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<String, AtomicLong> kGauges = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<String, LatencyHistogram> kLatencies = new ConcurrentHashMap<>();
+
+	private static final long kStart = System.nanoTime();
+	private static final StripedCounter kFrames = counter("frames");
+	// Camera rate over the last second, only written by the thread calling onFrame
+	private static volatile double sFps = 0;
+	private static long sFpsWindowStart = -1, sFpsWindowFrames = 0;
+
+	private Telemetry() {}
+
+	public static StripedCounter counter(String name) {
+		StripedCounter counter = kCounters.get(name);
+		if (counter == null) {
+			final StripedCounter created = new StripedCounter();
+			counter = kCounters.putIfAbsent(name, created);
+			if (counter == null) counter = created;
+		}
+		return counter;
+	}
+
+	/**
+	 * @return A value that is set rather than added to, like the heap in use
+	 */
+	public static AtomicLong gauge(String name) {
+		AtomicLong gauge = kGauges.get(name);
+		if (gauge == null) {
+			final AtomicLong created = new AtomicLong();
+			gauge = kGauges.putIfAbsent(name, created);
+			if (gauge == null) gauge = created;
+		}
+		return gauge;
+	}
+
+	/**
+	 * @param stage Name of the stage, without the {@link #kLatency} prefix
+	 */
+	public static LatencyHistogram latency(String stage) {
+		final String name = kLatency + stage;
+		LatencyHistogram latency = kLatencies.get(name);
+		if (latency == null) {
+			final LatencyHistogram created = new LatencyHistogram();
+			latency = kLatencies.putIfAbsent(name, created);
+			if (latency == null) latency = created;
+		}
+		return latency;
+	}
+
+	/**
+	 * Counts a camera frame reaching the pipeline. Call it from one thread only.
+	 */
+	public static void onFrame() {
+		kFrames.increment();
+		final long now = System.nanoTime();
+		if (sFpsWindowStart < 0) sFpsWindowStart = now;
+		sFpsWindowFrames++;
+		if (now - sFpsWindowStart >= 1000000000L) {
+			sFps = sFpsWindowFrames * 1e9 / (now - sFpsWindowStart);
+			sFpsWindowStart = now;
+			sFpsWindowFrames = 0;
+		}
+	}
+
+	public static double getFps() {
+		return sFps;
+	}
+
+	/**
+	 * Every metric as of now, with latencies in milliseconds.
+	 */
+	public static JSONObject toJson() throws JSONException {
+		updateHeap();
+		final JSONObject json = new JSONObject();
+		json.put("uptimeMs", (System.nanoTime() - kStart) / 1000000);
+		json.put("fps", getFps());
+		for (Map.Entry<String, StripedCounter> entry : sorted(kCounters).entrySet()) {
+			put(json, entry.getKey(), entry.getValue().sum());
+		}
+		for (Map.Entry<String, AtomicLong> entry : sorted(kGauges).entrySet()) {
+			put(json, entry.getKey(), entry.getValue().get());
+		}
+
+		final long[] nanos = new long[kQuantiles.length];
+		for (Map.Entry<String, LatencyHistogram> entry : sorted(kLatencies).entrySet()) {
+			final JSONObject stage = new JSONObject();
+			stage.put("count", entry.getValue().percentiles(kQuantiles, nanos));
+			for (int i = 0; i < nanos.length; i++) stage.put(kQuantileNames[i] + "Ms", nanos[i] / 1e6);
+			stage.put("maxMs", entry.getValue().getMaxNanos() / 1e6);
+			put(json, entry.getKey(), stage);
+		}
+		return json;
+	}
+
+	/**
+	 * Writes every metric as of now in a compact binary form:
+	 * <pre>
+	 * int magic, byte version, long uptime in ms, float fps,
+	 * short count, then per counter and gauge: UTF name, long value,
+	 * short count, then per latency: UTF name, long count, int p50, p90, p99 and max in us
+	 * </pre>
+	 */
+	public static void writeBinary(DataOutputStream out) throws IOException {
+		updateHeap();
+		out.writeInt(kBinaryMagic);
+		out.writeByte(kBinaryVersion);
+		out.writeLong((System.nanoTime() - kStart) / 1000000);
+		out.writeFloat((float)getFps());
+
+		final Map<String, StripedCounter> counters = sorted(kCounters);
+		final Map<String, AtomicLong> gauges = sorted(kGauges);
+		out.writeShort(counters.size() + gauges.size());
+		for (Map.Entry<String, StripedCounter> entry : counters.entrySet()) {
+			out.writeUTF(entry.getKey());
+			out.writeLong(entry.getValue().sum());
+		}
+		for (Map.Entry<String, AtomicLong> entry : gauges.entrySet()) {
+			out.writeUTF(entry.getKey());
+			out.writeLong(entry.getValue().get());
+		}
+
+		final Map<String, LatencyHistogram> latencies = sorted(kLatencies);
+		final long[] nanos = new long[kQuantiles.length];
+		out.writeShort(latencies.size());
+		for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+			out.writeUTF(entry.getKey());
+			out.writeLong(entry.getValue().percentiles(kQuantiles, nanos));
+			for (long quantile : nanos) out.writeInt((int)Math.min(Integer.MAX_VALUE, quantile / 1000));
+			out.writeInt((int)Math.min(Integer.MAX_VALUE, entry.getValue().getMaxNanos() / 1000));
+		}
+		out.flush();
+	}
+
+	private static void updateHeap() {
+		final Runtime runtime = Runtime.getRuntime();
+		gauge(kMemory + "heapUsedBytes").set(runtime.totalMemory() - runtime.freeMemory());
+		gauge(kMemory + "heapMaxBytes").set(runtime.maxMemory());
+	}
+
+	/**
+	 * Puts a value at a dotted path, creating the objects along it.
+	 */
+	private static void put(JSONObject json, String name, Object value) throws JSONException {
+		final String[] path = name.split("\\.");
+		for (int i = 0; i < path.length - 1; i++) {
+			JSONObject child = json.optJSONObject(path[i]);
+			if (child == null) {
+				child = new JSONObject();
+				json.put(path[i], child);
+			}
+			json = child;
+		}
+		json.put(path[path.length - 1], value);
+	}
+
+	private static <T> Map<String, T> sorted(Map<String, T> metrics) {
+		return new TreeMap<>(metrics);
+	}
+}
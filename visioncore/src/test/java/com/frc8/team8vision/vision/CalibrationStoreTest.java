@@ -0,0 +1,217 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.util.Constants;
+import com.frc8.team8vision.util.DeviceProfile;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opencv.calib3d.Calib3d;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.MatOfPoint3f;
+import org.opencv.core.Point;
+import org.opencv.core.Point3;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that calibrations are turned and scaled with the frames, that the store picks and
+ * keeps the right one, and that the chessboard calibrator recovers a known camera.
+ */
+public class CalibrationStoreTest {
+
+	private static final FrameOrientation[] kOrientations = {FrameOrientation.UPRIGHT, FrameOrientation.CLOCKWISE_90,
+			FrameOrientation.CLOCKWISE_180, FrameOrientation.CLOCKWISE_270};
+
+	// A sensor with every coefficient set, so a wrong turn shows
+	private static final CameraCalibration kSensor = new CameraCalibration("Test", 640, 360,
+			new double[] {510, 0, 330, 0, 505, 170, 0, 0, 1}, new double[] {0.1, -0.3, 0.004, -0.002}, 0.2);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@BeforeClass
+	public static void loadOpenCV() {
+		nu.pattern.OpenCV.loadLocally();
+	}
+
+	@Test
+	public void turnsWithTheFrame() {
+		final MatOfPoint3f points = new MatOfPoint3f(new Point3(-3, 2, 10), new Point3(4, -1, 8), new Point3(0.5, 0.5, 12));
+		final Point[] sensor = project(kSensor, points.toArray());
+
+		for (FrameOrientation orientation : kOrientations) {
+			final CameraCalibration upright = kSensor.turned(orientation);
+			assertEquals(orientation.isSideways() ? 360 : 640, upright.getWidth());
+
+			// The same points seen by the camera turned upright land where the sensor's pixels are turned to
+			final int e = orientation.toUprightX(0, 0, 640, 360), f = orientation.toUprightY(0, 0, 640, 360);
+			final int a = orientation.toUprightX(1, 0, 640, 360) - e, b = orientation.toUprightX(0, 1, 640, 360) - e,
+					c = orientation.toUprightY(1, 0, 640, 360) - f, d = orientation.toUprightY(0, 1, 640, 360) - f;
+			final Point3[] turned = points.toArray();
+			for (Point3 point : turned) {
+				final double x = point.x, y = point.y;
+				point.x = a*x + b*y;
+				point.y = c*x + d*y;
+			}
+			final Point[] projected = project(upright, turned);
+			for (int i = 0; i < sensor.length; i++) {
+				assertEquals(orientation.toString(), a*sensor[i].x + b*sensor[i].y + e, projected[i].x, 1e-3);
+				assertEquals(orientation.toString(), c*sensor[i].x + d*sensor[i].y + f, projected[i].y, 1e-3);
+			}
+
+			// And turning back gives the sensor's calibration
+			final CameraCalibration back = upright.turned(orientation.inverse());
+			for (int i = 0; i < 9; i++) assertEquals(kSensor.getIntrinsic(i / 3, i % 3), back.getIntrinsic(i / 3, i % 3), 1e-9);
+			assertArrayEquals(kSensor.getDistortion(), back.getDistortion(), 1e-12);
+		}
+	}
+
+	@Test
+	public void picksTheClosestCalibration() throws Exception {
+		final CalibrationStore store = new CalibrationStore(null);
+		assertNull(store.find("Test", 640, 360));
+		store.add(kSensor);
+		store.add(kSensor.scaledTo(1280, 720));
+		store.add(new CameraCalibration("Test", 640, 480, new double[] {600, 0, 320, 0, 600, 240, 0, 0, 1},
+				new double[] {0, 0, 0, 0}, Double.NaN));
+
+		// Exact size
+		assertEquals(600, store.find("Test", 640, 480).getIntrinsic(0, 0), 0);
+		// Largest of the same aspect ratio, scaled
+		final CameraCalibration half = store.find("Test", 480, 270);
+		assertEquals(510 * 0.75, half.getIntrinsic(0, 0), 1e-9);
+		assertEquals(170 * 0.75, half.getIntrinsic(1, 2), 1e-9);
+		// Never stretched to another aspect ratio
+		assertNull(store.find("Test", 320, 320));
+		assertNull(store.getCamera("Test", 320, 320, FrameOrientation.UPRIGHT).IntrinsicMatrix());
+
+		// Cameras are upright and made once per size and orientation
+		final CameraParameters camera = store.getCamera("Test", 640, 360, FrameOrientation.CLOCKWISE_90);
+		assertSame(camera, store.getCamera("Test", 640, 360, FrameOrientation.CLOCKWISE_90));
+		assertEquals(360, camera.Width());
+		assertEquals(640, camera.Height());
+		assertEquals(640, camera.getSensorWidth());
+		assertEquals(505, camera.IntrinsicMatrix().get(0, 0)[0], 0);
+		assertNotSame(camera, store.getCamera("Test", 320, 180, FrameOrientation.CLOCKWISE_90));
+
+		// A new calibration of the device replaces what was made from the old ones
+		store.add(kSensor.scaledTo(320, 180));
+		assertNotSame(camera, store.getCamera("Test", 640, 360, FrameOrientation.CLOCKWISE_90));
+		assertNull(store.getCamera("Other", 640, 360, FrameOrientation.UPRIGHT).IntrinsicMatrix());
+	}
+
+	@Test
+	public void savesAndLoads() throws Exception {
+		final File directory = new File(folder.getRoot(), "calibrations");
+		final File file = new CalibrationStore(directory).save(kSensor);
+		assertEquals("test-640x360.json", file.getName());
+
+		final CalibrationStore store = new CalibrationStore(directory);
+		assertEquals(1, store.load());
+		final CameraCalibration loaded = store.find("Test", 640, 360);
+		for (int i = 0; i < 9; i++) assertEquals(kSensor.getIntrinsic(i / 3, i % 3), loaded.getIntrinsic(i / 3, i % 3), 0);
+		assertArrayEquals(kSensor.getDistortion(), loaded.getDistortion(), 0);
+		assertEquals(0.2, loaded.getError(), 0);
+	}
+
+	@Test
+	public void keepsTheBuiltInCalibrations() {
+		// The app always used the built-in intrinsics on upright frames of 1920/3 by 1080/3
+		for (DeviceProfile device : new DeviceProfile[] {DeviceProfile.NEXUS_5X, DeviceProfile.GALAXY_S4}) {
+			final CalibrationStore store = new CalibrationStore(null);
+			store.add(device.getCalibration());
+			final CameraParameters camera = store.getCamera(device.getName(), Constants.kCalibratedFrameWidth,
+					Constants.kCalibratedFrameHeight, device.getOrientation());
+			final double[][] expected = device == DeviceProfile.NEXUS_5X ?
+					Constants.kNexusIntrinsicMatrix : Constants.kGalaxyIntrinsicMatrix;
+			for (int i = 0; i < 3; i++) {
+				for (int j = 0; j < 3; j++) {
+					assertEquals(device.getName(), expected[i][j], camera.IntrinsicMatrix().get(i, j)[0], 1e-9);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void calibratesFromAChessboard() {
+		final CameraCalibration truth = new CameraCalibration("Board", 640, 360,
+				new double[] {500, 0, 322, 0, 500, 178, 0, 0, 1}, new double[] {0, 0, 0, 0}, Double.NaN);
+		final int columns = 9, rows = 6, square = 40, margin = 40;
+		final Mat board = board(columns, rows, square, margin);
+		final ChessboardCalibrator calibrator = new ChessboardCalibrator("Board", columns, rows);
+		final Mat frame = new Mat();
+
+		final double[][] tilts = {{0, 0}, {0.4, 0}, {-0.4, 0}, {0, 0.4}, {0, -0.4}, {0.3, 0.3}, {-0.3, 0.25}};
+		for (double[] tilt : tilts) {
+			// Corners of the board image, in squares from the first inner corner
+			final double left = -1 - (double)margin / square, top = -1 - (double)margin / square;
+			final double right = columns + (double)margin / square, bottom = rows + (double)margin / square;
+			final Point3[] outline = {new Point3(left, top, 0), new Point3(right, top, 0),
+					new Point3(right, bottom, 0), new Point3(left, bottom, 0)};
+			final Point[] imaged = project(truth, pose(outline, tilt[0], tilt[1], (columns - 1) / 2.0, (rows - 1) / 2.0, 14));
+			final Mat homography = Imgproc.getPerspectiveTransform(
+					new MatOfPoint2f(new Point(0, 0), new Point(board.cols(), 0), new Point(board.cols(), board.rows()),
+							new Point(0, board.rows())), new MatOfPoint2f(imaged));
+			Imgproc.warpPerspective(board, frame, homography, new Size(640, 360), Imgproc.INTER_LINEAR,
+					Core.BORDER_CONSTANT, new Scalar(160));
+			assertTrue(calibrator.offer(frame));
+		}
+
+		assertEquals(tilts.length, calibrator.getViews());
+		final CameraCalibration calibration = calibrator.calibrate();
+		calibrator.release();
+		assertEquals(500, calibration.getIntrinsic(0, 0), 10);
+		assertEquals(500, calibration.getIntrinsic(1, 1), 10);
+		assertEquals(322, calibration.getIntrinsic(0, 2), 5);
+		assertEquals(178, calibration.getIntrinsic(1, 2), 5);
+		assertTrue("error " + calibration.getError(), calibration.getError() < 0.5);
+	}
+
+	private static Point[] project(CameraCalibration calibration, Point3[] points) {
+		final MatOfPoint2f projected = new MatOfPoint2f();
+		Calib3d.projectPoints(new MatOfPoint3f(points), new MatOfDouble(0, 0, 0), new MatOfDouble(0, 0, 0),
+				calibration.newIntrinsicMatrix(), calibration.newDistortionCoefficients(), projected);
+		return projected.toArray();
+	}
+
+	/**
+	 * @return Points of the board tilted about its center, which is put straight ahead
+	 */
+	private static Point3[] pose(Point3[] points, double pitch, double yaw, double cx, double cy, double distance) {
+		final Point3[] posed = new Point3[points.length];
+		for (int i = 0; i < points.length; i++) {
+			double x = points[i].x - cx, y = points[i].y - cy, z = 0;
+			final double y1 = y * Math.cos(pitch) - z * Math.sin(pitch), z1 = y * Math.sin(pitch) + z * Math.cos(pitch);
+			final double x2 = x * Math.cos(yaw) + z1 * Math.sin(yaw), z2 = -x * Math.sin(yaw) + z1 * Math.cos(yaw);
+			posed[i] = new Point3(x2, y1, z2 + distance);
+		}
+		return posed;
+	}
+
+	/**
+	 * @return A chessboard of columns by rows inner corners, with a white margin
+	 */
+	private static Mat board(int columns, int rows, int square, int margin) {
+		final Mat board = new Mat((rows + 1) * square + 2*margin, (columns + 1) * square + 2*margin, CvType.CV_8UC1,
+				new Scalar(255));
+		for (int row = 0; row <= rows; row++) {
+			for (int col = 0; col <= columns; col++) {
+				if ((row + col) % 2 == 1) continue;
+				Imgproc.rectangle(board, new Point(margin + col * square, margin + row * square),
+						new Point(margin + (col + 1) * square - 1, margin + (row + 1) * square - 1), new Scalar(0), -1);
+			}
+		}
+		return board;
+	}
+}
@@ -0,0 +1,83 @@
+package com.frc8.team8vision.vision;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the blobs found by {@link ComponentLabeler} against OpenCV's own labelling.
+ */
+public class ComponentLabelerTest {
+
+	@BeforeClass
+	public static void loadOpenCV() {
+		nu.pattern.OpenCV.loadLocally();
+	}
+
+	@Test
+	public void matchesConnectedComponents() {
+		final Random random = new Random(8);
+		final ComponentLabeler labeler = new ComponentLabeler();
+		final Components components = new Components();
+		final Mat mask = new Mat(240, 320, CvType.CV_8UC1), labels = new Mat(), stats = new Mat(), centroids = new Mat();
+
+		for (int trial = 0; trial < 20; trial++) {
+			// Random speckle plus a few shapes; U shapes and rings join runs from both sides
+			final Mat noise = new Mat(mask.size(), CvType.CV_8UC1);
+			Core.randu(noise, 0, 256);
+			Imgproc.threshold(noise, mask, 230, 255, Imgproc.THRESH_BINARY);
+			noise.release();
+			for (int i = 0; i < 5; i++) {
+				final Point center = new Point(random.nextInt(mask.cols()), random.nextInt(mask.rows()));
+				Imgproc.circle(mask, center, 5 + random.nextInt(30), new Scalar(255), 1 + random.nextInt(4));
+			}
+
+			labeler.label(mask, components);
+			final int count = Imgproc.connectedComponentsWithStats(mask, labels, stats, centroids, 8, CvType.CV_32S) - 1;
+			assertEquals(count, components.size());
+
+			// The blobs may be numbered differently, so compare them sorted
+			final String[] expected = new String[count], actual = new String[count];
+			for (int i = 0; i < count; i++) {
+				final int[] stat = new int[5];
+				stats.get(i + 1, 0, stat);
+				expected[i] = String.format("area %d at %d,%d size %dx%d", stat[Imgproc.CC_STAT_AREA],
+						stat[Imgproc.CC_STAT_LEFT], stat[Imgproc.CC_STAT_TOP], stat[Imgproc.CC_STAT_WIDTH], stat[Imgproc.CC_STAT_HEIGHT]);
+				actual[i] = String.format("area %d at %d,%d size %dx%d", components.getArea(i),
+						components.getX(i), components.getY(i), components.getWidth(i), components.getHeight(i));
+			}
+			Arrays.sort(expected);
+			Arrays.sort(actual);
+			assertArrayEquals(expected, actual);
+		}
+	}
+
+	@Test
+	public void cornersOfTiltedRectangle() {
+		final Mat mask = Mat.zeros(200, 200, CvType.CV_8UC1);
+		final MatOfPoint quad = new MatOfPoint(new Point(60, 40), new Point(70, 150), new Point(110, 160), new Point(100, 30));
+		Imgproc.fillPoly(mask, Arrays.asList(quad), new Scalar(255));
+
+		final Components components = new Components();
+		new ComponentLabeler().label(mask, 5, 7, components);
+		assertEquals(1, components.size());
+
+		// Top left, top right, bottom left, bottom right
+		final int[][] corners = {{60, 40}, {100, 30}, {70, 150}, {110, 160}};
+		for (int c = 0; c < 4; c++) {
+			assertEquals(corners[c][0] + 5, components.getCornerX(0, c), 1);
+			assertEquals(corners[c][1] + 7, components.getCornerY(0, c), 1);
+		}
+	}
+}
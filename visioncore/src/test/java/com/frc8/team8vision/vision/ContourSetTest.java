@@ -0,0 +1,94 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.util.VisionUtil;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that contours exported into a set read back as they were, and that corners
+ * found in a set match the ones found by sorting the points.
+ */
+public class ContourSetTest {
+
+	private static final ArrayList<MatOfPoint> contours = new ArrayList<>();
+
+	@BeforeClass
+	public static void loadOpenCV() {
+		nu.pattern.OpenCV.loadLocally();
+
+		// Blobs of every shape, traced point by point so there are plenty of ties
+		final Mat mask = new Mat(240, 320, CvType.CV_8UC1);
+		Core.randu(mask, 0, 256);
+		Imgproc.threshold(mask, mask, 200, 255, Imgproc.THRESH_BINARY);
+		Imgproc.dilate(mask, mask, Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(3, 3)));
+		Imgproc.findContours(mask, contours, new Mat(), Imgproc.RETR_LIST, Imgproc.CHAIN_APPROX_NONE);
+		assertTrue(contours.size() > 10);
+	}
+
+	@Test
+	public void readsBack() {
+		final ContourSet set = new ContourSet();
+		set.set(contours);
+		assertEquals(contours.size(), set.size());
+		for (int i = 0; i < contours.size(); i++) {
+			final Point[] points = contours.get(i).toArray();
+			assertEquals(points.length, set.getLength(i));
+			for (int j = 0; j < points.length; j++) {
+				assertEquals((int)points[j].x, set.getX(i, j));
+				assertEquals((int)points[j].y, set.getY(i, j));
+			}
+		}
+
+		// Filling it again starts over
+		set.set(contours.subList(0, 1));
+		assertEquals(1, set.size());
+		assertEquals(contours.get(0).total(), set.getLength(0));
+	}
+
+	@Test
+	public void cornersMatchSorting() {
+		final ContourSet set = new ContourSet();
+		set.set(contours);
+		for (int i = 0; i < contours.size(); i++) {
+			final Point[] expected = sortedCorners(contours.get(i));
+			assertArrayEquals("contour " + i, expected, VisionUtil.getCorners(set, i, 0));
+			assertArrayEquals("contour " + i, expected, VisionUtil.getCorners(contours.get(i), 0));
+		}
+	}
+
+	/**
+	 * Corners the way they were found before contour sets, by sorting the points
+	 */
+	private static Point[] sortedCorners(MatOfPoint contour) {
+		Point[] arr = contour.toArray(), corners = new Point[4];
+		Arrays.sort(arr, new Comparator<Point>() {
+			public int compare(Point p1, Point p2) {
+				return (int)((p1.x + p1.y) - (p2.x + p2.y));
+			}
+		});
+		corners[0] = arr[0];
+		corners[3] = arr[arr.length-1];
+		Arrays.sort(arr, new Comparator<Point>() {
+			public int compare(Point p1, Point p2) {
+				return (int)((p1.x - p1.y) - (p2.x - p2.y));
+			}
+		});
+		corners[2] = arr[0];
+		corners[1] = arr[arr.length-1];
+		return corners;
+	}
+}
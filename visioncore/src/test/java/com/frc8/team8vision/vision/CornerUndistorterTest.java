@@ -0,0 +1,183 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.util.Constants;
+import com.frc8.team8vision.util.VisionUtil;
+import com.frc8.team8vision.vision.sources.TargetFrameGenerator;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.calib3d.Calib3d;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.MatOfPoint3f;
+import org.opencv.core.Point;
+import org.opencv.core.Point3;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that undistorting the corners and solving with a pinhole camera finds the same
+ * pose as solving with the distortion model, on the poses of the synthetic target
+ * generator, and reports what each costs. Pass -Dbenchmark.solves=20000 for timings
+ * worth comparing.
+ */
+public class CornerUndistorterTest {
+
+	private static final int kWidth = 1280, kHeight = 720;
+	private static final int kPoses = 200;
+	private static final int kSolves = Integer.getInteger("benchmark.solves", 2000);
+
+	private static CameraParameters nexus, strong;
+
+	@BeforeClass
+	public static void loadOpenCV() {
+		nu.pattern.OpenCV.loadLocally();
+
+		final Mat intrinsics = new Mat(3, 3, CvType.CV_64F);
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				intrinsics.put(i, j, Constants.kNexusIntrinsicMatrix[i][j]);
+			}
+		}
+		nexus = new CameraParameters(kHeight, kWidth, intrinsics, new MatOfDouble(Constants.kNexusDistortionCoefficients));
+
+		// A wide lens, centered, with k3 and the rational terms
+		final Mat wide = new Mat(3, 3, CvType.CV_64F);
+		wide.put(0, 0, 700, 0, 650, 0, 690, 350, 0, 0, 1);
+		strong = new CameraParameters(kHeight, kWidth, wide,
+				new MatOfDouble(-0.3, 0.12, 0.002, -0.003, -0.02, 0.05, 0.01, 0.002));
+	}
+
+	@Test
+	public void uncalibratedCameraHasNoPose() {
+		final CameraParameters uncalibrated = new CameraParameters(kHeight, kWidth, null, null);
+		final Overlay overlay = new Overlay();
+		overlay.reset(false);
+		final MatOfPoint3f model = new MatOfPoint3f(new Point3(0, 0, 0), new Point3(2, 0, 0),
+				new Point3(2, 5, 0), new Point3(0, 5, 0));
+		final Point[] corners = {new Point(600, 300), new Point(640, 300), new Point(640, 400), new Point(600, 400)};
+
+		final Point3 pose = VisionUtil.getPosePnP(model, corners, overlay, uncalibrated);
+		assertTrue(Double.isNaN(pose.x) && Double.isNaN(pose.y) && Double.isNaN(pose.z));
+		model.release();
+	}
+
+	@Test
+	public void invertsTheDistortion() {
+		for (CameraParameters camera : new CameraParameters[] {nexus, strong}) {
+			final Random random = new Random(8);
+			final double fx = camera.IntrinsicMatrix().get(0, 0)[0], fy = camera.IntrinsicMatrix().get(1, 1)[0],
+					cx = camera.IntrinsicMatrix().get(0, 2)[0], cy = camera.IntrinsicMatrix().get(1, 2)[0];
+			final Point3[] rays = new Point3[500];
+			for (int i = 0; i < rays.length; i++) {
+				rays[i] = new Point3((random.nextDouble() * kWidth - cx) / fx, (random.nextDouble() * kHeight - cy) / fy, 1);
+			}
+			final MatOfPoint2f projected = new MatOfPoint2f();
+			Calib3d.projectPoints(new MatOfPoint3f(rays), new MatOfDouble(0, 0, 0), new MatOfDouble(0, 0, 0),
+					camera.IntrinsicMatrix(), camera.DistortionCoefficients(), projected);
+			final Point[] distorted = projected.toArray();
+
+			final float[] ideal = new float[2 * distorted.length];
+			camera.getCornerUndistorter().undistort(distorted, ideal);
+			for (int i = 0; i < rays.length; i++) {
+				assertEquals(rays[i].x * fx + cx, ideal[2*i], 1e-3);
+				assertEquals(rays[i].y * fy + cy, ideal[2*i + 1], 1e-3);
+			}
+		}
+	}
+
+	@Test
+	public void solvesTheSamePose() {
+		final MatOfPoint3f target = new MatOfPoint3f(VisionUtil.concat(Constants.kLeftSourcePoints, Constants.kRightSourcePoints));
+		final Overlay overlay = new Overlay();
+		overlay.reset(false);
+
+		for (CameraParameters camera : new CameraParameters[] {nexus, strong}) {
+			final Point[][] corners = corners(camera, target);
+			final TargetFrameGenerator.GroundTruth[] truth = truth();
+			final MatOfPoint2f image = new MatOfPoint2f();
+			final MatOfDouble rvec = new MatOfDouble(), tvec = new MatOfDouble();
+
+			double worstFull = 0, worstPinhole = 0;
+			for (int i = 0; i < kPoses; i++) {
+				image.fromArray(corners[i]);
+				Calib3d.solvePnP(target, image, camera.IntrinsicMatrix(), camera.DistortionCoefficients(), rvec, tvec);
+				final Point3 pinhole = VisionUtil.getPosePnP(target, corners[i], overlay, camera);
+				final double conv = Constants.kPoseScale;
+				worstFull = Math.max(worstFull, distance(truth[i], tvec.get(0, 0)[0], tvec.get(1, 0)[0], tvec.get(2, 0)[0]));
+				worstPinhole = Math.max(worstPinhole, distance(truth[i], pinhole.x / conv, pinhole.y / conv, pinhole.z / conv));
+			}
+			System.out.println(String.format(Locale.US, "Worst translation error: %.5f in with distortion, %.5f in undistorted",
+					worstFull, worstPinhole));
+			assertTrue("undistorted error " + worstPinhole, worstPinhole < 0.01);
+			assertTrue("undistorted error " + worstPinhole + " against " + worstFull, worstPinhole <= worstFull + 0.005);
+		}
+	}
+
+	@Test
+	public void benchmark() {
+		final MatOfPoint3f target = new MatOfPoint3f(VisionUtil.concat(Constants.kLeftSourcePoints, Constants.kRightSourcePoints));
+		final Point[][] corners = corners(nexus, target);
+		final MatOfPoint2f image = new MatOfPoint2f();
+		final MatOfDouble rvec = new MatOfDouble(), tvec = new MatOfDouble(), none = new MatOfDouble();
+		final float[] ideal = new float[16];
+
+		// Run both once over every pose to warm up, then time them over the same corners
+		double full = 0, pinhole = 0;
+		for (int round = 0; round < 2; round++) {
+			final int solves = round == 0 ? kPoses : kSolves;
+			long start = System.nanoTime();
+			for (int i = 0; i < solves; i++) {
+				image.fromArray(corners[i % kPoses]);
+				Calib3d.solvePnP(target, image, nexus.IntrinsicMatrix(), nexus.DistortionCoefficients(), rvec, tvec);
+			}
+			full = (System.nanoTime() - start) / 1e3 / solves;
+			start = System.nanoTime();
+			for (int i = 0; i < solves; i++) {
+				nexus.getCornerUndistorter().undistort(corners[i % kPoses], ideal);
+				image.alloc(corners[i % kPoses].length);
+				image.put(0, 0, ideal);
+				Calib3d.solvePnP(target, image, nexus.IntrinsicMatrix(), none, rvec, tvec);
+			}
+			pinhole = (System.nanoTime() - start) / 1e3 / solves;
+		}
+		System.out.println(String.format(Locale.US, "Pose from 8 corners: %.1f us with distortion, %.1f us undistorted",
+				full, pinhole));
+	}
+
+	/**
+	 * @return Corners of the target at each of the generator's poses, as the camera sees them
+	 */
+	private static Point[][] corners(CameraParameters camera, MatOfPoint3f target) {
+		final TargetFrameGenerator.GroundTruth[] truth = truth();
+		final Point[][] corners = new Point[kPoses][];
+		final MatOfDouble rvec = new MatOfDouble(), tvec = new MatOfDouble();
+		final MatOfPoint2f projected = new MatOfPoint2f();
+		for (int i = 0; i < kPoses; i++) {
+			rvec.fromArray(0, Math.toRadians(truth[i].yaw), 0);
+			tvec.fromArray(truth[i].x, 0, truth[i].z);
+			Calib3d.projectPoints(target, rvec, tvec, camera.IntrinsicMatrix(), camera.DistortionCoefficients(), projected);
+			corners[i] = projected.toArray();
+		}
+		return corners;
+	}
+
+	/**
+	 * @return The generator's poses, which keep the target in frame for either camera
+	 */
+	private static TargetFrameGenerator.GroundTruth[] truth() {
+		final TargetFrameGenerator generator = new TargetFrameGenerator(kWidth, kHeight, nexus, 8);
+		final TargetFrameGenerator.GroundTruth[] truth = new TargetFrameGenerator.GroundTruth[kPoses];
+		for (int i = 0; i < kPoses; i++) truth[i] = generator.getTruth(i);
+		return truth;
+	}
+
+	private static double distance(TargetFrameGenerator.GroundTruth truth, double x, double y, double z) {
+		return Math.sqrt((truth.x - x)*(truth.x - x) + y*y + (truth.z - z)*(truth.z - z));
+	}
+}
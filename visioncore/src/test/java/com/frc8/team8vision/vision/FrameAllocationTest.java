@@ -0,0 +1,236 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.util.VisionSettings;
+import com.frc8.team8vision.vision.sources.TargetFrameGenerator;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the steady-state frame loop, processing plus publishing the results through
+ * {@link VisionInfoData} to a transport woken by every result and frame, and fails when a frame allocates more Java heap or adds more Mats
+ * to scopes than its budget. A change that brings back boxing, point array copies or JSON
+ * building on every frame shows up here long before it shows up as collector pauses.
+ *
+ * Java allocation is read from the JVM's per-thread counters over every thread, so work
+ * handed to the stripe and pairing workers counts too, even to workers started mid-run.
+ * The counters are read every few hundred frames, so a worker that ends mid-run still
+ * counts up to its last reading. The budgets
+ * are the allocation measured when the test was added plus about 500 bytes, less than a
+ * single Point[] of a contour; lower them as allocation is taken out of the loop. Scoped
+ * Mats are counted exactly. Pass e.g. -Dallocation.frames=10000 for a longer run, or
+ * -Dallocation.bytesPerFrame and -Dallocation.matsPerFrame to try other budgets.
+ */
+public class FrameAllocationTest {
+
+	// The size the app processes at
+	private static final int kWidth = 640, kHeight = 360;
+	private static final int kDistinctFrames = 16, kWarmUpFrames = 200;
+	private static final int kFrames = Integer.getInteger("allocation.frames", 2000);
+	private static final int kSampleFrames = 250;
+
+	private static CameraParameters camera;
+	private static Mat[] frames;
+
+	@BeforeClass
+	public static void loadOpenCV() {
+		nu.pattern.OpenCV.loadLocally();
+
+		camera = TargetFixtures.nexusCamera(kWidth, kHeight);
+
+		// Drawn up front, so the loop only allocates what processing does
+		final TargetFrameGenerator generator = new TargetFrameGenerator(kWidth, kHeight, camera, 8);
+		generator.setPoseRange(40, 140, 25);
+		generator.setDegradation(6, 1.0, 4);
+		frames = new Mat[kDistinctFrames];
+		for (int i = 0; i < frames.length; i++) {
+			frames[i] = new Mat(kHeight, kWidth, CvType.CV_8UC4);
+			generator.generate(i, frames[i]);
+		}
+	}
+
+	@Test
+	public void centroid() {
+		check(ProcessorSelector.ProcessorType.CENTROID, VisionSettings.DetectionScale.FULL,
+				VisionSettings.ContourMethod.FIND_CONTOURS, 3500, 11);
+	}
+
+	@Test
+	public void singleTarget() {
+		check(ProcessorSelector.ProcessorType.SINGLE_TARGET, VisionSettings.DetectionScale.FULL,
+				VisionSettings.ContourMethod.FIND_CONTOURS, 3250, 11);
+	}
+
+	@Test
+	public void doubleTarget() {
+		check(ProcessorSelector.ProcessorType.DOUBLE_TARGET, VisionSettings.DetectionScale.FULL,
+				VisionSettings.ContourMethod.FIND_CONTOURS, 3350, 13);
+	}
+
+	@Test
+	public void projection() {
+		check(ProcessorSelector.ProcessorType.PROJECTION, VisionSettings.DetectionScale.FULL,
+				VisionSettings.ContourMethod.FIND_CONTOURS, 2750, 5);
+	}
+
+	@Test
+	public void coarseToFine() {
+		check(ProcessorSelector.ProcessorType.DOUBLE_TARGET, VisionSettings.DetectionScale.QUARTER,
+				VisionSettings.ContourMethod.FIND_CONTOURS, 4600, 11.5);
+	}
+
+	@Test
+	public void components() {
+		check(ProcessorSelector.ProcessorType.DOUBLE_TARGET, VisionSettings.DetectionScale.FULL,
+				VisionSettings.ContourMethod.COMPONENTS, 2800, 9.25);
+	}
+
+	/**
+	 * @param bytesBudget Java heap a frame may allocate
+	 * @param matsBudget Mats a frame may add to scopes, on average
+	 */
+	private static void check(ProcessorSelector.ProcessorType type, VisionSettings.DetectionScale scale,
+							  VisionSettings.ContourMethod method, long bytesBudget, double matsBudget) {
+		final VisionSettings settings = TargetFixtures.settings("Allocation", type, scale, method);
+		final ProcessorSelector selector = new ProcessorSelector();
+		selector.setProcessor(settings.getProcessorType());
+		final VisionProcessorBase processor = selector.getProcessor();
+		final FrameContext context = new FrameContext(camera, settings);
+		final TrackingState tracking = new TrackingState(settings.isTrackingLeft());
+		final VisionDataUnit<?>[] out = VisionProcessorBase.newOutput();
+		final Overlay overlay = new Overlay();
+
+		// Woken like the app's transports, and as quick as one with nothing to send
+		final VisionScheduler scheduler = new VisionScheduler("Allocation", ThreadTuning.Role.TRANSPORT);
+		final VisionScheduler.Task transport = scheduler.newTask("transport", 0, new Runnable() {
+			@Override
+			public void run() {}
+		});
+		final Runnable wake = new Runnable() {
+			@Override
+			public void run() {
+				transport.wake();
+			}
+		};
+		transport.resume();
+		VisionInfoData.addDataListener(wake);
+		VisionInfoData.addFrameListener(wake);
+		try {
+			measure(settings, processor, context, tracking, out, overlay, bytesBudget, matsBudget);
+		} finally {
+			VisionInfoData.removeDataListener(wake);
+			VisionInfoData.removeFrameListener(wake);
+			scheduler.shutdown();
+		}
+	}
+
+	private static void measure(VisionSettings settings, VisionProcessorBase processor, FrameContext context,
+								TrackingState tracking, VisionDataUnit<?>[] out, Overlay overlay,
+								long bytesBudget, double matsBudget) {
+		// Lets thread locals, pools and the JIT settle
+		for (int i = 0; i < kWarmUpFrames; i++) frame(processor, i, overlay, context, tracking, out);
+
+		final AllocationMeter meter = new AllocationMeter();
+		final long overhead = meter.overhead();
+		final long mats = MatScope.getAddedMats();
+		meter.sample();
+		for (int i = 0; i < kFrames; i++) {
+			frame(processor, i, overlay, context, tracking, out);
+			if (i % kSampleFrames == kSampleFrames - 1) meter.sample();
+		}
+		meter.sample();
+		final double bytesPerFrame = (double)(meter.allocated() - (meter.getSamples() - 1) * overhead) / kFrames,
+				matsPerFrame = (double)(MatScope.getAddedMats() - mats) / kFrames;
+
+		final String name = String.format(Locale.US, "%-14s %-7s %-13s", settings.getProcessorType(),
+				settings.getDetectionScale(), settings.getContourMethod());
+		System.out.println(String.format(Locale.US, "%s: %8.1f bytes and %5.2f scoped Mats per frame",
+				name, bytesPerFrame, matsPerFrame));
+		final long bytesLimit = Long.getLong("allocation.bytesPerFrame", bytesBudget);
+		final double matsLimit = Double.parseDouble(System.getProperty("allocation.matsPerFrame", "" + matsBudget));
+		assertTrue(name + " allocated " + bytesPerFrame + " bytes per frame", bytesPerFrame <= bytesLimit);
+		assertTrue(name + " added " + matsPerFrame + " Mats per frame", matsPerFrame <= matsLimit);
+	}
+
+	/**
+	 * One turn of the frame loop: processing, then what the camera thread publishes.
+	 */
+	private static void frame(VisionProcessorBase processor, int i, Overlay overlay, FrameContext context,
+							  TrackingState tracking, VisionDataUnit<?>[] out) {
+		final Mat input = frames[i % frames.length];
+		overlay.reset(false);
+		processor.process(input, overlay, context, tracking, out);
+		VisionInfoData.setDistances(VisionProcessorBase.xDist(out), VisionProcessorBase.zDist(out));
+		VisionInfoData.setFrame(input);
+	}
+
+	/**
+	 * Adds up the Java heap allocated between its first and last samples by every thread of
+	 * the JVM. A thread first seen after the first sample counts from when it started; one
+	 * that has ended counts up to the last sample it was alive for.
+	 */
+	private static class AllocationMeter {
+
+		private final com.sun.management.ThreadMXBean mThreads =
+				(com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		// Bytes each thread had allocated when first and last seen, by thread id
+		private final Map<Long, long[]> mSeen = new HashMap<>();
+		private int mSamples = 0;
+
+		/**
+		 * Reads the counters of every thread alive.
+		 */
+		void sample() {
+			final long[] ids = mThreads.getAllThreadIds();
+			final long[] bytes = mThreads.getThreadAllocatedBytes(ids);
+			for (int i = 0; i < ids.length; i++) {
+				// Threads that ended since they were listed report -1
+				if (bytes[i] < 0) continue;
+				final long[] seen = mSeen.get(ids[i]);
+				if (seen == null) mSeen.put(ids[i], new long[] {mSamples == 0 ? bytes[i] : 0, bytes[i]});
+				else seen[1] = bytes[i];
+			}
+			mSamples++;
+		}
+
+		int getSamples() {
+			return mSamples;
+		}
+
+		/**
+		 * @return Bytes allocated between the first and the last sample
+		 */
+		long allocated() {
+			long total = 0;
+			for (long[] seen : mSeen.values()) total += seen[1] - seen[0];
+			return total;
+		}
+
+		/**
+		 * Samples on a meter of its own, leaving this one untouched.
+		 *
+		 * @return Bytes a sample allocates on the calling thread, the least of a few tries
+		 */
+		long overhead() {
+			final AllocationMeter meter = new AllocationMeter();
+			meter.sample();
+			final long thread = Thread.currentThread().getId();
+			long least = Long.MAX_VALUE;
+			for (int i = 0; i < 5; i++) {
+				final long before = mThreads.getThreadAllocatedBytes(thread);
+				meter.sample();
+				least = Math.min(least, mThreads.getThreadAllocatedBytes(thread) - before);
+			}
+			return least;
+		}
+	}
+}
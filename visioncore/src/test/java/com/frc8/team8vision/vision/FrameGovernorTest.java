@@ -0,0 +1,106 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.util.VisionSettings;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives the governor with made up stage latencies against a budget of 10 ms.
+ */
+public class FrameGovernorTest {
+
+	private static final long kBudget = 10000000L;
+	private static final int kWindow = 5;
+
+	private static FrameGovernor governor() {
+		return new FrameGovernor(kBudget, kWindow, 0.6, 3, "track", "display");
+	}
+
+	/**
+	 * Runs a whole window of frames taking the given time in each stage.
+	 *
+	 * @return Whether the mode changed at the end of the window
+	 */
+	private static boolean window(FrameGovernor governor, double trackMs, double displayMs) {
+		boolean changed = false;
+		for (int i = 0; i < kWindow; i++) {
+			governor.record(0, (long)(trackMs * 1e6));
+			governor.record(1, (long)(displayMs * 1e6));
+			changed = governor.endFrame();
+			if (i < kWindow - 1) assertFalse(changed);
+		}
+		return changed;
+	}
+
+	@Test
+	public void stepsDownWhenOverBudget() {
+		final FrameGovernor governor = governor();
+		assertFalse(window(governor, 6, 3));
+		assertEquals(FrameGovernor.Mode.NOMINAL, governor.getMode());
+
+		assertTrue(window(governor, 9, 3));
+		assertEquals(FrameGovernor.Mode.DECIMATED_PREVIEW, governor.getMode());
+		assertTrue(governor.getReason(), governor.getReason().startsWith(
+				"NOMINAL -> DECIMATED_PREVIEW: 12.0 ms per frame against a 10.0 ms budget over 5 frames"));
+		assertTrue(governor.getReason(), governor.getReason().endsWith("(track 9.0 ms, display 3.0 ms)"));
+
+		// Keeps stepping down while it stays over, and stops at the cheapest mode
+		for (int i = 0; i < 10; i++) window(governor, 20, 5);
+		assertEquals(FrameGovernor.Mode.HEADLESS, governor.getMode());
+		assertFalse(window(governor, 20, 5));
+	}
+
+	@Test
+	public void holdsBetweenRecoveryAndBudget() {
+		final FrameGovernor governor = governor();
+		window(governor, 11, 0);
+		assertEquals(FrameGovernor.Mode.DECIMATED_PREVIEW, governor.getMode());
+
+		// Under the budget but not well under it: no flapping back up
+		for (int i = 0; i < 20; i++) assertFalse(window(governor, 8, 1));
+		assertEquals(FrameGovernor.Mode.DECIMATED_PREVIEW, governor.getMode());
+	}
+
+	@Test
+	public void recoversAfterSustainedHeadroom() {
+		final FrameGovernor governor = governor();
+		window(governor, 11, 0);
+		window(governor, 11, 0);
+		assertEquals(FrameGovernor.Mode.HALF_SCALE, governor.getMode());
+
+		// A window that is not well under the budget starts the count over
+		assertFalse(window(governor, 3, 1));
+		assertFalse(window(governor, 3, 1));
+		assertFalse(window(governor, 7, 1));
+		assertFalse(window(governor, 3, 1));
+		assertFalse(window(governor, 3, 1));
+		assertTrue(window(governor, 3, 1));
+		assertEquals(FrameGovernor.Mode.DECIMATED_PREVIEW, governor.getMode());
+		assertTrue(governor.getReason(), governor.getReason().startsWith("HALF_SCALE -> DECIMATED_PREVIEW: 4.0 ms"));
+
+		// The count starts over in the new mode too
+		assertFalse(window(governor, 3, 1));
+		assertFalse(window(governor, 3, 1));
+		assertTrue(window(governor, 3, 1));
+		assertEquals(FrameGovernor.Mode.NOMINAL, governor.getMode());
+	}
+
+	@Test
+	public void neverRefinesSettings() {
+		final VisionSettings settings = VisionSettings.DEFAULT;
+		assertSame(settings, FrameGovernor.Mode.NOMINAL.apply(settings));
+
+		final VisionSettings half = FrameGovernor.Mode.HALF_SCALE.apply(settings);
+		assertEquals(VisionSettings.DetectionScale.HALF, half.getDetectionScale());
+		assertEquals(VisionSettings.PreviewMode.DECIMATED, half.getPreviewMode());
+
+		// Coarser settings than the mode asks for are kept
+		final VisionSettings coarse = settings.withDetectionScale(VisionSettings.DetectionScale.QUARTER)
+				.withPreviewMode(VisionSettings.PreviewMode.HEADLESS);
+		for (FrameGovernor.Mode mode : FrameGovernor.Mode.values()) {
+			assertSame(coarse, mode.apply(coarse));
+		}
+	}
+}
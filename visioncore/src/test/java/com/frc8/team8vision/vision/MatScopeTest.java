@@ -0,0 +1,79 @@
+package com.frc8.team8vision.vision;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that scopes release what was added to them, and that the leak check points at
+ * the line adding Mats to scopes that are never released.
+ */
+public class MatScopeTest {
+
+	@BeforeClass
+	public static void loadOpenCV() {
+		nu.pattern.OpenCV.loadLocally();
+	}
+
+	@After
+	public void stopLeakCheck() {
+		MatScope.setLeakCheck(0);
+	}
+
+	@Test
+	public void releasesOnClose() {
+		final Mat kept;
+		final Mat[] released = new Mat[3];
+		try (MatScope scope = new MatScope()) {
+			released[0] = scope.add(new Mat(4, 4, CvType.CV_8UC1));
+			released[1] = scope.addAll(new MatOfPoint[] {new MatOfPoint(new Point(1, 2))})[0];
+			final ArrayList<Mat> list = new ArrayList<>();
+			list.add(new Mat(2, 2, CvType.CV_64F));
+			scope.addAll(list);
+			released[2] = list.get(0);
+			kept = scope.keep(scope.add(new Mat(3, 3, CvType.CV_8UC1)));
+		}
+		for (Mat mat : released) assertTrue(mat.empty());
+		assertFalse(kept.empty());
+		MatScope.release(kept);
+		assertTrue(kept.empty());
+	}
+
+	@Test
+	public void reportsGrowingSites() {
+		MatScope.setLeakCheck(2);
+		final MatScope frameScope = new MatScope();
+		final ArrayList<Mat> leaked = new ArrayList<>();
+
+		String report = null;
+		for (int frame = 0; frame < 4; frame++) {
+			frameScope.close();
+			frameScope.mat();
+			try (MatScope scope = new MatScope()) {
+				scope.mat();
+				leaked.add(scope.keep(scope.mat()));
+			}
+			final String frameReport = MatScope.endFrame();
+			if (frame % 2 == 0) assertNull(frameReport);
+			else report = frameReport;
+		}
+
+		// Only the Mats kept every frame grow; the frame scope always holds one
+		assertNotNull(report);
+		assertEquals(1, report.split("\n").length);
+		assertTrue(report, report.contains("MatScopeTest.reportsGrowingSites"));
+		assertTrue(report, report.contains(": 4 live, 2 more"));
+
+		for (Mat mat : leaked) MatScope.release(mat);
+		frameScope.close();
+		assertTrue(MatScope.getLiveCounts().isEmpty());
+	}
+}
@@ -0,0 +1,83 @@
+package com.frc8.team8vision.vision;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a recorded overlay draws exactly what drawing straight on the frame would,
+ * and that an overlay that is not recording draws nothing.
+ */
+public class OverlayTest {
+
+	private static final Scalar kColor = new Scalar(10, 200, 30, 255);
+
+	@BeforeClass
+	public static void loadOpenCV() {
+		nu.pattern.OpenCV.loadLocally();
+	}
+
+	@Test
+	public void drawsLikeImgproc() {
+		final Mat expected = Mat.zeros(240, 320, CvType.CV_8UC4), actual = Mat.zeros(240, 320, CvType.CV_8UC4);
+		final Overlay overlay = new Overlay();
+		overlay.reset(true);
+
+		for (int frame = 0; frame < 2; frame++) {
+			final MatOfPoint contour = new MatOfPoint(new Point(20, 20), new Point(90, 25), new Point(80, 120));
+			Imgproc.polylines(expected, Arrays.asList(contour), true, kColor);
+			overlay.contour(contour, kColor);
+			// Points are copied when recorded
+			contour.release();
+
+			Imgproc.circle(expected, new Point(150.4, 60.6), 9, kColor, -1);
+			overlay.circle(150.4, 60.6, 9, kColor, -1);
+			Imgproc.line(expected, new Point(10, 200), new Point(300, 180), kColor, 5);
+			overlay.line(10, 200, 300, 180, kColor, 5);
+			Imgproc.putText(expected, "<1.25, -3.50>", new Point(5, 230), Core.FONT_HERSHEY_SIMPLEX, 0.8, kColor, 2);
+			overlay.text("<%.2f, %.2f>", 1.25, -3.5, 5, 230, 0.8, kColor, 2);
+			assertEquals(4, overlay.size());
+
+			overlay.rasterize(actual);
+			assertEquals(0, countDifferences(expected, actual));
+
+			// The next frame starts over
+			overlay.reset(true);
+			expected.setTo(new Scalar(0, 0, 0, 0));
+			actual.setTo(new Scalar(0, 0, 0, 0));
+		}
+	}
+
+	@Test
+	public void skipsWhenNotRecording() {
+		final Mat canvas = Mat.zeros(100, 100, CvType.CV_8UC4);
+		final Overlay overlay = new Overlay();
+		overlay.reset(false);
+
+		overlay.contour(new MatOfPoint(new Point(1, 1), new Point(50, 50)), kColor);
+		overlay.circle(20, 20, 5, kColor, -1);
+		overlay.text("%.1f", 30, 0, 5, 90, 1, kColor, 1);
+		assertEquals(0, overlay.size());
+
+		overlay.rasterize(canvas);
+		assertEquals(0, Core.countNonZero(canvas.reshape(1)));
+	}
+
+	private static int countDifferences(Mat expected, Mat actual) {
+		final Mat difference = new Mat();
+		Core.absdiff(expected, actual, difference);
+		final int count = Core.countNonZero(difference.reshape(1));
+		difference.release();
+		return count;
+	}
+}
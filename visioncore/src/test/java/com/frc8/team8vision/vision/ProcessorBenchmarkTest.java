@@ -0,0 +1,366 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.util.Constants;
+import com.frc8.team8vision.util.VisionSettings;
+import com.frc8.team8vision.vision.sources.Frame;
+import com.frc8.team8vision.vision.sources.SyntheticFrameSource;
+import com.frc8.team8vision.vision.sources.TargetFrameGenerator;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.Mat;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs every processor over synthetic frames with known poses and reports throughput and
+ * pose error. The budgets are the errors measured when the benchmark was added plus some
+ * headroom; a change that pushes a processor past its budget has made it less accurate.
+ *
+ * It takes minutes, so it only runs when asked for, e.g. with -Dbenchmark.frames=200 for a
+ * quick check, or 5000 for numbers worth comparing between changes. Throughput only
+ * counts thresholding and processing, not drawing the frames. Processing is headless, as
+ * on the robot, unless the settings ask for a preview; then the overlay is drawn too.
+ *
+ * {@link #decoys()} checks that pairing picks the target over lone strips shaped like its tape,
+ * {@link #coarseToFine()} compares detection at full, half and quarter resolution,
+ * {@link #components()} compares contour tracing with connected component labelling, and
+ * {@link #workers()} measures how throughput scales with frames processed in parallel and
+ * {@link #overlay()} what drawing the results costs.
+ */
+public class ProcessorBenchmarkTest {
+
+	private static final int kWidth = 1280, kHeight = 720;
+	private static final long kSeed = 8;
+	private static final int kFrames = Integer.getInteger("benchmark.frames", 200);
+
+	/**
+	 * Results of running one processor over the benchmark frames
+	 */
+	private static class Result {
+		double fps, missRate, xP50, xP95, zP50, zP95;
+	}
+
+	private static CameraParameters camera;
+
+	@BeforeClass
+	public static void loadOpenCV() {
+		Assume.assumeTrue(System.getProperty("benchmark.frames") != null);
+		nu.pattern.OpenCV.loadLocally();
+
+		camera = TargetFixtures.nexusCamera(kWidth, kHeight);
+	}
+
+	@Test
+	public void centroid() throws Exception {
+		final Result result = run(ProcessorSelector.ProcessorType.CENTROID, 0, 0, 0);
+		checkBudget(result, 0.01, 5.0, 3.0);
+	}
+
+	@Test
+	public void singleTarget() throws Exception {
+		final Result result = run(ProcessorSelector.ProcessorType.SINGLE_TARGET, 0, 0, 0);
+		checkBudget(result, 0.01, 0.25, 1.25);
+	}
+
+	@Test
+	public void doubleTarget() throws Exception {
+		final Result result = run(ProcessorSelector.ProcessorType.DOUBLE_TARGET, 0, 0, 0);
+		checkBudget(result, 0.01, 0.15, 1.0);
+	}
+
+	@Test
+	public void projection() throws Exception {
+		final Result clean = run(ProcessorSelector.ProcessorType.PROJECTION, 0, 0, 0);
+		checkBudget(clean, 0.01, 0.15, 1.0);
+		final Result degraded = run(ProcessorSelector.ProcessorType.PROJECTION, 6, 1.0, 4);
+		checkBudget(degraded, 0.05, 0.25, 1.0);
+	}
+
+	@Test
+	public void degradedFrames() throws Exception {
+		checkBudget(run(ProcessorSelector.ProcessorType.CENTROID, 6, 1.0, 4), 0.05, 5.0, 5.0);
+		checkBudget(run(ProcessorSelector.ProcessorType.SINGLE_TARGET, 6, 1.0, 4), 0.05, 0.5, 2.0);
+		checkBudget(run(ProcessorSelector.ProcessorType.DOUBLE_TARGET, 6, 1.0, 4), 0.05, 0.2, 1.25);
+	}
+
+	@Test
+	public void glare() throws Exception {
+		for (ProcessorSelector.ProcessorType type : ProcessorSelector.ProcessorType.values()) {
+			final Result result = run(settings(type, VisionSettings.DetectionScale.FULL,
+					VisionSettings.ContourMethod.FIND_CONTOURS), 0, 0, 0, 2);
+			// Cutting by projections cannot separate glares and tape that no straight row or column runs between
+			final double missBudget = (type == ProcessorSelector.ProcessorType.PROJECTION) ? 0.03 : 0.01;
+			assertTrue(type + " missed " + result.missRate, result.missRate <= missBudget);
+			assertTrue(type + " z error " + result.zP95, result.zP95 <= 3.0);
+		}
+	}
+
+	@Test
+	public void decoys() throws Exception {
+		// Taller than the tape and shaped like it, so only scoring pairs tells them apart
+		for (ProcessorSelector.ProcessorType type : new ProcessorSelector.ProcessorType[] {
+				ProcessorSelector.ProcessorType.CENTROID, ProcessorSelector.ProcessorType.SINGLE_TARGET,
+				ProcessorSelector.ProcessorType.DOUBLE_TARGET}) {
+			final Result result = run(settings(type, VisionSettings.DetectionScale.FULL,
+					VisionSettings.ContourMethod.FIND_CONTOURS), FrameOrientation.UPRIGHT, 0, 0, 0, 0, 3);
+			assertTrue(type + " missed " + result.missRate, result.missRate <= 0.05);
+			assertTrue(type + " z error " + result.zP95, result.zP95 <= 3.0);
+		}
+	}
+
+	@Test
+	public void coarseToFine() throws Exception {
+		final Result full = run(ProcessorSelector.ProcessorType.DOUBLE_TARGET, 6, 1.0, 4);
+		final Result half = run(settings(ProcessorSelector.ProcessorType.DOUBLE_TARGET,
+				VisionSettings.DetectionScale.HALF, VisionSettings.ContourMethod.FIND_CONTOURS), 6, 1.0, 4, 0);
+		final Result quarter = run(settings(ProcessorSelector.ProcessorType.DOUBLE_TARGET,
+				VisionSettings.DetectionScale.QUARTER, VisionSettings.ContourMethod.FIND_CONTOURS), 6, 1.0, 4, 0);
+		System.out.println(String.format(Locale.US, "Coarse-to-fine speedup: %.2fx at 1/2, %.2fx at 1/4",
+				half.fps / full.fps, quarter.fps / full.fps));
+
+		// Corners are refined at full resolution, so accuracy must not depend on the scale
+		checkBudget(half, 0.05, 0.2, 1.25);
+		checkBudget(quarter, 0.05, 0.2, 1.25);
+	}
+
+	@Test
+	public void components() throws Exception {
+		final Result contours = run(ProcessorSelector.ProcessorType.DOUBLE_TARGET, 6, 1.0, 4);
+		final Result components = run(settings(ProcessorSelector.ProcessorType.DOUBLE_TARGET,
+				VisionSettings.DetectionScale.FULL, VisionSettings.ContourMethod.COMPONENTS), 6, 1.0, 4, 0);
+		final Result quarter = run(settings(ProcessorSelector.ProcessorType.DOUBLE_TARGET,
+				VisionSettings.DetectionScale.QUARTER, VisionSettings.ContourMethod.COMPONENTS), 6, 1.0, 4, 0);
+		System.out.println(String.format(Locale.US, "Component labelling speedup: %.2fx, %.2fx at 1/4",
+				components.fps / contours.fps, quarter.fps / contours.fps));
+
+		checkBudget(components, 0.05, 0.2, 1.25);
+		checkBudget(quarter, 0.05, 0.2, 1.25);
+		checkBudget(run(settings(ProcessorSelector.ProcessorType.SINGLE_TARGET,
+				VisionSettings.DetectionScale.FULL, VisionSettings.ContourMethod.COMPONENTS), 6, 1.0, 4, 0), 0.05, 0.5, 2.0);
+	}
+
+	@Test
+	public void sensorOrientation() throws Exception {
+		// Frames from a sensor turned either way must give the same results as upright ones
+		for (ProcessorSelector.ProcessorType type : new ProcessorSelector.ProcessorType[] {
+				ProcessorSelector.ProcessorType.DOUBLE_TARGET, ProcessorSelector.ProcessorType.PROJECTION}) {
+			for (VisionSettings.DetectionScale scale : new VisionSettings.DetectionScale[] {
+					VisionSettings.DetectionScale.FULL, VisionSettings.DetectionScale.QUARTER}) {
+				final VisionSettings settings = settings(type, scale, VisionSettings.ContourMethod.FIND_CONTOURS);
+				final Result upright = run(settings, FrameOrientation.UPRIGHT, 6, 1.0, 4, 0);
+				for (FrameOrientation orientation : new FrameOrientation[] {
+						FrameOrientation.CLOCKWISE_90, FrameOrientation.CLOCKWISE_270}) {
+					final Result turned = run(settings, orientation, 6, 1.0, 4, 0);
+					assertEquals(orientation.toString(), upright.missRate, turned.missRate, 0.01);
+					assertEquals(orientation.toString(), upright.xP95, turned.xP95, 0.02);
+					assertEquals(orientation.toString(), upright.zP95, turned.zP95, 0.1);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void overlay() throws Exception {
+		final Result headless = run(ProcessorSelector.ProcessorType.DOUBLE_TARGET, 6, 1.0, 4);
+		final Result annotated = run(settings(ProcessorSelector.ProcessorType.DOUBLE_TARGET,
+				VisionSettings.DetectionScale.FULL, VisionSettings.ContourMethod.FIND_CONTOURS,
+				VisionSettings.PreviewMode.FULL), 6, 1.0, 4, 0);
+		System.out.println(String.format(Locale.US, "Skipping the overlay: %.2fx", headless.fps / annotated.fps));
+
+		// Whether anything is drawn must not change what is found
+		assertEquals(annotated.missRate, headless.missRate, 0);
+		assertEquals(annotated.xP95, headless.xP95, 0);
+		assertEquals(annotated.zP95, headless.zP95, 0);
+	}
+
+	@Test
+	public void workers() throws Exception {
+		final VisionSettings settings = settings(ProcessorSelector.ProcessorType.DOUBLE_TARGET,
+				VisionSettings.DetectionScale.FULL, VisionSettings.ContourMethod.FIND_CONTOURS);
+		final int cores = Math.max(2, Runtime.getRuntime().availableProcessors());
+		final double[][] single = runPooled(settings, 1), pooled = runPooled(settings, cores);
+
+		// Every frame is processed on its own, so the workers must not change any result
+		assertArrayEquals(single[1], pooled[1], 0);
+		assertArrayEquals(single[2], pooled[2], 0);
+		System.out.println(String.format(Locale.US,
+				"%s on %d workers: %.1f fps, on 1 worker: %.1f fps, %.2fx (%d cores)", settings.getProcessorType(),
+				cores, pooled[0][0], single[0][0], pooled[0][0] / single[0][0], Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Processes the benchmark frames on a {@link ProcessorPool}, keeping every worker busy.
+	 * Frames are drawn on this thread while the workers process, so unlike {@link #run}
+	 * the throughput is wall time including drawing.
+	 *
+	 * @return {fps}, then x and z for each frame in sequence order
+	 */
+	private double[][] runPooled(VisionSettings settings, int workers) throws Exception {
+		final TargetFrameGenerator generator = new TargetFrameGenerator(kWidth, kHeight, camera, kSeed);
+		generator.setPoseRange(40, 140, 25);
+		generator.setDegradation(6, 1.0, 4);
+		// Room for the frames being processed and the one being drawn
+		final SyntheticFrameSource source = new SyntheticFrameSource(kWidth, kHeight, generator, kFrames, 0, workers + 1);
+		source.start();
+
+		final ProcessorSelector selector = new ProcessorSelector();
+		selector.setProcessor(settings.getProcessorType());
+		final VisionProcessorBase processor = selector.getProcessor();
+		final FrameContext context = new FrameContext(camera, settings);
+
+		final double[] xs = new double[kFrames], zs = new double[kFrames];
+		final ArrayDeque<Frame> frames = new ArrayDeque<>();
+		final ArrayDeque<Future<VisionDataUnit<?>[]>> results = new ArrayDeque<>();
+		final long start = System.nanoTime();
+		try (ProcessorPool pool = new ProcessorPool(workers)) {
+			Frame frame;
+			while ((frame = source.next()) != null) {
+				if (frames.size() == workers) {
+					collect(source, frames.poll(), results.poll(), xs, zs);
+				}
+				frames.add(frame);
+				results.add(pool.submit(processor, frame.mat(), headless(), context, VisionProcessorBase.newOutput()));
+			}
+			while (!frames.isEmpty()) collect(source, frames.poll(), results.poll(), xs, zs);
+		}
+		final long elapsedNanos = System.nanoTime() - start;
+		source.close();
+
+		return new double[][] {{source.getDeliveredFrames() / (elapsedNanos / 1e9)}, xs, zs};
+	}
+
+	private static void collect(SyntheticFrameSource source, Frame frame, Future<VisionDataUnit<?>[]> result,
+								double[] xs, double[] zs) throws Exception {
+		final VisionDataUnit<?>[] out = result.get();
+		xs[(int)frame.getSequence()] = (Double)out[VisionProcessorBase.IDX_OUT_XDIST].get();
+		zs[(int)frame.getSequence()] = (Double)out[VisionProcessorBase.IDX_OUT_ZDIST].get();
+		source.release(frame);
+	}
+
+	private static VisionSettings settings(ProcessorSelector.ProcessorType type, VisionSettings.DetectionScale scale,
+										   VisionSettings.ContourMethod method) {
+		return settings(type, scale, method, VisionSettings.PreviewMode.HEADLESS);
+	}
+
+	private static VisionSettings settings(ProcessorSelector.ProcessorType type, VisionSettings.DetectionScale scale,
+										   VisionSettings.ContourMethod method, VisionSettings.PreviewMode preview) {
+		return TargetFixtures.settings("Benchmark", type, scale, method, preview);
+	}
+
+	private static Overlay headless() {
+		final Overlay overlay = new Overlay();
+		overlay.reset(false);
+		return overlay;
+	}
+
+	private static void checkBudget(Result result, double missRate, double xP95, double zP95) {
+		assertTrue("missed " + result.missRate, result.missRate <= missRate);
+		assertTrue("x error " + result.xP95, result.xP95 <= xP95);
+		assertTrue("z error " + result.zP95, result.zP95 <= zP95);
+	}
+
+	private Result run(ProcessorSelector.ProcessorType type, double noise, double blur, int distractors)
+			throws Exception {
+		return run(settings(type, VisionSettings.DetectionScale.FULL, VisionSettings.ContourMethod.FIND_CONTOURS),
+				noise, blur, distractors, 0);
+	}
+
+	private Result run(VisionSettings settings, double noise, double blur, int distractors, int glares)
+			throws Exception {
+		return run(settings, FrameOrientation.UPRIGHT, noise, blur, distractors, glares, 0);
+	}
+
+	private Result run(VisionSettings settings, FrameOrientation orientation, double noise, double blur,
+					   int distractors, int glares) throws Exception {
+		return run(settings, orientation, noise, blur, distractors, glares, 0);
+	}
+
+	/**
+	 * @param orientation The frames are turned the opposite way before they are processed,
+	 *                    as if a sensor mounted that way had captured them
+	 */
+	private Result run(VisionSettings settings, FrameOrientation orientation, double noise, double blur,
+					   int distractors, int glares, int decoys) throws Exception {
+		final ProcessorSelector.ProcessorType type = settings.getProcessorType();
+
+		final TargetFrameGenerator generator = new TargetFrameGenerator(kWidth, kHeight, camera, kSeed);
+		generator.setPoseRange(40, 140, 25);
+		generator.setDegradation(noise, blur, distractors);
+		generator.setGlares(glares);
+		generator.setDecoys(decoys);
+		final SyntheticFrameSource source = new SyntheticFrameSource(kWidth, kHeight, generator, kFrames, 0, 1);
+		source.start();
+
+		final ProcessorSelector selector = new ProcessorSelector();
+		selector.setProcessor(type);
+		final VisionProcessorBase processor = selector.getProcessor();
+		final FrameContext context = new FrameContext(camera.withOrientation(orientation), settings);
+		final Mat rgba = new Mat(), sensor = new Mat();
+		final TrackingState tracking = new TrackingState(settings.isTrackingLeft());
+		final VisionDataUnit<?>[] out = VisionProcessorBase.newOutput();
+		final Overlay overlay = new Overlay();
+		final boolean annotated = settings.getPreviewMode() != VisionSettings.PreviewMode.HEADLESS;
+
+		final double[] xErrors = new double[kFrames], zErrors = new double[kFrames];
+		int found = 0;
+		long processNanos = 0;
+
+		Frame frame;
+		while ((frame = source.next()) != null) {
+			final TargetFrameGenerator.GroundTruth truth = generator.getTruth(frame.getSequence());
+			final Mat upright = frame.rgba(rgba), input;
+			if (orientation.isUpright()) {
+				input = upright;
+			} else {
+				input = sensor;
+				orientation.inverse().apply(upright, sensor);
+			}
+
+			final long start = System.nanoTime();
+			overlay.reset(annotated);
+			processor.process(input, overlay, context, tracking, out);
+			overlay.rasterize(upright);
+			processNanos += System.nanoTime() - start;
+
+			final double x = (Double)out[VisionProcessorBase.IDX_OUT_XDIST].get(),
+					z = (Double)out[VisionProcessorBase.IDX_OUT_ZDIST].get();
+			if (!Double.isNaN(x) && !Double.isNaN(z)) {
+				// The centroid processor reports x in inches, every other output is scaled like solvePnP's
+				final double expectedX = truth.x * (type == ProcessorSelector.ProcessorType.CENTROID ? 1 : Constants.kPoseScale);
+				xErrors[found] = Math.abs(x - expectedX);
+				zErrors[found] = Math.abs(z - truth.z * Constants.kPoseScale);
+				found++;
+			}
+			source.release(frame);
+		}
+		source.close();
+
+		final Result result = new Result();
+		result.fps = source.getDeliveredFrames() / (processNanos / 1e9);
+		result.missRate = 1 - (double)found / source.getDeliveredFrames();
+		result.xP50 = percentile(xErrors, found, 0.5);
+		result.xP95 = percentile(xErrors, found, 0.95);
+		result.zP50 = percentile(zErrors, found, 0.5);
+		result.zP95 = percentile(zErrors, found, 0.95);
+
+		System.out.println(String.format(Locale.US,
+				"%-14s %-7s %-13s %3d deg noise %.0f blur %.1f distractors %d glares %d decoys %d: %7.1f fps, %5.1f%% missed, x err p50 %.3f p95 %.3f, z err p50 %.3f p95 %.3f",
+				type, settings.getDetectionScale(), settings.getContourMethod(), orientation.getDegrees(), noise, blur, distractors, glares, decoys, result.fps, 100*result.missRate,
+				result.xP50, result.xP95, result.zP50, result.zP95));
+		return result;
+	}
+
+	private static double percentile(double[] values, int count, double fraction) {
+		if (count == 0) return Double.NaN;
+		final double[] sorted = Arrays.copyOf(values, count);
+		Arrays.sort(sorted);
+		return sorted[Math.min(count - 1, (int)(fraction * count))];
+	}
+}
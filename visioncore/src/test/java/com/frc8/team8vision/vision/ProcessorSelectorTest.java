@@ -0,0 +1,152 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.util.VisionSettings;
+import com.frc8.team8vision.vision.processors.CentroidProcessor;
+import com.frc8.team8vision.vision.processors.DoubleTargetProcessor;
+import com.frc8.team8vision.vision.processors.ProjectionProcessor;
+import com.frc8.team8vision.vision.processors.SingleTargetProcessor;
+import com.frc8.team8vision.vision.sources.TargetFrameGenerator;
+import com.frc8.team8vision.vision.telemetry.Telemetry;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that processors are only swapped in once warmed up, that the last one picked
+ * wins, and that the shadow processor is compared with the one in use without holding
+ * up the thread offering it frames, also once shut down.
+ */
+public class ProcessorSelectorTest {
+
+	private static final int kWidth = 640, kHeight = 360;
+
+	private static FrameContext context;
+
+	private final ProcessorSelector mSelector = new ProcessorSelector();
+
+	@BeforeClass
+	public static void loadOpenCV() {
+		nu.pattern.OpenCV.loadLocally();
+
+		context = new FrameContext(TargetFixtures.nexusCamera(kWidth, kHeight), TargetFixtures.settings("Shadow",
+				ProcessorSelector.ProcessorType.PROJECTION, VisionSettings.DetectionScale.FULL,
+				VisionSettings.ContourMethod.FIND_CONTOURS));
+	}
+
+	@After
+	public void shutdown() {
+		mSelector.shutdown();
+	}
+
+	@Test
+	public void swapsOnceWarmedUp() throws Exception {
+		mSelector.setWarmupContext(context);
+		// The first processor is there right away
+		mSelector.setProcessor(ProcessorSelector.ProcessorType.CENTROID);
+		final VisionProcessorBase first = mSelector.getProcessor();
+		assertTrue(first instanceof CentroidProcessor);
+
+		final long warmups = Telemetry.counter("processor.swaps").sum();
+		mSelector.setProcessor(ProcessorSelector.ProcessorType.PROJECTION);
+		// Still warming up on synthetic frames
+		assertSame(first, mSelector.getProcessor());
+		mSelector.awaitWarmup();
+		assertTrue(mSelector.getProcessor() instanceof ProjectionProcessor);
+		assertEquals(warmups + 1, Telemetry.counter("processor.swaps").sum());
+
+		// Only the last of several picks is swapped in; picking the one in use again drops the others
+		mSelector.setProcessor(ProcessorSelector.ProcessorType.DOUBLE_TARGET);
+		mSelector.setProcessor(ProcessorSelector.ProcessorType.SINGLE_TARGET);
+		mSelector.awaitWarmup();
+		assertTrue(mSelector.getProcessor() instanceof SingleTargetProcessor);
+		mSelector.setProcessor(ProcessorSelector.ProcessorType.CENTROID);
+		mSelector.setProcessor(ProcessorSelector.ProcessorType.SINGLE_TARGET);
+		mSelector.awaitWarmup();
+		assertTrue(mSelector.getProcessor() instanceof SingleTargetProcessor);
+		assertEquals(warmups + 2, Telemetry.counter("processor.swaps").sum());
+	}
+
+	@Test
+	public void comparesTheShadow() throws Exception {
+		mSelector.setWarmupContext(context);
+		mSelector.setProcessor(ProcessorSelector.ProcessorType.PROJECTION);
+		final ShadowRunner shadow = new ShadowRunner(mSelector);
+		final TargetFrameGenerator generator = new TargetFrameGenerator(kWidth, kHeight, context.getCamera(), 8);
+		final Mat frame = new Mat(kHeight, kWidth, CvType.CV_8UC4);
+		final Overlay overlay = new Overlay();
+		overlay.reset(false);
+		final TrackingState tracking = new TrackingState(true);
+		final VisionDataUnit<?>[] out = VisionProcessorBase.newOutput();
+
+		// Nothing to compare with yet
+		generator.generate(0, frame);
+		assertFalse(shadow.offer(frame, false, context, out, 0));
+
+		mSelector.setShadow(ProcessorSelector.ProcessorType.DOUBLE_TARGET);
+		mSelector.awaitWarmup();
+		assertTrue(mSelector.getShadow() instanceof DoubleTargetProcessor);
+
+		final long frames = Telemetry.counter(Telemetry.kShadow + "frames").sum(),
+				bothFound = Telemetry.counter(Telemetry.kShadow + "bothFound").sum(),
+				xDiff = Telemetry.counter(Telemetry.kShadow + "xDiffMilli").sum(),
+				zDiff = Telemetry.counter(Telemetry.kShadow + "zDiffMilli").sum(),
+				dropped = Telemetry.counter(Telemetry.kDropped + "shadow").sum();
+		final int kFrames = 20;
+		for (int i = 0; i < kFrames; i++) {
+			generator.generate(i, frame);
+			final long start = System.nanoTime();
+			mSelector.getProcessor().process(frame, overlay, context, tracking, out);
+			assertTrue(shadow.offer(frame, false, context, out, System.nanoTime() - start));
+			// The shadow works on its own copy
+			frame.setTo(new Scalar(0, 0, 0, 255));
+			while (shadow.isBusy()) Thread.sleep(1);
+		}
+
+		assertEquals(kFrames, Telemetry.counter(Telemetry.kShadow + "frames").sum() - frames);
+		final long found = Telemetry.counter(Telemetry.kShadow + "bothFound").sum() - bothFound;
+		assertEquals(kFrames, found);
+		// Both find the same target, to within a few inches on average
+		assertTrue((Telemetry.counter(Telemetry.kShadow + "xDiffMilli").sum() - xDiff) / found < 3000);
+		assertTrue((Telemetry.counter(Telemetry.kShadow + "zDiffMilli").sum() - zDiff) / found < 5000);
+
+		// A frame offered while the shadow is busy is dropped, not queued
+		generator.generate(0, frame);
+		assertTrue(shadow.offer(frame, false, context, out, 0));
+		assertFalse(shadow.offer(frame, false, context, out, 0));
+		assertEquals(dropped + 1, Telemetry.counter(Telemetry.kDropped + "shadow").sum());
+
+		mSelector.setShadow(null);
+		while (shadow.isBusy()) Thread.sleep(1);
+		assertFalse(shadow.offer(frame, false, context, out, 0));
+		shadow.shutdown();
+		frame.release();
+	}
+
+	@Test
+	public void swapsColdOnceShutDown() throws Exception {
+		mSelector.setWarmupContext(context);
+		mSelector.setProcessor(ProcessorSelector.ProcessorType.CENTROID);
+		final ShadowRunner shadow = new ShadowRunner(mSelector);
+		mSelector.shutdown();
+		shadow.shutdown();
+
+		// Swapped in right away rather than rejected
+		mSelector.setProcessor(ProcessorSelector.ProcessorType.SINGLE_TARGET);
+		assertTrue(mSelector.getProcessor() instanceof SingleTargetProcessor);
+		mSelector.setShadow(ProcessorSelector.ProcessorType.DOUBLE_TARGET);
+		assertTrue(mSelector.getShadow() instanceof DoubleTargetProcessor);
+
+		// Frames offered to the shadow are dropped, and it does not stay busy
+		final Mat frame = new Mat(kHeight, kWidth, CvType.CV_8UC4, new Scalar(0, 0, 0, 255));
+		final VisionDataUnit<?>[] out = VisionProcessorBase.newOutput();
+		assertFalse(shadow.offer(frame, false, context, out, 0));
+		assertFalse(shadow.isBusy());
+		frame.release();
+	}
+}
@@ -0,0 +1,86 @@
+package com.frc8.team8vision.vision;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that thresholding in stripes gives the same mask as one full-frame call, and
+ * reports how the striped threshold scales from one core to every core of the machine.
+ * Pass -Dbenchmark.frames to change how many frames each configuration is timed over.
+ */
+public class StripeExecutorTest {
+
+	private static final int kWidth = 1280, kHeight = 720;
+	private static final int kFrames = Integer.getInteger("benchmark.frames", 200);
+	private static final Scalar kLower = new Scalar(40, 100, 100), kUpper = new Scalar(80, 255, 255);
+
+	private static Mat frame;
+
+	@BeforeClass
+	public static void loadOpenCV() {
+		nu.pattern.OpenCV.loadLocally();
+		frame = new Mat(kHeight, kWidth, CvType.CV_8UC4);
+		Core.randu(frame, 0, 256);
+	}
+
+	@Test
+	public void matchesFullFrame() {
+		final Mat hsv = new Mat(), expected = new Mat();
+		Imgproc.cvtColor(frame, hsv, Imgproc.COLOR_RGB2HSV);
+		Core.inRange(hsv, kLower, kUpper, expected);
+
+		// More threads than the sandbox may have cores, so the stripes really are split
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		final Mat stripedHSV = new Mat(), mask = new Mat(), diff = new Mat();
+		for (int stripeRows : new int[] {1, 7, 64, kHeight}) {
+			new StripeExecutor(pool, stripeRows).threshold(frame, kLower, kUpper, stripedHSV, mask);
+			Core.absdiff(expected, mask, diff);
+			assertEquals("stripes of " + stripeRows + " rows", 0, Core.countNonZero(diff));
+		}
+		pool.shutdown();
+	}
+
+	@Test
+	public void scaling() {
+		final int cores = Runtime.getRuntime().availableProcessors();
+		double single = 0;
+		for (int threads = 1; threads <= cores; threads++) {
+			final double fps = measure(threads, StripeExecutor.getShared().getStripeRows());
+			if (threads == 1) single = fps;
+			System.out.println(String.format(Locale.US, "Threshold on %d of %d cores: %6.1f fps, %.2fx",
+					threads, cores, fps, fps / single));
+		}
+		for (int stripeRows : new int[] {16, 32, 64, 128, 256}) {
+			System.out.println(String.format(Locale.US, "Threshold on %d cores, stripes of %3d rows: %6.1f fps",
+					cores, stripeRows, measure(cores, stripeRows)));
+		}
+	}
+
+	private static double measure(int threads, int stripeRows) {
+		final ForkJoinPool pool = new ForkJoinPool(threads);
+		final StripeExecutor executor = new StripeExecutor(pool, stripeRows);
+		final Mat hsv = new Mat(), mask = new Mat();
+
+		// Warm up the pool and the JIT
+		for (int i = 0; i < 10; i++) executor.threshold(frame, kLower, kUpper, hsv, mask);
+
+		final long start = System.nanoTime();
+		for (int i = 0; i < kFrames; i++) executor.threshold(frame, kLower, kUpper, hsv, mask);
+		final double fps = kFrames / ((System.nanoTime() - start) / 1e9);
+
+		pool.shutdown();
+		hsv.release();
+		mask.release();
+		return fps;
+	}
+}
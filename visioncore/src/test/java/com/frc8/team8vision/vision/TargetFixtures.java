@@ -0,0 +1,44 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.util.Constants;
+import com.frc8.team8vision.util.VisionSettings;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+
+/**
+ * The camera and settings tests process synthetic frames of the target with: the Nexus
+ * calibration, and a threshold the rendered tape passes, the same one processors are
+ * warmed up with. Load OpenCV before using them.
+ */
+final class TargetFixtures {
+
+	private TargetFixtures() {}
+
+	/**
+	 * @return The Nexus camera, delivering upright frames of the given size
+	 */
+	static CameraParameters nexusCamera(int width, int height) {
+		final Mat intrinsics = new Mat(3, 3, CvType.CV_64F);
+		for (int i = 0; i < 3; i++) intrinsics.put(i, 0, Constants.kNexusIntrinsicMatrix[i]);
+		return new CameraParameters(height, width, intrinsics, new MatOfDouble(Constants.kNexusDistortionCoefficients));
+	}
+
+	/**
+	 * @return Settings tracking the rendered tape, without a preview
+	 */
+	static VisionSettings settings(String name, ProcessorSelector.ProcessorType type,
+								   VisionSettings.DetectionScale scale, VisionSettings.ContourMethod method) {
+		return settings(name, type, scale, method, VisionSettings.PreviewMode.HEADLESS);
+	}
+
+	/**
+	 * @return Settings tracking the rendered tape
+	 */
+	static VisionSettings settings(String name, ProcessorSelector.ProcessorType type, VisionSettings.DetectionScale scale,
+								   VisionSettings.ContourMethod method, VisionSettings.PreviewMode preview) {
+		return new VisionSettings(name, true, false, false, false, false, 0, 0, Constants.kWarmupThreshold, type,
+				preview, VisionSettings.StreamMode.RAW, scale, method);
+	}
+}
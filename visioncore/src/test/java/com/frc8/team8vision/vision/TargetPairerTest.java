@@ -0,0 +1,124 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.util.Constants;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Places the two strips of the target among decoys that beat them on any single
+ * property, and checks that the pair is still found, by the serial and the parallel
+ * scoring alike.
+ */
+public class TargetPairerTest {
+
+	private static final double kHeight = 60;
+	// Distance between the centers of the strips for the height above
+	private static final double kSpacing =
+			kHeight * (Constants.kVisionTargetWidth - Constants.kTapeWidth) / Constants.kVisionTargetHeight;
+
+	private final TargetPairer mPairer = new TargetPairer();
+
+	@BeforeClass
+	public static void loadOpenCV() {
+		nu.pattern.OpenCV.loadLocally();
+	}
+
+	@Test
+	public void findsTargetAmongDecoys() {
+		mPairer.clear();
+		addDecoys(0);
+		// The target, added after the decoys so its indices are not the first ones
+		addStrip(10, 300, 200, kHeight);
+		addStrip(11, 300 + kSpacing, 200, kHeight);
+
+		final TargetPairer.Pair pair = mPairer.pairCandidates();
+		assertNotNull(pair);
+		assertEquals(10, pair.left);
+		assertEquals(11, pair.right);
+	}
+
+	@Test
+	public void scoresManyCandidatesInParallel() {
+		final Random random = new Random(8);
+		final int decoys = 2 * Constants.kPairingParallelCandidates;
+
+		mPairer.clear();
+		// Lone strips too far apart to pair, at most as tall as the target
+		for (int i = 0; i < decoys; i++) {
+			addStrip(i, 2000 + 400 * i, random.nextInt(400), kHeight * (0.5 + 0.5 * random.nextDouble()));
+		}
+		addStrip(decoys, 300, 200, kHeight);
+		addStrip(decoys + 1, 300 + kSpacing, 200, kHeight);
+		final TargetPairer.Pair parallel = mPairer.pairCandidates();
+		assertNotNull(parallel);
+		assertEquals(decoys, parallel.left);
+		assertEquals(decoys + 1, parallel.right);
+	}
+
+	@Test
+	public void rejectsImplausiblePairs() {
+		mPairer.clear();
+		addDecoys(0);
+		assertNull(mPairer.pairCandidates());
+
+		// Blobs wider than tall are never candidates
+		mPairer.clear();
+		mPairer.addCandidate(0, 100, 100, kHeight, kHeight / 2, kHeight * kHeight / 2);
+		mPairer.addCandidate(1, 100 + kSpacing, 100, kHeight, kHeight / 2, kHeight * kHeight / 2);
+		assertNull(mPairer.pairCandidates());
+	}
+
+	@Test
+	public void pairsContours() {
+		final List<MatOfPoint> contours = new ArrayList<>();
+		// A big bright blob, a speck, then the target
+		contours.add(rectangle(600, 50, 80, 160));
+		contours.add(rectangle(20, 20, 2, 4));
+		contours.add(rectangle(300, 200, (int)(kHeight / 2.5), (int)kHeight));
+		contours.add(rectangle(300 + (int)kSpacing, 200, (int)(kHeight / 2.5), (int)kHeight));
+
+		final TargetPairer.Pair pair = mPairer.findBestPair(contours);
+		assertNotNull(pair);
+		assertEquals(2, pair.left);
+		assertEquals(3, pair.right);
+		for (MatOfPoint contour : contours) contour.release();
+	}
+
+	/**
+	 * Adds strips that each beat the target on one property: a taller one, a pair with
+	 * the right spacing but heights far apart, a pair of the right height but misaligned,
+	 * and a pair of the right height but too far apart.
+	 */
+	private void addDecoys(int firstIndex) {
+		int i = firstIndex;
+		addStrip(i++, 900, 150, 3 * kHeight);
+		addStrip(i++, 100, 500, kHeight);
+		addStrip(i++, 100 + kSpacing, 500, kHeight / 3);
+		addStrip(i++, 500, 600, kHeight);
+		addStrip(i++, 500 + kSpacing, 600 + 1.5 * kHeight, kHeight);
+		addStrip(i++, 1200, 300, kHeight);
+		addStrip(i, 1200 + 3 * kSpacing, 300, kHeight);
+	}
+
+	/**
+	 * Adds a solid upright strip of tape, as wide as the target's for its height.
+	 */
+	private void addStrip(int index, double x, double y, double height) {
+		final double width = height * Constants.kTapeWidth / Constants.kVisionTargetHeight;
+		mPairer.addCandidate(index, x, y, width, height, width * height);
+	}
+
+	private static MatOfPoint rectangle(int x, int y, int width, int height) {
+		return new MatOfPoint(new Point(x, y), new Point(x, y + height),
+				new Point(x + width, y + height), new Point(x + width, y));
+	}
+}
@@ -0,0 +1,136 @@
+package com.frc8.team8vision.vision;
+
+import com.frc8.team8vision.util.VisionSettings;
+import com.frc8.team8vision.vision.sources.Frame;
+import com.frc8.team8vision.vision.sources.RingFileFrameSource;
+import com.frc8.team8vision.vision.sources.RingFiles;
+import com.frc8.team8vision.vision.sources.TargetFrameGenerator;
+import com.frc8.team8vision.vision.telemetry.Telemetry;
+
+import org.json.JSONObject;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.Mat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays two recordings through two pipelines at once and checks that each publishes
+ * the results of its own frames, in order, to its own channel, as if it had been run alone.
+ */
+public class VisionPipelineTest {
+
+	private static final int kWidth = 640, kHeight = 360, kFrames = 24, kWorkers = 2;
+
+	private static CameraParameters camera;
+	private static VisionSettings settings;
+
+	@BeforeClass
+	public static void loadOpenCV() {
+		nu.pattern.OpenCV.loadLocally();
+
+		camera = TargetFixtures.nexusCamera(kWidth, kHeight);
+		settings = TargetFixtures.settings("Pipeline", ProcessorSelector.ProcessorType.SINGLE_TARGET,
+				VisionSettings.DetectionScale.FULL, VisionSettings.ContourMethod.FIND_CONTOURS);
+	}
+
+	@Test
+	public void processesSourcesSideBySide() throws Exception {
+		final File[] recordings = {record(1), record(2)};
+		final String[] names = {"left", "right"};
+		final VisionPipeline[] pipelines = new VisionPipeline[2];
+		final List<List<Double>> published = new ArrayList<>();
+		final long[] framesBefore = new long[2];
+
+		for (int i = 0; i < 2; i++) {
+			pipelines[i] = new VisionPipeline(names[i], new RingFileFrameSource(recordings[i], false, kWorkers + 1),
+					camera, settings, kWorkers);
+			published.add(collect(pipelines[i].getChannel()));
+			framesBefore[i] = Telemetry.counter(Telemetry.kPipeline + names[i] + ".frames").sum();
+		}
+		for (VisionPipeline pipeline : pipelines) assertTrue(pipeline.start());
+		for (VisionPipeline pipeline : pipelines) assertTrue(pipeline.join(60000));
+
+		for (int i = 0; i < 2; i++) {
+			assertSame(VisionInfoData.getChannel(names[i]), pipelines[i].getChannel());
+			assertEquals(kFrames, pipelines[i].getPublishedFrames() - framesBefore[i]);
+
+			final List<Double> expected = processAlone(recordings[i]);
+			assertEquals(expected, published.get(i));
+			int found = 0;
+			for (int j = 0; j < expected.size(); j += 2) if (!expected.get(j).isNaN()) found++;
+			assertTrue("found " + found, found > kFrames * 3 / 4);
+		}
+		assertFalse(published.get(0).equals(published.get(1)));
+
+		// Every source is reported next to the camera on screen, until its pipeline is closed
+		JSONObject sources = VisionInfoData.getJsonRepresentation().getJSONObject("sources");
+		for (int i = 0; i < 2; i++) {
+			final List<Double> results = published.get(i);
+			assertEquals(Double.toString(results.get(results.size() - 1)),
+					sources.getJSONObject(names[i]).getString("z_displacement"));
+			pipelines[i].close();
+		}
+		sources = VisionInfoData.getJsonRepresentation().getJSONObject("sources");
+		for (String name : names) {
+			assertEquals(Double.toString(Double.NaN), sources.getJSONObject(name).getString("z_displacement"));
+		}
+	}
+
+	/**
+	 * @return x and z of every result the channel publishes, in order
+	 */
+	private static List<Double> collect(final VisionChannel channel) {
+		final List<Double> published = new ArrayList<>();
+		channel.addDataListener(new Runnable() {
+			@Override
+			public void run() {
+				published.add(channel.getXDist());
+				published.add(channel.getZDist());
+			}
+		});
+		return published;
+	}
+
+	/**
+	 * @return x and z of every frame of the recording, processed on this thread alone
+	 */
+	private static List<Double> processAlone(File recording) throws Exception {
+		final RingFileFrameSource source = new RingFileFrameSource(recording, false, 1);
+		assertTrue(source.start());
+		final ProcessorSelector selector = new ProcessorSelector();
+		selector.setProcessor(settings.getProcessorType());
+		final FrameContext context = new FrameContext(camera, settings);
+		final Overlay overlay = new Overlay();
+		overlay.reset(false);
+		final VisionDataUnit<?>[] out = VisionProcessorBase.newOutput();
+		final Mat rgba = new Mat();
+
+		final List<Double> results = new ArrayList<>();
+		Frame frame;
+		while ((frame = source.next()) != null) {
+			selector.getProcessor().process(frame.rgba(rgba), overlay, context,
+					new TrackingState(settings.isTrackingLeft()), out);
+			results.add((Double)out[VisionProcessorBase.IDX_OUT_XDIST].get());
+			results.add((Double)out[VisionProcessorBase.IDX_OUT_ZDIST].get());
+			source.release(frame);
+		}
+		source.close();
+		rgba.release();
+		return results;
+	}
+
+	/**
+	 * Writes synthetic frames of the target to a ring file, in NV21 like the recorder.
+	 */
+	private static File record(long seed) throws IOException {
+		final TargetFrameGenerator generator = new TargetFrameGenerator(kWidth, kHeight, camera, seed);
+		generator.setPoseRange(40, 140, 25);
+		return RingFiles.write(kWidth, kHeight, kFrames, RingFiles.range(0, kFrames - 1), 33000000L, generator);
+	}
+}
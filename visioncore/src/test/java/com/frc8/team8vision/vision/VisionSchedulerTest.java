@@ -0,0 +1,159 @@
+package com.frc8.team8vision.vision;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that tasks run on their deadlines and when woken, never twice at once, and not
+ * at all while paused, and that waking one costs the waking thread no allocation.
+ */
+public class VisionSchedulerTest {
+
+	private final VisionScheduler mScheduler = new VisionScheduler("Test", ThreadTuning.Role.TRANSPORT);
+
+	@After
+	public void shutdown() {
+		mScheduler.shutdown();
+		ThreadTuning.setTuner(null);
+	}
+
+	@Test
+	public void runsOnDeadlines() throws Exception {
+		final AtomicInteger runs = new AtomicInteger();
+		final VisionScheduler.Task task = mScheduler.newTask("deadlines", 20, counting(runs));
+		assertEquals(0, mScheduler.getWaiting());
+
+		task.resume();
+		Thread.sleep(500);
+		task.pause();
+		// About 25 runs, fewer if the machine is busy
+		assertTrue("ran " + runs.get(), runs.get() >= 5 && runs.get() <= 30);
+	}
+
+	@Test
+	public void pausedTasksAreParked() throws Exception {
+		final AtomicInteger runs = new AtomicInteger();
+		final VisionScheduler.Task task = mScheduler.newTask("parked", 1, counting(runs));
+		task.resume();
+		Thread.sleep(50);
+		task.pause();
+		// Let a run in progress finish
+		Thread.sleep(20);
+		final int paused = runs.get();
+		assertTrue(paused > 0);
+		assertEquals(0, mScheduler.getWaiting());
+
+		task.wake();
+		Thread.sleep(100);
+		assertEquals(paused, runs.get());
+
+		task.stop();
+		task.resume();
+		Thread.sleep(50);
+		assertEquals(paused, runs.get());
+		assertFalse(task.isActive());
+	}
+
+	@Test
+	public void runsWhenWoken() throws Exception {
+		final AtomicInteger runs = new AtomicInteger(), running = new AtomicInteger(), overlaps = new AtomicInteger();
+		final CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+		final VisionScheduler.Task task = mScheduler.newTask("woken", 0, new Runnable() {
+			@Override
+			public void run() {
+				if (running.incrementAndGet() > 1) overlaps.incrementAndGet();
+				if (runs.incrementAndGet() == 2) {
+					started.countDown();
+					await(release);
+				}
+				running.decrementAndGet();
+			}
+		});
+
+		// Resuming runs once, then only wakes do
+		task.resume();
+		Thread.sleep(50);
+		assertEquals(1, runs.get());
+		assertEquals(0, mScheduler.getWaiting());
+
+		// Wakes during a run fold into one more run
+		task.wake();
+		assertTrue(started.await(1, TimeUnit.SECONDS));
+		for (int i = 0; i < 10; i++) task.wake();
+		release.countDown();
+		Thread.sleep(100);
+		assertEquals(3, runs.get());
+		assertEquals(0, overlaps.get());
+		assertEquals(3, task.getRuns());
+	}
+
+	@Test
+	public void wakesWithoutAllocating() throws Exception {
+		final AtomicInteger runs = new AtomicInteger();
+		final VisionScheduler.Task task = mScheduler.newTask("allocation", 0, counting(runs));
+		task.resume();
+		for (int i = 0; i < 1000; i++) task.wake();
+
+		final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		final long id = Thread.currentThread().getId();
+		final long before = threads.getThreadAllocatedBytes(id);
+		for (int i = 0; i < 100000; i++) task.wake();
+		assertEquals(0, threads.getThreadAllocatedBytes(id) - before);
+
+		// The wakes still run the task
+		final int woken = runs.get();
+		task.wake();
+		Thread.sleep(100);
+		assertTrue(runs.get() > woken);
+	}
+
+	@Test
+	public void tunesItsThreads() throws Exception {
+		final Set<ThreadTuning.Role> roles = Collections.synchronizedSet(new HashSet<ThreadTuning.Role>());
+		ThreadTuning.setTuner(new ThreadTuning.Tuner() {
+			@Override
+			public void tune(ThreadTuning.Role role) {
+				roles.add(role);
+			}
+		});
+		final VisionScheduler scheduler = new VisionScheduler("Tuned", ThreadTuning.Role.PROCESSING);
+		final CountDownLatch ran = new CountDownLatch(1);
+		scheduler.newTask("tuned", 0, new Runnable() {
+			@Override
+			public void run() {
+				assertTrue(Thread.currentThread().getName().startsWith("Tuned-"));
+				ran.countDown();
+			}
+		}).resume();
+		assertTrue(ran.await(1, TimeUnit.SECONDS));
+		scheduler.shutdown();
+		assertEquals(Collections.singleton(ThreadTuning.Role.PROCESSING), roles);
+	}
+
+	private static Runnable counting(final AtomicInteger runs) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				runs.incrementAndGet();
+			}
+		};
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package com.frc8.team8vision.vision.sources;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that replaying a ring file delivers its frames oldest first and counts every
+ * frame it never delivered: those the recorder dropped and those a slow consumer missed.
+ */
+public class RingFileFrameSourceTest {
+
+	private static final int kWidth = 64, kHeight = 48;
+	private static final long kPeriodNanos = 10000000;
+
+	private static final FrameGenerator kGray = new FrameGenerator() {
+		@Override
+		public void generate(long sequence, Mat rgba) {
+			rgba.setTo(new Scalar(sequence % 256, sequence % 256, sequence % 256, 255));
+		}
+	};
+
+	@BeforeClass
+	public static void loadOpenCV() {
+		nu.pattern.OpenCV.loadLocally();
+	}
+
+	@Test
+	public void countsFramesTheRecorderDropped() throws Exception {
+		final File file = RingFiles.write(kWidth, kHeight, 16, new long[] {0, 1, 2, 5, 6, 9}, kPeriodNanos, kGray);
+		final RingFileFrameSource source = new RingFileFrameSource(file, false, 1);
+		assertTrue(source.start());
+
+		assertEquals(asList(0, 1, 2, 5, 6, 9), replay(source, 0, 1));
+		assertEquals(6, source.getDeliveredFrames());
+		assertEquals(4, source.getDroppedFrames());
+		source.close();
+	}
+
+	@Test
+	public void replaysWrappedRingOldestFirst() throws Exception {
+		// Frames 0 to 11 were overwritten by the time recording stopped
+		final File file = RingFiles.write(kWidth, kHeight, 8, RingFiles.range(0, 19), kPeriodNanos, kGray);
+		final RingFileFrameSource source = new RingFileFrameSource(file, false, 1);
+		assertTrue(source.start());
+
+		assertEquals(8, source.getFrameCount());
+		assertEquals(asList(12, 13, 14, 15, 16, 17, 18, 19), replay(source, 0, 1));
+		assertEquals(0, source.getDroppedFrames());
+		source.close();
+	}
+
+	@Test
+	public void countsFramesASlowConsumerMissed() throws Exception {
+		final int frames = 30;
+		final File file = RingFiles.write(kWidth, kHeight, frames, RingFiles.range(0, frames - 1), kPeriodNanos, kGray);
+		// Holds two frames at once, and takes three frame periods over each
+		final RingFileFrameSource source = new RingFileFrameSource(file, true, 3);
+		assertTrue(source.start());
+
+		final List<Long> delivered = replay(source, 3 * kPeriodNanos / 1000000, 2);
+		assertTrue("dropped " + source.getDroppedFrames(), source.getDroppedFrames() > 0);
+		assertEquals(delivered.size(), source.getDeliveredFrames());
+		assertEquals(frames, source.getDeliveredFrames() + source.getDroppedFrames());
+		// The last frame is always delivered, and every gap is counted
+		assertEquals(frames - 1, (long)delivered.get(delivered.size() - 1));
+		assertEquals(source.getDroppedFrames(), gaps(delivered));
+		source.close();
+	}
+
+	/**
+	 * Takes every frame of the source, holding up to the given number at once.
+	 *
+	 * @return Sequence numbers of the frames delivered
+	 */
+	static List<Long> replay(FrameSource source, long sleepMS, int hold) throws InterruptedException {
+		final List<Long> sequences = new ArrayList<>();
+		final ArrayDeque<Frame> held = new ArrayDeque<>();
+		Frame frame;
+		while ((frame = source.next()) != null) {
+			sequences.add(frame.getSequence());
+			held.add(frame);
+			if (sleepMS > 0) Thread.sleep(sleepMS);
+			if (held.size() == hold) source.release(held.poll());
+		}
+		while (!held.isEmpty()) source.release(held.poll());
+		return sequences;
+	}
+
+	/**
+	 * @return Number of sequence numbers from 0 to the last delivered that were never delivered
+	 */
+	static long gaps(List<Long> sequences) {
+		return sequences.get(sequences.size() - 1) + 1 - sequences.size();
+	}
+
+	private static List<Long> asList(long... values) {
+		final List<Long> list = new ArrayList<>();
+		for (long value : values) list.add(value);
+		return list;
+	}
+}
@@ -0,0 +1,88 @@
+package com.frc8.team8vision.vision.sources;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static com.frc8.team8vision.vision.sources.RingFileFormat.*;
+
+/**
+ * Writes ring files the way the frame recorder does, for tests replaying them.
+ */
+public final class RingFiles {
+
+	private RingFiles() {}
+
+	/**
+	 * Draws the given frames, converts them to NV21 and stores each in the slot of its
+	 * sequence number. Slots no frame went to are left empty.
+	 *
+	 * @param sequences Sequence numbers of the frames that were recorded, in recording order
+	 * @param periodNanos Time between captures; frame seq is stamped seq * periodNanos
+	 * @return The file, deleted when the test JVM exits
+	 */
+	public static File write(int width, int height, int slotCount, long[] sequences, long periodNanos,
+							 FrameGenerator generator) throws IOException {
+		final File file = File.createTempFile("frames", ".ring");
+		file.deleteOnExit();
+
+		final int pixels = width * height, frameBytes = pixels * 3 / 2, slotBytes = FRAME_HEADER_BYTES + frameBytes;
+		final Mat rgba = new Mat(height, width, CvType.CV_8UC4), yuv = new Mat();
+		final byte[] i420 = new byte[frameBytes], nv21 = new byte[frameBytes];
+
+		try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+			final long size = FILE_HEADER_BYTES + (long)slotCount * slotBytes;
+			out.setLength(size);
+			final MappedByteBuffer map = out.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+			map.order(ByteOrder.LITTLE_ENDIAN);
+			map.putInt(HDR_MAGIC, MAGIC);
+			map.putInt(HDR_VERSION, VERSION);
+			map.putInt(HDR_WIDTH, width);
+			map.putInt(HDR_HEIGHT, height);
+			map.putInt(HDR_FRAME_BYTES, frameBytes);
+			map.putInt(HDR_SLOT_COUNT, slotCount);
+			for (int i = 0; i < slotCount; i++) map.putLong(FILE_HEADER_BYTES + i * slotBytes + FRM_SEQUENCE, -1);
+
+			for (long sequence : sequences) {
+				generator.generate(sequence, rgba);
+				Imgproc.cvtColor(rgba, yuv, Imgproc.COLOR_RGBA2YUV_I420);
+				yuv.get(0, 0, i420);
+				// NV21 keeps the luma plane and interleaves the chroma, V first
+				System.arraycopy(i420, 0, nv21, 0, pixels);
+				for (int j = 0; j < pixels / 4; j++) {
+					nv21[pixels + 2*j] = i420[pixels + pixels/4 + j];
+					nv21[pixels + 2*j + 1] = i420[pixels + j];
+				}
+
+				final int slot = FILE_HEADER_BYTES + (int)(sequence % slotCount) * slotBytes;
+				map.putLong(slot + FRM_SEQUENCE, sequence);
+				map.putLong(slot + FRM_TIMESTAMP_NS, sequence * periodNanos);
+				map.putInt(slot + FRM_LENGTH, frameBytes);
+				map.position(slot + FRAME_HEADER_BYTES);
+				map.put(nv21);
+			}
+			if (sequences.length > 0) map.putLong(HDR_LAST_SEQUENCE, sequences[sequences.length - 1]);
+			map.putLong(HDR_FRAMES_WRITTEN, sequences.length);
+			map.force();
+		}
+		rgba.release();
+		yuv.release();
+		return file;
+	}
+
+	/**
+	 * @return Sequence numbers from first to last, inclusive
+	 */
+	public static long[] range(long first, long last) {
+		final long[] sequences = new long[(int)(last - first + 1)];
+		for (int i = 0; i < sequences.length; i++) sequences[i] = first + i;
+		return sequences;
+	}
+}
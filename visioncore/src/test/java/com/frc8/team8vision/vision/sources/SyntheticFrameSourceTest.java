@@ -0,0 +1,68 @@
+package com.frc8.team8vision.vision.sources;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.Mat;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a paced synthetic source drops and counts the frames a slow consumer was
+ * too late for, and that an unpaced one never drops any.
+ */
+public class SyntheticFrameSourceTest {
+
+	private static final int kWidth = 64, kHeight = 48, kFrames = 40;
+
+	private static final FrameGenerator kBlank = new FrameGenerator() {
+		@Override
+		public void generate(long sequence, Mat rgba) {}
+	};
+
+	@BeforeClass
+	public static void loadOpenCV() {
+		nu.pattern.OpenCV.loadLocally();
+	}
+
+	@Test
+	public void pacedSourceCountsMissedFrames() throws Exception {
+		// 100 fps, while the consumer holds two frames and takes 25 ms over each
+		final SyntheticFrameSource source = new SyntheticFrameSource(kWidth, kHeight, kBlank, kFrames, 100, 3);
+		assertTrue(source.start());
+
+		final List<Long> delivered = RingFileFrameSourceTest.replay(source, 25, 2);
+		assertTrue("dropped " + source.getDroppedFrames(), source.getDroppedFrames() > kFrames / 2);
+		assertEquals(delivered.size(), source.getDeliveredFrames());
+		assertEquals(kFrames, source.getDeliveredFrames() + source.getDroppedFrames());
+		assertEquals(kFrames - 1, (long)delivered.get(delivered.size() - 1));
+		assertEquals(source.getDroppedFrames(), RingFileFrameSourceTest.gaps(delivered));
+		source.close();
+	}
+
+	@Test
+	public void unpacedSourceNeverDrops() throws Exception {
+		final SyntheticFrameSource source = new SyntheticFrameSource(kWidth, kHeight, kBlank, kFrames, 0, 3);
+		assertTrue(source.start());
+
+		final List<Long> delivered = RingFileFrameSourceTest.replay(source, 1, 2);
+		assertEquals(kFrames, delivered.size());
+		assertEquals(kFrames, source.getDeliveredFrames());
+		assertEquals(0, source.getDroppedFrames());
+		source.close();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void holdingEveryFrameFails() throws Exception {
+		final SyntheticFrameSource source = new SyntheticFrameSource(kWidth, kHeight, kBlank, kFrames, 0, 2);
+		assertTrue(source.start());
+		try {
+			source.next();
+			source.next();
+			source.next();
+		} finally {
+			source.close();
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.frc8.team8vision.vision.telemetry;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that striped metrics lose nothing across threads and that both snapshot forms
+ * report what was recorded. Metrics are global, so every test uses names of its own.
+ */
+public class TelemetryTest {
+
+	@Test
+	public void countsAcrossThreads() throws InterruptedException {
+		final StripedCounter counter = Telemetry.counter("test.threads");
+		final LatencyHistogram latency = Telemetry.latency("test.threads");
+		final Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 100000; i++) {
+						counter.increment();
+						latency.record(1000000);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) thread.join();
+
+		assertSame(counter, Telemetry.counter("test.threads"));
+		assertEquals(800000, counter.sum());
+		assertEquals(800000, latency.percentiles(new double[] {0.5}, new long[1]));
+	}
+
+	@Test
+	public void bucketsCoverEveryLatency() {
+		for (int bucket = 0; bucket < LatencyHistogram.kBuckets - 1; bucket++) {
+			final long low = LatencyHistogram.lowerBound(bucket), high = LatencyHistogram.lowerBound(bucket + 1);
+			assertTrue(high > low);
+			assertEquals(bucket, LatencyHistogram.bucket(low));
+			assertEquals(bucket, LatencyHistogram.bucket(high - 1));
+			// Percentiles are reported as a bucket's upper bound
+			if (low >= 4) assertTrue(high <= low * 1.25);
+		}
+	}
+
+	@Test
+	public void reportsPercentiles() {
+		final LatencyHistogram latency = new LatencyHistogram();
+		// 1 to 1000 ms, one each
+		for (int ms = 1; ms <= 1000; ms++) latency.record(ms * 1000000L);
+
+		final double[] quantiles = {0.5, 0.9, 0.99, 1};
+		final long[] nanos = new long[quantiles.length];
+		assertEquals(1000, latency.percentiles(quantiles, nanos));
+		for (int i = 0; i < quantiles.length; i++) {
+			final double expected = quantiles[i] * 1000e6;
+			assertTrue(nanos[i] + " for " + quantiles[i], nanos[i] >= expected && nanos[i] <= expected * 1.25);
+		}
+		assertEquals(1000000000L, latency.getMaxNanos());
+		assertEquals(1000000000L, nanos[3]);
+	}
+
+	@Test
+	public void snapshots() throws Exception {
+		Telemetry.counter(Telemetry.kTransport + "TestClient.bytes").add(1234);
+		Telemetry.counter(Telemetry.kDropped + "test").add(5);
+		Telemetry.gauge("test.gauge").set(-7);
+		final LatencyHistogram latency = Telemetry.latency("test.snapshot");
+		for (int i = 0; i < 10; i++) latency.record(20000000L);
+
+		final JSONObject json = Telemetry.toJson();
+		assertEquals(1234, json.getJSONObject("transport").getJSONObject("TestClient").getLong("bytes"));
+		assertEquals(5, json.getJSONObject("dropped").getLong("test"));
+		assertEquals(-7, json.getJSONObject("test").getLong("gauge"));
+		assertTrue(json.getJSONObject("memory").getLong("heapUsedBytes") > 0);
+		final JSONObject stage = json.getJSONObject("latency").getJSONObject("test").getJSONObject("snapshot");
+		assertEquals(10, stage.getLong("count"));
+		assertEquals(20, stage.getDouble("p99Ms"), 0.001);
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		Telemetry.writeBinary(new DataOutputStream(bytes));
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		assertEquals(Telemetry.kBinaryMagic, in.readInt());
+		assertEquals(Telemetry.kBinaryVersion, in.readByte());
+		assertTrue(in.readLong() >= 0);
+		in.readFloat();
+
+		final Map<String, Long> values = new HashMap<>();
+		for (int i = in.readShort(); i > 0; i--) values.put(in.readUTF(), in.readLong());
+		assertEquals(Long.valueOf(1234), values.get("transport.TestClient.bytes"));
+		assertEquals(Long.valueOf(-7), values.get("test.gauge"));
+
+		boolean found = false;
+		for (int i = in.readShort(); i > 0; i--) {
+			final String name = in.readUTF();
+			final long count = in.readLong();
+			final int p50 = in.readInt(), p90 = in.readInt(), p99 = in.readInt(), max = in.readInt();
+			if (name.equals("latency.test.snapshot")) {
+				found = true;
+				assertEquals(10, count);
+				assertEquals(20000, p50);
+				assertEquals(20000, max);
+				assertTrue(p50 <= p90 && p90 <= p99);
+			}
+		}
+		assertTrue(found);
+		assertEquals(-1, in.read());
+	}
+}
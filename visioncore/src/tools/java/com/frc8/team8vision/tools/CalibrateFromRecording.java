@@ -0,0 +1,72 @@
+package com.frc8.team8vision.tools;
+
+import com.frc8.team8vision.vision.CalibrationStore;
+import com.frc8.team8vision.vision.CameraCalibration;
+import com.frc8.team8vision.vision.ChessboardCalibrator;
+import com.frc8.team8vision.vision.sources.Frame;
+import com.frc8.team8vision.vision.sources.RingFileFrameSource;
+
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * Calibrates a phone's camera from a ring file of frames recorded while a chessboard was
+ * moved around in front of it, and saves the calibration for the app to load:
+ *
+ * <pre>
+ * ./gradlew :visioncore:calibrate -Precording=frames.ring -Pdevice="Nexus 5X" -Pcorners=9x6
+ * adb push calibrations/nexus-5x-640x360.json /sdcard/Android/data/com.frc8.team8vision/files/calibrations/
+ * </pre>
+ *
+ * The device name must match the one the app logs for its profile. Every fifth frame is
+ * looked at by default so consecutive, nearly identical views do not dominate the fit.
+ */
+public class CalibrateFromRecording {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 5) {
+			System.err.println("Usage: <ring file> <device> <inner corners across> <inner corners down> <output directory> [every nth frame]");
+			System.exit(2);
+		}
+		final File recording = new File(args[0]);
+		final String device = args[1];
+		final int columns = Integer.parseInt(args[2]), rows = Integer.parseInt(args[3]);
+		final File output = new File(args[4]);
+		final int stride = args.length > 5 ? Integer.parseInt(args[5]) : 5;
+
+		nu.pattern.OpenCV.loadLocally();
+
+		final RingFileFrameSource source = new RingFileFrameSource(recording, false, 1);
+		if (!source.start()) throw new IllegalArgumentException("Cannot read " + recording);
+
+		final ChessboardCalibrator calibrator = new ChessboardCalibrator(device, columns, rows);
+		final Mat rgba = new Mat(), gray = new Mat();
+		int frames = 0;
+		Frame frame;
+		while ((frame = source.next()) != null) {
+			if (frames++ % stride == 0) {
+				if (frame.getFormat() == Frame.FORMAT_NV21) {
+					// The luma plane is the first rows of the frame
+					frame.mat().rowRange(0, frame.getHeight()).copyTo(gray);
+				} else {
+					Imgproc.cvtColor(frame.rgba(rgba), gray, Imgproc.COLOR_RGBA2GRAY);
+				}
+				calibrator.offer(gray);
+			}
+			source.release(frame);
+		}
+		source.close();
+		System.out.println("Found the board in " + calibrator.getViews() + " of " + (frames + stride - 1) / stride
+				+ " frames looked at");
+
+		final CameraCalibration calibration = calibrator.calibrate();
+		calibrator.release();
+		System.out.println(String.format(Locale.US, "%s: fx %.2f fy %.2f cx %.2f cy %.2f, reprojection error %.3f px",
+				calibration, calibration.getIntrinsic(0, 0), calibration.getIntrinsic(1, 1),
+				calibration.getIntrinsic(0, 2), calibration.getIntrinsic(1, 2), calibration.getError()));
+		System.out.println("Saved " + new CalibrationStore(output).save(calibration));
+	}
+}